@@ -0,0 +1,80 @@
+package org.openjdk.bench.java.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.UnrolledLinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-threaded FIFO and LIFO throughput of the {@link Deque}
+ * implementations, starting from a deque holding {@code size} elements.
+ * 双端队列的先进先出/后进先出操作的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class DequeBench {
+
+    @Param({"ArrayDeque", "LinkedList", "UnrolledLinkedList", "ConcurrentLinkedDeque", "LinkedBlockingDeque"})
+    public String impl;
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private Deque<Integer> deque;
+
+    @Setup
+    public void setup() {
+        switch (impl) {
+            case "ArrayDeque":            deque = new ArrayDeque<>(); break;
+            case "LinkedList":            deque = new LinkedList<>(); break;
+            case "UnrolledLinkedList":    deque = new UnrolledLinkedList<>(); break;
+            case "ConcurrentLinkedDeque": deque = new ConcurrentLinkedDeque<>(); break;
+            case "LinkedBlockingDeque":   deque = new LinkedBlockingDeque<>(); break;
+            default: throw new IllegalArgumentException(impl);
+        }
+        for (int i = 0; i < size; i++)
+            deque.addLast(i);
+    }
+
+    @Benchmark
+    public Integer fifo() {
+        Deque<Integer> d = deque;
+        Integer e = d.pollFirst();
+        d.offerLast(e);
+        return e;
+    }
+
+    @Benchmark
+    public Integer lifo() {
+        Deque<Integer> d = deque;
+        Integer e = d.pollLast();
+        d.offerLast(e);
+        return e;
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0L;
+        for (Integer e : deque)
+            sum += e;
+        return sum;
+    }
+}
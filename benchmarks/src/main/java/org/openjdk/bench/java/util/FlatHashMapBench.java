@@ -0,0 +1,119 @@
+package org.openjdk.bench.java.util;
+
+import java.util.FlatHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookup and insertion cost of {@link FlatHashMap} against the chained
+ * {@link HashMap} and the treeified bins of {@link ConcurrentHashMap},
+ * for well distributed keys and for keys sharing hash codes in groups of
+ * 8 (plus 8 missing keys), with and without {@link Comparable} (tree
+ * bins can only order comparable keys).
+ * 扁平哈希表与链表/红黑树桶在正常和哈希冲突键下的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class FlatHashMapBench {
+
+    @Param({"HashMap", "ConcurrentHashMap", "FlatHashMap"})
+    public String impl;
+
+    @Param({"random", "colliding", "collidingComparable"})
+    public String keys;
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private Object[] hits;
+    private Object[] misses;
+    private Map<Object, Object> map;
+
+    /** A key whose hash code is shared by 16 keys. */
+    static class CollidingKey {
+        final int id;
+        CollidingKey(int id) { this.id = id; }
+        public int hashCode() { return id >>> 4; }
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+    }
+
+    static final class ComparableKey extends CollidingKey
+        implements Comparable<ComparableKey> {
+        ComparableKey(int id) { super(id); }
+        public int compareTo(ComparableKey o) { return Integer.compare(id, o.id); }
+    }
+
+    static Object newKey(String keys, int id) {
+        switch (keys) {
+            case "random":              return id;
+            case "colliding":           return new CollidingKey(id);
+            case "collidingComparable": return new ComparableKey(id);
+            default: throw new IllegalArgumentException(keys);
+        }
+    }
+
+    static Map<Object, Object> newMap(String impl) {
+        switch (impl) {
+            case "HashMap":           return new HashMap<>();
+            case "ConcurrentHashMap": return new ConcurrentHashMap<>();
+            case "FlatHashMap":       return new FlatHashMap<>();
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        hits = new Object[size];
+        misses = new Object[size];
+        map = newMap(impl);
+        for (int i = 0; i < size; i++) {
+            int id = keys.equals("random") ? rnd.nextInt() & ~1 : i << 1;
+            // 奇偶分离，保证一定不命中
+            hits[i] = newKey(keys, id);
+            misses[i] = newKey(keys, id | 1);
+            map.put(hits[i], hits[i]);
+        }
+    }
+
+    @Benchmark
+    public void getHit(Blackhole bh) {
+        for (Object k : hits)
+            bh.consume(map.get(k));
+    }
+
+    @Benchmark
+    public void getMiss(Blackhole bh) {
+        for (Object k : misses)
+            bh.consume(map.get(k));
+    }
+
+    @Benchmark
+    public Map<Object, Object> put() {
+        Map<Object, Object> m = newMap(impl);
+        for (Object k : hits)
+            m.put(k, k);
+        return m;
+    }
+}
@@ -0,0 +1,84 @@
+package org.openjdk.bench.java.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Small read-only maps of the size of message headers: building and
+ * querying the array-backed {@code Map.copyOf} against a
+ * {@link HashMap} wrapped by {@link Collections#unmodifiableMap}.
+ * 小型不可变映射表(数组实现与包装的HashMap)的创建和查找的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ImmutableMapBench {
+
+    @Param({"ImmutableMap", "UnmodifiableHashMap"})
+    public String impl;
+
+    @Param({"2", "4", "8"})
+    public int size;
+
+    private Map<String, String> source;
+    private Map<String, String> map;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        source = new HashMap<>();
+        keys = new String[size * 2];
+        for (int i = 0; i < size; i++) {
+            source.put("header-" + i, "value-" + i);
+            // 一半命中，一半未命中
+            keys[2 * i] = new String("header-" + i);
+            keys[2 * i + 1] = "missing-" + i;
+        }
+        map = copy(impl, source);
+    }
+
+    static Map<String, String> copy(String impl, Map<String, String> m) {
+        switch (impl) {
+            case "ImmutableMap":        return Map.copyOf(m);
+            case "UnmodifiableHashMap": return Collections.unmodifiableMap(new HashMap<>(m));
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> create() {
+        return copy(impl, source);
+    }
+
+    @Benchmark
+    public String get() {
+        int i = next;
+        next = (i + 1 == keys.length) ? 0 : i + 1;
+        return map.get(keys[i]);
+    }
+
+    @Benchmark
+    public int iterate() {
+        int h = 0;
+        for (Map.Entry<String, String> e : map.entrySet())
+            h += e.getValue().length();
+        return h;
+    }
+}
@@ -0,0 +1,117 @@
+package org.openjdk.bench.java.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UnrolledLinkedList;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of appending, indexed access, iteration and removal for the
+ * {@link List} implementations.
+ * 列表的基本操作(ArrayList.add、grow等热点路径)的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ListBench {
+
+    @Param({"ArrayList", "LinkedList", "UnrolledLinkedList", "Vector", "CopyOnWriteArrayList"})
+    public String impl;
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private List<Integer> list;
+
+    @Setup
+    public void setup() {
+        list = newList(impl);
+        for (int i = 0; i < size; i++)
+            list.add(i);
+    }
+
+    static List<Integer> newList(String impl) {
+        switch (impl) {
+            case "ArrayList":            return new ArrayList<>();
+            case "LinkedList":           return new LinkedList<>();
+            case "UnrolledLinkedList":   return new UnrolledLinkedList<>();
+            case "Vector":               return new Vector<>();
+            case "CopyOnWriteArrayList": return new CopyOnWriteArrayList<>();
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> add() {
+        List<Integer> l = newList(impl);
+        // 小整数走Integer缓存，只测量列表本身的开销
+        Integer e = 1;
+        for (int i = 0; i < size; i++)
+            l.add(e);
+        return l;
+    }
+
+    @Benchmark
+    public void getByIndex(Blackhole bh) {
+        // LinkedList的随机访问是O(n)，只访问头尾附近的元素
+        List<Integer> l = list;
+        int n = Math.min(size, 64);
+        for (int i = 0; i < n; i++)
+            bh.consume(l.get(i));
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0L;
+        for (Integer e : list)
+            sum += e;
+        return sum;
+    }
+
+    @Benchmark
+    public long forEach() {
+        long[] sum = new long[1];
+        list.forEach(e -> sum[0] += e);
+        return sum[0];
+    }
+
+    @Benchmark
+    public int removeIf() {
+        List<Integer> l = newList(impl);
+        l.addAll(list);
+        l.removeIf(e -> (e & 1) == 0);
+        return l.size();
+    }
+
+    @Benchmark
+    public int iteratorRemove() {
+        if ("CopyOnWriteArrayList".equals(impl))
+            return 0; // 不支持迭代器的remove操作
+        List<Integer> l = newList(impl);
+        l.addAll(list);
+        for (Iterator<Integer> it = l.iterator(); it.hasNext(); ) {
+            if ((it.next() & 1) == 0)
+                it.remove();
+        }
+        return l.size();
+    }
+}
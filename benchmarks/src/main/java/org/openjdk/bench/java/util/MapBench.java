@@ -0,0 +1,119 @@
+package org.openjdk.bench.java.util;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single-threaded throughput of the basic {@link Map} operations
+ * (put, get hit/miss, remove and entry iteration) across the
+ * java.util and java.util.concurrent map implementations.
+ * 映射表的基本操作(HashMap.putVal、getNode等热点路径)的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class MapBench {
+
+    @Param({"HashMap", "LinkedHashMap", "TreeMap", "IdentityHashMap",
+            "ConcurrentHashMap", "ConcurrentSkipListMap"})
+    public String impl;
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private Integer[] keys;
+    private Integer[] missingKeys;
+    private Map<Integer, Integer> map;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        keys = new Integer[size];
+        missingKeys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            int k = rnd.nextInt();
+            // 奇偶分离，保证一定不命中
+            keys[i] = k & ~1;
+            missingKeys[i] = k | 1;
+        }
+        map = newMap(impl);
+        for (Integer k : keys)
+            map.put(k, k);
+    }
+
+    static Map<Integer, Integer> newMap(String impl) {
+        switch (impl) {
+            case "HashMap":               return new HashMap<>();
+            case "LinkedHashMap":         return new LinkedHashMap<>();
+            case "TreeMap":               return new TreeMap<>();
+            case "IdentityHashMap":       return new IdentityHashMap<>();
+            case "ConcurrentHashMap":     return new ConcurrentHashMap<>();
+            case "ConcurrentSkipListMap": return new ConcurrentSkipListMap<>();
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> put() {
+        Map<Integer, Integer> m = newMap(impl);
+        for (Integer k : keys)
+            m.put(k, k);
+        return m;
+    }
+
+    @Benchmark
+    public void getHit(Blackhole bh) {
+        Map<Integer, Integer> m = map;
+        for (Integer k : keys)
+            bh.consume(m.get(k));
+    }
+
+    @Benchmark
+    public void getMiss(Blackhole bh) {
+        Map<Integer, Integer> m = map;
+        for (Integer k : missingKeys)
+            bh.consume(m.get(k));
+    }
+
+    @Benchmark
+    public int putRemove() {
+        Map<Integer, Integer> m = map;
+        int n = 0;
+        for (Integer k : missingKeys) {
+            m.put(k, k);
+            if (m.remove(k) != null)
+                n++;
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0L;
+        for (Map.Entry<Integer, Integer> e : map.entrySet())
+            sum += e.getKey() + e.getValue();
+        return sum;
+    }
+}
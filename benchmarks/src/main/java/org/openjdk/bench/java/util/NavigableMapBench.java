@@ -0,0 +1,126 @@
+package org.openjdk.bench.java.util;
+
+import java.util.BTreeMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorted map lookups, ordered scans, range scans, parallel streams and
+ * copying from a sorted map, comparing the red-black {@link TreeMap} and
+ * the skip list against the B+tree {@link BTreeMap}.
+ * 有序映射表(红黑树、跳表与B+树)的查找和遍历的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class NavigableMapBench {
+
+    @Param({"TreeMap", "BTreeMap", "ConcurrentSkipListMap"})
+    public String impl;
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private Integer[] keys;
+    private NavigableMap<Integer, Integer> map;
+    private TreeMap<Integer, Integer> sorted;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = rnd.nextInt();
+        map = newMap(impl);
+        sorted = new TreeMap<>();
+        for (Integer k : keys) {
+            map.put(k, k);
+            sorted.put(k, k);
+        }
+    }
+
+    static NavigableMap<Integer, Integer> newMap(String impl) {
+        switch (impl) {
+            case "TreeMap":               return new TreeMap<>();
+            case "BTreeMap":              return new BTreeMap<>();
+            case "ConcurrentSkipListMap": return new ConcurrentSkipListMap<>();
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    private Integer nextKey() {
+        int i = next;
+        next = (i + 1 == size) ? 0 : i + 1;
+        return keys[i];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer ceilingKey() {
+        return map.ceilingKey(nextKey() + 1);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Map.Entry<Integer, Integer> e : map.entrySet())
+            sum += e.getValue();
+        return sum;
+    }
+
+    @Benchmark
+    public long rangeScan() {
+        // 从随机位置开始扫描64个键
+        long sum = 0;
+        int n = 0;
+        for (Integer k : map.tailMap(nextKey(), true).keySet()) {
+            sum += k;
+            if (++n == 64)
+                break;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parallelSum() {
+        return map.keySet().parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public NavigableMap<Integer, Integer> copyOfSorted() {
+        NavigableMap<Integer, Integer> m = newMap(impl);
+        m.putAll(sorted);
+        return m;
+    }
+
+    @Benchmark
+    public NavigableMap<Integer, Integer> putRandom() {
+        NavigableMap<Integer, Integer> m = newMap(impl);
+        for (Integer k : keys)
+            m.put(k, k);
+        return m;
+    }
+}
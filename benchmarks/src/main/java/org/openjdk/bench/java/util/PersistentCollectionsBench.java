@@ -0,0 +1,120 @@
+package org.openjdk.bench.java.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PersistentHashMap;
+import java.util.PersistentVector;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Publishing a new snapshot of a map or list after one update: copying a
+ * {@link HashMap} or {@link ArrayList} on write, against the path copying
+ * of {@link PersistentHashMap} and {@link PersistentVector}, plus lookups
+ * and bulk building through transients.
+ * 写时复制快照与持久化集合(路径复制)的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class PersistentCollectionsBench {
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private Integer[] keys;
+    private HashMap<Integer,Integer> hashMap;
+    private PersistentHashMap<Integer,Integer> persistentMap;
+    private ArrayList<Integer> arrayList;
+    private PersistentVector<Integer> vector;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = rnd.nextInt();
+        hashMap = new HashMap<>();
+        arrayList = new ArrayList<>();
+        PersistentHashMap.Transient<Integer,Integer> m =
+            PersistentHashMap.<Integer,Integer>empty().asTransient();
+        PersistentVector.Transient<Integer> v =
+            PersistentVector.<Integer>empty().asTransient();
+        for (Integer k : keys) {
+            hashMap.put(k, k);
+            arrayList.add(k);
+            m.put(k, k);
+            v.add(k);
+        }
+        persistentMap = m.persistent();
+        vector = v.persistent();
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1 == size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public HashMap<Integer,Integer> copyOnWriteHashMap() {
+        HashMap<Integer,Integer> copy = new HashMap<>(hashMap);
+        Integer k = keys[nextIndex()];
+        copy.put(k, k + 1);
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentHashMap<Integer,Integer> persistentHashMapWith() {
+        Integer k = keys[nextIndex()];
+        return persistentMap.with(k, k + 1);
+    }
+
+    @Benchmark
+    public Integer hashMapGet() {
+        return hashMap.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Integer persistentHashMapGet() {
+        return persistentMap.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> copyOnWriteArrayList() {
+        ArrayList<Integer> copy = new ArrayList<>(arrayList);
+        int i = nextIndex();
+        copy.set(i, i);
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentVector<Integer> persistentVectorWith() {
+        int i = nextIndex();
+        return vector.with(i, i);
+    }
+
+    @Benchmark
+    public PersistentHashMap<Integer,Integer> buildThroughTransient() {
+        PersistentHashMap.Transient<Integer,Integer> t =
+            PersistentHashMap.<Integer,Integer>empty().asTransient();
+        for (Integer k : keys)
+            t.put(k, k);
+        return t.persistent();
+    }
+}
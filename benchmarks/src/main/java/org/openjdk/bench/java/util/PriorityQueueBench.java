@@ -0,0 +1,119 @@
+package org.openjdk.bench.java.util;
+
+import java.util.Comparator;
+import java.util.IndexedLongPriorityQueue;
+import java.util.LongPriorityQueue;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduler-like use of a priority queue of (long deadline, int id)
+ * entries: filling and draining the queue, and moving the deadlines of
+ * queued ids, with a {@link PriorityQueue} of objects and a comparator
+ * against {@link LongPriorityQueue} and {@link IndexedLongPriorityQueue}.
+ * 二叉堆对象优先级队列与4叉堆原始类型优先级队列的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class PriorityQueueBench {
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private long[] deadlines;
+    private long[] moved;
+
+    static final class Task {
+        long deadline;
+        final int id;
+        Task(long deadline, int id) { this.deadline = deadline; this.id = id; }
+    }
+
+    static final Comparator<Task> BY_DEADLINE =
+        (a, b) -> Long.compare(a.deadline, b.deadline);
+
+    private PriorityQueue<Task> objectQueue;
+    private Task[] tasks;
+    private IndexedLongPriorityQueue indexedQueue;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        deadlines = new long[size];
+        moved = new long[size];
+        for (int i = 0; i < size; i++) {
+            deadlines[i] = rnd.nextLong();
+            moved[i] = rnd.nextLong();
+        }
+        objectQueue = new PriorityQueue<>(size, BY_DEADLINE);
+        tasks = new Task[size];
+        indexedQueue = new IndexedLongPriorityQueue(size);
+        for (int i = 0; i < size; i++) {
+            objectQueue.add(tasks[i] = new Task(deadlines[i], i));
+            indexedQueue.offer(deadlines[i], i);
+        }
+    }
+
+    @Benchmark
+    public long fillAndDrainPriorityQueue() {
+        PriorityQueue<Task> q = new PriorityQueue<>(BY_DEADLINE);
+        for (int i = 0; i < size; i++)
+            q.add(new Task(deadlines[i], i));
+        long sum = 0;
+        for (Task t; (t = q.poll()) != null; )
+            sum += t.id;
+        return sum;
+    }
+
+    @Benchmark
+    public long fillAndDrainLongPriorityQueue() {
+        LongPriorityQueue q = new LongPriorityQueue();
+        for (int i = 0; i < size; i++)
+            q.offer(deadlines[i], i);
+        long sum = 0;
+        while (!q.isEmpty())
+            sum += q.remove();
+        return sum;
+    }
+
+    /** Moves the deadlines of 64 queued tasks (remove is linear). */
+    @Benchmark
+    public int rescheduleInPriorityQueue() {
+        for (int i = 0; i < 64; i++) {
+            Task t = tasks[i * (size / 64)];
+            objectQueue.remove(t);
+            long d = t.deadline;
+            t.deadline = moved[t.id];
+            moved[t.id] = d;
+            objectQueue.add(t);
+        }
+        return objectQueue.size();
+    }
+
+    @Benchmark
+    public int rescheduleInIndexedLongPriorityQueue() {
+        for (int i = 0; i < 64; i++) {
+            int id = i * (size / 64);
+            long d = indexedQueue.priorityOf(id);
+            indexedQueue.changePriority(id, moved[id]);
+            moved[id] = d;
+        }
+        return indexedQueue.size();
+    }
+}
@@ -0,0 +1,112 @@
+package org.openjdk.bench.java.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorting throughput of {@code DualPivotQuicksort} (primitive arrays),
+ * {@code ComparableTimSort}/{@code TimSort} (object arrays) and the
+ * parallel sort helpers over several input patterns.
+ * 排序算法(双轴快速排序、TimSort)在不同输入模式下的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class SortBench {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"random", "sorted", "reversed", "organPipe", "fewDistinct", "saw"})
+    public String pattern;
+
+    private int[] source;
+    private int[] ints;
+    private long[] longs;
+    private Integer[] boxed;
+
+    @Setup(Level.Trial)
+    public void setupSource() {
+        Random rnd = new Random(42L);
+        int n = size;
+        source = new int[n];
+        for (int i = 0; i < n; i++) {
+            switch (pattern) {
+                case "random":      source[i] = rnd.nextInt(); break;
+                case "sorted":      source[i] = i; break;
+                case "reversed":    source[i] = n - i; break;
+                case "organPipe":   source[i] = (i < n / 2) ? i : n - i; break;
+                case "fewDistinct": source[i] = rnd.nextInt(4); break;
+                // 多个有序的片段，TimSort的run合并路径
+                case "saw":         source[i] = i % 1000; break;
+                default: throw new IllegalArgumentException(pattern);
+            }
+        }
+        ints = new int[n];
+        longs = new long[n];
+        boxed = new Integer[n];
+    }
+
+    @Setup(Level.Invocation)
+    public void copySource() {
+        int[] s = source;
+        System.arraycopy(s, 0, ints, 0, s.length);
+        for (int i = 0; i < s.length; i++) {
+            longs[i] = s[i];
+            boxed[i] = s[i];
+        }
+    }
+
+    @Benchmark
+    public int[] sortInt() {
+        Arrays.sort(ints);
+        return ints;
+    }
+
+    @Benchmark
+    public long[] sortLong() {
+        Arrays.sort(longs);
+        return longs;
+    }
+
+    @Benchmark
+    public int[] parallelSortInt() {
+        Arrays.parallelSort(ints);
+        return ints;
+    }
+
+    @Benchmark
+    public Integer[] sortComparable() {
+        Arrays.sort(boxed);
+        return boxed;
+    }
+
+    @Benchmark
+    public Integer[] sortComparator() {
+        Arrays.sort(boxed, Comparator.reverseOrder());
+        return boxed;
+    }
+
+    @Benchmark
+    public Integer[] parallelSortComparable() {
+        Arrays.parallelSort(boxed);
+        return boxed;
+    }
+}
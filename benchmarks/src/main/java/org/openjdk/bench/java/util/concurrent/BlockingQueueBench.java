@@ -0,0 +1,178 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.MpmcArrayBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Producer/consumer throughput of the {@link BlockingQueue} implementations.
+ * Producers and consumers run in the same JMH group so that the queue is
+ * exercised under contention at both ends; the non-blocking offer/poll
+ * variants avoid deadlocking the harness at the end of an iteration.
+ * {@link MpmcArrayBlockingQueue} is the lock-free counterpart of
+ * {@link ArrayBlockingQueue}.  The batch group inserts 16 elements per
+ * call ({@code offerAll}/{@code addAll} where available, else a loop of
+ * offers) against one draining consumer.
+ * 阻塞队列在生产者-消费者并发竞争下的吞吐量基准测试。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Group)
+public class BlockingQueueBench {
+
+    @Param({"ArrayBlockingQueue", "MpmcArrayBlockingQueue", "LinkedBlockingQueue",
+            "LinkedBlockingDeque", "LinkedTransferQueue", "PriorityBlockingQueue"})
+    public String impl;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private BlockingQueue<Integer> queue;
+
+    private static final Integer ELEMENT = 1;
+
+    private static final List<Integer> BATCH = Collections.nCopies(16, ELEMENT);
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        switch (impl) {
+            case "ArrayBlockingQueue":    queue = new ArrayBlockingQueue<>(capacity); break;
+            case "MpmcArrayBlockingQueue": queue = new MpmcArrayBlockingQueue<>(capacity); break;
+            case "LinkedBlockingQueue":   queue = new LinkedBlockingQueue<>(capacity); break;
+            case "LinkedBlockingDeque":   queue = new LinkedBlockingDeque<>(capacity); break;
+            // 无界队列
+            case "LinkedTransferQueue":   queue = new LinkedTransferQueue<>(); break;
+            case "PriorityBlockingQueue": queue = new PriorityBlockingQueue<>(capacity); break;
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        queue.clear();
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscOffer() {
+        return offer();
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public Integer spscPoll() {
+        return poll();
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public boolean mpmcOffer() {
+        return offer();
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public Integer mpmcPoll() {
+        return poll();
+    }
+
+    @Benchmark
+    @Group("drain")
+    @GroupThreads(4)
+    public boolean drainOffer() {
+        return offer();
+    }
+
+    @Benchmark
+    @Group("drain")
+    @GroupThreads(1)
+    public int drainTo() {
+        List<Integer> sink = new ArrayList<>(64);
+        return queue.drainTo(sink, 64);
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(4)
+    public boolean batchOffer() {
+        BlockingQueue<Integer> q = queue;
+        if (q.size() > capacity - BATCH.size())
+            return false;
+        if (q instanceof LinkedBlockingQueue)
+            return ((LinkedBlockingQueue<Integer>) q).offerAll(BATCH);
+        if (q instanceof LinkedTransferQueue)
+            return q.addAll(BATCH);
+        if (q instanceof MpmcArrayBlockingQueue) {
+            try {
+                return q.addAll(BATCH);
+            } catch (IllegalStateException full) {
+                // 其他生产者抢先占满了队列，已插入的部分保留
+                return false;
+            }
+        }
+        boolean ok = true;
+        for (Integer e : BATCH)
+            ok &= q.offer(e);
+        return ok;
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int batchDrainTo() {
+        List<Integer> sink = new ArrayList<>(64);
+        return queue.drainTo(sink, 64);
+    }
+
+    private boolean offer() {
+        BlockingQueue<Integer> q = queue;
+        // 无界队列需要限制长度，避免内存溢出
+        if (q.size() >= capacity)
+            return false;
+        try {
+            return q.offer(ELEMENT, 1L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Integer poll() {
+        try {
+            return queue.poll(1L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
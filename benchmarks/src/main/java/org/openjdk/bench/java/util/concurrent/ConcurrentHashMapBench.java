@@ -0,0 +1,110 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contended throughput of {@link ConcurrentHashMap} reads and writes
+ * ({@code putVal}, {@code addCount}, {@code transfer}), plus the cost of
+ * loading a whole snapshot through {@code putAll} and
+ * {@code putAllBatched}, and the parallel bulk operations.
+ * 并发哈希映射表在多线程竞争下的读写吞吐量基准测试。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentHashMapBench {
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private Integer[] keys;
+    private ConcurrentHashMap<Integer, Integer> map;
+    private Map<Integer, Integer> snapshot;
+
+    @Setup
+    public void setup() {
+        keys = new Integer[size];
+        map = new ConcurrentHashMap<>();
+        snapshot = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+            map.put(i, i);
+            snapshot.put(i, i);
+        }
+    }
+
+    private Integer randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    public Integer put() {
+        Integer k = randomKey();
+        return map.put(k, k);
+    }
+
+    @Benchmark
+    public Integer computeIfAbsent() {
+        return map.computeIfAbsent(randomKey(), k -> k);
+    }
+
+    @Benchmark
+    public Integer merge() {
+        return map.merge(randomKey(), 1, Integer::sum);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConcurrentHashMap<Integer, Integer> putAll() {
+        ConcurrentHashMap<Integer, Integer> m = new ConcurrentHashMap<>();
+        m.putAll(snapshot);
+        return m;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConcurrentHashMap<Integer, Integer> putAllBatched() {
+        ConcurrentHashMap<Integer, Integer> m = new ConcurrentHashMap<>();
+        m.putAllBatched(snapshot);
+        return m;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConcurrentHashMap<Integer, Integer> putAllBatchedParallel() {
+        ConcurrentHashMap<Integer, Integer> m = new ConcurrentHashMap<>();
+        m.putAllBatched(1L, snapshot);
+        return m;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long reduceValuesParallel() {
+        return map.reduceValuesToLong(1L, Integer::longValue, 0L, Long::sum);
+    }
+}
@@ -0,0 +1,83 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parallel streams over the views of a {@link ConcurrentHashMap} whose
+ * keys are either spread uniformly over the table or skewed, with a
+ * quarter of them colliding into a few TreeBins, exercising the
+ * weighted splitting of the view spliterators, and the threshold taking
+ * {@code valueStream} against the always-parallel {@code parallelStream}.
+ * 并发哈希映射表视图上并行流的负载均衡基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ConcurrentHashMapStreamBench {
+
+    @Param({"uniform", "skewed"})
+    public String shape;
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private ConcurrentHashMap<Key, Integer> map;
+
+    /** A key whose hash code can be made to collide with others. */
+    static final class Key implements Comparable<Key> {
+        final int value, hash;
+        Key(int value, int hash) { this.value = value; this.hash = hash; }
+        public int hashCode() { return hash; }
+        public boolean equals(Object o) {
+            return (o instanceof Key) && ((Key)o).value == value;
+        }
+        public int compareTo(Key k) { return Integer.compare(value, k.value); }
+    }
+
+    @Setup
+    public void setup() {
+        map = new ConcurrentHashMap<>();
+        boolean skewed = shape.equals("skewed");
+        for (int i = 0; i < size; i++) {
+            // 倾斜分布：四分之一的键落入8个桶，形成TreeBin
+            int h = (skewed && (i & 3) == 0) ? (i & 7) << 10 : i * 0x9E3779B9;
+            map.put(new Key(i, h), i);
+        }
+    }
+
+    @Benchmark
+    public long sequentialSum() {
+        return map.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return map.values().parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallelEntryStreamSum() {
+        return map.entrySet().parallelStream()
+            .mapToLong(e -> e.getValue()).sum();
+    }
+
+    @Benchmark
+    public long thresholdStreamSum() {
+        return map.valueStream(1L << 14).mapToLong(Integer::longValue).sum();
+    }
+}
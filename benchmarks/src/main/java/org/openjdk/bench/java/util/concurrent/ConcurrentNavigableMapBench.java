@@ -0,0 +1,134 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentBLinkTreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point lookups, updates and ordered range scans of a shared concurrent
+ * sorted map, comparing {@link ConcurrentSkipListMap} against the B-link
+ * tree {@link ConcurrentBLinkTreeMap}, single-threaded, from four
+ * threads, and with readers running alongside writers.
+ * 并发有序映射表(跳表与B-link树)的查找、更新和范围扫描的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ConcurrentNavigableMapBench {
+
+    @Param({"ConcurrentSkipListMap", "ConcurrentBLinkTreeMap"})
+    public String impl;
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private Integer[] keys;
+    private ConcurrentNavigableMap<Integer, Integer> map;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = rnd.nextInt();
+        map = newMap(impl);
+        for (Integer k : keys)
+            map.put(k, k);
+    }
+
+    static ConcurrentNavigableMap<Integer, Integer> newMap(String impl) {
+        switch (impl) {
+            case "ConcurrentSkipListMap":  return new ConcurrentSkipListMap<>();
+            case "ConcurrentBLinkTreeMap": return new ConcurrentBLinkTreeMap<>();
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    private Integer randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    private long scan() {
+        // 从随机位置开始扫描64个键
+        long sum = 0;
+        int n = 0;
+        for (Integer k : map.tailMap(randomKey(), true).keySet()) {
+            sum += k;
+            if (++n == 64)
+                break;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    public Integer put() {
+        Integer k = randomKey();
+        return map.put(k, k);
+    }
+
+    @Benchmark
+    public long rangeScan() {
+        return scan();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer get4() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer put4() {
+        Integer k = randomKey();
+        return map.put(k, k);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long rangeScan4() {
+        return scan();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Integer mixedGet() {
+        return map.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Integer mixedRemovePut() {
+        // 删除后重新插入，保持大小不变
+        Integer k = randomKey();
+        map.remove(k);
+        return map.put(k, k);
+    }
+}
@@ -0,0 +1,90 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Aggregating over a {@link ConcurrentSkipListMap}: the parallel bulk
+ * operations split at index nodes, against a sequential pass and a
+ * parallel stream over the entry set, for the whole map and for a
+ * quarter of its key range.
+ * 并发跳表映射表的并行批量操作的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ConcurrentSkipListMapBulkBench {
+
+    @Param({"16384", "1048576"})
+    public int size;
+
+    private ConcurrentSkipListMap<Integer, Integer> map;
+    private Integer lo, hi;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        map = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < size; i++)
+            map.put(rnd.nextInt(), i);
+        lo = Integer.MIN_VALUE / 4;
+        hi = Integer.MAX_VALUE / 4;
+    }
+
+    @Benchmark
+    public long sequentialReduce() {
+        return map.reduceToLong(Long.MAX_VALUE, (k, v) -> v, 0L, Long::sum);
+    }
+
+    @Benchmark
+    public long parallelReduce() {
+        return map.reduceToLong(1L, (k, v) -> v, 0L, Long::sum);
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return map.entrySet().parallelStream()
+            .mapToLong(e -> e.getValue()).sum();
+    }
+
+    @Benchmark
+    public long parallelForEach() {
+        LongAdder sum = new LongAdder();
+        map.forEach(1L, (k, v) -> sum.add(v));
+        return sum.sum();
+    }
+
+    @Benchmark
+    public Integer parallelSearch() {
+        // 查找不存在的值，需要访问所有映射
+        return map.search(1L, (k, v) -> (v < 0) ? v : null);
+    }
+
+    @Benchmark
+    public long parallelRangeReduce() {
+        return map.reduceToLong(1L, lo, true, hi, false,
+                                (k, v) -> v, 0L, Long::sum);
+    }
+
+    @Benchmark
+    public long parallelStreamRangeSum() {
+        return map.subMap(lo, true, hi, false).entrySet().parallelStream()
+            .mapToLong(e -> e.getValue()).sum();
+    }
+}
@@ -0,0 +1,107 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Task hand-off latency of the executors: a batch of trivial tasks is
+ * submitted and awaited, which exercises the work queues of
+ * {@code ThreadPoolExecutor} and the {@code scan}/{@code signalWork}
+ * paths of {@link ForkJoinPool}. The recursive benchmark measures
+ * fork/join work-stealing in isolation.
+ * 执行器(线程池、ForkJoinPool工作窃取)的任务提交与调度基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ExecutorBench {
+
+    @Param({"FixedThreadPool", "CachedThreadPool", "WorkStealingPool", "ForkJoinPool"})
+    public String impl;
+
+    @Param({"1000"})
+    public int tasks;
+
+    @Param({"4"})
+    public int parallelism;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        switch (impl) {
+            case "FixedThreadPool":  executor = Executors.newFixedThreadPool(parallelism); break;
+            case "CachedThreadPool": executor = Executors.newCachedThreadPool(); break;
+            case "WorkStealingPool": executor = Executors.newWorkStealingPool(parallelism); break;
+            case "ForkJoinPool":     executor = new ForkJoinPool(parallelism); break;
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void submitBatch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        Runnable task = done::countDown;
+        for (int i = 0; i < tasks; i++)
+            executor.execute(task);
+        done.await();
+    }
+
+    @Benchmark
+    public long recursiveSum() {
+        if (!(executor instanceof ForkJoinPool))
+            return 0L; // 只测量ForkJoinPool的工作窃取
+        return ((ForkJoinPool) executor).invoke(new Sum(0, tasks * 1000));
+    }
+
+    static final class Sum extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 1000;
+        final int lo, hi;
+
+        Sum(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= THRESHOLD) {
+                long s = 0L;
+                for (int i = lo; i < hi; i++)
+                    s += i;
+                return s;
+            }
+            int mid = (lo + hi) >>> 1;
+            Sum left = new Sum(lo, mid);
+            left.fork();
+            long right = new Sum(mid, hi).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Timeout-style use of the scheduled executors: a timeout is scheduled
+ * and cancelled before it expires while {@code pending} other timeouts
+ * are outstanding, from four threads at once.  {@link
+ * ScheduledThreadPoolExecutor} removes cancelled tasks from its heap, as
+ * the timing wheel does, so that both keep the same number of tasks.
+ * The batch benchmark measures tasks that actually expire.
+ * 定时任务执行器(时间轮与ScheduledThreadPoolExecutor)的超时调度与取消基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ScheduledExecutorBench {
+
+    @Param({"TimingWheelScheduledExecutor", "ScheduledThreadPoolExecutor"})
+    public String impl;
+
+    @Param({"0", "1000000"})
+    public int pending;
+
+    @Param({"1000"})
+    public int tasks;
+
+    private ScheduledExecutorService executor;
+
+    private static final Runnable NOOP = () -> { };
+
+    @Setup
+    public void setup() {
+        switch (impl) {
+            case "TimingWheelScheduledExecutor":
+                executor = new TimingWheelScheduledExecutor(4);
+                break;
+            case "ScheduledThreadPoolExecutor":
+                ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(4);
+                stpe.setRemoveOnCancelPolicy(true);
+                executor = stpe;
+                break;
+            default: throw new IllegalArgumentException(impl);
+        }
+        // 预先放入大量不会到期的超时任务
+        for (int i = 0; i < pending; i++)
+            executor.schedule(NOOP, 1L + (i % 3600), TimeUnit.HOURS);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean scheduleCancel() {
+        ScheduledFuture<?> f = executor.schedule(NOOP, 30L, TimeUnit.SECONDS);
+        return f.cancel(false);
+    }
+
+    @Benchmark
+    public void scheduleExpire() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        Runnable task = done::countDown;
+        for (int i = 0; i < tasks; i++)
+            executor.schedule(task, 1L + (i & 7), TimeUnit.MILLISECONDS);
+        done.await();
+    }
+}
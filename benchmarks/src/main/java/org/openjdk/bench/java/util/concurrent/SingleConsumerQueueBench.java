@@ -0,0 +1,127 @@
+package org.openjdk.bench.java.util.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.MpscArrayQueue;
+import java.util.concurrent.MpscLinkedQueue;
+import java.util.concurrent.SpscArrayQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mailbox-style throughput of the single-consumer queues against the
+ * general-purpose {@link ConcurrentLinkedQueue} and {@link
+ * ArrayBlockingQueue}: one producer and one consumer polling, and four
+ * producers with one consumer taking batches of up to 64 elements
+ * ({@code drain} where available, else a poll loop).  The producers of
+ * {@link SpscArrayQueue} are serialized by a lock in the multi-producer
+ * group, as a mailbox with a single-producer queue would have to.
+ * 单消费者队列(SPSC/MPSC)与通用并发队列的邮箱场景吞吐量基准测试。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Group)
+public class SingleConsumerQueueBench {
+
+    @Param({"SpscArrayQueue", "MpscArrayQueue", "MpscLinkedQueue",
+            "ConcurrentLinkedQueue", "ArrayBlockingQueue"})
+    public String impl;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private Queue<Integer> queue;
+
+    private static final Integer ELEMENT = 1;
+
+    private final Consumer<Integer> sink = e -> { };
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        switch (impl) {
+            case "SpscArrayQueue":        queue = new SpscArrayQueue<>(capacity); break;
+            case "MpscArrayQueue":        queue = new MpscArrayQueue<>(capacity); break;
+            case "MpscLinkedQueue":       queue = new MpscLinkedQueue<>(); break;
+            case "ConcurrentLinkedQueue": queue = new ConcurrentLinkedQueue<>(); break;
+            case "ArrayBlockingQueue":    queue = new ArrayBlockingQueue<>(capacity); break;
+            default: throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // 清空须在消费者线程语义下进行，此时生产者已停止
+        queue.clear();
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscOffer() {
+        return offer();
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public Integer spscPoll() {
+        return queue.poll();
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(4)
+    public boolean mpscOffer() {
+        Queue<Integer> q = queue;
+        if (q instanceof SpscArrayQueue) {
+            synchronized (q) {
+                return offer();
+            }
+        }
+        return offer();
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public int mpscDrain() {
+        Queue<Integer> q = queue;
+        if (q instanceof SpscArrayQueue)
+            return ((SpscArrayQueue<Integer>) q).drain(sink, 64);
+        if (q instanceof MpscArrayQueue)
+            return ((MpscArrayQueue<Integer>) q).drain(sink, 64);
+        if (q instanceof MpscLinkedQueue)
+            return ((MpscLinkedQueue<Integer>) q).drain(sink, 64);
+        int n = 0;
+        while (n < 64 && q.poll() != null)
+            n++;
+        return n;
+    }
+
+    private boolean offer() {
+        Queue<Integer> q = queue;
+        // 无界队列需要限制长度，避免内存溢出
+        if (q.size() >= capacity)
+            return false;
+        return q.offer(ELEMENT);
+    }
+}
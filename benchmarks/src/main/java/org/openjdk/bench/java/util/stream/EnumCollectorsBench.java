@@ -0,0 +1,100 @@
+package org.openjdk.bench.java.util.stream;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Grouping by an enum-valued classifier: {@code groupingBy} into a
+ * {@code HashMap} against the ordinal-indexed {@code groupingByEnum},
+ * {@code countingByEnum} and {@code summingLongByEnum}, sequential and
+ * parallel.
+ * 按枚举分组的收集器(HashMap与按序号索引的数组)的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class EnumCollectorsBench {
+
+    enum Level { TRACE, DEBUG, INFO, WARN, ERROR, FATAL }
+
+    static final class Event {
+        final Level level;
+        final long bytes;
+        Event(Level level, long bytes) { this.level = level; this.bytes = bytes; }
+        Level level() { return level; }
+        long bytes() { return bytes; }
+    }
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<Event> events;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        Level[] levels = Level.values();
+        events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            events.add(new Event(levels[rnd.nextInt(levels.length)], rnd.nextInt(4096)));
+    }
+
+    private Stream<Event> stream() {
+        return parallel ? events.parallelStream() : events.stream();
+    }
+
+    @Benchmark
+    public Map<Level, List<Event>> groupingBy() {
+        return stream().collect(Collectors.groupingBy(Event::level));
+    }
+
+    @Benchmark
+    public EnumMap<Level, List<Event>> groupingByEnum() {
+        return stream().collect(Collectors.groupingByEnum(Level.class, Event::level));
+    }
+
+    @Benchmark
+    public Map<Level, Long> groupingByCounting() {
+        return stream().collect(Collectors.groupingBy(Event::level, Collectors.counting()));
+    }
+
+    @Benchmark
+    public EnumMap<Level, Long> countingByEnum() {
+        return stream().collect(Collectors.countingByEnum(Level.class, Event::level));
+    }
+
+    @Benchmark
+    public Map<Level, Long> groupingBySumming() {
+        return stream().collect(Collectors.groupingBy(Event::level,
+                                                      Collectors.summingLong(Event::bytes)));
+    }
+
+    @Benchmark
+    public EnumMap<Level, Long> summingLongByEnum() {
+        return stream().collect(Collectors.summingLongByEnum(Level.class, Event::level,
+                                                             Event::bytes));
+    }
+}
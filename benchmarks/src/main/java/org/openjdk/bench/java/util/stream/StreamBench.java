@@ -0,0 +1,126 @@
+package org.openjdk.bench.java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential and parallel stream pipelines: stateless map/filter/reduce,
+ * primitive streams, collectors (groupingBy, counting per key, histograms,
+ * minBy on a primitive key, toList) and the stateful sorted/distinct
+ * operations.
+ * 流水线(无状态、有状态操作与收集器)的顺序/并行基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class StreamBench {
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<Integer> list;
+    private int[] ints;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42L);
+        list = new ArrayList<>(size);
+        ints = new int[size];
+        for (int i = 0; i < size; i++) {
+            int e = rnd.nextInt(size);
+            list.add(e);
+            ints[i] = e;
+        }
+    }
+
+    private Stream<Integer> stream() {
+        return parallel ? list.parallelStream() : list.stream();
+    }
+
+    private IntStream intStream() {
+        IntStream s = IntStream.of(ints);
+        return parallel ? s.parallel() : s;
+    }
+
+    @Benchmark
+    public long mapFilterSum() {
+        return stream().map(e -> e * 3).filter(e -> (e & 1) == 0)
+            .mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long intMapFilterSum() {
+        return intStream().map(e -> e * 3).filter(e -> (e & 1) == 0)
+            .asLongStream().sum();
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() {
+        return stream().collect(Collectors.groupingBy(e -> e & 0xff, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> countingBy() {
+        return stream().collect(Collectors.countingBy(e -> e & 0xff));
+    }
+
+    @Benchmark
+    public long[] histogram() {
+        return stream().collect(Collectors.histogram(256, e -> e & 0xff));
+    }
+
+    @Benchmark
+    public Optional<Integer> minBy() {
+        return stream().collect(Collectors.minBy(Comparator.comparingInt(e -> e ^ 0x5555)));
+    }
+
+    @Benchmark
+    public Optional<Integer> minByInt() {
+        return stream().collect(Collectors.minByInt(e -> e ^ 0x5555));
+    }
+
+    @Benchmark
+    public List<Integer> toList() {
+        return stream().filter(e -> (e & 1) == 0).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Object[] sorted() {
+        return stream().sorted().toArray();
+    }
+
+    @Benchmark
+    public long distinct() {
+        return intStream().distinct().count();
+    }
+
+    @Benchmark
+    public boolean anyMatch() {
+        return stream().anyMatch(e -> e < 0);
+    }
+}
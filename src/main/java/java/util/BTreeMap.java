@@ -0,0 +1,2677 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A B+tree based {@link NavigableMap} implementation, with the same
+ * contract as {@link TreeMap}.  The mappings are kept in wide leaf nodes
+ * of up to {@value #NODE_CAPACITY} keys held in arrays, and the leaves
+ * are linked to each other in key order, so that a lookup touches only
+ * O(log<sub>64</sub>(n)) nodes and an ordered traversal reads the keys
+ * and values sequentially instead of chasing one node per mapping.
+ * 基于B+树实现的可导航的映射表(宽结点、叶子结点链表)
+ *
+ * <p>The map is sorted according to the {@linkplain Comparable natural
+ * ordering} of its keys, or by a {@link Comparator} provided at map
+ * creation time, depending on which constructor is used, and the ordering
+ * must be <em>consistent with {@code equals}</em> in the same way as for
+ * {@code TreeMap}.
+ *
+ * <p>The {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations take log(n) time, as do the navigation methods.  Leaf
+ * splitting is biased for ascending insertion: keys appended past the
+ * last key fill leaves completely.  Constructing the map from a
+ * {@link SortedMap}, {@link #putAll putting all} of a sorted map with the
+ * same ordering into an empty map, cloning and deserialization all build
+ * the tree bottom-up from the sorted mappings in linear time.  The
+ * spliterators of the collection views split the tree by subtrees, into
+ * halves of nearly equal size, for efficient parallel streams.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally, for example by wrapping it with
+ * {@link Collections#synchronizedSortedMap}.  (A structural modification
+ * is any operation that adds or deletes one or more mappings; merely
+ * changing the value associated with an existing key is not a structural
+ * modification.)
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's "collection view methods"
+ * are <em>fail-fast</em>: if the map is structurally modified at any time
+ * after the iterator is created, in any way except through the iterator's
+ * own {@code remove} method, the iterator will throw a
+ * {@link ConcurrentModificationException}, on a best-effort basis.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class and its
+ * views represent snapshots of mappings at the time they were produced,
+ * and do not support the {@code Entry.setValue} method, except for the
+ * entries returned by the iterators of the entry set views.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see BTreeSet
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, java.io.Serializable
+{
+    /**
+     * The maximum number of keys in a leaf, and of children of an inner
+     * node.  A node that is not the root holds at least half as many,
+     * except for the nodes split off at the end of the tree by ascending
+     * insertion, which start with one key or two children.
+     */
+    static final int NODE_CAPACITY = 64;
+
+    /**
+     * The number of keys, or children, under which a node is refilled
+     * from a sibling or merged with it after a deletion.
+     */
+    static final int MIN_FILL = NODE_CAPACITY >>> 1;
+
+    /**
+     * The comparator used to maintain order in this map, or null if it
+     * uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 根结点；映射表为空时为null
+     */
+    private transient Node root;
+
+    /**
+     * 第一个和最后一个叶子结点(叶子结点按键的顺序双向链接)
+     */
+    private transient Leaf head, tail;
+
+    /**
+     * The number of levels of the tree: 1 when the root is a leaf, 0 when
+     * the map is empty.
+     */
+    private transient int height = 0;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its keys.
+     * All keys inserted into the map must implement the {@link Comparable}
+     * interface and be mutually comparable.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * ordered according to the <em>natural ordering</em> of its keys.
+     * This method runs in linear time if the given map is a
+     * {@link SortedMap} with natural ordering, and in n*log(n) time
+     * otherwise.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the same
+     * ordering as the specified sorted map.  This method runs in linear
+     * time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        buildFromSorted(m.size(), m.entrySet().iterator(), null, null);
+    }
+
+    // Nodes
+
+    /**
+     * A node of the tree.  Leaves hold the keys and values, inner nodes
+     * hold {@code n} children separated by {@code n - 1} keys, where the
+     * separator {@code keys[i - 1]} is the least key of the subtree
+     * {@code children[i]}.
+     */
+    abstract static class Node {
+        final Object[] keys;
+        int n;
+
+        Node(int keyCapacity) {
+            keys = new Object[keyCapacity];
+        }
+    }
+
+    static final class Leaf extends Node {
+        final Object[] vals = new Object[NODE_CAPACITY];
+        Leaf prev, next;
+
+        Leaf() {
+            super(NODE_CAPACITY);
+        }
+    }
+
+    static final class Inner extends Node {
+        final Node[] children = new Node[NODE_CAPACITY];
+
+        Inner() {
+            super(NODE_CAPACITY - 1);
+        }
+    }
+
+    /**
+     * A position in the leaves: the mapping at {@code index} in
+     * {@code leaf}, as found by a lookup or returned by an entry set
+     * iterator.  If the map has been structurally modified since, the
+     * mapping is looked up again by its key, and a mapping that has
+     * been removed keeps the value it had when last seen.
+     */
+    static final class Entry<K,V> implements Map.Entry<K,V> {
+        final BTreeMap<K,V> map;
+        final K key;
+        Leaf leaf;
+        int index;
+        V value;
+
+        @SuppressWarnings("unchecked")
+        Entry(BTreeMap<K,V> map, Leaf leaf, int index) {
+            this.map = map;
+            this.leaf = leaf;
+            this.index = index;
+            this.key = (K) leaf.keys[index];
+            this.value = (V) leaf.vals[index];
+        }
+
+        /**
+         * 定位映射所在的叶子位置；映射已被删除时返回false
+         */
+        private boolean locate() {
+            Leaf l = leaf;
+            if (index < l.n && l.keys[index] == key)
+                return true;
+            if (map.root == null)
+                return false;
+            l = map.findLeaf(key);
+            int i = map.search(l, key);
+            if (i < 0 || l.keys[i] != key)
+                return false;
+            leaf = l;
+            index = i;
+            return true;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (locate())
+                value = (V) leaf.vals[index];
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V oldValue;
+            if (locate()) {
+                oldValue = (V) leaf.vals[index];
+                leaf.vals[index] = value;
+            } else {
+                oldValue = this.value;
+            }
+            this.value = value;
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return valEquals(key, e.getKey()) && valEquals(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            V v = getValue();
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (v==null ? 0 : v.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    // Query Operations
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        return getEntry(key) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation scans the leaves, in time linear
+     * in the size of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] vals = l.vals;
+            for (int i = 0, n = l.n; i < n; i++)
+                if (valEquals(value, vals[i]))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (comparator == null && key == null)
+            throw new NullPointerException();
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return (i < 0) ? null : (V) l.vals[i];
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(getFirstEntry());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(getLastEntry());
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * If this map is empty and the specified map is a {@link SortedMap}
+     * with the same ordering, the tree is built bottom-up in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size==0 && mapSize!=0 && map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            if (c == comparator || (c != null && c.equals(comparator))) {
+                ++modCount;
+                buildFromSorted(mapSize, map.entrySet().iterator(), null, null);
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    /**
+     * Returns this map's entry for the given key, or {@code null} if the
+     * map does not contain an entry for the key.
+     */
+    final Entry<K,V> getEntry(Object key) {
+        if (comparator == null && key == null)
+            throw new NullPointerException();
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return (i < 0) ? null : new Entry<>(this, l, i);
+    }
+
+    /**
+     * Returns the leaf whose key range covers the given key: the keys of
+     * the previous leaves are all less than it.
+     */
+    final Leaf findLeaf(Object key) {
+        Node x = root;
+        for (int h = height; h > 1; h--) {
+            Inner p = (Inner) x;
+            x = p.children[childIndex(p, key)];
+        }
+        return (Leaf) x;
+    }
+
+    /**
+     * Returns the index of the child of {@code p} whose subtree covers the
+     * given key: the number of separators less than or equal to it.
+     */
+    final int childIndex(Inner p, Object key) {
+        Object[] keys = p.keys;
+        int lo = 0, hi = p.n - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(key, keys[mid]) >= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the given key in the leaf, if it is present;
+     * otherwise, {@code (-(insertion point) - 1)}.
+     */
+    final int search(Leaf l, Object key) {
+        Object[] keys = l.keys;
+        int lo = 0, hi = l.n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(keys[mid], key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the entry at the given position, moving to the neighbouring
+     * leaf when the index is one past either end of the leaf, or
+     * {@code null} if there is no such leaf.
+     */
+    final Entry<K,V> entryAt(Leaf l, int i) {
+        if (i >= l.n) {
+            l = l.next;
+            i = 0;
+        } else if (i < 0) {
+            l = l.prev;
+            i = (l == null) ? 0 : l.n - 1;
+        }
+        return (l == null) ? null : new Entry<>(this, l, i);
+    }
+
+    /**
+     * Gets the entry corresponding to the specified key; if no such entry
+     * exists, returns the entry for the least key greater than the specified
+     * key; if no such entry exists (i.e., the greatest key in the Tree is less
+     * than the specified key), returns {@code null}.
+     */
+    final Entry<K,V> getCeilingEntry(K key) {
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return entryAt(l, (i >= 0) ? i : -(i + 1));
+    }
+
+    /**
+     * Gets the entry corresponding to the specified key; if no such entry
+     * exists, returns the entry for the greatest key less than the specified
+     * key; if no such entry exists, returns {@code null}.
+     */
+    final Entry<K,V> getFloorEntry(K key) {
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return entryAt(l, (i >= 0) ? i : -(i + 1) - 1);
+    }
+
+    /**
+     * Gets the entry for the least key greater than the specified
+     * key; if no such entry exists, returns the entry for the least
+     * key greater than the specified key; if no such entry exists
+     * returns {@code null}.
+     */
+    final Entry<K,V> getHigherEntry(K key) {
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return entryAt(l, (i >= 0) ? i + 1 : -(i + 1));
+    }
+
+    /**
+     * Returns the entry for the greatest key less than the specified key; if
+     * no such entry exists (i.e., the least key in the Tree is greater than
+     * the specified key), returns {@code null}.
+     */
+    final Entry<K,V> getLowerEntry(K key) {
+        if (root == null)
+            return null;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        return entryAt(l, (i >= 0) ? i - 1 : -(i + 1) - 1);
+    }
+
+    /**
+     * Returns the first Entry in the BTreeMap (according to the BTreeMap's
+     * key-sort function).  Returns null if the BTreeMap is empty.
+     */
+    final Entry<K,V> getFirstEntry() {
+        Leaf l = head;
+        return (l == null) ? null : new Entry<>(this, l, 0);
+    }
+
+    /**
+     * Returns the last Entry in the BTreeMap (according to the BTreeMap's
+     * key-sort function).  Returns null if the BTreeMap is empty.
+     */
+    final Entry<K,V> getLastEntry() {
+        Leaf l = tail;
+        return (l == null) ? null : new Entry<>(this, l, l.n - 1);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+
+            Leaf l = new Leaf();
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.n = 1;
+            root = head = tail = l;
+            height = 1;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        if (comparator == null && key == null)
+            throw new NullPointerException();
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        if (i >= 0) {
+            V oldValue = (V) l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        if (l.n < NODE_CAPACITY)
+            insertAt(l, -(i + 1), key, value);
+        else
+            splitAndInsert(key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private static void insertAt(Leaf l, int i, Object key, Object value) {
+        int moved = l.n - i;
+        if (moved > 0) {
+            System.arraycopy(l.keys, i, l.keys, i + 1, moved);
+            System.arraycopy(l.vals, i, l.vals, i + 1, moved);
+        }
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n++;
+    }
+
+    /**
+     * Inserts the given mapping into its full leaf, splitting the leaf
+     * and, as long as they overflow, its ancestors.
+     */
+    private void splitAndInsert(Object key, Object value) {
+        // 重新下降并记录路径(只在结点分裂时才需要)
+        int depth = height - 1;
+        Inner[] path = new Inner[depth];
+        int[] index = new int[depth];
+        Node x = root;
+        for (int d = 0; d < depth; d++) {
+            Inner p = (Inner) x;
+            int c = childIndex(p, key);
+            path[d] = p;
+            index[d] = c;
+            x = p.children[c];
+        }
+        Leaf l = (Leaf) x;
+        int i = -(search(l, key) + 1);
+        Leaf r = new Leaf();
+        // 顺序追加时左结点保持满，新的叶子结点只放入新键
+        boolean append = l == tail && i == NODE_CAPACITY;
+        if (append) {
+            r.keys[0] = key;
+            r.vals[0] = value;
+            r.n = 1;
+        } else {
+            int mid = NODE_CAPACITY >>> 1;
+            int moved = NODE_CAPACITY - mid;
+            System.arraycopy(l.keys, mid, r.keys, 0, moved);
+            System.arraycopy(l.vals, mid, r.vals, 0, moved);
+            Arrays.fill(l.keys, mid, NODE_CAPACITY, null);
+            Arrays.fill(l.vals, mid, NODE_CAPACITY, null);
+            l.n = mid;
+            r.n = moved;
+            if (i <= mid)
+                insertAt(l, i, key, value);
+            else
+                insertAt(r, i - mid, key, value);
+        }
+        r.prev = l;
+        r.next = l.next;
+        if (l.next != null)
+            l.next.prev = r;
+        else
+            tail = r;
+        l.next = r;
+
+        // 把分隔键和新结点插入父结点，父结点满时继续向上分裂
+        Object sep = r.keys[0];
+        Node child = r;
+        for (int d = depth - 1; d >= 0; d--) {
+            Inner p = path[d];
+            int pos = index[d] + 1;
+            if (p.n < NODE_CAPACITY) {
+                insertChild(p, pos, sep, child);
+                return;
+            }
+            Object[] ks = new Object[NODE_CAPACITY];
+            Node[] cs = new Node[NODE_CAPACITY + 1];
+            System.arraycopy(p.keys, 0, ks, 0, pos - 1);
+            ks[pos - 1] = sep;
+            System.arraycopy(p.keys, pos - 1, ks, pos, NODE_CAPACITY - pos);
+            System.arraycopy(p.children, 0, cs, 0, pos);
+            cs[pos] = child;
+            System.arraycopy(p.children, pos, cs, pos + 1, NODE_CAPACITY - pos);
+
+            // 顺序追加时新的内部结点只取两个子结点，使每个内部结点都有兄弟
+            int left = (append && pos == NODE_CAPACITY) ?
+                NODE_CAPACITY - 1 : (NODE_CAPACITY + 1) >>> 1;
+            int right = NODE_CAPACITY + 1 - left;
+            Inner q = new Inner();
+            System.arraycopy(cs, 0, p.children, 0, left);
+            Arrays.fill(p.children, left, NODE_CAPACITY, null);
+            System.arraycopy(ks, 0, p.keys, 0, left - 1);
+            Arrays.fill(p.keys, left - 1, NODE_CAPACITY - 1, null);
+            p.n = left;
+            System.arraycopy(cs, left, q.children, 0, right);
+            System.arraycopy(ks, left, q.keys, 0, right - 1);
+            q.n = right;
+            sep = ks[left - 1];
+            child = q;
+        }
+        Inner newRoot = new Inner();
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.keys[0] = sep;
+        newRoot.n = 2;
+        root = newRoot;
+        height++;
+    }
+
+    private static void insertChild(Inner p, int pos, Object sep, Node child) {
+        System.arraycopy(p.keys, pos - 1, p.keys, pos, p.n - pos);
+        p.keys[pos - 1] = sep;
+        System.arraycopy(p.children, pos, p.children, pos + 1, p.n - pos);
+        p.children[pos] = child;
+        p.n++;
+    }
+
+    /**
+     * Removes the mapping for this key from this BTreeMap if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (comparator == null && key == null)
+            throw new NullPointerException();
+        Object oldValue = deleteKey(key);
+        return (oldValue == NOT_FOUND) ? null : (V) oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        root = head = tail = null;
+        height = 0;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys and
+     * values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        BTreeMap<K,V> clone;
+        try {
+            clone = (BTreeMap<K,V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        // Put clone into "virgin" state (except for comparator)
+        clone.root = clone.head = clone.tail = null;
+        clone.height = 0;
+        clone.size = 0;
+        clone.modCount = 0;
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+        clone.keySet = null;
+        clone.values = null;
+
+        // Initialize clone with our mappings
+        clone.buildFromSorted(size, entrySet().iterator(), null, null);
+        return clone;
+    }
+
+    // Deletion
+
+    /**
+     * Returned by {@link #deleteKey} when there is no mapping to delete.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * Deletes the mapping for the given key, rebalancing the tree.
+     * Returns the old value, or {@code NOT_FOUND}.
+     */
+    final Object deleteKey(Object key) {
+        if (root == null)
+            return NOT_FOUND;
+        Leaf l = findLeaf(key);
+        int i = search(l, key);
+        if (i < 0)
+            return NOT_FOUND;
+        Object oldValue = l.vals[i];
+        Object oldKey = l.keys[i];
+        int moved = l.n - i - 1;
+        if (moved > 0) {
+            System.arraycopy(l.keys, i + 1, l.keys, i, moved);
+            System.arraycopy(l.vals, i + 1, l.vals, i, moved);
+        }
+        l.n--;
+        l.keys[l.n] = null;
+        l.vals[l.n] = null;
+        size--;
+        modCount++;
+
+        if (l == root) {
+            if (l.n == 0) {
+                root = head = tail = null;
+                height = 0;
+            }
+        } else {
+            // 删除的键若是某个分隔键，在重新平衡后把它替换掉
+            boolean separator = i == 0 && l != head;
+            if (l.n < MIN_FILL)
+                rebalance(key);
+            if (separator)
+                replaceSeparator(key, oldKey);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Refills or merges the underflowing leaf covering the given key, and
+     * then its ancestors as long as they underflow.
+     */
+    private void rebalance(Object key) {
+        int depth = height - 1;
+        Inner[] path = new Inner[depth];
+        int[] index = new int[depth];
+        Node x = root;
+        for (int d = 0; d < depth; d++) {
+            Inner p = (Inner) x;
+            int c = childIndex(p, key);
+            path[d] = p;
+            index[d] = c;
+            x = p.children[c];
+        }
+        for (int d = depth - 1; d >= 0 && x.n < MIN_FILL; d--) {
+            Inner p = path[d];
+            if (x instanceof Leaf)
+                fixLeaf(p, index[d]);
+            else
+                fixInner(p, index[d]);
+            x = p;
+        }
+        while (height > 1 && root.n == 1) {
+            root = ((Inner) root).children[0];
+            height--;
+        }
+    }
+
+    /**
+     * Refills the leaf {@code p.children[c]} with a mapping of a sibling
+     * that has more than {@code MIN_FILL}, or merges it with a sibling.
+     */
+    private void fixLeaf(Inner p, int c) {
+        Leaf x = (Leaf) p.children[c];
+        Leaf l = (c > 0) ? (Leaf) p.children[c - 1] : null;
+        Leaf r = (c < p.n - 1) ? (Leaf) p.children[c + 1] : null;
+        if (l != null && l.n > MIN_FILL) {
+            // 从左兄弟借一个映射
+            System.arraycopy(x.keys, 0, x.keys, 1, x.n);
+            System.arraycopy(x.vals, 0, x.vals, 1, x.n);
+            int last = --l.n;
+            x.keys[0] = l.keys[last];
+            x.vals[0] = l.vals[last];
+            l.keys[last] = null;
+            l.vals[last] = null;
+            x.n++;
+            p.keys[c - 1] = x.keys[0];
+        } else if (r != null && r.n > MIN_FILL) {
+            // 从右兄弟借一个映射
+            x.keys[x.n] = r.keys[0];
+            x.vals[x.n] = r.vals[0];
+            x.n++;
+            int n = --r.n;
+            System.arraycopy(r.keys, 1, r.keys, 0, n);
+            System.arraycopy(r.vals, 1, r.vals, 0, n);
+            r.keys[n] = null;
+            r.vals[n] = null;
+            p.keys[c] = r.keys[0];
+        } else if (l != null) {
+            mergeLeaves(l, x);
+            removeChild(p, c);
+        } else if (r != null) {
+            mergeLeaves(x, r);
+            removeChild(p, c + 1);
+        }
+    }
+
+    /**
+     * Moves the mappings of the leaf {@code r} to the end of its
+     * predecessor {@code l}, and unlinks {@code r}.
+     */
+    private void mergeLeaves(Leaf l, Leaf r) {
+        System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+        System.arraycopy(r.vals, 0, l.vals, l.n, r.n);
+        l.n += r.n;
+        Arrays.fill(r.keys, 0, r.n, null);
+        Arrays.fill(r.vals, 0, r.n, null);
+        r.n = 0;
+        l.next = r.next;
+        if (r.next != null)
+            r.next.prev = l;
+        else
+            tail = l;
+    }
+
+    /**
+     * Refills the inner node {@code p.children[c]} with a child of a
+     * sibling that has more than {@code MIN_FILL}, rotating the separator
+     * through {@code p}, or merges it with a sibling.
+     */
+    private static void fixInner(Inner p, int c) {
+        Inner x = (Inner) p.children[c];
+        Inner l = (c > 0) ? (Inner) p.children[c - 1] : null;
+        Inner r = (c < p.n - 1) ? (Inner) p.children[c + 1] : null;
+        if (l != null && l.n > MIN_FILL) {
+            System.arraycopy(x.keys, 0, x.keys, 1, x.n - 1);
+            System.arraycopy(x.children, 0, x.children, 1, x.n);
+            int last = --l.n;
+            x.children[0] = l.children[last];
+            x.keys[0] = p.keys[c - 1];
+            p.keys[c - 1] = l.keys[last - 1];
+            l.children[last] = null;
+            l.keys[last - 1] = null;
+            x.n++;
+        } else if (r != null && r.n > MIN_FILL) {
+            x.children[x.n] = r.children[0];
+            x.keys[x.n - 1] = p.keys[c];
+            x.n++;
+            p.keys[c] = r.keys[0];
+            int n = --r.n;
+            System.arraycopy(r.keys, 1, r.keys, 0, n - 1);
+            System.arraycopy(r.children, 1, r.children, 0, n);
+            r.keys[n - 1] = null;
+            r.children[n] = null;
+        } else if (l != null) {
+            mergeInner(l, p.keys[c - 1], x);
+            removeChild(p, c);
+        } else if (r != null) {
+            mergeInner(x, p.keys[c], r);
+            removeChild(p, c + 1);
+        }
+    }
+
+    private static void mergeInner(Inner l, Object sep, Inner r) {
+        l.keys[l.n - 1] = sep;
+        System.arraycopy(r.keys, 0, l.keys, l.n, r.n - 1);
+        System.arraycopy(r.children, 0, l.children, l.n, r.n);
+        l.n += r.n;
+    }
+
+    /**
+     * Removes the child {@code c > 0} of {@code p} together with its
+     * separator.
+     */
+    private static void removeChild(Inner p, int c) {
+        int n = p.n;
+        System.arraycopy(p.keys, c, p.keys, c - 1, n - 1 - c);
+        System.arraycopy(p.children, c + 1, p.children, c, n - 1 - c);
+        p.keys[n - 2] = null;
+        p.children[n - 1] = null;
+        p.n = n - 1;
+    }
+
+    /**
+     * Replaces the separator that is the deleted key {@code oldKey}, if
+     * any is left, by the new least key of the subtree it separates, so
+     * that the tree does not retain deleted keys.
+     */
+    private void replaceSeparator(Object key, Object oldKey) {
+        Node x = root;
+        for (int h = height; h > 1; h--) {
+            Inner p = (Inner) x;
+            int c = childIndex(p, key);
+            if (c > 0 && p.keys[c - 1] == oldKey) {
+                Node y = p.children[c];
+                while (y instanceof Inner)
+                    y = ((Inner) y).children[0];
+                p.keys[c - 1] = y.keys[0];
+                return;
+            }
+            x = p.children[c];
+        }
+    }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(getFirstEntry());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(getLastEntry());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Entry<K,V> p = getFirstEntry();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            deleteKey(p.key);
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Entry<K,V> p = getLastEntry();
+        Map.Entry<K,V> result = exportEntry(p);
+        if (p != null)
+            deleteKey(p.key);
+        return result;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(getLowerEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(getLowerEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(getFloorEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(getFloorEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(getCeilingEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(getCeilingEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(getHigherEntry(key));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(getHigherEntry(key));
+    }
+
+    // Bulk operations
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] keys = l.keys, vals = l.vals;
+            for (int i = 0, n = l.n; i < n; i++)
+                action.accept((K) keys[i], (V) vals[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] keys = l.keys, vals = l.vals;
+            for (int i = 0, n = l.n; i < n; i++)
+                vals[i] = function.apply((K) keys[i], (V) vals[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a new {@link MapCursor} over the mappings of this map, in
+     * ascending key order.  The cursor allocates nothing while
+     * traversing, and can be {@linkplain MapCursor#reset() reset} and
+     * reused for any number of traversals.  It supports
+     * {@link MapCursor#remove}.
+     *
+     * @return a new cursor over the mappings of this map
+     */
+    public MapCursor<K,V> cursor() {
+        return new EntryCursor();
+    }
+
+    final class EntryCursor implements MapCursor<K,V> {
+        Leaf leaf;
+        int index;
+        boolean current;
+        int expectedModCount;
+
+        EntryCursor() {
+            reset();
+        }
+
+        public void reset() {
+            expectedModCount = modCount;
+            current = false;
+            leaf = head;
+            index = -1;
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Leaf l = leaf;
+            if (l == null)
+                return current = false;
+            if (current || index < 0)
+                index++;
+            if (index >= l.n) {
+                leaf = l = l.next;
+                index = 0;
+                if (l == null)
+                    return current = false;
+            }
+            return current = true;
+        }
+
+        private void checkCurrent() {
+            if (!current)
+                throw new IllegalStateException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            checkCurrent();
+            return (K) leaf.keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            checkCurrent();
+            return (V) leaf.vals[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            checkCurrent();
+            V oldValue = (V) leaf.vals[index];
+            leaf.vals[index] = value;
+            return oldValue;
+        }
+
+        public void remove() {
+            checkCurrent();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object key = leaf.keys[index];
+            // 删除后重新定位到后继映射之前
+            Object next = (index + 1 < leaf.n) ? leaf.keys[index + 1] :
+                (leaf.next != null) ? leaf.next.keys[0] : NOT_FOUND;
+            deleteKey(key);
+            if (next == NOT_FOUND) {
+                leaf = null;
+            } else {
+                leaf = findLeaf(next);
+                index = search(leaf, next);
+            }
+            expectedModCount = modCount;
+            current = false;
+        }
+    }
+
+    // Views
+
+    /**
+     * Fields initialized to contain an instance of the entry set view
+     * the first time this view is requested.  Views are stateless, so
+     * there's no reason to create more than one.
+     */
+    private transient EntrySet entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * ascending order, with the same semantics as {@link TreeMap#keySet}.
+     */
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map,
+     * in ascending order of the corresponding keys, with the same
+     * semantics as {@link TreeMap#values}.
+     */
+    @Override
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        return (vs != null) ? vs : (values = new Values());
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map, in
+     * ascending key order, with the same semantics as
+     * {@link TreeMap#entrySet}.
+     */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new DescendingSubMap<>(this,
+                                                    true, null, true,
+                                                    true, null, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new AscendingSubMap<>(this,
+                                     false, fromKey, fromInclusive,
+                                     false, toKey,   toInclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new AscendingSubMap<>(this,
+                                     true,  null,  true,
+                                     false, toKey, inclusive);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new AscendingSubMap<>(this,
+                                     false, fromKey, inclusive,
+                                     true,  null,    true);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // View class support
+
+    class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator(getFirstEntry(), UNBOUNDED, false);
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public boolean contains(Object o) {
+            return BTreeMap.this.containsValue(o);
+        }
+
+        public boolean remove(Object o) {
+            for (Leaf l = head; l != null; l = l.next) {
+                for (int i = 0, n = l.n; i < n; i++) {
+                    if (valEquals(l.vals[i], o)) {
+                        deleteKey(l.keys[i]);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+
+        public void forEach(Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            BTreeMap.this.forEach((k, v) -> action.accept(v));
+        }
+
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(BTreeMap.this);
+        }
+    }
+
+    class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(getFirstEntry(), UNBOUNDED, false);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Entry<K,V> p = getEntry(entry.getKey());
+            return p != null && valEquals(p.getValue(), value);
+        }
+
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object value = entry.getValue();
+            Entry<K,V> p = getEntry(entry.getKey());
+            if (p != null && valEquals(p.getValue(), value)) {
+                deleteKey(p.key);
+                return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return new EntrySpliterator<>(BTreeMap.this);
+        }
+    }
+
+    /*
+     * Like in TreeMap, the KeySet class is static, delegating to a
+     * NavigableMap to allow use by SubMaps.
+     */
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(getFirstEntry(), UNBOUNDED, false);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator(getLastEntry(), UNBOUNDED, true);
+    }
+
+    Spliterator<K> keySpliterator() {
+        return new KeySpliterator<>(this);
+    }
+
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keyIterator();
+            else
+                return ((NavigableSubMap<E,?>)m).keyIterator();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Iterator<E> descendingIterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((NavigableSubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keySpliterator();
+            else
+                return NavigableSet.super.spliterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                         toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /**
+     * Base class for BTreeMap Iterators, used by the map and its submaps.
+     * The iterator walks the leaves from the given first entry, in either
+     * direction, up to the entry whose key is {@code fenceKey}.
+     */
+    abstract class PrivateEntryIterator<T> implements Iterator<T> {
+        Leaf leaf;
+        int index;
+        final Object fenceKey;
+        final boolean descending;
+        int expectedModCount;
+        // 最近一次返回的位置
+        Leaf lastLeaf;
+        int lastIndex;
+        boolean canRemove;
+
+        PrivateEntryIterator(Entry<K,V> first, Object fenceKey,
+                             boolean descending) {
+            expectedModCount = modCount;
+            if (first != null) {
+                leaf = first.leaf;
+                index = first.index;
+            }
+            this.fenceKey = fenceKey;
+            this.descending = descending;
+        }
+
+        public final boolean hasNext() {
+            return leaf != null && leaf.keys[index] != fenceKey;
+        }
+
+        /**
+         * Steps past the next position, leaving it in lastLeaf and
+         * lastIndex.
+         */
+        final void nextPosition() {
+            Leaf l = leaf;
+            if (l == null || l.keys[index] == fenceKey)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastLeaf = l;
+            lastIndex = index;
+            canRemove = true;
+            if (descending) {
+                if (--index < 0) {
+                    leaf = l = l.prev;
+                    index = (l == null) ? 0 : l.n - 1;
+                }
+            } else if (++index >= l.n) {
+                leaf = l.next;
+                index = 0;
+            }
+        }
+
+        public void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Leaf l = leaf;
+            Object nextKey = (l == null) ? null : l.keys[index];
+            deleteKey(lastLeaf.keys[lastIndex]);
+            // 结点可能已被合并或重新分配，按键重新定位下一个位置
+            if (l != null) {
+                leaf = findLeaf(nextKey);
+                index = search(leaf, nextKey);
+            }
+            canRemove = false;
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends PrivateEntryIterator<Map.Entry<K,V>> {
+        EntryIterator(Entry<K,V> first, Object fenceKey, boolean descending) {
+            super(first, fenceKey, descending);
+        }
+        public Map.Entry<K,V> next() {
+            nextPosition();
+            return new Entry<>(BTreeMap.this, lastLeaf, lastIndex);
+        }
+    }
+
+    final class ValueIterator extends PrivateEntryIterator<V> {
+        ValueIterator(Entry<K,V> first, Object fenceKey, boolean descending) {
+            super(first, fenceKey, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public V next() {
+            nextPosition();
+            return (V) lastLeaf.vals[lastIndex];
+        }
+    }
+
+    final class KeyIterator extends PrivateEntryIterator<K> {
+        KeyIterator(Entry<K,V> first, Object fenceKey, boolean descending) {
+            super(first, fenceKey, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public K next() {
+            nextPosition();
+            return (K) lastLeaf.keys[lastIndex];
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Compares two keys using the correct comparison method for this
+     * BTreeMap.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Return SimpleImmutableEntry for entry, or null if null
+     */
+    static <K,V> Map.Entry<K,V> exportEntry(Entry<K,V> e) {
+        return (e == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>(e.key, e.getValue());
+    }
+
+    /**
+     * Return key for entry, or null if null
+     */
+    static <K,V> K keyOrNull(Entry<K,V> e) {
+        return (e == null) ? null : e.key;
+    }
+
+    /**
+     * Returns the key corresponding to the specified Entry.
+     * @throws NoSuchElementException if the Entry is null
+     */
+    static <K> K key(Entry<K,?> e) {
+        if (e==null)
+            throw new NoSuchElementException();
+        return e.key;
+    }
+
+    /**
+     * Returns the key of the entry as the fence of a traversal, or the
+     * unmatchable {@code UNBOUNDED} if there is no entry.
+     */
+    static Object fenceKey(Entry<?,?> e) {
+        return (e == null) ? UNBOUNDED : e.key;
+    }
+
+    // SubMaps
+
+    /**
+     * Dummy value serving as unmatchable fence key for unbounded
+     * iterators
+     */
+    private static final Object UNBOUNDED = new Object();
+
+    /**
+     * A view of a range of a BTreeMap, ported from the submaps of
+     * TreeMap.
+     * 子映射表(键的范围视图)
+     *
+     * @serial include
+     */
+    abstract static class NavigableSubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, java.io.Serializable {
+        private static final long serialVersionUID = -2102997345730753016L;
+
+        /**
+         * The backing map.
+         */
+        final BTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive). If fromStart is
+         * true, then the low (absolute) bound is the start of the
+         * backing map, and the other values are ignored. Otherwise,
+         * if loInclusive is true, lo is the inclusive bound, else lo
+         * is the exclusive bound. Similarly for the upper bound.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        NavigableSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /*
+         * Absolute versions of relation operations.
+         * Subclasses map to these using like-named "sub"
+         * versions that invert senses for descending maps
+         */
+
+        final BTreeMap.Entry<K,V> absLowest() {
+            BTreeMap.Entry<K,V> e =
+                (fromStart ?  m.getFirstEntry() :
+                 (loInclusive ? m.getCeilingEntry(lo) :
+                                m.getHigherEntry(lo)));
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absHighest() {
+            BTreeMap.Entry<K,V> e =
+                (toEnd ?  m.getLastEntry() :
+                 (hiInclusive ?  m.getFloorEntry(hi) :
+                                 m.getLowerEntry(hi)));
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absCeiling(K key) {
+            if (tooLow(key))
+                return absLowest();
+            BTreeMap.Entry<K,V> e = m.getCeilingEntry(key);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absHigher(K key) {
+            if (tooLow(key))
+                return absLowest();
+            BTreeMap.Entry<K,V> e = m.getHigherEntry(key);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absFloor(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            BTreeMap.Entry<K,V> e = m.getFloorEntry(key);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final BTreeMap.Entry<K,V> absLower(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            BTreeMap.Entry<K,V> e = m.getLowerEntry(key);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        /** Returns the absolute high fence for ascending traversal */
+        final BTreeMap.Entry<K,V> absHighFence() {
+            return (toEnd ? null : (hiInclusive ?
+                                    m.getHigherEntry(hi) :
+                                    m.getCeilingEntry(hi)));
+        }
+
+        /** Return the absolute low fence for descending traversal  */
+        final BTreeMap.Entry<K,V> absLowFence() {
+            return (fromStart ? null : (loInclusive ?
+                                        m.getLowerEntry(lo) :
+                                        m.getFloorEntry(lo)));
+        }
+
+        // Abstract methods defined in ascending vs descending classes
+        // These relay to the appropriate absolute versions
+
+        abstract BTreeMap.Entry<K,V> subLowest();
+        abstract BTreeMap.Entry<K,V> subHighest();
+        abstract BTreeMap.Entry<K,V> subCeiling(K key);
+        abstract BTreeMap.Entry<K,V> subHigher(K key);
+        abstract BTreeMap.Entry<K,V> subFloor(K key);
+        abstract BTreeMap.Entry<K,V> subLower(K key);
+
+        /** Returns ascending iterator from the perspective of this submap */
+        abstract Iterator<K> keyIterator();
+
+        /** Returns descending iterator from the perspective of this submap */
+        abstract Iterator<K> descendingKeyIterator();
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : entrySet().isEmpty();
+        }
+
+        public int size() {
+            return (fromStart && toEnd) ? m.size() : entrySet().size();
+        }
+
+        @Override
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return exportEntry(subCeiling(key));
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(subCeiling(key));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return exportEntry(subHigher(key));
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(subHigher(key));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return exportEntry(subFloor(key));
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(subFloor(key));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return exportEntry(subLower(key));
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(subLower(key));
+        }
+
+        public final K firstKey() {
+            return key(subLowest());
+        }
+
+        public final K lastKey() {
+            return key(subHighest());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return exportEntry(subLowest());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return exportEntry(subHighest());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            BTreeMap.Entry<K,V> e = subLowest();
+            Map.Entry<K,V> result = exportEntry(e);
+            if (e != null)
+                m.deleteKey(e.key);
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            BTreeMap.Entry<K,V> e = subHighest();
+            Map.Entry<K,V> result = exportEntry(e);
+            if (e != null)
+                m.deleteKey(e.key);
+            return result;
+        }
+
+        // Views
+        transient NavigableMap<K,V> descendingMapView;
+        transient EntrySetView entrySetView;
+        transient KeySet<K> navigableKeySetView;
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new KeySet<>(this));
+        }
+
+        @Override
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        // View classes
+
+        abstract class EntrySetView extends AbstractSet<Map.Entry<K,V>> {
+            private transient int size = -1, sizeModCount;
+
+            public int size() {
+                if (fromStart && toEnd)
+                    return m.size();
+                if (size == -1 || sizeModCount != m.modCount) {
+                    sizeModCount = m.modCount;
+                    size = countRange();
+                }
+                return size;
+            }
+
+            /**
+             * Counts the mappings in range leaf by leaf, instead of
+             * iterating over them one by one.
+             */
+            private int countRange() {
+                BTreeMap.Entry<K,V> first = absLowest();
+                if (first == null)
+                    return 0;
+                BTreeMap.Entry<K,V> fence = absHighFence();
+                Leaf fenceLeaf = (fence == null) ? null : fence.leaf;
+                int count = -first.index;
+                for (Leaf l = first.leaf; ; l = l.next) {
+                    if (l == fenceLeaf)
+                        return count + fence.index;
+                    count += l.n;
+                    if (l.next == null)
+                        return count;
+                }
+            }
+
+            public boolean isEmpty() {
+                BTreeMap.Entry<K,V> n = absLowest();
+                return n == null || tooHigh(n.key);
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                BTreeMap.Entry<K,V> node = m.getEntry(key);
+                return node != null &&
+                    valEquals(node.getValue(), entry.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+                Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                Object key = entry.getKey();
+                if (!inRange(key))
+                    return false;
+                BTreeMap.Entry<K,V> node = m.getEntry(key);
+                if (node!=null && valEquals(node.getValue(),
+                                            entry.getValue())) {
+                    m.deleteKey(node.key);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @serial include
+     */
+    static final class AscendingSubMap<K,V> extends NavigableSubMap<K,V> {
+        private static final long serialVersionUID = 3412297460164207428L;
+
+        AscendingSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            super(m, fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+        }
+
+        public Comparator<? super K> comparator() {
+            return m.comparator();
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new AscendingSubMap<>(m,
+                                         false, fromKey, fromInclusive,
+                                         false, toKey,   toInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new AscendingSubMap<>(m,
+                                         fromStart, lo,    loInclusive,
+                                         false,     toKey, inclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return new AscendingSubMap<>(m,
+                                         false, fromKey, inclusive,
+                                         toEnd, hi,      hiInclusive);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new DescendingSubMap<>(m,
+                                        fromStart, lo, loInclusive,
+                                        toEnd,     hi, hiInclusive));
+        }
+
+        Iterator<K> keyIterator() {
+            return m.new KeyIterator(absLowest(), fenceKey(absHighFence()), false);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return m.new KeyIterator(absHighest(), fenceKey(absLowFence()), true);
+        }
+
+        final class AscendingEntrySetView extends EntrySetView {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return m.new EntryIterator(absLowest(),
+                                           fenceKey(absHighFence()), false);
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView es = entrySetView;
+            return (es != null) ? es : (entrySetView = new AscendingEntrySetView());
+        }
+
+        BTreeMap.Entry<K,V> subLowest()       { return absLowest(); }
+        BTreeMap.Entry<K,V> subHighest()      { return absHighest(); }
+        BTreeMap.Entry<K,V> subCeiling(K key) { return absCeiling(key); }
+        BTreeMap.Entry<K,V> subHigher(K key)  { return absHigher(key); }
+        BTreeMap.Entry<K,V> subFloor(K key)   { return absFloor(key); }
+        BTreeMap.Entry<K,V> subLower(K key)   { return absLower(key); }
+    }
+
+    /**
+     * @serial include
+     */
+    static final class DescendingSubMap<K,V>  extends NavigableSubMap<K,V> {
+        private static final long serialVersionUID = -5218624213471985526L;
+        DescendingSubMap(BTreeMap<K,V> m,
+                        boolean fromStart, K lo, boolean loInclusive,
+                        boolean toEnd,     K hi, boolean hiInclusive) {
+            super(m, fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+        }
+
+        private final Comparator<? super K> reverseComparator =
+            Collections.reverseOrder(m.comparator);
+
+        public Comparator<? super K> comparator() {
+            return reverseComparator;
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new DescendingSubMap<>(m,
+                                          false, toKey,   toInclusive,
+                                          false, fromKey, fromInclusive);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return new DescendingSubMap<>(m,
+                                          false, toKey, inclusive,
+                                          toEnd, hi,    hiInclusive);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return new DescendingSubMap<>(m,
+                                          fromStart, lo, loInclusive,
+                                          false, fromKey, inclusive);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new AscendingSubMap<>(m,
+                                       fromStart, lo, loInclusive,
+                                       toEnd,     hi, hiInclusive));
+        }
+
+        Iterator<K> keyIterator() {
+            return m.new KeyIterator(absHighest(), fenceKey(absLowFence()), true);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return m.new KeyIterator(absLowest(), fenceKey(absHighFence()), false);
+        }
+
+        final class DescendingEntrySetView extends EntrySetView {
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return m.new EntryIterator(absHighest(),
+                                           fenceKey(absLowFence()), true);
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView es = entrySetView;
+            return (es != null) ? es : (entrySetView = new DescendingEntrySetView());
+        }
+
+        BTreeMap.Entry<K,V> subLowest()       { return absHighest(); }
+        BTreeMap.Entry<K,V> subHighest()      { return absLowest(); }
+        BTreeMap.Entry<K,V> subCeiling(K key) { return absFloor(key); }
+        BTreeMap.Entry<K,V> subHigher(K key)  { return absLower(key); }
+        BTreeMap.Entry<K,V> subFloor(K key)   { return absCeiling(key); }
+        BTreeMap.Entry<K,V> subLower(K key)   { return absHigher(key); }
+    }
+
+    // Serialization
+
+    private static final long serialVersionUID = 6504183947390172652L;
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the BTreeMap (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the BTreeMap. The key-value mappings are emitted in
+     *             key-order (as determined by the BTreeMap's Comparator,
+     *             or by the keys' natural ordering if the BTreeMap has no
+     *             Comparator).
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out size (number of Mappings)
+        s.writeInt(size);
+
+        // Write out keys and values (alternating)
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.n; i < n; i++) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+
+        buildFromSorted(size, null, s, null);
+    }
+
+    /** Intended to be called only from BTreeSet.readObject */
+    void readBTreeSet(int size, ObjectInputStream s, V defaultVal)
+        throws IOException, ClassNotFoundException {
+        buildFromSorted(size, null, s, defaultVal);
+    }
+
+    /** Intended to be called only from BTreeSet.addAll */
+    void addAllForBTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        ++modCount;
+        buildFromSorted(set.size(), set.iterator(), null, defaultVal);
+    }
+
+    /**
+     * Linear time tree building algorithm from sorted data.  Can accept
+     * keys and/or values from iterator or stream, with the same rules as
+     * {@link TreeMap}'s {@code buildFromSorted}: if {@code defaultVal} is
+     * null, the iterator yields map entries and the stream alternates
+     * keys and values; otherwise both yield keys only.  It is assumed
+     * that the comparator of the BTreeMap is already set prior to calling
+     * this method.
+     *
+     * <p>The mappings are spread evenly over the least number of leaves,
+     * and the leaves, then the nodes of each level, evenly over the least
+     * number of parents, so that every node but the root is at least half
+     * full.
+     *
+     * @param size the number of keys (or key-value pairs) to be read from
+     *        the iterator or stream
+     * @param it If non-null, new entries are created from entries
+     *        or keys read from this iterator.
+     * @param str If non-null, new entries are created from keys and
+     *        possibly values read from this stream in serialized form.
+     *        Exactly one of it and str should be non-null.
+     * @param defaultVal if non-null, this default value is used for
+     *        each value in the map.  If null, each value is read from
+     *        iterator or stream, as described above.
+     * @throws java.io.IOException propagated from stream reads. This cannot
+     *         occur if str is null.
+     * @throws ClassNotFoundException propagated from readObject.
+     *         This cannot occur if str is null.
+     */
+    private void buildFromSorted(int size, Iterator<?> it,
+                                 ObjectInputStream str, V defaultVal) {
+        try {
+            buildFromSorted0(size, it, str, defaultVal);
+        } catch (IOException | ClassNotFoundException cannotHappen) {
+            if (str == null)
+                throw new InternalError(cannotHappen);
+            throw new IllegalStateException(cannotHappen);
+        }
+    }
+
+    private void buildFromSorted0(int size, Iterator<?> it,
+                                  ObjectInputStream str, V defaultVal)
+        throws IOException, ClassNotFoundException {
+        root = head = tail = null;
+        height = 0;
+        this.size = 0;
+        if (size == 0)
+            return;
+
+        int count = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        Node[] level = new Node[count];
+        Object[] mins = new Object[count];
+        int q = size / count, extra = size % count;
+        Leaf prev = null;
+        for (int j = 0; j < count; j++) {
+            Leaf l = new Leaf();
+            int n = (j < extra) ? q + 1 : q;
+            for (int i = 0; i < n; i++) {
+                Object key, value;
+                if (it != null) {
+                    if (defaultVal == null) {
+                        Map.Entry<?,?> entry = (Map.Entry<?,?>)it.next();
+                        key = entry.getKey();
+                        value = entry.getValue();
+                    } else {
+                        key = it.next();
+                        value = defaultVal;
+                    }
+                } else { // use stream
+                    key = str.readObject();
+                    value = (defaultVal != null ? defaultVal : str.readObject());
+                }
+                l.keys[i] = key;
+                l.vals[i] = value;
+            }
+            l.n = n;
+            l.prev = prev;
+            if (prev == null)
+                head = l;
+            else
+                prev.next = l;
+            prev = l;
+            level[j] = l;
+            mins[j] = l.keys[0];
+        }
+        tail = prev;
+
+        // 逐层均匀地把结点分配给父结点
+        int h = 1;
+        while (count > 1) {
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            q = count / parents;
+            extra = count % parents;
+            int src = 0;
+            for (int j = 0; j < parents; j++) {
+                Inner p = new Inner();
+                int n = (j < extra) ? q + 1 : q;
+                Object min = mins[src];
+                for (int i = 0; i < n; i++, src++) {
+                    p.children[i] = level[src];
+                    if (i > 0)
+                        p.keys[i - 1] = mins[src];
+                }
+                p.n = n;
+                level[j] = p;
+                mins[j] = min;
+            }
+            count = parents;
+            h++;
+        }
+        root = level[0];
+        height = h;
+        this.size = size;
+    }
+
+    // Spliterators
+
+    /**
+     * Base class for spliterators over the mappings of the whole map.
+     * Until traversal starts, the remaining range is a run of whole
+     * subtrees {@code node.children[lo, hi)}, or a run of mappings
+     * {@code [lo, hi)} of the leaf {@code node}, which splits in halves
+     * of nearly equal size, descending into the single child left when
+     * a run has one subtree.  Traversal converts the range into leaf
+     * positions from {@code (leaf, index)} up to
+     * {@code (fenceLeaf, fenceIndex)}, and splitting ends there.
+     * 平衡拆分的B+树分割迭代器(按子树对半拆分)
+     */
+    abstract static class BTreeSpliterator<K,V> {
+        final BTreeMap<K,V> map;
+        Node node;          // subtree run to split; null once traversing
+        int lo, hi;
+        Leaf leaf;          // traversal position
+        int index;
+        Leaf fenceLeaf;     // exclusive end position
+        int fenceIndex;
+        int est;            // size estimate; -1 until bound to the map
+        int expectedModCount;
+        boolean split;      // true once split: the estimate is inexact
+
+        BTreeSpliterator(BTreeMap<K,V> map) {
+            this.map = map;
+            this.est = -1;
+        }
+
+        BTreeSpliterator(BTreeSpliterator<K,V> parent, int lo, int hi) {
+            this.map = parent.map;
+            this.node = parent.node;
+            this.lo = lo;
+            this.hi = hi;
+            this.est = parent.est;
+            this.expectedModCount = parent.expectedModCount;
+            this.split = true;
+        }
+
+        /**
+         * Binds to the map on first use, and returns the estimate.
+         */
+        final int getEstimate() {
+            int s = est;
+            if (s < 0) {
+                BTreeMap<K,V> m = map;
+                expectedModCount = m.modCount;
+                s = est = m.size;
+                Node r = m.root;
+                if (r != null) {
+                    node = r;
+                    lo = 0;
+                    hi = r.n;
+                }
+            }
+            return s;
+        }
+
+        /**
+         * Halves the remaining run, returning the lower half as
+         * {@code (node, lo, mid)} for the new spliterator to take, and
+         * keeping the upper half.  Returns -1 if the run cannot be split.
+         */
+        final int splitPoint() {
+            getEstimate();
+            Node x = node;
+            if (x == null)
+                return -1;
+            while (hi - lo == 1 && x instanceof Inner) {
+                node = x = ((Inner) x).children[lo];
+                lo = 0;
+                hi = x.n;
+            }
+            if (hi - lo < 2)
+                return -1;
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            split = true;
+            est >>>= 1;
+            return (lo + hi) >>> 1;
+        }
+
+        /**
+         * Converts the remaining run into leaf positions.
+         */
+        final void startTraversal() {
+            getEstimate();
+            Node x = node;
+            if (x == null)
+                return;
+            node = null;
+            if (x instanceof Leaf) {
+                leaf = fenceLeaf = (Leaf) x;
+                index = lo;
+                fenceIndex = hi;
+            } else {
+                Inner p = (Inner) x;
+                Node first = p.children[lo], last = p.children[hi - 1];
+                while (first instanceof Inner)
+                    first = ((Inner) first).children[0];
+                while (last instanceof Inner) {
+                    Inner q = (Inner) last;
+                    last = q.children[q.n - 1];
+                }
+                leaf = (Leaf) first;
+                index = 0;
+                fenceLeaf = (Leaf) last;
+                fenceIndex = last.n;
+            }
+        }
+
+        /**
+         * Moves to the next position in range, if any, stepping to the
+         * next leaf at the end of a leaf.
+         */
+        final boolean advance() {
+            startTraversal();
+            Leaf l = leaf;
+            if (l == null || (l == fenceLeaf && index == fenceIndex))
+                return false;
+            if (index >= l.n) {
+                if ((l = l.next) == null)
+                    throw new ConcurrentModificationException();
+                leaf = l;
+                index = 0;
+            }
+            return true;
+        }
+
+        public final long estimateSize() {
+            return getEstimate();
+        }
+    }
+
+    static final class KeySpliterator<K,V>
+        extends BTreeSpliterator<K,V> implements Spliterator<K> {
+        KeySpliterator(BTreeMap<K,V> map) {
+            super(map);
+        }
+
+        KeySpliterator(KeySpliterator<K,V> parent, int lo, int hi) {
+            super(parent, lo, hi);
+        }
+
+        public KeySpliterator<K,V> trySplit() {
+            int mid = splitPoint();
+            if (mid < 0)
+                return null;
+            KeySpliterator<K,V> prefix = new KeySpliterator<>(this, lo, mid);
+            lo = mid;
+            return prefix;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            startTraversal();
+            Leaf l = leaf, f = fenceLeaf;
+            int i = index, fi = fenceIndex;
+            if (l != null) {
+                for (;;) {
+                    Object[] keys = l.keys;
+                    for (int end = (l == f) ? fi : l.n; i < end; i++)
+                        action.accept((K) keys[i]);
+                    if (l == f || (l = l.next) == null)
+                        break;
+                    i = 0;
+                }
+                leaf = f;
+                index = fi;
+            }
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (!advance())
+                return false;
+            action.accept((K) leaf.keys[index++]);
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (split ? 0 : Spliterator.SIZED | Spliterator.SUBSIZED) |
+                Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED;
+        }
+
+        public final Comparator<? super K> getComparator() {
+            return map.comparator;
+        }
+    }
+
+    static final class ValueSpliterator<K,V>
+        extends BTreeSpliterator<K,V> implements Spliterator<V> {
+        ValueSpliterator(BTreeMap<K,V> map) {
+            super(map);
+        }
+
+        ValueSpliterator(ValueSpliterator<K,V> parent, int lo, int hi) {
+            super(parent, lo, hi);
+        }
+
+        public ValueSpliterator<K,V> trySplit() {
+            int mid = splitPoint();
+            if (mid < 0)
+                return null;
+            ValueSpliterator<K,V> prefix = new ValueSpliterator<>(this, lo, mid);
+            lo = mid;
+            return prefix;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            startTraversal();
+            Leaf l = leaf, f = fenceLeaf;
+            int i = index, fi = fenceIndex;
+            if (l != null) {
+                for (;;) {
+                    Object[] vals = l.vals;
+                    for (int end = (l == f) ? fi : l.n; i < end; i++)
+                        action.accept((V) vals[i]);
+                    if (l == f || (l = l.next) == null)
+                        break;
+                    i = 0;
+                }
+                leaf = f;
+                index = fi;
+            }
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (!advance())
+                return false;
+            action.accept((V) leaf.vals[index++]);
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (split ? 0 : Spliterator.SIZED | Spliterator.SUBSIZED) |
+                Spliterator.ORDERED;
+        }
+    }
+
+    static final class EntrySpliterator<K,V>
+        extends BTreeSpliterator<K,V> implements Spliterator<Map.Entry<K,V>> {
+        EntrySpliterator(BTreeMap<K,V> map) {
+            super(map);
+        }
+
+        EntrySpliterator(EntrySpliterator<K,V> parent, int lo, int hi) {
+            super(parent, lo, hi);
+        }
+
+        public EntrySpliterator<K,V> trySplit() {
+            int mid = splitPoint();
+            if (mid < 0)
+                return null;
+            EntrySpliterator<K,V> prefix = new EntrySpliterator<>(this, lo, mid);
+            lo = mid;
+            return prefix;
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            startTraversal();
+            Leaf l = leaf, f = fenceLeaf;
+            int i = index, fi = fenceIndex;
+            if (l != null) {
+                for (;;) {
+                    for (int end = (l == f) ? fi : l.n; i < end; i++)
+                        action.accept(new Entry<>(map, l, i));
+                    if (l == f || (l = l.next) == null)
+                        break;
+                    i = 0;
+                }
+                leaf = f;
+                index = fi;
+            }
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (!advance())
+                return false;
+            action.accept(new Entry<>(map, leaf, index++));
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        public int characteristics() {
+            return (split ? 0 : Spliterator.SIZED | Spliterator.SUBSIZED) |
+                Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED;
+        }
+
+        @Override
+        public Comparator<Map.Entry<K,V>> getComparator() {
+            // Adapt or create a key-based comparator
+            if (map.comparator != null) {
+                return Map.Entry.comparingByKey(map.comparator);
+            }
+            else {
+                return (Comparator<Map.Entry<K,V>> & Serializable) (e1, e2) -> {
+                    @SuppressWarnings("unchecked")
+                    Comparable<? super K> k1 = (Comparable<? super K>) e1.getKey();
+                    return k1.compareTo(e2.getKey());
+                };
+            }
+        }
+    }
+}
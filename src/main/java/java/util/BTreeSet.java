@@ -0,0 +1,394 @@
+package java.util;
+
+/**
+ * A {@link NavigableSet} implementation based on a {@link BTreeMap}, with
+ * the same contract as {@link TreeSet}.  The elements are ordered using
+ * their {@linkplain Comparable natural ordering}, or by a
+ * {@link Comparator} provided at set creation time, depending on which
+ * constructor is used.
+ * 基于B+树映射表实现的可导航的集合
+ *
+ * <p>This implementation provides guaranteed log(n) time cost for the
+ * basic operations ({@code add}, {@code remove} and {@code contains}),
+ * and iterates over the elements leaf by leaf.  Constructing the set from
+ * a {@link SortedSet}, and adding all of a sorted set with the same
+ * ordering to an empty set, take linear time.  The {@link #spliterator}
+ * splits the tree into halves of nearly equal size.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a set concurrently, and at least one of the
+ * threads modifies the set, it <em>must</em> be synchronized externally,
+ * for example by wrapping it with {@link Collections#synchronizedSortedSet}.
+ * The iterators returned by this class's {@code iterator} method are
+ * <em>fail-fast</em> on a best-effort basis, as for {@code TreeSet}.
+ *
+ * @param <E> the type of elements maintained by this set
+ *
+ * @see TreeSet
+ * @see BTreeMap
+ */
+public class BTreeSet<E> extends AbstractSet<E>
+    implements NavigableSet<E>, Cloneable, java.io.Serializable
+{
+    /**
+     * The backing map.
+     */
+    private transient NavigableMap<E,Object> m;
+
+    // Dummy value to associate with an Object in the backing Map
+    // 与底层映射表中的对象关联的虚拟值
+    private static final Object PRESENT = new Object();
+
+    /**
+     * Constructs a set backed by the specified navigable map.
+     */
+    BTreeSet(NavigableMap<E,Object> m) {
+        this.m = m;
+    }
+
+    /**
+     * Constructs a new, empty set, sorted according to the natural
+     * ordering of its elements.  All elements inserted into the set must
+     * implement the {@link Comparable} interface and be mutually
+     * comparable.
+     */
+    public BTreeSet() {
+        this(new BTreeMap<E,Object>());
+    }
+
+    /**
+     * Constructs a new, empty set, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this set.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the elements will be used.
+     */
+    public BTreeSet(Comparator<? super E> comparator) {
+        this(new BTreeMap<>(comparator));
+    }
+
+    /**
+     * Constructs a new set containing the elements in the specified
+     * collection, sorted according to the <i>natural ordering</i> of its
+     * elements.
+     *
+     * @param c collection whose elements will comprise the new set
+     * @throws ClassCastException if the elements in {@code c} are
+     *         not {@link Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified collection is null
+     */
+    public BTreeSet(Collection<? extends E> c) {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * Constructs a new set containing the same elements and using the
+     * same ordering as the specified sorted set, in linear time.
+     *
+     * @param s sorted set whose elements will comprise the new set
+     * @throws NullPointerException if the specified sorted set is null
+     */
+    public BTreeSet(SortedSet<E> s) {
+        this(s.comparator());
+        addAll(s);
+    }
+
+    /**
+     * Returns an iterator over the elements in this set in ascending order.
+     *
+     * @return an iterator over the elements in this set in ascending order
+     */
+    public Iterator<E> iterator() {
+        return m.navigableKeySet().iterator();
+    }
+
+    /**
+     * Returns an iterator over the elements in this set in descending order.
+     *
+     * @return an iterator over the elements in this set in descending order
+     */
+    public Iterator<E> descendingIterator() {
+        return m.descendingKeySet().iterator();
+    }
+
+    public NavigableSet<E> descendingSet() {
+        return new BTreeSet<>(m.descendingMap());
+    }
+
+    public int size() {
+        return m.size();
+    }
+
+    public boolean isEmpty() {
+        return m.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified element.
+     *
+     * @param o object to be checked for containment in this set
+     * @return {@code true} if this set contains the specified element
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified element is null
+     *         and this set uses natural ordering, or its comparator
+     *         does not permit null elements
+     */
+    public boolean contains(Object o) {
+        // 元素存储在映射表的键中
+        return m.containsKey(o);
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return {@code true} if this set did not already contain the specified
+     *         element
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in this set
+     * @throws NullPointerException if the specified element is null
+     *         and this set uses natural ordering, or its comparator
+     *         does not permit null elements
+     */
+    public boolean add(E e) {
+        return m.put(e, PRESENT)==null;
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param o object to be removed from this set, if present
+     * @return {@code true} if this set contained the specified element
+     * @throws ClassCastException if the specified object cannot be compared
+     *         with the elements currently in this set
+     * @throws NullPointerException if the specified element is null
+     *         and this set uses natural ordering, or its comparator
+     *         does not permit null elements
+     */
+    public boolean remove(Object o) {
+        return m.remove(o)==PRESENT;
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     * The set will be empty after this call returns.
+     */
+    public void clear() {
+        m.clear();
+    }
+
+    /**
+     * Adds all of the elements in the specified collection to this set.
+     * If this set is empty and the collection is a {@link SortedSet} with
+     * the same ordering, the tree is built bottom-up in linear time.
+     *
+     * @param c collection containing elements to be added to this set
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        // Use linear-time version if applicable
+        if (m.size()==0 && c.size() > 0 &&
+            c instanceof SortedSet &&
+            m instanceof BTreeMap) {
+            SortedSet<? extends E> set = (SortedSet<? extends E>) c;
+            BTreeMap<E,Object> map = (BTreeMap<E, Object>) m;
+            Comparator<?> cc = set.comparator();
+            Comparator<? super E> mc = map.comparator();
+            if (cc==mc || (cc != null && cc.equals(mc))) {
+                map.addAllForBTreeSet(set, PRESENT);
+                return true;
+            }
+        }
+        return super.addAll(c);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromElement} or {@code toElement}
+     *         is null and this set uses natural ordering, or its comparator
+     *         does not permit null elements
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                  E toElement,   boolean toInclusive) {
+        return new BTreeSet<>(m.subMap(fromElement, fromInclusive,
+                                       toElement,   toInclusive));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toElement} is null and
+     *         this set uses natural ordering, or its comparator does
+     *         not permit null elements
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return new BTreeSet<>(m.headMap(toElement, inclusive));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromElement} is null and
+     *         this set uses natural ordering, or its comparator does
+     *         not permit null elements
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return new BTreeSet<>(m.tailMap(fromElement, inclusive));
+    }
+
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    public Comparator<? super E> comparator() {
+        return m.comparator();
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E first() {
+        return m.firstKey();
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E last() {
+        return m.lastKey();
+    }
+
+    // NavigableSet API methods
+
+    public E lower(E e) {
+        return m.lowerKey(e);
+    }
+
+    public E floor(E e) {
+        return m.floorKey(e);
+    }
+
+    public E ceiling(E e) {
+        return m.ceilingKey(e);
+    }
+
+    public E higher(E e) {
+        return m.higherKey(e);
+    }
+
+    public E pollFirst() {
+        Map.Entry<E,?> e = m.pollFirstEntry();
+        return (e == null) ? null : e.getKey();
+    }
+
+    public E pollLast() {
+        Map.Entry<E,?> e = m.pollLastEntry();
+        return (e == null) ? null : e.getKey();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeSet} instance. (The elements
+     * themselves are not cloned.)
+     *
+     * @return a shallow copy of this set
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        BTreeSet<E> clone;
+        try {
+            clone = (BTreeSet<E>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        clone.m = new BTreeMap<>(m);
+        return clone;
+    }
+
+    /**
+     * Save the state of the {@code BTreeSet} instance to a stream (that is,
+     * serialize it).
+     *
+     * @serialData Emits the comparator used to order this set, or
+     *             {@code null} if it obeys its elements' natural ordering
+     *             (Object), followed by the size of the set (the number of
+     *             elements it contains) (int), followed by all of its
+     *             elements (each an Object) in order (as determined by the
+     *             set's Comparator, or by the elements' natural ordering if
+     *             the set has no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out Comparator
+        s.writeObject(m.comparator());
+
+        // Write out size
+        s.writeInt(m.size());
+
+        // Write out all elements in the proper order.
+        for (E e : m.keySet())
+            s.writeObject(e);
+    }
+
+    /**
+     * Reconstitute the {@code BTreeSet} instance from a stream (that is,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in any hidden stuff
+        s.defaultReadObject();
+
+        // Read in Comparator
+        @SuppressWarnings("unchecked")
+            Comparator<? super E> c = (Comparator<? super E>) s.readObject();
+
+        // Create backing BTreeMap
+        BTreeMap<E,Object> bm = new BTreeMap<>(c);
+        m = bm;
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+
+        bm.readBTreeSet(size, s, PRESENT);
+    }
+
+    /**
+     * Creates a <em>late-binding</em> and <em>fail-fast</em>
+     * {@link Spliterator} over the elements in this set, which reports
+     * {@link Spliterator#SIZED}, {@link Spliterator#DISTINCT},
+     * {@link Spliterator#SORTED} and {@link Spliterator#ORDERED}, and
+     * splits by subtrees into halves of nearly equal size.  The
+     * spliterator of a subset or descending set does not split by
+     * subtrees.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     */
+    public Spliterator<E> spliterator() {
+        return m.navigableKeySet().spliterator();
+    }
+
+    private static final long serialVersionUID = 7268143529307136941L;
+}
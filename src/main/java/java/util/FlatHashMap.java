@@ -0,0 +1,927 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Hash table based implementation of the <tt>Map</tt> interface with a
+ * flat, open-addressed layout in the style of the "Swiss table": no entry
+ * object is allocated per mapping, keys and values are stored next to each
+ * other in a single array, and a separate array of one-byte <i>control
+ * words</i> records for every slot whether it is empty, deleted or full,
+ * together with 7 more bits of the hash of a full slot's key.  Lookups
+ * compare the control bytes of a group of 8 slots at once (packed in a
+ * <tt>long</tt>), so a probe touches one cache line of control bytes and
+ * usually a single slot of the key/value array, and {@code equals} is only
+ * called on keys whose 7-bit hash fragment matches.
+ * 开放寻址的扁平哈希表，使用控制字节分组(每组8个槽)匹配，查找只访问一到两个缓存行。
+ *
+ * <p>Unlike {@link HashMap}, the supplemental hash is <i>seeded</i> per
+ * instance and mixes all the bits of {@link Object#hashCode}, so an
+ * adversary cannot craft keys whose hash codes merely share the low-order
+ * bits used for indexing.  Keys with identical hash codes still collide;
+ * when a probe sequence for a {@link String} key becomes suspiciously long,
+ * the map switches to hashing the contents of String keys with the seed
+ * (instead of {@link String#hashCode}) and rehashes, so that flooding with
+ * colliding strings is defeated as well.
+ *
+ * <p>This implementation permits <tt>null</tt> values and the <tt>null</tt>
+ * key, and makes no guarantees as to the order of the map.  The table is
+ * kept at most 7/8 full (deleted slots included), and is rehashed in place
+ * when it is filled up by deleted slots rather than by mappings.
+ *
+ * <p>This implementation provides constant-time performance for the basic
+ * operations (<tt>get</tt> and <tt>put</tt>), assuming the hash codes of
+ * the keys are distinct.  Iteration over collection views requires time
+ * proportional to the capacity of the map.
+ *
+ * <p>This is a separate class rather than a mode of {@code HashMap}
+ * (or a subclass of it) because the layout of {@code HashMap} is not
+ * an implementation detail that can be switched per instance: its
+ * {@code Node} and {@code TreeNode} bins are extended by
+ * {@link LinkedHashMap}, shared with {@link HashSet}, exposed through
+ * {@code Map.Entry} objects that live as long as their mapping, and
+ * fixed by its serialized form.  A subclass would still carry the unused
+ * bin table, and a mode flag would put a branch in every operation of
+ * every existing {@code HashMap}.
+ * 之所以另立一个类而非HashMap的模式或子类，是因为HashMap的结点布局被子类、序列化格式和条目对象所依赖。
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view
+ * methods" are <i>fail-fast</i>: if the map is structurally modified at
+ * any time after the iterator is created, in any way except through the
+ * iterator's own <tt>remove</tt> method, the iterator will throw a
+ * {@link ConcurrentModificationException}.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IdentityHashMap
+ */
+public class FlatHashMap<K,V>
+    extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 2893547626934725468L;
+
+    /**
+     * The number of slots of a group, whose control bytes are packed
+     * into one long.
+     */
+    static final int GROUP_WIDTH = 8;
+
+    /**
+     * The default initial capacity.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum number of slots, a power of two such that twice of it
+     * is still a valid array length.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * The number of groups a probe sequence for a String key may visit
+     * before the map switches to hashing the contents of String keys.
+     */
+    static final int STRING_HASHING_PROBE_THRESHOLD = 8;
+
+    /* Control bytes: a full slot holds the 7-bit hash fragment (0..127) */
+    static final int EMPTY   = 0x80;
+    static final int DELETED = 0xFE;
+
+    static final long LSBS = 0x0101010101010101L;
+    static final long MSBS = 0x8080808080808080L;
+
+    /** A group with all slots empty. */
+    static final long EMPTY_GROUP = LSBS * EMPTY;
+
+    /**
+     * Value representing the null key.
+     */
+    static final Object NULL_KEY = new Object();
+
+    /**
+     * The control words, one group of 8 slots per long (slot i is byte
+     * i & 7 of long i >>> 3).  Null until the first insertion.
+     */
+    transient long[] ctrl;
+
+    /**
+     * The keys and values, interleaved: the key of slot i is at 2 * i,
+     * its value at 2 * i + 1.  Null keys are represented by NULL_KEY.
+     */
+    transient Object[] table;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of empty slots that can still be filled before the
+     * table must be rehashed.
+     */
+    transient int growthLeft;
+
+    /**
+     * The number of slots to allocate on first insertion.
+     */
+    transient int initialCapacity;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The per-instance seed of the supplemental hash.
+     */
+    transient int seed;
+
+    /**
+     * Whether String keys are hashed by their contents.
+     */
+    transient boolean stringHashing;
+
+    /**
+     * Constructs an empty map with the default initial capacity (16).
+     */
+    public FlatHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings without rehashing.
+     *
+     * @param  expectedMaxSize the expected maximum size of the map
+     * @throws IllegalArgumentException if the expected size is negative
+     */
+    public FlatHashMap(int expectedMaxSize) {
+        if (expectedMaxSize < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               expectedMaxSize);
+        this.initialCapacity = capacityFor(expectedMaxSize);
+        this.seed = ThreadLocalRandom.current().nextInt();
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public FlatHashMap(Map<? extends K, ? extends V> m) {
+        this(m.size());
+        putAll(m);
+    }
+
+    /* ---------------- Hashing and probing -------------- */
+
+    /**
+     * Returns the number of slots needed for the given number of
+     * mappings, a power of two that is at least GROUP_WIDTH.
+     */
+    static int capacityFor(int n) {
+        long c = Math.max((long)n + ((long)n + 6) / 7, GROUP_WIDTH);
+        return (c >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY :
+            HashMap.roundUpToPowerOf2((int)c);
+    }
+
+    /**
+     * Returns the number of mappings a table of the given number of
+     * slots can hold.
+     */
+    static int maxLoad(int capacity) {
+        return capacity - (capacity >>> 3);
+    }
+
+    private static Object maskNull(Object key) {
+        return (key == null ? NULL_KEY : key);
+    }
+
+    static final Object unmaskNull(Object key) {
+        return (key == NULL_KEY ? null : key);
+    }
+
+    /**
+     * Returns the seeded hash of a (masked) key: the murmur3 finalizer
+     * of its hash code xor the seed, or of a seeded hash of its contents
+     * for a String if string hashing has been switched on.  The 7 low
+     * bits are the control byte fragment, the remaining bits select the
+     * first group of the probe sequence.
+     */
+    final int hash(Object k) {
+        int h = (stringHashing && k instanceof String) ?
+            stringHash((String)k, seed) : k.hashCode() ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Seeded murmur3 hash of the chars of a String, two chars per round.
+     */
+    static int stringHash(String s, int seed) {
+        int h = seed, n = s.length(), i = 0;
+        for (; i + 1 < n; i += 2) {
+            h ^= mixK(s.charAt(i) | (s.charAt(i + 1) << 16));
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        if (i < n)
+            h ^= mixK(s.charAt(i));
+        return h ^ (n << 1);
+    }
+
+    private static int mixK(int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1b873593;
+    }
+
+    /**
+     * Returns a mask of the high bit of each byte of the group that
+     * equals the given fragment.  May rarely report a false positive
+     * just above a true match, so the keys must still be compared.
+     */
+    static long match(long group, int h2) {
+        long x = group ^ (LSBS * h2);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /**
+     * Returns a mask of the high bit of each empty byte of the group.
+     */
+    static long matchEmpty(long group) {
+        return group & ~(group << 1) & MSBS;
+    }
+
+    /**
+     * Returns a mask of the high bit of each empty or deleted byte of
+     * the group.
+     */
+    static long matchFree(long group) {
+        return group & MSBS;
+    }
+
+    /**
+     * Returns the slot index of the lowest bit of a match mask.
+     */
+    static int slotOf(int group, long mask) {
+        return (group << 3) + (Long.numberOfTrailingZeros(mask) >>> 3);
+    }
+
+    final void setCtrl(int i, int c) {
+        long[] cs = ctrl;
+        int shift = (i & 7) << 3;
+        cs[i >>> 3] = (cs[i >>> 3] & ~(0xFFL << shift)) | ((long)c << shift);
+    }
+
+    final int ctrlAt(int i) {
+        return (int)(ctrl[i >>> 3] >>> ((i & 7) << 3)) & 0xFF;
+    }
+
+    /**
+     * Returns the slot of the given masked key, or -1 if absent.
+     */
+    final int find(Object k, int h) {
+        long[] cs = ctrl;
+        if (cs == null)
+            return -1;
+        Object[] tab = table;
+        int mask = cs.length - 1, h2 = h & 0x7F;
+        // 三角数探测，遍历所有组
+        for (int g = (h >>> 7) & mask, step = 0;; g = (g + ++step) & mask) {
+            long group = cs[g];
+            for (long m = match(group, h2); m != 0L; m &= m - 1) {
+                int i = slotOf(g, m);
+                Object x = tab[i << 1];
+                if (x == k || k.equals(x))
+                    return i;
+            }
+            if (matchEmpty(group) != 0L)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the first empty or deleted slot on the probe sequence of
+     * hash h.  Switches on string hashing (and returns -1) if the
+     * sequence is too long for a String key.
+     */
+    final int findFree(Object k, int h) {
+        long[] cs = ctrl;
+        int mask = cs.length - 1;
+        for (int g = (h >>> 7) & mask, step = 0;; g = (g + ++step) & mask) {
+            long m = matchFree(cs[g]);
+            if (m != 0L)
+                return slotOf(g, m);
+            if (step >= STRING_HASHING_PROBE_THRESHOLD &&
+                !stringHashing && k instanceof String) {
+                stringHashing = true; // 疑似哈希洪泛攻击
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Allocates the table if needed, or rehashes it if no empty slot
+     * is left, doubling the capacity unless at most half of the
+     * usable slots hold mappings (the rest being deleted slots).
+     */
+    final void ensureFree() {
+        long[] cs = ctrl;
+        if (cs == null)
+            resize(initialCapacity);
+        else if (growthLeft == 0) {
+            int capacity = cs.length << 3;
+            if (size > maxLoad(capacity) >>> 1) {
+                if (capacity == MAXIMUM_CAPACITY) {
+                    if (size == maxLoad(capacity))
+                        throw new IllegalStateException("Capacity exhausted.");
+                    resize(capacity); // 只清理已删除的槽
+                }
+                else
+                    resize(capacity << 1);
+            }
+            else
+                resize(capacity);
+        }
+    }
+
+    /**
+     * Rehashes all mappings into a new table of the given number of
+     * slots.
+     */
+    final void resize(int capacity) {
+        long[] oldCtrl = ctrl;
+        Object[] oldTab = table;
+        long[] cs = new long[capacity >>> 3];
+        Arrays.fill(cs, EMPTY_GROUP);
+        Object[] tab = new Object[capacity << 1];
+        ctrl = cs;
+        table = tab;
+        growthLeft = maxLoad(capacity) - size;
+        if (oldCtrl != null) {
+            int mask = cs.length - 1;
+            for (int og = 0; og < oldCtrl.length; ++og) {
+                for (long full = ~oldCtrl[og] & MSBS; full != 0L; full &= full - 1) {
+                    int oi = slotOf(og, full);
+                    Object k = oldTab[oi << 1];
+                    int h = hash(k), i = -1;
+                    for (int g = (h >>> 7) & mask, step = 0; i < 0;
+                         g = (g + ++step) & mask) {
+                        long m = matchFree(cs[g]);
+                        if (m != 0L)
+                            i = slotOf(g, m);
+                    }
+                    setCtrl(i, h & 0x7F);
+                    tab[i << 1] = k;
+                    tab[(i << 1) + 1] = oldTab[(oi << 1) + 1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts a masked key that is known to be absent.
+     */
+    final void insert(Object k, int h, Object value) {
+        ensureFree();
+        int i;
+        while ((i = findFree(k, h)) < 0) {
+            resize(ctrl.length << 3); // 改用字符串内容哈希后重新散列
+            h = hash(k);
+        }
+        if (ctrlAt(i) == EMPTY)
+            --growthLeft;
+        setCtrl(i, h & 0x7F);
+        table[i << 1] = k;
+        table[(i << 1) + 1] = value;
+        ++size;
+        ++modCount;
+    }
+
+    /**
+     * Removes the mapping at slot i.  The slot can be marked empty
+     * again if its group has an empty slot, since then no probe
+     * sequence continues past the group.
+     */
+    final void removeAt(int i) {
+        if (matchEmpty(ctrl[i >>> 3]) != 0L) {
+            setCtrl(i, EMPTY);
+            ++growthLeft;
+        }
+        else
+            setCtrl(i, DELETED);
+        table[i << 1] = null;
+        table[(i << 1) + 1] = null;
+        --size;
+        ++modCount;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object k = maskNull(key);
+        int i = find(k, hash(k));
+        return (i < 0) ? null : (V)table[(i << 1) + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        Object k = maskNull(key);
+        int i = find(k, hash(k));
+        return (i < 0) ? defaultValue : (V)table[(i << 1) + 1];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        Object k = maskNull(key);
+        return find(k, hash(k)) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        long[] cs = ctrl;
+        if (cs != null && size > 0) {
+            Object[] tab = table;
+            for (int g = 0; g < cs.length; ++g) {
+                for (long full = ~cs[g] & MSBS; full != 0L; full &= full - 1) {
+                    Object v = tab[(slotOf(g, full) << 1) + 1];
+                    if (v == value || (value != null && value.equals(v)))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Object k = maskNull(key);
+        int h = hash(k), i = find(k, h);
+        if (i >= 0) {
+            int vi = (i << 1) + 1;
+            V oldValue = (V)table[vi];
+            table[vi] = value;
+            return oldValue;
+        }
+        insert(k, h, value);
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        Object k = maskNull(key);
+        int h = hash(k), i = find(k, h);
+        if (i >= 0) {
+            int vi = (i << 1) + 1;
+            V oldValue = (V)table[vi];
+            if (oldValue == null)
+                table[vi] = value;
+            return oldValue;
+        }
+        insert(k, h, value);
+        return null;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        int n = m.size();
+        if (n == 0)
+            return;
+        long[] cs = ctrl;
+        int needed = capacityFor(size + n);
+        if (cs == null)
+            initialCapacity = Math.max(initialCapacity, needed);
+        else if (needed > cs.length << 3)
+            resize(needed);
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            put(e.getKey(), e.getValue());
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Object k = maskNull(key);
+        int i = find(k, hash(k));
+        if (i < 0)
+            return null;
+        V oldValue = (V)table[(i << 1) + 1];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        long[] cs = ctrl;
+        if (cs != null) {
+            Arrays.fill(cs, EMPTY_GROUP);
+            Arrays.fill(table, null);
+            growthLeft = maxLoad(cs.length << 3);
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        long[] cs = ctrl;
+        if (cs != null && size > 0) {
+            Object[] tab = table;
+            int mc = modCount;
+            for (int g = 0; g < cs.length && modCount == mc; ++g) {
+                for (long full = ~cs[g] & MSBS; full != 0L; full &= full - 1) {
+                    int ki = slotOf(g, full) << 1;
+                    action.accept((K)unmaskNull(tab[ki]), (V)tab[ki + 1]);
+                }
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        long[] cs = ctrl;
+        if (cs != null && size > 0) {
+            Object[] tab = table;
+            int mc = modCount;
+            for (int g = 0; g < cs.length; ++g) {
+                for (long full = ~cs[g] & MSBS; full != 0L; full &= full - 1) {
+                    int ki = slotOf(g, full) << 1;
+                    tab[ki + 1] = function.apply((K)unmaskNull(tab[ki]), (V)tab[ki + 1]);
+                    if (modCount != mc)
+                        throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>FlatHashMap</tt> instance: the
+     * keys and values themselves are not cloned.  The copy has its own
+     * hash seed.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        FlatHashMap<K,V> result;
+        try {
+            result = (FlatHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // assert false;
+            throw new InternalError(e);
+        }
+        result.ctrl = null;
+        result.table = null;
+        result.size = 0;
+        result.modCount = 0;
+        result.seed = ThreadLocalRandom.current().nextInt();
+        result.stringHashing = stringHashing;
+        result.initialCapacity = capacityFor(size);
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.putAll(this);
+        return result;
+    }
+
+    /* ---------------- Views -------------- */
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not the <tt>add</tt> or <tt>addAll</tt> operations.
+     */
+    public Set<K> keySet() {
+        Set<K> ks = keySet;
+        return (ks != null ? ks : (keySet = new KeySet()));
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, so changes to the map
+     * are reflected in the collection, and vice-versa.  The collection
+     * supports element removal, but not the <tt>add</tt> or
+     * <tt>addAll</tt> operations.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        return (vs != null ? vs : (values = new Values()));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are reflected
+     * in the set, and vice-versa.  The set supports element removal,
+     * but not the <tt>add</tt> or <tt>addAll</tt> operations.  The
+     * entries returned by its iterator write through to the map when
+     * their value is set.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es = entrySet;
+        return (es != null ? es : (entrySet = new EntrySet()));
+    }
+
+    private abstract class HashIterator<E> implements Iterator<E> {
+        int next = -1;          // next full slot, -1 if none
+        int current = -1;       // slot returned last
+        int expectedModCount;   // For fast-fail
+
+        HashIterator() {
+            expectedModCount = modCount;
+            if (size > 0)
+                advance(0);
+        }
+
+        private void advance(int from) {
+            long[] cs = ctrl;
+            int n = cs.length << 3;
+            for (int i = from; i < n; ++i) {
+                if ((cs[i >>> 3] & (0x80L << ((i & 7) << 3))) == 0L) {
+                    next = i;
+                    return;
+                }
+            }
+            next = -1;
+        }
+
+        public final boolean hasNext() {
+            return next >= 0;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i < 0)
+                throw new NoSuchElementException();
+            current = i;
+            advance(i + 1);
+            return i;
+        }
+
+        public final void remove() {
+            if (current < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            // 删除不会移动其他条目，迭代可以继续
+            removeAt(current);
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends HashIterator<K> {
+        @SuppressWarnings("unchecked")
+        public K next() {
+            return (K)unmaskNull(table[nextSlot() << 1]);
+        }
+    }
+
+    private final class ValueIterator extends HashIterator<V> {
+        @SuppressWarnings("unchecked")
+        public V next() {
+            return (V)table[(nextSlot() << 1) + 1];
+        }
+    }
+
+    private final class EntryIterator extends HashIterator<Map.Entry<K,V>> {
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            int ki = nextSlot() << 1;
+            return new Entry((K)unmaskNull(table[ki]), (V)table[ki + 1]);
+        }
+    }
+
+    /**
+     * A snapshot of a mapping, writing through to the map on setValue.
+     */
+    private final class Entry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = 5781290411307451436L;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+
+        public V setValue(V value) {
+            FlatHashMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+        public boolean remove(Object o) {
+            Object k = maskNull(o);
+            int i = find(k, hash(k));
+            if (i < 0)
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public void clear() {
+            FlatHashMap.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+        public void clear() {
+            FlatHashMap.this.clear();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = maskNull(e.getKey());
+            int i = find(k, hash(k));
+            return i >= 0 && Objects.equals(table[(i << 1) + 1], e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = maskNull(e.getKey());
+            int i = find(k, hash(k));
+            if (i < 0 || !Objects.equals(table[(i << 1) + 1], e.getValue()))
+                return false;
+            removeAt(i);
+            return true;
+        }
+        public int size() {
+            return size;
+        }
+        public void clear() {
+            FlatHashMap.this.clear();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Save the state of the <tt>FlatHashMap</tt> instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping.  The hash
+     *             seed is not serialized.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        long[] cs = ctrl;
+        if (cs != null && size > 0) {
+            Object[] tab = table;
+            for (int g = 0; g < cs.length; ++g) {
+                for (long full = ~cs[g] & MSBS; full != 0L; full &= full - 1) {
+                    int ki = slotOf(g, full) << 1;
+                    s.writeObject(unmaskNull(tab[ki]));
+                    s.writeObject(tab[ki + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>FlatHashMap</tt> instance from a stream (i.e.,
+     * deserialize it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     mappings);
+        initialCapacity = capacityFor(mappings);
+        seed = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            put(key, value);
+        }
+    }
+}
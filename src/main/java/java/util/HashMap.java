@@ -298,7 +298,7 @@ public class HashMap<K,V>
         putAllForCreate(m);
     }
 
-    private static int roundUpToPowerOf2(int number) {
+    static int roundUpToPowerOf2(int number) {
         // assert number >= 0 : "number must be non-negative";
         return number >= MAXIMUM_CAPACITY
                 ? MAXIMUM_CAPACITY
@@ -978,6 +978,85 @@ public class HashMap<K,V>
         return new EntryIterator();
     }
 
+    /**
+     * Returns a new {@link MapCursor} over the mappings of this map, in
+     * the same order as the iterator of the {@link #entrySet()}.  The
+     * cursor allocates nothing while traversing, and can be
+     * {@linkplain MapCursor#reset() reset} and reused for any number
+     * of traversals.  It supports {@link MapCursor#remove}.
+     *
+     * @return a new cursor over the mappings of this map
+     */
+    public MapCursor<K,V> cursor() {
+        return new HashCursor();
+    }
+
+    private final class HashCursor implements MapCursor<K,V> {
+        Entry<K,V> next;        // next entry to return
+        int expectedModCount;   // For fast-fail
+        int index;              // current slot
+        Entry<K,V> current;     // current entry
+
+        HashCursor() {
+            reset();
+        }
+
+        public void reset() {
+            expectedModCount = modCount;
+            current = next = null;
+            index = 0;
+            if (size > 0) { // advance to first entry
+                Entry[] t = table;
+                while (index < t.length && (next = t[index++]) == null)
+                    ;
+            }
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Entry<K,V> e = next;
+            if ((current = e) == null)
+                return false;
+            if ((next = e.next) == null) {
+                Entry[] t = table;
+                while (index < t.length && (next = t[index++]) == null)
+                    ;
+            }
+            return true;
+        }
+
+        private Entry<K,V> current() {
+            Entry<K,V> e = current;
+            if (e == null)
+                throw new IllegalStateException();
+            return e;
+        }
+
+        public K getKey() {
+            return current().key;
+        }
+
+        public V getValue() {
+            return current().value;
+        }
+
+        public V setValue(V value) {
+            return current().setValue(value);
+        }
+
+        public void remove() {
+            if (current == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object k = current.key;
+            current = null;
+            HashMap.this.removeEntryForKey(k);
+            expectedModCount = modCount;
+        }
+    }
+
 
     // Views
 
@@ -920,6 +920,80 @@ public class IdentityHashMap<K,V>
         }
     }
 
+    /**
+     * Returns a new {@link MapCursor} over the mappings of this map.  The
+     * cursor allocates nothing while traversing (except, as for the
+     * iterators of this map, in the rare case that a removal through the
+     * cursor must copy the rest of the table), and can be
+     * {@linkplain MapCursor#reset() reset} and reused for any number of
+     * traversals.  It supports {@link MapCursor#remove}.
+     *
+     * @return a new cursor over the mappings of this map
+     */
+    public MapCursor<K,V> cursor() {
+        return new EntryCursor();
+    }
+
+    /**
+     * Shares the traversal and removal logic of the iterators; next()
+     * is only there to complete the iterator, and returns the key.
+     */
+    private class EntryCursor extends IdentityHashMapIterator<K>
+        implements MapCursor<K,V>
+    {
+        public void reset() {
+            index = (size != 0 ? 0 : table.length);
+            expectedModCount = modCount;
+            lastReturnedIndex = -1;
+            indexValid = false;
+            traversalTable = table;
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!indexValid && !hasNext()) {
+                lastReturnedIndex = -1;
+                return false;
+            }
+            nextIndex();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K next() {
+            return (K) unmaskNull(traversalTable[nextIndex()]);
+        }
+
+        private int current() {
+            int i = lastReturnedIndex;
+            if (i < 0)
+                throw new IllegalStateException();
+            return i;
+        }
+
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) unmaskNull(traversalTable[current()]);
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) traversalTable[current() + 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            int i = current();
+            V oldValue = (V) traversalTable[i + 1];
+            traversalTable[i + 1] = value;
+            // if shadowing, force into main table
+            if (traversalTable != IdentityHashMap.this.table)
+                put((K) unmaskNull(traversalTable[i]), value);
+            return oldValue;
+        }
+    }
+
     // Views
 
     /**
@@ -0,0 +1,1054 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Container class for the unmodifiable collections returned by the
+ * {@code List.of}, {@code Set.of} and {@code Map.of} families of static
+ * factory methods. Not part of the public API.
+ * 不可变集合的实现：小集合直接存放在字段中，较大的集合存放在一个数组中(线性探测)。
+ *
+ * <p>Each instance is a single object holding either its elements
+ * directly in fields ({@code List12}, {@code Set12}, {@code Map1}) or
+ * one array: an exact-sized element array for lists, and for sets and
+ * maps an open-addressed table of twice the number of elements, probed
+ * linearly, with the keys and values of a map interleaved in the same
+ * array. There are no entry or node objects and no wrapper around a
+ * general-purpose collection. Null elements, keys and values are
+ * rejected, so a null slot marks an empty one.
+ *
+ * <p>Hash codes are mixed with {@link #SALT}, a value chosen once per
+ * JVM instance, which also makes the iteration order of sets and maps
+ * differ from run to run; callers thus cannot come to depend on it.
+ *
+ * <p>The implementation classes are serialized through {@link CollSer}
+ * by {@code writeReplace}, and refuse to be deserialized directly, so
+ * they declare no {@code serialVersionUID}.
+ */
+class ImmutableCollections {
+    /**
+     * A "salt" value used for randomizing iteration order. This is
+     * initialized once and stays constant for the lifetime of the JVM.
+     */
+    static final int SALT;
+
+    /**
+     * Whether sets and maps are iterated downwards from the starting
+     * slot, also chosen once per JVM.
+     */
+    static final boolean REVERSE;
+
+    static {
+        long nt = System.nanoTime();
+        int s = (int)((nt >>> 32) ^ nt) * 0x9E3779B9;
+        SALT = s;
+        REVERSE = (s & (1 << 16)) != 0;
+    }
+
+    /**
+     * The reciprocal of load factor. Given a number of elements to
+     * store, multiply by this factor to get the table size.
+     */
+    static final int EXPAND_FACTOR = 2;
+
+    /** No instances. */
+    private ImmutableCollections() { }
+
+    static UnsupportedOperationException uoe() {
+        return new UnsupportedOperationException();
+    }
+
+    static IndexOutOfBoundsException outOfBounds(int index, int size) {
+        return new IndexOutOfBoundsException("Index: " + index + " Size: " + size);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> List<E> emptyList() {
+        return (List<E>) ListN.EMPTY_LIST;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> emptySet() {
+        return (Set<E>) SetN.EMPTY_SET;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K,V> Map<K,V> emptyMap() {
+        return (Map<K,V>) MapN.EMPTY_MAP;
+    }
+
+    /**
+     * Returns an unmodifiable list of the elements of coll, or coll
+     * itself if it is already one (and not a sublist, which would keep
+     * its whole backing list reachable).
+     */
+    @SuppressWarnings("unchecked")
+    static <E> List<E> listCopy(Collection<? extends E> coll) {
+        if (coll instanceof AbstractImmutableList && coll.getClass() != SubList.class)
+            return (List<E>) coll;
+        else
+            return (List<E>) List.of(coll.toArray()); // implicit nullcheck of coll
+    }
+
+    /**
+     * Returns an unmodifiable set of the distinct elements of coll, or
+     * coll itself if it is already one.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> setCopy(Collection<? extends E> coll) {
+        if (coll instanceof AbstractImmutableSet)
+            return (Set<E>) coll;
+        else
+            return (Set<E>) Set.of(new HashSet<>(coll).toArray()); // 先去重
+    }
+
+    /**
+     * Returns an unmodifiable map of the mappings of map, or map itself
+     * if it is already one.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static <K,V> Map<K,V> mapCopy(Map<? extends K, ? extends V> map) {
+        if (map instanceof AbstractImmutableMap)
+            return (Map<K,V>) map;
+        else
+            return (Map<K,V>) Map.ofEntries(map.entrySet().toArray(new Map.Entry[0]));
+    }
+
+    /**
+     * Returns an unmodifiable map of the given entries, copying their
+     * keys and values so that later changes to the entries are not seen.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> Map<K,V> mapOfEntries(Map.Entry<? extends K, ? extends V>[] entries) {
+        switch (entries.length) { // implicit null check of entries
+            case 0:
+                return emptyMap();
+            case 1:
+                return new Map1<>(entries[0].getKey(), entries[0].getValue());
+            default:
+                Object[] kva = new Object[entries.length << 1];
+                int a = 0;
+                for (Map.Entry<? extends K, ? extends V> e : entries) {
+                    kva[a++] = e.getKey();
+                    kva[a++] = e.getValue();
+                }
+                return new MapN<>(kva);
+        }
+    }
+
+    // ---------- Collections ----------
+
+    static abstract class AbstractImmutableCollection<E> extends AbstractCollection<E> {
+        // all mutating methods throw UnsupportedOperationException
+        @Override public boolean add(E e) { throw uoe(); }
+        @Override public boolean addAll(Collection<? extends E> c) { throw uoe(); }
+        @Override public void    clear() { throw uoe(); }
+        @Override public boolean remove(Object o) { throw uoe(); }
+        @Override public boolean removeAll(Collection<?> c) { throw uoe(); }
+        @Override public boolean removeIf(Predicate<? super E> filter) { throw uoe(); }
+        @Override public boolean retainAll(Collection<?> c) { throw uoe(); }
+    }
+
+    // ---------- List Implementations ----------
+
+    static abstract class AbstractImmutableList<E> extends AbstractImmutableCollection<E>
+            implements List<E>, RandomAccess {
+
+        // all mutating methods throw UnsupportedOperationException
+        @Override public void    add(int index, E element) { throw uoe(); }
+        @Override public boolean addAll(int index, Collection<? extends E> c) { throw uoe(); }
+        @Override public E       remove(int index) { throw uoe(); }
+        @Override public void    replaceAll(UnaryOperator<E> operator) { throw uoe(); }
+        @Override public E       set(int index, E element) { throw uoe(); }
+        @Override public void    sort(Comparator<? super E> c) { throw uoe(); }
+
+        @Override
+        public List<E> subList(int fromIndex, int toIndex) {
+            int size = size();
+            subListRangeCheck(fromIndex, toIndex, size);
+            return SubList.fromList(this, fromIndex, toIndex);
+        }
+
+        static void subListRangeCheck(int fromIndex, int toIndex, int size) {
+            if (fromIndex < 0)
+                throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+            if (toIndex > size)
+                throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+            if (fromIndex > toIndex)
+                throw new IllegalArgumentException("fromIndex(" + fromIndex +
+                                                   ") > toIndex(" + toIndex + ")");
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new ListItr<E>(this, size(), 0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator(final int index) {
+            int size = size();
+            if (index < 0 || index > size)
+                throw outOfBounds(index, size);
+            return new ListItr<E>(this, size, index);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            Objects.requireNonNull(o);
+            for (int i = 0, s = size(); i < s; i++) {
+                if (o.equals(get(i)))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            Objects.requireNonNull(o);
+            for (int i = size() - 1; i >= 0; i--) {
+                if (o.equals(get(i)))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof List))
+                return false;
+            Iterator<?> oit = ((List<?>) o).iterator();
+            for (int i = 0, s = size(); i < s; i++) {
+                if (!oit.hasNext() || !get(i).equals(oit.next()))
+                    return false;
+            }
+            return !oit.hasNext();
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (int i = 0, s = size(); i < s; i++)
+                hash = 31 * hash + get(i).hashCode();
+            return hash;
+        }
+    }
+
+    static final class ListItr<E> implements ListIterator<E> {
+        private final List<E> list;
+        private final int size;
+        private int cursor;
+
+        ListItr(List<E> list, int size, int index) {
+            this.list = list;
+            this.size = size;
+            this.cursor = index;
+        }
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public E next() {
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            E next = list.get(i);
+            cursor = i + 1;
+            return next;
+        }
+
+        public boolean hasPrevious() {
+            return cursor != 0;
+        }
+
+        public E previous() {
+            int i = cursor - 1;
+            if (i < 0)
+                throw new NoSuchElementException();
+            E previous = list.get(i);
+            cursor = i;
+            return previous;
+        }
+
+        public int nextIndex()     { return cursor; }
+        public int previousIndex() { return cursor - 1; }
+
+        public void remove()    { throw uoe(); }
+        public void set(E e)    { throw uoe(); }
+        public void add(E e)    { throw uoe(); }
+    }
+
+    /**
+     * A view of a range of an immutable list. Not serializable, and
+     * copied rather than shared by {@code List.copyOf}.
+     */
+    static final class SubList<E> extends AbstractImmutableList<E>
+            implements RandomAccess {
+
+        private final List<E> root;
+        private final int offset;
+        private final int size;
+
+        private SubList(List<E> root, int offset, int size) {
+            this.root = root;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        /** Constructs a sublist of another SubList. */
+        static <E> SubList<E> fromSubList(SubList<E> parent, int fromIndex, int toIndex) {
+            return new SubList<>(parent.root, parent.offset + fromIndex, toIndex - fromIndex);
+        }
+
+        /** Constructs a sublist of an arbitrary AbstractImmutableList. */
+        static <E> SubList<E> fromList(List<E> list, int fromIndex, int toIndex) {
+            return new SubList<>(list, fromIndex, toIndex - fromIndex);
+        }
+
+        public E get(int index) {
+            if (index < 0 || index >= size)
+                throw outOfBounds(index, size);
+            return root.get(offset + index);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public List<E> subList(int fromIndex, int toIndex) {
+            subListRangeCheck(fromIndex, toIndex, size);
+            return SubList.fromSubList(this, fromIndex, toIndex);
+        }
+    }
+
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class List12<E> extends AbstractImmutableList<E>
+            implements Serializable {
+
+        private final E e0;
+        private final E e1; // null if size is 1
+
+        List12(E e0) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = null;
+        }
+
+        List12(E e0, E e1) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = Objects.requireNonNull(e1);
+        }
+
+        @Override
+        public int size() {
+            return e1 != null ? 2 : 1;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index == 0)
+                return e0;
+            else if (index == 1 && e1 != null)
+                return e1;
+            throw outOfBounds(index, size());
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            Objects.requireNonNull(o);
+            return o.equals(e0) ? 0 : (e1 != null && o.equals(e1)) ? 1 : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            Objects.requireNonNull(o);
+            return (e1 != null && o.equals(e1)) ? 1 : o.equals(e0) ? 0 : -1;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            if (e1 == null)
+                return new CollSer(CollSer.IMM_LIST, e0);
+            else
+                return new CollSer(CollSer.IMM_LIST, e0, e1);
+        }
+    }
+
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class ListN<E> extends AbstractImmutableList<E>
+            implements Serializable {
+
+        static final List<?> EMPTY_LIST = new ListN<>();
+
+        private final E[] elements;
+
+        @SafeVarargs
+        ListN(E... input) {
+            // copy and check manually to avoid TOCTOU
+            @SuppressWarnings("unchecked")
+            E[] tmp = (E[])new Object[input.length]; // implicit nullcheck of input
+            for (int i = 0; i < input.length; i++)
+                tmp[i] = Objects.requireNonNull(input[i]);
+            this.elements = tmp;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return elements.length == 0;
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public E get(int index) {
+            E[] es = elements;
+            if (index < 0 || index >= es.length)
+                throw outOfBounds(index, es.length);
+            return es[index];
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (E e : elements)
+                action.accept(e);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.copyOf(elements, elements.length, Object[].class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            int size = elements.length;
+            if (a.length < size)
+                return (T[]) Arrays.copyOf(elements, size, a.getClass());
+            System.arraycopy(elements, 0, a, 0, size);
+            if (a.length > size)
+                a[size] = null; // null-terminate
+            return a;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(elements, Spliterator.ORDERED |
+                                            Spliterator.IMMUTABLE | Spliterator.NONNULL);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            return new CollSer(CollSer.IMM_LIST, (Object[]) elements);
+        }
+    }
+
+    // ---------- Set Implementations ----------
+
+    static abstract class AbstractImmutableSet<E> extends AbstractImmutableCollection<E>
+            implements Set<E> {
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            if (c.size() != size())
+                return false;
+            for (Object e : c) {
+                if (e == null || !contains(e))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public abstract int hashCode();
+    }
+
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class Set12<E> extends AbstractImmutableSet<E>
+            implements Serializable {
+
+        final E e0;
+        final E e1; // null if size is 1
+
+        Set12(E e0) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = null;
+        }
+
+        Set12(E e0, E e1) {
+            if (e0.equals(Objects.requireNonNull(e1))) // implicit nullcheck of e0
+                throw new IllegalArgumentException("duplicate element: " + e0);
+            this.e0 = e0;
+            this.e1 = e1;
+        }
+
+        @Override
+        public int size() {
+            return (e1 == null) ? 1 : 2;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o.equals(e0) || o.equals(e1); // implicit nullcheck of o
+        }
+
+        @Override
+        public int hashCode() {
+            return e0.hashCode() + (e1 == null ? 0 : e1.hashCode());
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int idx = size();
+
+                @Override
+                public boolean hasNext() {
+                    return idx > 0;
+                }
+
+                @Override
+                public E next() {
+                    if (idx == 1) {
+                        idx = 0;
+                        return (REVERSE || e1 == null) ? e0 : e1;
+                    } else if (idx == 2) {
+                        idx = 1;
+                        return REVERSE ? e1 : e0;
+                    } else {
+                        throw new NoSuchElementException();
+                    }
+                }
+            };
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            if (e1 == null)
+                return new CollSer(CollSer.IMM_SET, e0);
+            else
+                return new CollSer(CollSer.IMM_SET, e0, e1);
+        }
+    }
+
+    /**
+     * An array-based Set implementation. The element array must be
+     * strictly larger than the size (the number of contained elements)
+     * so that at least one null is always present.
+     */
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class SetN<E> extends AbstractImmutableSet<E>
+            implements Serializable {
+
+        static final Set<?> EMPTY_SET = new SetN<>();
+
+        final E[] elements;
+        final int size;
+
+        @SafeVarargs
+        @SuppressWarnings("unchecked")
+        SetN(E... input) {
+            size = input.length; // implicit nullcheck of input
+
+            elements = (E[])new Object[EXPAND_FACTOR * input.length];
+            for (int i = 0; i < input.length; i++) {
+                E e = input[i];
+                int idx = probe(e); // implicit nullcheck of e
+                if (idx >= 0)
+                    throw new IllegalArgumentException("duplicate element: " + e);
+                elements[-(idx + 1)] = e;
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Objects.requireNonNull(o);
+            return size > 0 && probe(o) >= 0;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int remaining = size;
+                // 起始槽位和方向由SALT决定
+                private int idx = (size == 0) ? 0 : Math.floorMod(SALT, elements.length);
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public E next() {
+                    if (remaining <= 0)
+                        throw new NoSuchElementException();
+                    E[] es = elements;
+                    int i = idx, len = es.length;
+                    E e;
+                    // step to the next element; skip null slots
+                    do {
+                        if (REVERSE) {
+                            if (--i < 0)
+                                i = len - 1;
+                        } else if (++i >= len) {
+                            i = 0;
+                        }
+                    } while ((e = es[i]) == null);
+                    idx = i;
+                    remaining--;
+                    return e;
+                }
+            };
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (E e : elements) {
+                if (e != null)
+                    action.accept(e);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 0;
+            for (E e : elements) {
+                if (e != null)
+                    h += e.hashCode();
+            }
+            return h;
+        }
+
+        // returns index at which element is present; or if absent,
+        // (-i - 1) where i is location where element should be inserted.
+        // Callers are relying on this method to perform an implicit nullcheck
+        // of pe
+        private int probe(Object pe) {
+            int idx = Math.floorMod(pe.hashCode() ^ SALT, elements.length);
+            for (;;) {
+                E ee = elements[idx];
+                if (ee == null)
+                    return -idx - 1;
+                else if (pe.equals(ee))
+                    return idx;
+                else if (++idx == elements.length)
+                    idx = 0;
+            }
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            Object[] array = new Object[size];
+            int dest = 0;
+            for (Object o : elements) {
+                if (o != null)
+                    array[dest++] = o;
+            }
+            return new CollSer(CollSer.IMM_SET, array);
+        }
+    }
+
+    // ---------- Map Implementations ----------
+
+    @SuppressWarnings("serial") // serialized as a CollSer
+    abstract static class AbstractImmutableMap<K,V> extends AbstractMap<K,V>
+            implements Serializable {
+        @Override public void clear() { throw uoe(); }
+        @Override public V compute(K key, BiFunction<? super K,? super V,? extends V> rf) { throw uoe(); }
+        @Override public V computeIfAbsent(K key, Function<? super K,? extends V> mf) { throw uoe(); }
+        @Override public V computeIfPresent(K key, BiFunction<? super K,? super V,? extends V> rf) { throw uoe(); }
+        @Override public V merge(K key, V value, BiFunction<? super V,? super V,? extends V> rf) { throw uoe(); }
+        @Override public V put(K key, V value) { throw uoe(); }
+        @Override public void putAll(Map<? extends K,? extends V> m) { throw uoe(); }
+        @Override public V putIfAbsent(K key, V value) { throw uoe(); }
+        @Override public V remove(Object key) { throw uoe(); }
+        @Override public boolean remove(Object key, Object value) { throw uoe(); }
+        @Override public V replace(K key, V value) { throw uoe(); }
+        @Override public boolean replace(K key, V oldValue, V newValue) { throw uoe(); }
+        @Override public void replaceAll(BiFunction<? super K,? super V,? extends V> f) { throw uoe(); }
+    }
+
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class Map1<K,V> extends AbstractImmutableMap<K,V> {
+        private final K k0;
+        private final V v0;
+
+        Map1(K k0, V v0) {
+            this.k0 = Objects.requireNonNull(k0);
+            this.v0 = Objects.requireNonNull(v0);
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new Set12<>(new KeyValueHolder<>(k0, v0));
+        }
+
+        @Override
+        public V get(Object o) {
+            return o.equals(k0) ? v0 : null; // implicit nullcheck of o
+        }
+
+        @Override
+        public boolean containsKey(Object o) {
+            return o.equals(k0); // implicit nullcheck of o
+        }
+
+        @Override
+        public boolean containsValue(Object o) {
+            return o.equals(v0); // implicit nullcheck of o
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            action.accept(k0, v0);
+        }
+
+        @Override
+        public int hashCode() {
+            return k0.hashCode() ^ v0.hashCode();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            return new CollSer(CollSer.IMM_MAP, k0, v0);
+        }
+    }
+
+    /**
+     * An array-based Map implementation. There is a single array "table"
+     * that contains keys and values interleaved: table[0] is kA, table[1]
+     * is vA, table[2] is kB, table[3] is vB, etc. The table size must be
+     * even. It must also be strictly larger than the size (the number of
+     * key-value pairs contained in the map) so that at least one null key
+     * is always present.
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    @SuppressWarnings("serial") // serialized as a CollSer
+    static final class MapN<K,V> extends AbstractImmutableMap<K,V> {
+
+        static final Map<?,?> EMPTY_MAP = new MapN<>();
+
+        final Object[] table; // pairs of key, value
+        final int size; // number of pairs
+
+        MapN(Object... input) {
+            if ((input.length & 1) != 0) // implicit nullcheck of input
+                throw new InternalError("length is odd");
+            size = input.length >> 1;
+
+            int len = EXPAND_FACTOR * input.length;
+            len = (len + 1) & ~1; // ensure table is even length
+            table = new Object[len];
+
+            for (int i = 0; i < input.length; i += 2) {
+                @SuppressWarnings("unchecked")
+                K k = Objects.requireNonNull((K)input[i]);
+                @SuppressWarnings("unchecked")
+                V v = Objects.requireNonNull((V)input[i+1]);
+                int idx = probe(k);
+                if (idx >= 0)
+                    throw new IllegalArgumentException("duplicate key: " + k);
+                int dest = -(idx + 1);
+                table[dest] = k;
+                table[dest+1] = v;
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object o) {
+            Objects.requireNonNull(o);
+            return size > 0 && probe(o) >= 0;
+        }
+
+        @Override
+        public boolean containsValue(Object o) {
+            Objects.requireNonNull(o);
+            for (int i = 1; i < table.length; i += 2) {
+                Object v = table[i];
+                if (v != null && o.equals(v))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = 0; i < table.length; i += 2) {
+                Object k = table[i];
+                if (k != null)
+                    hash += k.hashCode() ^ table[i + 1].hashCode();
+            }
+            return hash;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object o) {
+            if (size == 0) {
+                Objects.requireNonNull(o);
+                return null;
+            }
+            int i = probe(o);
+            return (i >= 0) ? (V)table[i+1] : null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            // 直接遍历表，不创建条目对象
+            Objects.requireNonNull(action);
+            Object[] tab = table;
+            for (int i = 0; i < tab.length; i += 2) {
+                Object k = tab[i];
+                if (k != null)
+                    action.accept((K)k, (V)tab[i+1]);
+            }
+        }
+
+        class MapNIterator implements Iterator<Map.Entry<K,V>> {
+            private int remaining = size;
+            private int idx = (size == 0) ? 0 : Math.floorMod(SALT, table.length >> 1) << 1;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            private int nextIndex() {
+                int i = idx;
+                if (REVERSE) {
+                    if ((i -= 2) < 0)
+                        i = table.length - 2;
+                } else if ((i += 2) >= table.length) {
+                    i = 0;
+                }
+                return idx = i;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<K,V> next() {
+                if (remaining <= 0)
+                    throw new NoSuchElementException();
+                int i;
+                while (table[i = nextIndex()] == null) {}
+                Map.Entry<K,V> e = new KeyValueHolder<>((K)table[i], (V)table[i+1]);
+                remaining--;
+                return e;
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new AbstractSet<Map.Entry<K,V>>() {
+                @Override
+                public int size() {
+                    return MapN.this.size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<K,V>> iterator() {
+                    return new MapNIterator();
+                }
+            };
+        }
+
+        // returns index at which the probe key is present; or if absent,
+        // (-i - 1) where i is location where element should be inserted.
+        // Callers are relying on this method to perform an implicit nullcheck
+        // of pk.
+        private int probe(Object pk) {
+            int idx = Math.floorMod(pk.hashCode() ^ SALT, table.length >> 1) << 1;
+            for (;;) {
+                Object ek = table[idx];
+                if (ek == null)
+                    return -idx - 1;
+                else if (pk.equals(ek))
+                    return idx;
+                else if ((idx += 2) == table.length)
+                    idx = 0;
+            }
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        private Object writeReplace() {
+            Object[] array = new Object[2 * size];
+            int len = table.length;
+            int dest = 0;
+            for (int i = 0; i < len; i += 2) {
+                if (table[i] != null) {
+                    array[dest++] = table[i];
+                    array[dest++] = table[i+1];
+                }
+            }
+            return new CollSer(CollSer.IMM_MAP, array);
+        }
+    }
+}
+
+// ---------- Serialization Proxy ----------
+
+/**
+ * A unified serialization proxy class for the immutable collections.
+ * The serial form records only a tag for the kind of collection and its
+ * elements (keys and values interleaved for a map), so the layout of
+ * the implementation classes is free to change.
+ *
+ * @serial
+ */
+final class CollSer implements Serializable {
+    private static final long serialVersionUID = 6309168927139932177L;
+
+    /**
+     * Indicates the kind of collection: {@code IMM_LIST}, {@code IMM_SET}
+     * or {@code IMM_MAP}.
+     *
+     * @serial
+     */
+    private final int tag;
+
+    /** The elements, or the keys and values interleaved. */
+    private transient Object[] array;
+
+    static final int IMM_LIST = 1;
+    static final int IMM_SET = 2;
+    static final int IMM_MAP = 3;
+
+    CollSer(int t, Object... a) {
+        tag = t;
+        array = a;
+    }
+
+    /**
+     * Reads the length and then that many elements.
+     *
+     * @param ois the ObjectInputStream from which data is read
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if a serialized class cannot be loaded
+     * @throws InvalidObjectException if the count is negative
+     */
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        int len = ois.readInt();
+        if (len < 0)
+            throw new InvalidObjectException("negative length " + len);
+        Object[] a = new Object[len];
+        for (int i = 0; i < len; i++)
+            a[i] = ois.readObject();
+        array = a;
+    }
+
+    /**
+     * Writes the length of the array and then each element.
+     *
+     * @param oos the ObjectOutputStream to which data is written
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream oos) throws IOException {
+        oos.defaultWriteObject();
+        oos.writeInt(array.length);
+        for (Object o : array)
+            oos.writeObject(o);
+    }
+
+    /**
+     * Creates and returns an immutable collection from this proxy.
+     *
+     * @return a collection created from this proxy object
+     * @throws ObjectStreamException if the tag is invalid or the elements
+     *         are unsuitable for the kind of collection
+     */
+    private Object readResolve() throws ObjectStreamException {
+        try {
+            if (array == null)
+                throw new InvalidObjectException("null array");
+            switch (tag) {
+                case IMM_LIST:
+                    return List.of(array);
+                case IMM_SET:
+                    return Set.of(array);
+                case IMM_MAP:
+                    if (array.length == 0)
+                        return ImmutableCollections.emptyMap();
+                    else if (array.length == 2)
+                        return new ImmutableCollections.Map1<>(array[0], array[1]);
+                    else if ((array.length & 1) == 0)
+                        return new ImmutableCollections.MapN<>(array);
+                    else
+                        throw new InvalidObjectException("odd number of keys and values");
+                default:
+                    throw new InvalidObjectException(String.format("invalid tag 0x%x", tag));
+            }
+        } catch (NullPointerException|IllegalArgumentException ex) {
+            InvalidObjectException ioe = new InvalidObjectException("invalid object");
+            ioe.initCause(ex);
+            throw ioe;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import sun.misc.SharedSecrets;
+
+/**
+ * A priority queue of {@code int} ids ordered by primitive {@code long}
+ * priorities, lowest first, that can find any id it holds in constant
+ * time.  Each id is queued at most once, so it serves as a handle to its
+ * entry: the priority of a queued id can be changed, and the id removed,
+ * in O(log(n)) time, where a {@link PriorityQueue} has to search its
+ * array in linear time.
+ * 带索引的优先级队列：通过id在O(log(n))时间内修改优先级或删除。
+ *
+ * <p>Ids are nonnegative and meant to be dense, such as indices into an
+ * array of tasks or vertices: besides the 4-ary heap of
+ * {@link LongPriorityQueue}, the queue keeps an array mapping each id to
+ * its position in the heap, which is as large as the largest id ever
+ * queued.
+ *
+ * <p>The enqueuing method {@code offer}, the dequeuing methods
+ * {@code remove()} and {@code remove(int)} and the updating methods
+ * {@code changePriority} and {@code decreasePriority} take O(log(n))
+ * time; {@code contains}, {@code priorityOf}, {@code peekId},
+ * {@code peekPriority} and {@code size} take constant time.
+ *
+ * <p>The spliterator and stream of this class traverse the ids in no
+ * particular order, and are <em>fail-fast</em> in the same way as those
+ * of {@link PriorityQueue}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Multiple threads should not access an {@code IndexedLongPriorityQueue}
+ * instance concurrently if any of the threads modifies the queue.
+ *
+ * @see LongPriorityQueue
+ */
+public class IndexedLongPriorityQueue implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 2087712530893465221L;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    /**
+     * The priorities of the entries, a 4-ary heap: the children of
+     * entry k are entries 4k+1 .. 4k+4, and each entry has a priority
+     * no larger than those of its children.
+     */
+    transient long[] priorities;
+
+    /**
+     * The ids of the entries, parallel to priorities.
+     */
+    transient int[] ids; // non-private to simplify nested class access
+
+    /**
+     * The position in the heap plus one of each id, or zero for the ids
+     * that are not queued.
+     * 每个id在堆中的位置加1，0表示不在队列中
+     */
+    transient int[] positions;
+
+    /**
+     * The number of entries in the queue.
+     */
+    private int size;
+
+    /**
+     * The number of times this queue has been <i>structurally modified</i>.
+     */
+    transient int modCount;
+
+    /**
+     * Creates an {@code IndexedLongPriorityQueue} with the default
+     * initial capacity (11).
+     */
+    public IndexedLongPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an {@code IndexedLongPriorityQueue} with the specified
+     * initial capacity, for entries and for ids.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1
+     */
+    public IndexedLongPriorityQueue(int initialCapacity) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+        this.priorities = new long[initialCapacity];
+        this.ids = new int[initialCapacity];
+        this.positions = new int[initialCapacity];
+    }
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Returns the capacity after growing an array of the given length to
+     * at least minCapacity.
+     */
+    private static int newCapacity(int oldCapacity, int minCapacity) {
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        return newCapacity;
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0)
+            throw new IllegalArgumentException("id < 0: " + id);
+    }
+
+    /**
+     * Returns the heap position of the id, or -1 if it is not queued.
+     */
+    private int positionOf(int id) {
+        checkId(id);
+        return (id < positions.length) ? positions[id] - 1 : -1;
+    }
+
+    /**
+     * Inserts the specified id with the specified priority into this
+     * priority queue, unless the id is already queued.
+     *
+     * @param priority the priority of the id, lower first
+     * @param id the id
+     * @return {@code true} if the id was inserted, {@code false} if it
+     *         was already queued (its priority is then left unchanged)
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public boolean offer(long priority, int id) {
+        if (positionOf(id) >= 0)
+            return false;
+        if (id >= positions.length)
+            positions = Arrays.copyOf(positions, newCapacity(positions.length, id + 1));
+        modCount++;
+        int i = size;
+        if (i >= priorities.length) {
+            int n = newCapacity(priorities.length, i + 1);
+            priorities = Arrays.copyOf(priorities, n);
+            ids = Arrays.copyOf(ids, n);
+        }
+        size = i + 1;
+        siftUp(i, priority, id);
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the specified id is queued.
+     *
+     * @param id the id
+     * @return {@code true} if the id is queued
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public boolean contains(int id) {
+        return positionOf(id) >= 0;
+    }
+
+    /**
+     * Returns the priority of the specified queued id.
+     *
+     * @param id the id
+     * @return the priority of the id
+     * @throws NoSuchElementException if the id is not queued
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public long priorityOf(int id) {
+        int i = positionOf(id);
+        if (i < 0)
+            throw new NoSuchElementException("id " + id + " is not queued");
+        return priorities[i];
+    }
+
+    /**
+     * Changes the priority of the specified queued id, moving it up or
+     * down the heap.
+     *
+     * @param id the id
+     * @param priority the new priority of the id
+     * @return {@code true} if the id is queued, {@code false} otherwise
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public boolean changePriority(int id, long priority) {
+        int i = positionOf(id);
+        if (i < 0)
+            return false;
+        if (priority < priorities[i])
+            siftUp(i, priority, id);
+        else
+            siftDown(i, priority, id);
+        return true;
+    }
+
+    /**
+     * Lowers the priority of the specified queued id, if the given
+     * priority is lower than its current one.  This is the
+     * <em>decrease-key</em> operation of graph algorithms such as
+     * Dijkstra's, which only ever moves the id up the heap.
+     *
+     * @param id the id
+     * @param priority the new priority of the id
+     * @return {@code true} if the priority of the id was lowered,
+     *         {@code false} if the id is not queued or its priority is
+     *         not higher than the given one
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public boolean decreasePriority(int id, long priority) {
+        int i = positionOf(id);
+        if (i < 0 || priority >= priorities[i])
+            return false;
+        siftUp(i, priority, id);
+        return true;
+    }
+
+    /**
+     * Returns the lowest priority in this queue, that of the head.
+     *
+     * @return the priority of the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public long peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return priorities[0];
+    }
+
+    /**
+     * Returns the id at the head of this queue, one of lowest priority.
+     *
+     * @return the id at the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int peekId() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return ids[0];
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, returning its id.
+     * Its priority can be read by {@link #peekPriority} beforehand.
+     *
+     * @return the id at the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int remove() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int result = ids[0];
+        removeAt(0);
+        return result;
+    }
+
+    /**
+     * Removes the specified id from this queue, if it is queued.
+     *
+     * @param id the id to be removed
+     * @return {@code true} if the id was queued
+     * @throws IllegalArgumentException if the id is negative
+     */
+    public boolean remove(int id) {
+        int i = positionOf(id);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Removes the entry at position i from the heap.
+     */
+    private void removeAt(int i) {
+        // assert i >= 0 && i < size;
+        modCount++;
+        positions[ids[i]] = 0;
+        int s = --size;
+        if (s != i) {
+            long p = priorities[s];
+            int moved = ids[s];
+            siftDown(i, p, moved);
+            if (ids[i] == moved)
+                siftUp(i, p, moved);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all of the ids from this priority queue.
+     * The queue will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++)
+            positions[ids[i]] = 0;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each id of this queue, in no
+     * particular order.
+     *
+     * @param action the action to be performed for each id
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the queue is modified
+     *         by the action
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int[] a = ids;
+        final int n = size;
+        for (int i = 0; modCount == expectedModCount && i < n; i++)
+            action.accept(a[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Inserts an entry at position k, maintaining heap invariant by
+     * promoting it up the tree until its priority is greater than or
+     * equal to its parent's, or it is the root, and records the
+     * positions of the entries it moves.
+     *
+     * @param k the position to fill
+     * @param p the priority of the entry to insert
+     * @param id the id of the entry to insert
+     */
+    private void siftUp(int k, long p, int id) {
+        long[] pq = priorities;
+        int[] is = ids, pos = positions;
+        while (k > 0) {
+            int parent = (k - 1) >>> 2;
+            long e = pq[parent];
+            if (p >= e)
+                break;
+            pq[k] = e;
+            pos[is[k] = is[parent]] = k + 1;
+            k = parent;
+        }
+        pq[k] = p;
+        pos[is[k] = id] = k + 1;
+    }
+
+    /**
+     * Inserts an entry at position k, maintaining heap invariant by
+     * demoting it down the tree repeatedly until its priority is less
+     * than or equal to its children's or it is a leaf, and records the
+     * positions of the entries it moves.
+     *
+     * @param k the position to fill
+     * @param p the priority of the entry to insert
+     * @param id the id of the entry to insert
+     */
+    private void siftDown(int k, long p, int id) {
+        long[] pq = priorities;
+        int[] is = ids, pos = positions;
+        int n = size;
+        int nonLeaves = (n + 2) >>> 2;  // loop while a non-leaf
+        while (k < nonLeaves) {
+            int child = (k << 2) + 1;   // assume first child is least
+            long c = pq[child];
+            for (int i = child + 1, end = Math.min(child + 4, n); i < end; i++) {
+                if (pq[i] < c)
+                    c = pq[child = i];
+            }
+            if (p <= c)
+                break;
+            pq[k] = c;
+            pos[is[k] = is[child]] = k + 1;
+            k = child;
+        }
+        pq[k] = p;
+        pos[is[k] = id] = k + 1;
+    }
+
+    /**
+     * Returns a copy of this queue.
+     *
+     * @return a clone of this queue
+     */
+    public IndexedLongPriorityQueue clone() {
+        try {
+            IndexedLongPriorityQueue q = (IndexedLongPriorityQueue) super.clone();
+            q.priorities = priorities.clone();
+            q.ids = ids.clone();
+            q.positions = positions.clone();
+            q.modCount = 0;
+            return q;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @serialData The priority (long) and id (int) of each entry are
+     *             emitted, in heap order, after the size.
+     * @param s the stream
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out size and any hidden stuff
+        s.defaultWriteObject();
+
+        for (int i = 0; i < size; i++) {
+            s.writeLong(priorities[i]);
+            s.writeInt(ids[i]);
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code IndexedLongPriorityQueue} instance from a
+     * stream (that is, deserializes it).
+     *
+     * @param s the stream
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        SharedSecrets.getJavaOISAccess().checkArray(s, long[].class, size);
+        int n = Math.max(size, 1);
+        priorities = new long[n];
+        ids = new int[n];
+        positions = new int[n];
+        int entries = size;
+        size = 0;
+
+        // Re-insert the entries, which rebuilds the positions and
+        // rejects duplicate or negative ids.
+        for (int i = 0; i < entries; i++) {
+            long p = s.readLong();
+            int id = s.readInt();
+            if (id < 0 || !offer(p, id))
+                throw new java.io.InvalidObjectException("Invalid id: " + id);
+        }
+        modCount = 0;
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} of the ids of this queue,
+     * in no particular order.
+     *
+     * @return a sequential {@code IntStream} over the ids in this queue
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the ids in this
+     * queue.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, {@link Spliterator#DISTINCT} and
+     * {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the ids in this queue
+     */
+    public Spliterator.OfInt spliterator() {
+        return new IdSpliterator(this, 0, -1, 0);
+    }
+
+    static final class IdSpliterator implements Spliterator.OfInt {
+        private final IndexedLongPriorityQueue pq;
+        private int index;            // current index, modified on advance/split
+        private int fence;            // -1 until first use
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range */
+        IdSpliterator(IndexedLongPriorityQueue pq, int origin, int fence,
+                      int expectedModCount) {
+            this.pq = pq;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = pq.modCount;
+                hi = fence = pq.size;
+            }
+            return hi;
+        }
+
+        public IdSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new IdSpliterator(pq, lo, index = mid, expectedModCount);
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            IndexedLongPriorityQueue q; int[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((q = pq) != null && (a = q.ids) != null) {
+                if ((hi = fence) < 0) {
+                    mc = q.modCount;
+                    hi = q.size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i)
+                        action.accept(a[i]);
+                    if (q.modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), lo = index;
+            if (lo >= 0 && lo < hi) {
+                index = lo + 1;
+                action.accept(pq.ids[lo]);
+                if (pq.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
@@ -765,4 +765,81 @@ public class LinkedHashMap<K,V>
         public final Map.Entry<K,V> next() { return nextNode(); }
     }
 
+    // Cursors 游标
+
+    /**
+     * Returns a new {@link MapCursor} over the mappings of this map, in
+     * its iteration order (insertion or access order).  Accessing the
+     * mappings through the cursor does not affect the access order.  The
+     * cursor allocates nothing while traversing, and can be
+     * {@linkplain MapCursor#reset() reset} and reused for any number of
+     * traversals.  It supports {@link MapCursor#remove}.
+     *
+     * @return a new cursor over the mappings of this map
+     */
+    @Override
+    public MapCursor<K,V> cursor() {
+        return new LinkedHashCursor();
+    }
+
+    final class LinkedHashCursor implements MapCursor<K,V> {
+        LinkedHashMap.Entry<K,V> next;
+        LinkedHashMap.Entry<K,V> current;
+        int expectedModCount;
+
+        LinkedHashCursor() {
+            reset();
+        }
+
+        public void reset() {
+            next = head;
+            expectedModCount = modCount;
+            current = null;
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            LinkedHashMap.Entry<K,V> e = next;
+            if ((current = e) == null)
+                return false;
+            next = e.after;
+            return true;
+        }
+
+        private LinkedHashMap.Entry<K,V> current() {
+            LinkedHashMap.Entry<K,V> e = current;
+            if (e == null)
+                throw new IllegalStateException();
+            return e;
+        }
+
+        public K getKey() {
+            return current().key;
+        }
+
+        public V getValue() {
+            return current().value;
+        }
+
+        public V setValue(V value) {
+            LinkedHashMap.Entry<K,V> e = current();
+            V oldValue = e.value;
+            e.value = value;
+            return oldValue;
+        }
+
+        public void remove() {
+            Node<K,V> p = current;
+            if (p == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = null;
+            K key = p.key;
+            removeNode(hash(key), key, null, false, false);
+            expectedModCount = modCount;
+        }
+    }
+
 }
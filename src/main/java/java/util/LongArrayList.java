@@ -0,0 +1,949 @@
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+import sun.misc.SharedSecrets;
+
+/**
+ * Resizable-array list of primitive {@code long} values.  This class is
+ * modelled on {@link ArrayList}: it has the same growth policy, the same
+ * <i>amortized constant time</i> {@code add} operation and the same
+ * fail-fast iterators, but stores its elements in a {@code long[]}, so no
+ * element is ever boxed.  A list of {@code n} elements therefore needs
+ * about {@code 8n} bytes instead of the {@code 24n} bytes or so of an
+ * <tt>ArrayList&lt;Long&gt;</tt>.
+ * 可调整大小的long数组的列表实现，元素不装箱。
+ *
+ * <p>The elements can be consumed by {@link LongStream} pipelines without
+ * boxing through {@link #stream()}, {@link #parallelStream()} and
+ * {@link #spliterator()}, and sorted or searched in place with
+ * {@link #sort()}, {@link #parallelSort()} and {@link #binarySearch(int)},
+ * which delegate to {@link Arrays} on the backing array.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access an <tt>LongArrayList</tt> instance
+ * concurrently, and at least one of the threads modifies the list
+ * structurally, it <i>must</i> be synchronized externally.  (A structural
+ * modification is any operation that adds or deletes one or more elements,
+ * or explicitly resizes the backing array; merely setting the value of an
+ * element is not a structural modification.)
+ *
+ * <p>The iterators and spliterators returned by this class are
+ * <em>fail-fast</em> in the same way as those of {@link ArrayList}: if the
+ * list is structurally modified at any time after the iterator is created,
+ * in any way except through the iterator's own {@code remove} method, the
+ * iterator will throw a {@link ConcurrentModificationException} on a
+ * best-effort basis.
+ *
+ * @see     ArrayList
+ * @see     IntArrayList
+ * @see     DoubleArrayList
+ */
+public class LongArrayList implements RandomAccess, Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -1739522584616393042L;
+
+    /**
+     * Default initial capacity.
+     * 默认的初始容量。
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final long[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * Shared empty array instance used for default sized empty instances. We
+     * distinguish this from EMPTY_ELEMENTDATA to know how much to inflate when
+     * first element is added.
+     */
+    private static final long[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The array buffer into which the elements of the list are stored.
+     * The capacity of the list is the length of this array buffer.
+     * 存储列表元素的数组缓冲区。
+     */
+    transient long[] elementData; // non-private to simplify nested class access
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * The number of times this list has been <i>structurally modified</i>,
+     * with the same meaning as {@link AbstractList#modCount}.
+     */
+    protected transient int modCount = 0;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public LongArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new long[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public LongArrayList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified array,
+     * in order.
+     *
+     * @param a the array whose elements are to be placed into this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public LongArrayList(long[] a) {
+        if ((size = a.length) != 0) {
+            elementData = a.clone();
+        } else {
+            elementData = EMPTY_ELEMENTDATA;
+        }
+    }
+
+    /**
+     * Trims the capacity of this <tt>LongArrayList</tt> instance to be the
+     * list's current size.  An application can use this operation to minimize
+     * the storage of an <tt>LongArrayList</tt> instance.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            elementData = (size == 0)
+              ? EMPTY_ELEMENTDATA
+              : Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * Increases the capacity of this <tt>LongArrayList</tt> instance, if
+     * necessary, to ensure that it can hold at least the number of elements
+     * specified by the minimum capacity argument.
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        int minExpand = (elementData != DEFAULTCAPACITY_EMPTY_ELEMENTDATA)
+            // any size if not default element table
+            ? 0
+            // larger than default for default empty table. It's already
+            // supposed to be at default size.
+            : DEFAULT_CAPACITY;
+
+        if (minCapacity > minExpand) {
+            ensureExplicitCapacity(minCapacity);
+        }
+    }
+
+    private static int calculateCapacity(long[] elementData, int minCapacity) {
+        if (elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA) {
+            return Math.max(DEFAULT_CAPACITY, minCapacity);
+        }
+        return minCapacity;
+    }
+
+    /**
+     * 确保容量可用。
+     */
+    private void ensureCapacityInternal(int minCapacity) {
+        ensureExplicitCapacity(calculateCapacity(elementData, minCapacity));
+    }
+
+    private void ensureExplicitCapacity(int minCapacity) {
+        modCount++;
+
+        // overflow-conscious code
+        if (minCapacity - elementData.length > 0)
+            grow(minCapacity);
+    }
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Increases the capacity to ensure that it can hold at least the
+     * number of elements specified by the minimum capacity argument.
+     * The growth policy is that of {@link ArrayList}.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    private void grow(int minCapacity) {
+        // overflow-conscious code
+        int oldCapacity = elementData.length;
+        // 增加0.5倍容量
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        // minCapacity is usually close to size, so this is a win:
+        elementData = Arrays.copyOf(elementData, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains no elements.
+     *
+     * @return <tt>true</tt> if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains the specified element.
+     *
+     * @param e element whose presence in this list is to be tested
+     * @return <tt>true</tt> if this list contains the specified element
+     */
+    public boolean contains(long e) {
+        return indexOf(e) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the first occurrence of the element, or -1
+     */
+    public int indexOf(long e) {
+        long[] a = elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] == e)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the last occurrence of the element, or -1
+     */
+    public int lastIndexOf(long e) {
+        long[] a = elementData;
+        for (int i = size-1; i >= 0; i--)
+            if (a[i] == e)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns a copy of this <tt>LongArrayList</tt> instance.
+     *
+     * @return a clone of this <tt>LongArrayList</tt> instance
+     */
+    public LongArrayList clone() {
+        try {
+            LongArrayList v = (LongArrayList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this list.
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    // Positional Access Operations
+    // 位置访问操作
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public long get(int index) {
+        rangeCheck(index);
+
+        return elementData[index];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public long set(int index, long element) {
+        rangeCheck(index);
+
+        long oldValue = elementData[index];
+        elementData[index] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return <tt>true</tt>
+     */
+    public boolean add(long e) {
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        elementData[size++] = e;
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt; size()</tt>)
+     */
+    public void add(int index, long element) {
+        rangeCheckForAdd(index);
+
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        System.arraycopy(elementData, index, elementData, index + 1,
+                         size - index);
+        elementData[index] = element;
+        size++;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+     */
+    public long remove(int index) {
+        rangeCheck(index);
+
+        modCount++;
+        long oldValue = elementData[index];
+
+        int numMoved = size - index - 1;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index+1, elementData, index,
+                             numMoved);
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  Named after {@link Vector#removeElement}, since
+     * {@code remove(int)} removes by index.
+     *
+     * @param e element to be removed from this list, if present
+     * @return <tt>true</tt> if this list contained the specified element
+     */
+    public boolean removeElement(long e) {
+        int index = indexOf(e);
+        if (index < 0)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified array to the end of
+     * this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(long[] a) {
+        return addAll(a, 0, a.length);
+    }
+
+    /**
+     * Appends the elements of the specified list to the end of this list,
+     * in order.
+     *
+     * @param c list containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean addAll(LongArrayList c) {
+        return addAll(c.elementData, 0, c.size);
+    }
+
+    private boolean addAll(long[] a, int offset, int numNew) {
+        ensureCapacityInternal(size + numNew);  // Increments modCount
+        System.arraycopy(a, offset, elementData, size, numNew);
+        size += numNew;
+        return numNew != 0;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          fromIndex > toIndex ||
+     *          toIndex > size()})
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size)
+            throw new IndexOutOfBoundsException(
+                "fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        modCount++;
+        int numMoved = size - toIndex;
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                         numMoved);
+        size -= toIndex - fromIndex;
+    }
+
+    /**
+     * Checks if the given index is in range.  If not, throws an appropriate
+     * runtime exception.  This method does *not* check if the index is
+     * negative: It is always used immediately prior to an array access,
+     * which throws an ArrayIndexOutOfBoundsException if index is negative.
+     * 检查给定的索引是否在范围内。
+     */
+    private void rangeCheck(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * A version of rangeCheck used by add.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Constructs an IndexOutOfBoundsException detail message.
+     */
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * Sorts this list into ascending numerical order, using
+     * {@link Arrays#sort(long[], int, int)} on the backing array.
+     */
+    public void sort() {
+        final int expectedModCount = modCount;
+        Arrays.sort(elementData, 0, size);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Sorts this list into ascending numerical order, using
+     * {@link Arrays#parallelSort(long[], int, int)} on the backing array.
+     */
+    public void parallelSort() {
+        final int expectedModCount = modCount;
+        Arrays.parallelSort(elementData, 0, size);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Searches this list for the specified value using the binary search
+     * algorithm of {@link Arrays#binarySearch(long[], int, int, long)}.  The
+     * list must be sorted (as by the {@link #sort()} method) prior to
+     * making this call.  If it is not sorted, the results are undefined.
+     *
+     * @param key the value to be searched for
+     * @return index of the search key, if it is contained in the list;
+     *         otherwise, <tt>(-(<i>insertion point</i>) - 1)</tt>.
+     */
+    public int binarySearch(long key) {
+        return Arrays.binarySearch(elementData, 0, size, key);
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order,
+     * until all elements have been processed or the action throws an
+     * exception.
+     *
+     * @param action The action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final long[] elementData = this.elementData;
+        final int size = this.size;
+        for (int i=0; modCount == expectedModCount && i < size; i++) {
+            action.accept(elementData[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate.
+     *
+     * @param filter a predicate which returns {@code true} for elements to be
+     *        removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     */
+    public boolean removeIf(LongPredicate filter) {
+        Objects.requireNonNull(filter);
+        // figure out which elements are to be removed
+        // any exception thrown from the filter predicate at this stage
+        // will leave the list unmodified
+        int removeCount = 0;
+        final BitSet removeSet = new BitSet(size);
+        final int expectedModCount = modCount;
+        final int size = this.size;
+        for (int i=0; modCount == expectedModCount && i < size; i++) {
+            if (filter.test(elementData[i])) {
+                removeSet.set(i);
+                removeCount++;
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        // shift surviving elements left over the spaces left by removed elements
+        final boolean anyToRemove = removeCount > 0;
+        if (anyToRemove) {
+            final int newSize = size - removeCount;
+            for (int i=0, j=0; (i < size) && (j < newSize); i++, j++) {
+                i = removeSet.nextClearBit(i);
+                elementData[j] = elementData[i];
+            }
+            this.size = newSize;
+            modCount++;
+        }
+
+        return anyToRemove;
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
+     */
+    public void replaceAll(LongUnaryOperator operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final int size = this.size;
+        for (int i=0; modCount == expectedModCount && i < size; i++) {
+            elementData[i] = operator.applyAsLong(elementData[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Compares the specified object with this list for equality.  Returns
+     * {@code true} if the specified object is also an {@code LongArrayList},
+     * both lists have the same size, and all corresponding pairs of
+     * elements are equal.
+     *
+     * @param o the object to be compared for equality with this list
+     * @return {@code true} if the specified object is equal to this list
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongArrayList))
+            return false;
+        LongArrayList other = (LongArrayList) o;
+        int n = size;
+        if (other.size != n)
+            return false;
+        long[] a = elementData, b = other.elementData;
+        for (int i = 0; i < n; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this list, which is the same as the
+     * hash code of a {@code List<Long>} holding the same elements.
+     *
+     * @return the hash code value for this list
+     */
+    public int hashCode() {
+        int hashCode = 1;
+        long[] a = elementData;
+        for (int i = 0; i < size; i++)
+            hashCode = 31*hashCode + Long.hashCode(a[i]);
+        return hashCode;
+    }
+
+    /**
+     * Returns a string representation of this list, in the same format
+     * as {@link AbstractCollection#toString()}.
+     *
+     * @return a string representation of this list
+     */
+    public String toString() {
+        int iMax = size - 1;
+        if (iMax == -1)
+            return "[]";
+
+        long[] a = elementData;
+        StringBuilder b = new StringBuilder();
+        b.append('[');
+        for (int i = 0; ; i++) {
+            b.append(a[i]);
+            if (i == iMax)
+                return b.append(']').toString();
+            b.append(", ");
+        }
+    }
+
+    /**
+     * Save the state of the <tt>LongArrayList</tt> instance to a stream (that
+     * is, serialize it).
+     *
+     * @serialData The size of the list is emitted (int), followed by all of
+     *             its elements (each a <tt>long</tt>) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out size as capacity for behavioural compatibility with clone()
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        for (int i=0; i<size; i++) {
+            s.writeLong(elementData[i]);
+        }
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>LongArrayList</tt> instance from a stream (that is,
+     * deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        elementData = EMPTY_ELEMENTDATA;
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in capacity
+        s.readInt(); // ignored
+
+        if (size > 0) {
+            // be like clone(), allocate array based upon size not capacity
+            SharedSecrets.getJavaOISAccess().checkArray(s, long[].class, size);
+            long[] a = new long[size];
+            // Read in all elements in the proper order.
+            for (int i=0; i<size; i++) {
+                a[i] = s.readLong();
+            }
+            elementData = a;
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator is <i>fail-fast</i>.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new Itr();
+    }
+
+    /**
+     * An optimized version of ArrayList.Itr for long elements.
+     */
+    private class Itr implements PrimitiveIterator.OfLong {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public long nextLong() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            long[] elementData = LongArrayList.this.elementData;
+            if (i >= elementData.length)
+                throw new ConcurrentModificationException();
+            cursor = i + 1;
+            return elementData[lastRet = i];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            try {
+                LongArrayList.this.remove(lastRet);
+                cursor = lastRet;
+                lastRet = -1;
+                expectedModCount = modCount;
+            } catch (IndexOutOfBoundsException ex) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer consumer) {
+            Objects.requireNonNull(consumer);
+            final int size = LongArrayList.this.size;
+            int i = cursor;
+            if (i >= size) {
+                return;
+            }
+            final long[] elementData = LongArrayList.this.elementData;
+            if (i >= elementData.length) {
+                throw new ConcurrentModificationException();
+            }
+            while (i != size && modCount == expectedModCount) {
+                consumer.accept(elementData[i++]);
+            }
+            // update once at end of iteration to reduce heap write traffic
+            cursor = i;
+            lastRet = i - 1;
+            checkForComodification();
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfLong} over the elements in
+     * this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED} and {@link Spliterator#ORDERED}.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    public Spliterator.OfLong spliterator() {
+        return new LongArrayListSpliterator(this, 0, -1, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} with this list as its source.
+     *
+     * @return a sequential {@code LongStream} over the elements in this list
+     */
+    public LongStream stream() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel {@code LongStream} with this list as its
+     * source.
+     *
+     * @return a possibly parallel {@code LongStream} over the elements in
+     *         this list
+     */
+    public LongStream parallelStream() {
+        return StreamSupport.longStream(spliterator(), true);
+    }
+
+    /**
+     * Index-based split-by-two, lazily initialized Spliterator.
+     *
+     * @see ArrayList.ArrayListSpliterator
+     */
+    static final class LongArrayListSpliterator implements Spliterator.OfLong {
+
+        private final LongArrayList list;
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Create new spliterator covering the given  range */
+        LongArrayListSpliterator(LongArrayList list, int origin, int fence,
+                                int expectedModCount) {
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = list.modCount;
+                hi = fence = list.size;
+            }
+            return hi;
+        }
+
+        public LongArrayListSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : // divide range in half unless too small
+                new LongArrayListSpliterator(list, lo, index = mid,
+                                            expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(list.elementData[i]);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            LongArrayList lst = list; long[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((a = lst.elementData) != null) {
+                if ((hi = fence) < 0) {
+                    mc = lst.modCount;
+                    hi = lst.size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i) {
+                        action.accept(a[i]);
+                    }
+                    if (lst.modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer)
+                return tryAdvance((LongConsumer) action);
+            return tryAdvance((LongConsumer) action::accept);
+        }
+
+        public void forEachRemaining(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer)
+                forEachRemaining((LongConsumer) action);
+            else
+                forEachRemaining((LongConsumer) action::accept);
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
@@ -0,0 +1,927 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table based map from primitive {@code long} keys to object values.
+ * Unlike a <tt>HashMap&lt;Long,V&gt;</tt>, keys are never boxed and no
+ * entry object is allocated per mapping: keys and values are held in two
+ * parallel arrays and collisions are resolved by <i>linear probing</i>
+ * (open addressing).  Removal shifts the following entries of the probe
+ * sequence backwards, so the table never accumulates deleted markers.
+ * 基于开放寻址(线性探测)的long键映射表，键不装箱，每个映射不分配节点对象。
+ *
+ * <p>This implementation permits <tt>null</tt> values.  The key {@code 0}
+ * is used to mark free slots of the table, so a mapping for it is kept
+ * outside of the table.  This class makes no guarantees as to the order of
+ * the map; in particular, it does not guarantee that the order will remain
+ * constant over time.
+ *
+ * <p>This implementation provides constant-time performance for the basic
+ * operations (<tt>get</tt> and <tt>put</tt>), assuming the supplemental
+ * hash function disperses the keys properly among the slots.  The
+ * <i>capacity</i> and <i>load factor</i> play the same role as for
+ * {@link HashMap}, but the load factor must be less than {@code 1}, because
+ * all mappings are stored in the table itself.
+ *
+ * <p>The keys are exposed as a {@link PrimitiveIterator.OfLong}, a
+ * {@link Spliterator.OfLong} and an {@link LongStream}, so they can be
+ * traversed without boxing.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators and spliterators returned by this class are
+ * <i>fail-fast</i>: if the map is structurally modified at any time after
+ * the iterator is created, the iterator will throw a
+ * {@link ConcurrentModificationException} on a best-effort basis.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IntHashMap
+ * @see     LongLongHashMap
+ */
+public class LongHashMap<V> implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 5871290643587127714L;
+
+    /**
+     * The key marking a free slot of the table.
+     * 空闲槽位的标记键。
+     */
+    private static final long FREE_KEY = 0;
+
+    /**
+     * An empty table instance to share when the table is not inflated.
+     */
+    private static final long[] EMPTY_KEYS = {};
+
+    /**
+     * The keys of the table, resized as necessary. Length MUST Always be a
+     * power of two.
+     */
+    transient long[] keys = EMPTY_KEYS;
+
+    /**
+     * The values of the table, parallel to {@link #keys}.
+     */
+    transient Object[] vals;
+
+    /**
+     * Whether the map contains a mapping for the free key {@code 0}.
+     */
+    transient boolean hasFreeKey;
+
+    /**
+     * The value mapped to the free key {@code 0}, if any.
+     */
+    transient Object freeValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * If keys == EMPTY_KEYS then this is the initial capacity at which the
+     * table will be created when inflated.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * This field is used to make iterators fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        threshold = initialCapacity;
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongHashMap() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public LongHashMap(LongHashMap<? extends V> m) {
+        this(Math.max((int) (m.size / HashMap.DEFAULT_LOAD_FACTOR) + 1,
+                      HashMap.DEFAULT_INITIAL_CAPACITY), HashMap.DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Applies a supplemental hash function to a key.  Consecutive and
+     * strided keys are common for ID-indexed maps, so the key is first
+     * multiplied by the golden ratio (Fibonacci hashing) and the high bits
+     * are then spread downwards, because the table index only uses the
+     * low bits.
+     * 补充的哈希函数。
+     */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * Inflates the table.
+     */
+    private void inflateTable(int toSize) {
+        // Find a power of 2 >= toSize
+        int capacity = HashMap.roundUpToPowerOf2(Math.max(toSize, 2));
+        keys = new long[capacity];
+        vals = new Object[capacity];
+        threshold = thresholdFor(capacity);
+    }
+
+    /**
+     * Returns the resize threshold of a table of the given capacity,
+     * leaving at least one free slot so that probing always terminates.
+     */
+    private int thresholdFor(int capacity) {
+        return Math.min((int) (capacity * loadFactor), capacity - 1);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot index of the specified key, or -1 if the table
+     * holds no mapping for it.
+     */
+    private int indexOf(long key) {
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        if (mask < 0)
+            return -1;
+        // 线性探测，直到遇到空闲槽位
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == key)
+                return i;
+            if (k == FREE_KEY)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param  key the key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == FREE_KEY) ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param  value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        if (hasFreeKey && Objects.equals(value, freeValue))
+            return true;
+        long[] tab = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            if (tab[i] != FREE_KEY && Objects.equals(value, vs[i]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE_KEY)
+            return (V) freeValue;
+        int i = indexOf(key);
+        return (i < 0) ? null : (V) vals[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @param  defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == FREE_KEY)
+            return hasFreeKey ? (V) freeValue : defaultValue;
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V) vals[i];
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    public V put(long key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V putIfAbsent(long key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * Implements put and related methods.
+     *
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(long key, V value, boolean onlyIfAbsent) {
+        if (key == FREE_KEY) {
+            V oldValue = (V) freeValue;
+            if (hasFreeKey) {
+                if (!onlyIfAbsent)
+                    freeValue = value;
+                return oldValue;
+            }
+            modCount++;
+            hasFreeKey = true;
+            freeValue = value;
+            size++;
+            return null;
+        }
+        if (keys == EMPTY_KEYS)
+            inflateTable(threshold);
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        int i = hash(key) & mask;
+        for (long k; (k = tab[i]) != FREE_KEY; i = (i + 1) & mask) {
+            if (k == key) {
+                V oldValue = (V) vals[i];
+                if (!onlyIfAbsent)
+                    vals[i] = value;
+                return oldValue;
+            }
+        }
+        modCount++;
+        tab[i] = key;
+        vals[i] = value;
+        if (++size > threshold)
+            resize(tab.length << 1);
+        return null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function and
+     * enters it into this map unless {@code null}.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with the
+     *         specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V v;
+        if ((v = get(key)) == null) {
+            V newValue;
+            if ((newValue = mappingFunction.apply(key)) != null) {
+                put(key, newValue);
+                return newValue;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param  m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    @SuppressWarnings("unchecked")
+    public void putAll(LongHashMap<? extends V> m) {
+        int n = m.size;
+        if (n == 0)
+            return;
+        // 预先扩容，避免多次再哈希
+        int target = (int) (n / loadFactor + 1.0f);
+        if (keys == EMPTY_KEYS) {
+            if (target > threshold)
+                threshold = Math.min(target, HashMap.MAXIMUM_CAPACITY);
+        } else if (target > keys.length && keys.length < HashMap.MAXIMUM_CAPACITY) {
+            resize(HashMap.roundUpToPowerOf2(target));
+        }
+        if (m.hasFreeKey)
+            put(FREE_KEY, (V) m.freeValue);
+        long[] tab = m.keys;
+        Object[] vs = m.vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                put(k, (V) vs[i]);
+        }
+    }
+
+    /**
+     * Rehashes the contents of this map into a new table with a larger
+     * capacity.  This method is called automatically when the number of
+     * keys in this map reaches its threshold.
+     *
+     * @param newCapacity the new capacity, MUST be a power of two
+     */
+    void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        if (oldKeys.length >= HashMap.MAXIMUM_CAPACITY) {
+            if (size >= oldKeys.length - 1)
+                throw new IllegalStateException("Map is full");
+            threshold = oldKeys.length - 1;
+            return;
+        }
+        long[] newKeys = new long[newCapacity];
+        Object[] newVals = new Object[newCapacity];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k;
+            if ((k = oldKeys[j]) != FREE_KEY) {
+                int i = hash(k) & mask;
+                while (newKeys[i] != FREE_KEY)
+                    i = (i + 1) & mask;
+                newKeys[i] = k;
+                newVals[i] = oldVals[j];
+            }
+        }
+        keys = newKeys;
+        vals = newVals;
+        threshold = thresholdFor(newCapacity);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey)
+                return null;
+            V oldValue = (V) freeValue;
+            modCount++;
+            hasFreeKey = false;
+            freeValue = null;
+            size--;
+            return oldValue;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V) vals[i];
+        modCount++;
+        size--;
+        shiftKeys(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry in the given slot and shifts the following entries
+     * of its probe sequence backwards, so that no entry becomes unreachable
+     * from its home slot.
+     * 删除槽位上的映射，并将探测序列中后续的映射向前移动(无需删除标记)。
+     */
+    private void shiftKeys(int pos) {
+        long[] tab = keys;
+        Object[] vs = vals;
+        int mask = tab.length - 1;
+        for (int last;;) {
+            long k;
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((k = tab[pos]) == FREE_KEY) {
+                    tab[last] = FREE_KEY;
+                    vs[last] = null;
+                    return;
+                }
+                int slot = hash(k) & mask;
+                // the entry at pos may move to last only if its home slot
+                // does not lie cyclically in (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            tab[last] = k;
+            vs[last] = vs[pos];
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        if (keys != EMPTY_KEYS) {
+            Arrays.fill(keys, FREE_KEY);
+            Arrays.fill(vals, null);
+        }
+        hasFreeKey = false;
+        freeValue = null;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each key in this map until all keys
+     * have been processed or the action throws an exception.
+     *
+     * @param  action the action to be performed for each key
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified by the action
+     */
+    public void forEachKey(LongConsumer action) {
+        Objects.requireNonNull(action);
+        int mc = modCount;
+        if (hasFreeKey)
+            action.accept(FREE_KEY);
+        long[] tab = keys;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                action.accept(k);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the keys of this map.  The iterator does
+     * not support the {@code remove} operation.
+     *
+     * @return an iterator over the keys of this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator();
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfLong} over the keys of this map.
+     *
+     * <p>The spliterator reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT} and {@link Spliterator#NONNULL}, and is
+     * <em>late-binding</em> and <em>fail-fast</em>.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator<>(this, -1, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     *
+     * @return a stream over the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, so changes to the map are
+     * reflected in the collection.  The collection does not support element
+     * removal or addition.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return (vs = values) == null ? (values = new Values()) : vs;
+    }
+
+    private transient Collection<V> values;
+
+    private final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+    }
+
+    /**
+     * Base of the iterators: visits the free key first (as slot -1) and
+     * then the occupied slots of the table in index order.
+     */
+    private abstract class HashIterator {
+        int next = -1;          // next slot to visit, -1 for the free key
+        int expectedModCount = modCount;
+
+        HashIterator() {
+            if (!hasFreeKey)
+                advance(0);
+        }
+
+        private void advance(int from) {
+            long[] tab = keys;
+            int i = from;
+            while (i < tab.length && tab[i] == FREE_KEY)
+                i++;
+            next = i;
+        }
+
+        public final boolean hasNext() {
+            return next < keys.length;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i >= keys.length)
+                throw new NoSuchElementException();
+            advance(i + 1);
+            return i;
+        }
+    }
+
+    private final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public long nextLong() {
+            int i = nextSlot();
+            return (i < 0) ? FREE_KEY : keys[i];
+        }
+    }
+
+    private final class ValueIterator extends HashIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public V next() {
+            int i = nextSlot();
+            return (V) ((i < 0) ? freeValue : vals[i]);
+        }
+    }
+
+    /**
+     * Spliterator over the keys, splitting the slot range in halves like
+     * the spliterators of {@link HashMap}.  The pseudo slot -1 stands for
+     * the free key.
+     */
+    static final class KeySpliterator<V> implements Spliterator.OfLong {
+        final LongHashMap<V> map;
+        int index;              // current index, modified on advance/split
+        int fence;              // one past last index; -1 until first use
+        int est;                // size estimate
+        int expectedModCount;   // for comodification checks
+
+        KeySpliterator(LongHashMap<V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongHashMap<V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length;
+            }
+            return hi;
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = lo + ((hi - lo) >>> 1);
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            LongHashMap<V> m = map;
+            long[] tab = m.keys;
+            while (index < hi) {
+                int i = index++;
+                long k;
+                if (i < 0) {
+                    if (!m.hasFreeKey)
+                        continue;
+                    k = FREE_KEY;
+                } else if ((k = tab[i]) == FREE_KEY) {
+                    continue;
+                }
+                action.accept(k);
+                if (m.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            LongHashMap<V> m = map;
+            long[] tab = m.keys;
+            int i = index;
+            index = hi;
+            if (i < 0) {
+                if (m.hasFreeKey)
+                    action.accept(FREE_KEY);
+                i = 0;
+            }
+            for (; i < hi; i++) {
+                long k;
+                if ((k = tab[i]) != FREE_KEY)
+                    action.accept(k);
+            }
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer)
+                return tryAdvance((LongConsumer) action);
+            return tryAdvance((LongConsumer) action::accept);
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return ((fence < 0 || est == map.size) ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Compares the specified map with this map for equality.  Returns
+     * <tt>true</tt> if the given map holds the same mappings.
+     *
+     * @param  o object to be compared for equality with this map
+     * @return <tt>true</tt> if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongHashMap))
+            return false;
+        LongHashMap<?> m = (LongHashMap<?>) o;
+        if (m.size != size)
+            return false;
+        if (hasFreeKey && !(m.hasFreeKey && Objects.equals(freeValue, m.freeValue)))
+            return false;
+        long[] tab = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY) {
+                int j = m.indexOf(k);
+                if (j < 0 || !Objects.equals(vs[i], m.vals[j]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, which is the same as the
+     * hash code of a {@code Map<Long,V>} holding the same mappings.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = hasFreeKey ? Objects.hashCode(freeValue) : 0; // key hash is 0
+        long[] tab = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                h += Long.hashCode(k) ^ Objects.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString()}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        if (hasFreeKey) {
+            sb.append(FREE_KEY).append('=');
+            sb.append(freeValue == this ? "(this Map)" : freeValue);
+            sb.append(", ");
+        }
+        long[] tab = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY) {
+                Object v = vs[i];
+                sb.append(k).append('=');
+                sb.append(v == this ? "(this Map)" : v);
+                sb.append(", ");
+            }
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values themselves
+     * are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public LongHashMap<V> clone() {
+        LongHashMap<V> result;
+        try {
+            result = (LongHashMap<V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != EMPTY_KEYS) {
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.values = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the map to a stream (i.e., serialize it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (int)
+     *             and value (Object) for each key-value mapping.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasFreeKey) {
+            s.writeLong(FREE_KEY);
+            s.writeObject(freeValue);
+        }
+        long[] tab = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY) {
+                s.writeLong(k);
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream (i.e., deserialize it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     mappings);
+        keys = EMPTY_KEYS;
+        threshold = (int) Math.min(mappings / loadFactor + 1.0f,
+                                   HashMap.MAXIMUM_CAPACITY);
+        for (int i = 0; i < mappings; i++) {
+            long key = s.readLong();
+            V value = (V) s.readObject();
+            put(key, value);
+        }
+    }
+}
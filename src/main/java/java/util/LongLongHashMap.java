@@ -0,0 +1,897 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table based map from primitive {@code long} keys to primitive
+ * {@code long} values.  Keys and values are held in two parallel
+ * {@code long} arrays and collisions are resolved by <i>linear probing</i>,
+ * so neither boxing nor per-entry allocation takes place.  See
+ * {@link LongHashMap} for the details of the table layout.
+ * 基于开放寻址(线性探测)的long键long值映射表，既不装箱也不分配节点对象。
+ *
+ * <p>As values are primitives, the absence of a mapping cannot be signalled
+ * by {@code null}: {@link #get get}, {@link #put put} and
+ * {@link #remove remove} return {@code 0} when the map contains no mapping
+ * for the key.  The {@link #containsKey containsKey} and
+ * {@link #getOrDefault getOrDefault} operations may be used to distinguish
+ * a missing mapping from a mapping to {@code 0}.
+ *
+ * <p>The keys and values are exposed as {@link PrimitiveIterator.OfLong}
+ * iterators, {@link Spliterator.OfLong} spliterators and {@link LongStream}s.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators and spliterators returned by this class are
+ * <i>fail-fast</i>: if the map is structurally modified at any time after
+ * the iterator is created, the iterator will throw a
+ * {@link ConcurrentModificationException} on a best-effort basis.
+ *
+ * @see     LongHashMap
+ * @see     IntIntHashMap
+ */
+public class LongLongHashMap implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -6627418913306126504L;
+
+    /**
+     * The key marking a free slot of the table.
+     * 空闲槽位的标记键。
+     */
+    private static final long FREE_KEY = 0;
+
+    /**
+     * An empty table instance to share when the table is not inflated.
+     */
+    private static final long[] EMPTY_KEYS = {};
+
+    /**
+     * The keys of the table, resized as necessary. Length MUST Always be a
+     * power of two.
+     */
+    transient long[] keys = EMPTY_KEYS;
+
+    /**
+     * The values of the table, parallel to {@link #keys}.
+     */
+    transient long[] vals;
+
+    /**
+     * Whether the map contains a mapping for the free key {@code 0}.
+     */
+    transient boolean hasFreeKey;
+
+    /**
+     * The value mapped to the free key {@code 0}, if any.
+     */
+    transient long freeValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * If keys == EMPTY_KEYS then this is the initial capacity at which the
+     * table will be created when inflated.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * The number of times this map has been structurally modified.
+     * This field is used to make iterators fail-fast.
+     */
+    transient int modCount;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        threshold = initialCapacity;
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.75).
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.75).
+     */
+    public LongLongHashMap() {
+        this(HashMap.DEFAULT_INITIAL_CAPACITY, HashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public LongLongHashMap(LongLongHashMap m) {
+        this(Math.max((int) (m.size / HashMap.DEFAULT_LOAD_FACTOR) + 1,
+                      HashMap.DEFAULT_INITIAL_CAPACITY), HashMap.DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Applies a supplemental hash function to a key.
+     *
+     * @see LongHashMap#hash(long)
+     */
+    static int hash(long key) {
+        return LongHashMap.hash(key);
+    }
+
+    /**
+     * Inflates the table.
+     */
+    private void inflateTable(int toSize) {
+        // Find a power of 2 >= toSize
+        int capacity = HashMap.roundUpToPowerOf2(Math.max(toSize, 2));
+        keys = new long[capacity];
+        vals = new long[capacity];
+        threshold = thresholdFor(capacity);
+    }
+
+    /**
+     * Returns the resize threshold of a table of the given capacity,
+     * leaving at least one free slot so that probing always terminates.
+     */
+    private int thresholdFor(int capacity) {
+        return Math.min((int) (capacity * loadFactor), capacity - 1);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot index of the specified key, or -1 if the table
+     * holds no mapping for it.
+     */
+    private int indexOf(long key) {
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        if (mask < 0)
+            return -1;
+        // 线性探测，直到遇到空闲槽位
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == key)
+                return i;
+            if (k == FREE_KEY)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param  key the key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == FREE_KEY) ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param  value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(long value) {
+        if (hasFreeKey && freeValue == value)
+            return true;
+        long[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            if (tab[i] != FREE_KEY && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code 0}
+     * if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code 0} if this map contains no mapping for the key
+     */
+    public long get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param  key the key whose associated value is to be returned
+     * @param  defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == FREE_KEY)
+            return hasFreeKey ? freeValue : defaultValue;
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         {@code 0} if there was no mapping for <tt>key</tt>.
+     */
+    public long put(long key, long value) {
+        int i = insertionSlot(key);
+        long oldValue;
+        if (i < 0) {
+            oldValue = freeValue;
+            freeValue = value;
+        } else {
+            oldValue = vals[i];
+            vals[i] = value;
+        }
+        return oldValue;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param  key key with which the specified value is to be associated
+     * @param  value value to be associated with the specified key
+     * @return <tt>true</tt> if the mapping was added, <tt>false</tt> if
+     *         the key was already present
+     */
+    public boolean putIfAbsent(long key, long value) {
+        int mc = modCount;
+        int i = insertionSlot(key);
+        if (mc == modCount)
+            return false;
+        if (i < 0)
+            freeValue = value;
+        else
+            vals[i] = value;
+        return true;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the
+     * associated value with the results of the given remapping function.
+     * This method may be used to accumulate counters without boxing:
+     * <pre> {@code map.merge(key, 1, Long::sum)}</pre>
+     *
+     * @param  key key with which the resulting value is to be associated
+     * @param  value the value to be associated with the key if absent
+     * @param  remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public long merge(long key, long value, LongBinaryOperator remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        int mc = modCount;
+        int i = insertionSlot(key);
+        boolean added = mc != modCount;
+        if (i < 0)
+            return freeValue = added ? value
+                : remappingFunction.applyAsLong(freeValue, value);
+        // the slot stays valid: the function cannot touch the table
+        // of this map without being detected by the final check
+        long newValue = added ? value : remappingFunction.applyAsLong(vals[i], value);
+        if (modCount != mc + (added ? 1 : 0))
+            throw new ConcurrentModificationException();
+        return vals[i] = newValue;
+    }
+
+    /**
+     * Returns the slot of the specified key, adding a mapping to {@code 0}
+     * (and counting a structural modification) if it is absent.  The free
+     * key is reported as slot -1.
+     */
+    private int insertionSlot(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                modCount++;
+                hasFreeKey = true;
+                freeValue = 0;
+                size++;
+            }
+            return -1;
+        }
+        if (keys == EMPTY_KEYS)
+            inflateTable(threshold);
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        int i = hash(key) & mask;
+        for (long k; (k = tab[i]) != FREE_KEY; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        modCount++;
+        tab[i] = key;
+        vals[i] = 0;
+        if (++size > threshold) {
+            resize(tab.length << 1);
+            i = indexOf(key);
+        }
+        return i;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param  m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(LongLongHashMap m) {
+        int n = m.size;
+        if (n == 0)
+            return;
+        // 预先扩容，避免多次再哈希
+        int target = (int) (n / loadFactor + 1.0f);
+        if (keys == EMPTY_KEYS) {
+            if (target > threshold)
+                threshold = Math.min(target, HashMap.MAXIMUM_CAPACITY);
+        } else if (target > keys.length && keys.length < HashMap.MAXIMUM_CAPACITY) {
+            resize(HashMap.roundUpToPowerOf2(target));
+        }
+        if (m.hasFreeKey)
+            put(FREE_KEY, m.freeValue);
+        long[] tab = m.keys;
+        long[] vs = m.vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                put(k, vs[i]);
+        }
+    }
+
+    /**
+     * Rehashes the contents of this map into a new table with a larger
+     * capacity.  This method is called automatically when the number of
+     * keys in this map reaches its threshold.
+     *
+     * @param newCapacity the new capacity, MUST be a power of two
+     */
+    void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldVals = vals;
+        if (oldKeys.length >= HashMap.MAXIMUM_CAPACITY) {
+            if (size >= oldKeys.length - 1)
+                throw new IllegalStateException("Map is full");
+            threshold = oldKeys.length - 1;
+            return;
+        }
+        long[] newKeys = new long[newCapacity];
+        long[] newVals = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k;
+            if ((k = oldKeys[j]) != FREE_KEY) {
+                int i = hash(k) & mask;
+                while (newKeys[i] != FREE_KEY)
+                    i = (i + 1) & mask;
+                newKeys[i] = k;
+                newVals[i] = oldVals[j];
+            }
+        }
+        keys = newKeys;
+        vals = newVals;
+        threshold = thresholdFor(newCapacity);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         {@code 0} if there was no mapping for <tt>key</tt>.
+     */
+    public long remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey)
+                return 0;
+            long oldValue = freeValue;
+            modCount++;
+            hasFreeKey = false;
+            freeValue = 0;
+            size--;
+            return oldValue;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return 0;
+        long oldValue = vals[i];
+        modCount++;
+        size--;
+        shiftKeys(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry in the given slot and shifts the following entries
+     * of its probe sequence backwards.
+     *
+     * @see IntHashMap
+     */
+    private void shiftKeys(int pos) {
+        long[] tab = keys;
+        long[] vs = vals;
+        int mask = tab.length - 1;
+        for (int last;;) {
+            long k;
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((k = tab[pos]) == FREE_KEY) {
+                    tab[last] = FREE_KEY;
+                    vs[last] = 0;
+                    return;
+                }
+                int slot = hash(k) & mask;
+                // the entry at pos may move to last only if its home slot
+                // does not lie cyclically in (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            tab[last] = k;
+            vs[last] = vs[pos];
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        if (keys != EMPTY_KEYS) {
+            Arrays.fill(keys, FREE_KEY);
+            Arrays.fill(vals, 0);
+        }
+        hasFreeKey = false;
+        freeValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each key in this map until all keys
+     * have been processed or the action throws an exception.
+     *
+     * @param  action the action to be performed for each key
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified by the action
+     */
+    public void forEachKey(LongConsumer action) {
+        Objects.requireNonNull(action);
+        int mc = modCount;
+        if (hasFreeKey)
+            action.accept(FREE_KEY);
+        long[] tab = keys;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                action.accept(k);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the keys of this map.  The iterator does
+     * not support the {@code remove} operation.
+     *
+     * @return an iterator over the keys of this map
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new HashIterator(true);
+    }
+
+    /**
+     * Returns an iterator over the values of this map, in the same order
+     * as {@link #keyIterator()}.  The iterator does not support the
+     * {@code remove} operation.
+     *
+     * @return an iterator over the values of this map
+     */
+    public PrimitiveIterator.OfLong valueIterator() {
+        return new HashIterator(false);
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfLong} over the keys of this map.
+     *
+     * <p>The spliterator reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT} and {@link Spliterator#NONNULL}, and is
+     * <em>late-binding</em> and <em>fail-fast</em>.
+     *
+     * @return a spliterator over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new HashSpliterator(this, true, -1, -1, 0, 0);
+    }
+
+    /**
+     * Returns a {@link Spliterator.OfLong} over the values of this map.
+     *
+     * <p>The spliterator reports {@link Spliterator#SIZED} and
+     * {@link Spliterator#NONNULL}, and is <em>late-binding</em> and
+     * <em>fail-fast</em>.
+     *
+     * @return a spliterator over the values of this map
+     */
+    public Spliterator.OfLong valueSpliterator() {
+        return new HashSpliterator(this, false, -1, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     *
+     * @return a stream over the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the values of this map.
+     *
+     * @return a stream over the values of this map
+     */
+    public LongStream valueStream() {
+        return StreamSupport.longStream(valueSpliterator(), false);
+    }
+
+    /**
+     * Iterator over the keys or the values: visits the free key first (as
+     * slot -1) and then the occupied slots of the table in index order.
+     */
+    private final class HashIterator implements PrimitiveIterator.OfLong {
+        final boolean keysOnly;
+        int next = -1;          // next slot to visit, -1 for the free key
+        int expectedModCount = modCount;
+
+        HashIterator(boolean keysOnly) {
+            this.keysOnly = keysOnly;
+            if (!hasFreeKey)
+                advance(0);
+        }
+
+        private void advance(int from) {
+            long[] tab = keys;
+            int i = from;
+            while (i < tab.length && tab[i] == FREE_KEY)
+                i++;
+            next = i;
+        }
+
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        public long nextLong() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i >= keys.length)
+                throw new NoSuchElementException();
+            advance(i + 1);
+            if (i < 0)
+                return keysOnly ? FREE_KEY : freeValue;
+            return keysOnly ? keys[i] : vals[i];
+        }
+    }
+
+    /**
+     * Spliterator over the keys or the values, splitting the slot range in
+     * halves.  The pseudo slot -1 stands for the free key.
+     */
+    static final class HashSpliterator implements Spliterator.OfLong {
+        final LongLongHashMap map;
+        final boolean keysOnly;
+        int index;              // current index, modified on advance/split
+        int fence;              // one past last index; -1 until first use
+        int est;                // size estimate
+        int expectedModCount;   // for comodification checks
+
+        HashSpliterator(LongLongHashMap m, boolean keysOnly, int origin,
+                        int fence, int est, int expectedModCount) {
+            this.map = m;
+            this.keysOnly = keysOnly;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongLongHashMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length;
+            }
+            return hi;
+        }
+
+        public HashSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = lo + ((hi - lo) >>> 1);
+            return (lo >= mid) ? null :
+                new HashSpliterator(map, keysOnly, lo, index = mid, est >>>= 1,
+                                    expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            LongLongHashMap m = map;
+            long[] tab = m.keys;
+            while (index < hi) {
+                int i = index++;
+                if (i < 0) {
+                    if (!m.hasFreeKey)
+                        continue;
+                    action.accept(keysOnly ? FREE_KEY : m.freeValue);
+                } else if (tab[i] == FREE_KEY) {
+                    continue;
+                } else {
+                    action.accept(keysOnly ? tab[i] : m.vals[i]);
+                }
+                if (m.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            LongLongHashMap m = map;
+            long[] tab = m.keys;
+            long[] src = keysOnly ? tab : m.vals;
+            int i = index;
+            index = hi;
+            if (i < 0) {
+                if (m.hasFreeKey)
+                    action.accept(keysOnly ? FREE_KEY : m.freeValue);
+                i = 0;
+            }
+            for (; i < hi; i++) {
+                if (tab[i] != FREE_KEY)
+                    action.accept(src[i]);
+            }
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer)
+                return tryAdvance((LongConsumer) action);
+            return tryAdvance((LongConsumer) action::accept);
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return ((fence < 0 || est == map.size) ? Spliterator.SIZED : 0) |
+                (keysOnly ? Spliterator.DISTINCT : 0) | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Compares the specified map with this map for equality.  Returns
+     * <tt>true</tt> if the given map holds the same mappings.
+     *
+     * @param  o object to be compared for equality with this map
+     * @return <tt>true</tt> if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongLongHashMap))
+            return false;
+        LongLongHashMap m = (LongLongHashMap) o;
+        if (m.size != size)
+            return false;
+        if (hasFreeKey && !(m.hasFreeKey && freeValue == m.freeValue))
+            return false;
+        long[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY) {
+                int j = m.indexOf(k);
+                if (j < 0 || vs[i] != m.vals[j])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, which is the same as the
+     * hash code of a {@code Map<Long,Long>} holding the same mappings.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = hasFreeKey ? Long.hashCode(freeValue) : 0; // key hash is 0
+        long[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                h += Long.hashCode(k) ^ Long.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString()}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        if (hasFreeKey)
+            sb.append(FREE_KEY).append('=').append(freeValue).append(", ");
+        long[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY)
+                sb.append(k).append('=').append(vs[i]).append(", ");
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns a copy of this map.
+     *
+     * @return a copy of this map
+     */
+    public LongLongHashMap clone() {
+        LongLongHashMap result;
+        try {
+            result = (LongLongHashMap) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != EMPTY_KEYS) {
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the map to a stream (i.e., serialize it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (long)
+     *             and value (long) for each key-value mapping.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasFreeKey) {
+            s.writeLong(FREE_KEY);
+            s.writeLong(freeValue);
+        }
+        long[] tab = keys;
+        long[] vs = vals;
+        for (int i = 0; i < tab.length; i++) {
+            long k;
+            if ((k = tab[i]) != FREE_KEY) {
+                s.writeLong(k);
+                s.writeLong(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the map from a stream (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new java.io.InvalidObjectException("Illegal load factor: " +
+                                                     loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " +
+                                                     mappings);
+        keys = EMPTY_KEYS;
+        threshold = (int) Math.min(mappings / loadFactor + 1.0f,
+                                   HashMap.MAXIMUM_CAPACITY);
+        for (int i = 0; i < mappings; i++) {
+            long key = s.readLong();
+            put(key, s.readLong());
+        }
+    }
+}
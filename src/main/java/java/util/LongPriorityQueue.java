@@ -0,0 +1,487 @@
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import sun.misc.SharedSecrets;
+
+/**
+ * An unbounded priority queue of {@code int} values ordered by primitive
+ * {@code long} priorities, lowest first.  Unlike a
+ * <tt>PriorityQueue&lt;E&gt;</tt> of objects holding a priority, no entry
+ * is ever boxed and no {@link Comparator} is called: the priorities and
+ * values are kept in two parallel arrays and compared with {@code <}.
+ * 以long为优先级、int为值的优先级队列，基于4叉堆，元素不装箱。
+ *
+ * <p>The queue is a 4-ary heap rather than a binary one: the four
+ * children of the entry at index {@code k} are at indices {@code 4k+1}
+ * to {@code 4k+4}.  The heap is half as deep, so {@link #offer} moves
+ * entries half as many times, and the children compared by
+ * {@link #remove} are adjacent in the priority array, which suits the
+ * memory hierarchy better for large queues.  Otherwise the algorithms are
+ * those of {@link PriorityQueue}: the enqueuing method {@code offer}
+ * and the dequeuing method {@code remove} take O(log(n)) time, the
+ * retrieval methods {@code peekPriority}, {@code peekValue} and
+ * {@code size} take constant time, and building a queue from arrays takes
+ * linear time.  Entries of equal priority are dequeued in no particular
+ * order.
+ *
+ * <p>The spliterator and stream of this class traverse the values in no
+ * particular order, and are <em>fail-fast</em> in the same way as those
+ * of {@link PriorityQueue}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Multiple threads should not access a {@code LongPriorityQueue}
+ * instance concurrently if any of the threads modifies the queue.
+ *
+ * @see PriorityQueue
+ * @see IndexedLongPriorityQueue
+ */
+public class LongPriorityQueue implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -3407924582394810213L;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    /**
+     * The priorities of the entries, a 4-ary heap: the children of
+     * entry k are entries 4k+1 .. 4k+4, and each entry has a priority
+     * no larger than those of its children.
+     * 优先级数组，4叉堆
+     */
+    transient long[] priorities; // non-private to simplify nested class access
+
+    /**
+     * The values of the entries, parallel to priorities.
+     */
+    transient int[] values;
+
+    /**
+     * The number of entries in the queue.
+     */
+    private int size;
+
+    /**
+     * The number of times this queue has been <i>structurally modified</i>.
+     */
+    transient int modCount;
+
+    /**
+     * Creates a {@code LongPriorityQueue} with the default initial
+     * capacity (11).
+     */
+    public LongPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a {@code LongPriorityQueue} with the specified initial
+     * capacity.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1
+     */
+    public LongPriorityQueue(int initialCapacity) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+        this.priorities = new long[initialCapacity];
+        this.values = new int[initialCapacity];
+    }
+
+    /**
+     * Creates a {@code LongPriorityQueue} holding the given entries: the
+     * value {@code values[i]} with priority {@code priorities[i]}, for
+     * each {@code i}.  The heap is built in linear time.
+     *
+     * @param priorities the priorities of the entries
+     * @param values the values of the entries
+     * @throws IllegalArgumentException if the arrays do not have the same
+     *         length
+     */
+    public LongPriorityQueue(long[] priorities, int[] values) {
+        if (priorities.length != values.length)
+            throw new IllegalArgumentException("priorities.length " + priorities.length +
+                                               " != values.length " + values.length);
+        int n = Math.max(priorities.length, 1);
+        this.priorities = Arrays.copyOf(priorities, n);
+        this.values = Arrays.copyOf(values, n);
+        this.size = priorities.length;
+        heapify();
+    }
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Increases the capacity of the arrays.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    private void grow(int minCapacity) {
+        int oldCapacity = priorities.length;
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        priorities = Arrays.copyOf(priorities, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Inserts the specified value with the specified priority into this
+     * priority queue.
+     *
+     * @param priority the priority of the value, lower first
+     * @param value the value
+     */
+    public void offer(long priority, int value) {
+        modCount++;
+        int i = size;
+        if (i >= priorities.length)
+            grow(i + 1);
+        size = i + 1;
+        if (i == 0) {
+            priorities[0] = priority;
+            values[0] = value;
+        } else
+            siftUp(i, priority, value);
+    }
+
+    /**
+     * Returns the lowest priority in this queue, that of the head.
+     *
+     * @return the priority of the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public long peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return priorities[0];
+    }
+
+    /**
+     * Returns the value at the head of this queue, one of lowest priority.
+     *
+     * @return the value at the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int peekValue() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return values[0];
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, returning its value.
+     * Its priority can be read by {@link #peekPriority} beforehand.
+     *
+     * @return the value at the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int remove() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int s = --size;
+        modCount++;
+        int result = values[0];
+        if (s != 0)
+            siftDown(0, priorities[s], values[s]);
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all of the entries from this priority queue.
+     * The queue will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each value of this queue, in no
+     * particular order.
+     *
+     * @param action the action to be performed for each value
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the queue is modified
+     *         by the action
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int[] a = values;
+        final int n = size;
+        for (int i = 0; modCount == expectedModCount && i < n; i++)
+            action.accept(a[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Inserts an entry at position k, maintaining heap invariant by
+     * promoting it up the tree until its priority is greater than or
+     * equal to its parent's, or it is the root.
+     *
+     * @param k the position to fill
+     * @param p the priority of the entry to insert
+     * @param v the value of the entry to insert
+     */
+    private void siftUp(int k, long p, int v) {
+        long[] pq = priorities;
+        int[] vs = values;
+        while (k > 0) {
+            int parent = (k - 1) >>> 2;
+            long e = pq[parent];
+            if (p >= e)
+                break;
+            pq[k] = e;
+            vs[k] = vs[parent];
+            k = parent;
+        }
+        pq[k] = p;
+        vs[k] = v;
+    }
+
+    /**
+     * Inserts an entry at position k, maintaining heap invariant by
+     * demoting it down the tree repeatedly until its priority is less
+     * than or equal to its children's or it is a leaf.
+     *
+     * @param k the position to fill
+     * @param p the priority of the entry to insert
+     * @param v the value of the entry to insert
+     */
+    private void siftDown(int k, long p, int v) {
+        long[] pq = priorities;
+        int[] vs = values;
+        int n = size;
+        int nonLeaves = (n + 2) >>> 2;  // loop while a non-leaf
+        while (k < nonLeaves) {
+            int child = (k << 2) + 1;   // assume first child is least
+            long c = pq[child];
+            // 在最多4个子节点中找出最小者
+            for (int i = child + 1, end = Math.min(child + 4, n); i < end; i++) {
+                if (pq[i] < c)
+                    c = pq[child = i];
+            }
+            if (p <= c)
+                break;
+            pq[k] = c;
+            vs[k] = vs[child];
+            k = child;
+        }
+        pq[k] = p;
+        vs[k] = v;
+    }
+
+    /**
+     * Establishes the heap invariant in the entire tree,
+     * assuming nothing about the order of the entries prior to the call.
+     */
+    private void heapify() {
+        if (size > 1) {
+            for (int i = (size - 2) >>> 2; i >= 0; i--)
+                siftDown(i, priorities[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns a copy of this queue.
+     *
+     * @return a clone of this queue
+     */
+    public LongPriorityQueue clone() {
+        try {
+            LongPriorityQueue q = (LongPriorityQueue) super.clone();
+            q.priorities = Arrays.copyOf(priorities, Math.max(size, 1));
+            q.values = Arrays.copyOf(values, Math.max(size, 1));
+            q.modCount = 0;
+            return q;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @serialData The length of the array backing the instance is
+     *             emitted (int), followed by each priority (long) and
+     *             value (int) of the entries, in heap order.
+     * @param s the stream
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out size and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out array length, for compatibility with 1.5 version
+        s.writeInt(Math.max(2, size + 1));
+
+        // Write out all entries in the "proper order".
+        for (int i = 0; i < size; i++) {
+            s.writeLong(priorities[i]);
+            s.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code LongPriorityQueue} instance from a stream
+     * (that is, deserializes it).
+     *
+     * @param s the stream
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in (and discard) array length
+        s.readInt();
+
+        SharedSecrets.getJavaOISAccess().checkArray(s, long[].class, size);
+        int n = Math.max(size, 1);
+        priorities = new long[n];
+        values = new int[n];
+
+        // Read in all entries.
+        for (int i = 0; i < size; i++) {
+            priorities[i] = s.readLong();
+            values[i] = s.readInt();
+        }
+
+        // Entries are written in heap order, but do not trust the stream.
+        heapify();
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} of the values of this queue,
+     * in no particular order.
+     *
+     * @return a sequential {@code IntStream} over the values in this queue
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the values in this
+     * queue.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the values in this queue
+     */
+    public Spliterator.OfInt spliterator() {
+        return new LongPriorityQueueSpliterator(this, 0, -1, 0);
+    }
+
+    static final class LongPriorityQueueSpliterator implements Spliterator.OfInt {
+        /*
+         * This is very similar to the PriorityQueue Spliterator, over
+         * the array of values.
+         */
+        private final LongPriorityQueue pq;
+        private int index;            // current index, modified on advance/split
+        private int fence;            // -1 until first use
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range */
+        LongPriorityQueueSpliterator(LongPriorityQueue pq, int origin, int fence,
+                                     int expectedModCount) {
+            this.pq = pq;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = pq.modCount;
+                hi = fence = pq.size;
+            }
+            return hi;
+        }
+
+        public LongPriorityQueueSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new LongPriorityQueueSpliterator(pq, lo, index = mid,
+                                                 expectedModCount);
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            LongPriorityQueue q; int[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((q = pq) != null && (a = q.values) != null) {
+                if ((hi = fence) < 0) {
+                    mc = q.modCount;
+                    hi = q.size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i)
+                        action.accept(a[i]);
+                    if (q.modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), lo = index;
+            if (lo >= 0 && lo < hi) {
+                index = lo + 1;
+                action.accept(pq.values[lo]);
+                if (pq.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package java.util;
+
+/**
+ * A reusable cursor over the mappings of a map.  Unlike an iterator over
+ * the {@link Map#entrySet() entry set}, a cursor does not allocate any
+ * object per traversal or per mapping: the current mapping is exposed
+ * through {@link #getKey}, {@link #getValue} and {@link #setValue} instead
+ * of as a {@link Map.Entry}, and a cursor can be rewound with
+ * {@link #reset} and used for any number of traversals.  A cursor can
+ * therefore be created once and kept, for example per thread, by code that
+ * traverses the same map repeatedly in a hot loop.
+ * 可重用、可重置的映射表游标，遍历时不分配任何对象。
+ *
+ * <p>A newly created or reset cursor is positioned before the first
+ * mapping; each call to {@link #advance} moves it to the next mapping, in
+ * the same order as the map's entry set iterator would return them.
+ * <pre> {@code
+ * MapCursor<String, Integer> c = map.cursor();
+ * long total = 0;
+ * while (c.advance())
+ *     total += c.getValue();
+ * }</pre>
+ *
+ * <p>Cursors are <i>fail-fast</i> in the same way as the iterators of the
+ * map's collection views: if the map is structurally modified after the
+ * cursor was created or last reset, in any way except through the
+ * cursor's own {@link #remove} method, the next call to {@link #advance}
+ * throws a {@link ConcurrentModificationException}.  Like the map itself,
+ * a cursor must not be used by several threads at a time.
+ *
+ * @param <K> the type of keys of the map
+ * @param <V> the type of values of the map
+ *
+ * @see HashMap#cursor()
+ * @see LinkedHashMap#cursor()
+ * @see TreeMap#cursor()
+ * @see IdentityHashMap#cursor()
+ */
+public interface MapCursor<K,V> {
+
+    /**
+     * Moves this cursor to the next mapping.
+     *
+     * @return {@code true} if the cursor is positioned at a mapping,
+     *         {@code false} if there are no more mappings
+     * @throws ConcurrentModificationException if the map was
+     *         structurally modified other than through this cursor
+     */
+    boolean advance();
+
+    /**
+     * Returns the key of the current mapping.
+     *
+     * @return the key of the current mapping
+     * @throws IllegalStateException if the cursor is not positioned at
+     *         a mapping, or the mapping has been removed
+     */
+    K getKey();
+
+    /**
+     * Returns the value of the current mapping.
+     *
+     * @return the value of the current mapping
+     * @throws IllegalStateException if the cursor is not positioned at
+     *         a mapping, or the mapping has been removed
+     */
+    V getValue();
+
+    /**
+     * Replaces the value of the current mapping, writing through to the
+     * map.  This is not a structural modification.
+     *
+     * @param value new value to be stored in the current mapping
+     * @return the old value of the current mapping
+     * @throws IllegalStateException if the cursor is not positioned at
+     *         a mapping, or the mapping has been removed
+     */
+    V setValue(V value);
+
+    /**
+     * Removes the current mapping from the map (optional operation).
+     * The cursor stays between the removed mapping and the next one, so
+     * it must be advanced before the current mapping can be accessed
+     * again.
+     *
+     * @implSpec
+     * The default implementation throws an instance of
+     * {@link UnsupportedOperationException} and performs no other action.
+     *
+     * @throws UnsupportedOperationException if the {@code remove}
+     *         operation is not supported by this cursor
+     * @throws IllegalStateException if the cursor is not positioned at
+     *         a mapping, or the mapping has already been removed
+     * @throws ConcurrentModificationException if the map was
+     *         structurally modified other than through this cursor
+     */
+    default void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Rewinds this cursor to before the first mapping of the map, as if
+     * it had just been created, so that it can be used for a new
+     * traversal.
+     */
+    void reset();
+}
@@ -0,0 +1,978 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map that is updated by creating a new version of itself:
+ * {@link #with} and {@link #without} return a new map and leave this one
+ * unchanged, copying only the O(log<sub>32</sub>(n)) nodes on the path to
+ * the changed entry and sharing everything else with this map.  Such a
+ * map can be published to other threads atomically, through a
+ * {@code volatile} field or an {@link java.util.concurrent.atomic.AtomicReference},
+ * and read there without any locking while the writer builds the next
+ * version.
+ * 持久化(不可变、结构共享)的散列映射表，基于散列数组映射前缀树(HAMT)。
+ *
+ * <p>The entries are stored in a <em>hash array mapped trie</em>, in the
+ * compressed (CHAMP) layout: each node covers five bits of the hash
+ * codes of the keys, spread as in {@link HashMap}, and holds two
+ * 32-bit bitmaps telling which of its 32 positions hold an entry inline
+ * and which hold a child node.  Only the occupied positions are
+ * allocated, entries first and child nodes last.  Keys whose 32 hash bits
+ * are all equal end up together in a collision node that is searched
+ * linearly.  The trie is kept in a canonical form: removals pull single
+ * entries back up into their parents, so that two maps with the same keys
+ * have the same shape, whatever the order of the updates that built them,
+ * and iteration visits no empty nodes.
+ *
+ * <p>{@link #get}, {@code containsKey}, {@code with} and {@code without}
+ * take O(log<sub>32</sub>(n)) time, which is at most seven node visits
+ * for any map; {@code size} takes constant time.  Like {@link HashMap},
+ * this map permits {@code null} keys and values, and makes no guarantees
+ * as to the iteration order.
+ *
+ * <p>Many updates in a row are better made on a {@link Transient}: the
+ * {@link #asTransient} copy of a map is a mutable builder that updates the
+ * nodes it has already copied in place, instead of copying them once per
+ * update, and {@link Transient#persistent} turns it back into an
+ * immutable map in constant time.  A transient must be confined to one
+ * thread and must not be used after {@code persistent} is called.
+ *
+ * <p>All the mutator methods of the {@link Map} interface throw
+ * {@code UnsupportedOperationException}, as do those of the collection
+ * views.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see PersistentHashSet
+ * @see PersistentVector
+ */
+public final class PersistentHashMap<K,V> extends AbstractMap<K,V>
+    implements java.io.Serializable {
+
+    private static final long serialVersionUID = 6542897309247159023L;
+
+    /**
+     * The number of hash bits consumed at each level of the trie.
+     */
+    static final int BITS = 5;
+
+    /**
+     * The mask of one level of hash bits.
+     */
+    static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The shift beyond which all the bits of the hash codes have been
+     * used, and equal hash codes go to a collision node.
+     */
+    static final int HASH_BITS = 32;
+
+    /**
+     * Returned by the node lookups for an absent key, since {@code null}
+     * is a valid value.
+     */
+    static final Object NOT_FOUND = new Object();
+
+    private static final PersistentHashMap<?,?> EMPTY =
+        new PersistentHashMap<>(BitmapNode.EMPTY_NODE, 0);
+
+    /**
+     * The root of the trie, never null.
+     */
+    final transient Node root;
+
+    /**
+     * The number of entries in the map.
+     */
+    private final transient int size;
+
+    PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentHashMap<K,V> empty() {
+        return (PersistentHashMap<K,V>) EMPTY;
+    }
+
+    /**
+     * Returns a map with the same mappings as the specified map.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @param m the map whose mappings are to be copied
+     * @return a map with the same mappings as {@code m}
+     * @throws NullPointerException if the specified map is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> PersistentHashMap<K,V> copyOf(Map<? extends K, ? extends V> m) {
+        if (m instanceof PersistentHashMap)
+            return (PersistentHashMap<K,V>) m;
+        return PersistentHashMap.<K,V>empty().withAll(m);
+    }
+
+    /**
+     * Computes key.hashCode() and spreads the higher bits of the hash
+     * downwards, as {@link HashMap} does, since the trie consumes the
+     * low bits first.
+     */
+    static int hash(Object key) {
+        int h;
+        return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
+    }
+
+    static int mask(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    static int bitpos(int hash, int shift) {
+        return 1 << mask(hash, shift);
+    }
+
+    // 查询操作
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object v = root.find(key, hash(key), 0);
+        return (v == NOT_FOUND) ? null : (V) v;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        Object v = root.find(key, hash(key), 0);
+        return (v == NOT_FOUND) ? defaultValue : (V) v;
+    }
+
+    public boolean containsKey(Object key) {
+        return root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    // 更新操作(返回新版本)
+
+    /**
+     * Returns a map with the mappings of this map and the specified
+     * mapping, which replaces any previous mapping for the key.  If this
+     * map already maps the key to the (identical) value, this map itself
+     * is returned.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the updated map
+     */
+    public PersistentHashMap<K,V> with(K key, V value) {
+        Change change = new Change();
+        Node newRoot = root.update(null, key, value, hash(key), 0, change);
+        if (newRoot == root)
+            return this;
+        return new PersistentHashMap<>(newRoot,
+            change.oldValue == NOT_FOUND ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with the mappings of this map and of the specified
+     * map, the latter replacing any mappings of this map for the same
+     * keys.  The mappings are added through a transient.
+     *
+     * @param m mappings to be added
+     * @return the updated map
+     * @throws NullPointerException if the specified map is null
+     */
+    public PersistentHashMap<K,V> withAll(Map<? extends K, ? extends V> m) {
+        if (m.isEmpty())
+            return this;
+        Transient<K,V> t = asTransient();
+        t.putAll(m);
+        return t.persistent();
+    }
+
+    /**
+     * Returns a map with the mappings of this map except the one for the
+     * specified key.  If there is no mapping for the key, this map itself
+     * is returned.
+     *
+     * @param key key whose mapping is to be left out
+     * @return the updated map
+     */
+    public PersistentHashMap<K,V> without(Object key) {
+        Change change = new Change();
+        Node newRoot = root.remove(null, key, hash(key), 0, change);
+        if (newRoot == root)
+            return this;
+        if (size == 1)
+            return empty();
+        return new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    /**
+     * Returns a mutable builder that starts with the mappings of this map.
+     * This map is not affected by the updates made on the builder.
+     *
+     * @return a transient copy of this map
+     */
+    public Transient<K,V> asTransient() {
+        return new Transient<>(root, size);
+    }
+
+    // 视图与遍历
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        root.forEach((BiConsumer<Object,Object>) action);
+    }
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return size;
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<>(root);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object v = root.find(e.getKey(), hash(e.getKey()), 0);
+            return v != NOT_FOUND && Objects.equals(v, e.getValue());
+        }
+
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.DISTINCT |
+                                            Spliterator.IMMUTABLE);
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys of the trie rooted at the given
+     * node, for {@link PersistentHashSet}.
+     */
+    static <K> Iterator<K> keyIterator(Node root) {
+        return new KeyIterator<>(root);
+    }
+
+    // 前缀树节点
+
+    /**
+     * The records of what an update did: the old value of the entry that
+     * was replaced or removed, or NOT_FOUND if an entry was added or
+     * nothing was removed.
+     */
+    static final class Change {
+        Object oldValue = NOT_FOUND;
+    }
+
+    /**
+     * A node of the trie.  A node is owned by the edit token it was
+     * created with: only a transient holding that token may update the
+     * node in place, all other updates copy it.  The nodes of a persistent
+     * map are never updated in place, since persistent updates pass a null
+     * token and the token of a transient is dropped by {@code persistent}.
+     */
+    abstract static class Node {
+        /**
+         * The number of entries held inline in this node.
+         */
+        abstract int payloadArity();
+
+        /**
+         * The number of child nodes of this node.
+         */
+        abstract int nodeArity();
+
+        abstract Object keyAt(int i);
+
+        abstract Object valAt(int i);
+
+        abstract Node nodeAt(int i);
+
+        /**
+         * Returns the value mapped to the key, or NOT_FOUND.
+         */
+        abstract Object find(Object key, int hash, int shift);
+
+        /**
+         * Returns this node with the key mapped to the value, copied
+         * unless it is owned by the edit token, or this node itself if
+         * nothing changed.
+         */
+        abstract Node update(Object edit, Object key, Object value,
+                             int hash, int shift, Change change);
+
+        /**
+         * Returns this node without the key, copied unless it is owned by
+         * the edit token, or this node itself if the key was absent.  A
+         * node left with a single entry and no children is positioned for
+         * the root level, so that the parents can inline the entry.
+         */
+        abstract Node remove(Object edit, Object key, int hash, int shift,
+                             Change change);
+
+        abstract void forEach(BiConsumer<Object,Object> action);
+
+        final boolean isSingleton() {
+            return payloadArity() == 1 && nodeArity() == 0;
+        }
+    }
+
+    /**
+     * A node that maps up to 32 hash positions to inline entries or to
+     * child nodes.  The content array holds the keys and values of the
+     * entries in pairs, in bit order, followed by the child nodes in
+     * reverse bit order.
+     * 位图索引节点
+     */
+    static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY_NODE =
+            new BitmapNode(null, 0, 0, new Object[0]);
+
+        final Object edit;
+        int dataMap;
+        int nodeMap;
+        Object[] content;
+
+        BitmapNode(Object edit, int dataMap, int nodeMap, Object[] content) {
+            this.edit = edit;
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        Object keyAt(int i) {
+            return content[i << 1];
+        }
+
+        Object valAt(int i) {
+            return content[(i << 1) + 1];
+        }
+
+        Node nodeAt(int i) {
+            return (Node) content[content.length - 1 - i];
+        }
+
+        int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        boolean isOwnedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        Object find(Object key, int hash, int shift) {
+            BitmapNode n = this;
+            for (;;) {
+                int bit = bitpos(hash, shift);
+                if ((n.dataMap & bit) != 0) {
+                    int i = n.dataIndex(bit) << 1;
+                    return Objects.equals(n.content[i], key)
+                        ? n.content[i + 1] : NOT_FOUND;
+                }
+                if ((n.nodeMap & bit) == 0)
+                    return NOT_FOUND;
+                Node child = n.nodeAt(n.nodeIndex(bit));
+                shift += BITS;
+                if (!(child instanceof BitmapNode))
+                    return child.find(key, hash, shift);
+                n = (BitmapNode) child;
+            }
+        }
+
+        Node update(Object edit, Object key, Object value,
+                    int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                Object k = keyAt(i);
+                if (Objects.equals(k, key)) {
+                    Object v = valAt(i);
+                    change.oldValue = v;
+                    if (v == value)
+                        return this;
+                    return copyAndSetValue(edit, i, value);
+                }
+                // 两个键在本层冲突，下沉为子节点
+                Node child = mergeTwo(edit, k, valAt(i), hash(k),
+                                      key, value, hash, shift + BITS);
+                return copyAndMigrateToNode(edit, bit, child);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node child = nodeAt(nodeIndex(bit));
+                Node newChild = child.update(edit, key, value, hash,
+                                             shift + BITS, change);
+                if (newChild == child)
+                    return this;
+                return copyAndSetNode(edit, bit, newChild);
+            }
+            return copyAndInsertValue(edit, bit, key, value);
+        }
+
+        Node remove(Object edit, Object key, int hash, int shift,
+                    Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!Objects.equals(keyAt(i), key))
+                    return this;
+                change.oldValue = valAt(i);
+                if (payloadArity() == 2 && nodeArity() == 0) {
+                    // 只剩一个条目：按根层级定位，以便父节点将其内联
+                    int newDataMap = (shift == 0) ? dataMap ^ bit
+                        : bitpos(hash, 0);
+                    int j = (i == 0) ? 1 : 0;
+                    return new BitmapNode(edit, newDataMap, 0,
+                        new Object[] { keyAt(j), valAt(j) });
+                }
+                return copyAndRemoveValue(edit, bit);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node child = nodeAt(nodeIndex(bit));
+                Node newChild = child.remove(edit, key, hash, shift + BITS,
+                                             change);
+                if (newChild == child)
+                    return this;
+                if (newChild.isSingleton()) {
+                    if (payloadArity() == 0 && nodeArity() == 1)
+                        return newChild;
+                    return copyAndMigrateToInline(edit, bit, newChild);
+                }
+                return copyAndSetNode(edit, bit, newChild);
+            }
+            return this;
+        }
+
+        void forEach(BiConsumer<Object,Object> action) {
+            Object[] c = content;
+            int n = payloadArity() << 1;
+            for (int i = 0; i < n; i += 2)
+                action.accept(c[i], c[i + 1]);
+            for (int i = c.length - 1; i >= n; i--)
+                ((Node) c[i]).forEach(action);
+        }
+
+        /**
+         * Returns a node for two entries of different keys whose hash
+         * codes agree below the given shift.
+         */
+        static Node mergeTwo(Object edit, Object k0, Object v0, int h0,
+                             Object k1, Object v1, int h1, int shift) {
+            if (shift >= HASH_BITS)
+                return new CollisionNode(edit, h0, new Object[] { k0, v0, k1, v1 });
+            int m0 = mask(h0, shift);
+            int m1 = mask(h1, shift);
+            if (m0 != m1) {
+                int dataMap = (1 << m0) | (1 << m1);
+                Object[] c = (m0 < m1)
+                    ? new Object[] { k0, v0, k1, v1 }
+                    : new Object[] { k1, v1, k0, v0 };
+                return new BitmapNode(edit, dataMap, 0, c);
+            }
+            Node child = mergeTwo(edit, k0, v0, h0, k1, v1, h1, shift + BITS);
+            return new BitmapNode(edit, 0, 1 << m0, new Object[] { child });
+        }
+
+        Node copyAndSetValue(Object edit, int i, Object value) {
+            int idx = (i << 1) + 1;
+            if (isOwnedBy(edit)) {
+                content[idx] = value;
+                return this;
+            }
+            Object[] c = content.clone();
+            c[idx] = value;
+            return new BitmapNode(edit, dataMap, nodeMap, c);
+        }
+
+        Node copyAndSetNode(Object edit, int bit, Node node) {
+            int idx = content.length - 1 - nodeIndex(bit);
+            if (isOwnedBy(edit)) {
+                content[idx] = node;
+                return this;
+            }
+            Object[] c = content.clone();
+            c[idx] = node;
+            return new BitmapNode(edit, dataMap, nodeMap, c);
+        }
+
+        Node copyAndInsertValue(Object edit, int bit, Object key, Object value) {
+            int idx = dataIndex(bit) << 1;
+            Object[] src = content;
+            Object[] dst = new Object[src.length + 2];
+            System.arraycopy(src, 0, dst, 0, idx);
+            dst[idx] = key;
+            dst[idx + 1] = value;
+            System.arraycopy(src, idx, dst, idx + 2, src.length - idx);
+            return withContent(edit, dataMap | bit, nodeMap, dst);
+        }
+
+        Node copyAndRemoveValue(Object edit, int bit) {
+            int idx = dataIndex(bit) << 1;
+            Object[] src = content;
+            Object[] dst = new Object[src.length - 2];
+            System.arraycopy(src, 0, dst, 0, idx);
+            System.arraycopy(src, idx + 2, dst, idx, src.length - idx - 2);
+            return withContent(edit, dataMap ^ bit, nodeMap, dst);
+        }
+
+        /**
+         * Replaces the entry at the given bit by a child node.
+         */
+        Node copyAndMigrateToNode(Object edit, int bit, Node node) {
+            int idxOld = dataIndex(bit) << 1;
+            int idxNew = content.length - 2 - nodeIndex(bit);
+            Object[] src = content;
+            Object[] dst = new Object[src.length - 1];
+            System.arraycopy(src, 0, dst, 0, idxOld);
+            System.arraycopy(src, idxOld + 2, dst, idxOld, idxNew - idxOld);
+            dst[idxNew] = node;
+            System.arraycopy(src, idxNew + 2, dst, idxNew + 1,
+                             src.length - idxNew - 2);
+            return withContent(edit, dataMap ^ bit, nodeMap | bit, dst);
+        }
+
+        /**
+         * Replaces the child node at the given bit by its single entry.
+         */
+        Node copyAndMigrateToInline(Object edit, int bit, Node node) {
+            int idxOld = content.length - 1 - nodeIndex(bit);
+            int idxNew = dataIndex(bit) << 1;
+            Object[] src = content;
+            Object[] dst = new Object[src.length + 1];
+            System.arraycopy(src, 0, dst, 0, idxNew);
+            dst[idxNew] = node.keyAt(0);
+            dst[idxNew + 1] = node.valAt(0);
+            System.arraycopy(src, idxNew, dst, idxNew + 2, idxOld - idxNew);
+            System.arraycopy(src, idxOld + 1, dst, idxOld + 2,
+                             src.length - idxOld - 1);
+            return withContent(edit, dataMap | bit, nodeMap ^ bit, dst);
+        }
+
+        private Node withContent(Object edit, int dataMap, int nodeMap,
+                                 Object[] content) {
+            if (isOwnedBy(edit)) {
+                this.dataMap = dataMap;
+                this.nodeMap = nodeMap;
+                this.content = content;
+                return this;
+            }
+            return new BitmapNode(edit, dataMap, nodeMap, content);
+        }
+    }
+
+    /**
+     * A node for the entries of different keys with the same 32-bit hash
+     * code, held as key-value pairs and searched linearly.
+     * 散列冲突节点
+     */
+    static final class CollisionNode extends Node {
+        final Object edit;
+        final int hash;
+        Object[] content;
+
+        CollisionNode(Object edit, int hash, Object[] content) {
+            this.edit = edit;
+            this.hash = hash;
+            this.content = content;
+        }
+
+        int payloadArity() {
+            return content.length >> 1;
+        }
+
+        int nodeArity() {
+            return 0;
+        }
+
+        Object keyAt(int i) {
+            return content[i << 1];
+        }
+
+        Object valAt(int i) {
+            return content[(i << 1) + 1];
+        }
+
+        Node nodeAt(int i) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int indexOf(Object key) {
+            Object[] c = content;
+            for (int i = 0; i < c.length; i += 2)
+                if (Objects.equals(c[i], key))
+                    return i;
+            return -1;
+        }
+
+        Object find(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return (i < 0) ? NOT_FOUND : content[i + 1];
+        }
+
+        Node update(Object edit, Object key, Object value,
+                    int hash, int shift, Change change) {
+            int i = indexOf(key);
+            boolean owned = edit != null && this.edit == edit;
+            if (i >= 0) {
+                Object v = content[i + 1];
+                change.oldValue = v;
+                if (v == value)
+                    return this;
+                Object[] c = owned ? content : content.clone();
+                c[i + 1] = value;
+                return owned ? this : new CollisionNode(edit, this.hash, c);
+            }
+            Object[] c = Arrays.copyOf(content, content.length + 2);
+            c[c.length - 2] = key;
+            c[c.length - 1] = value;
+            if (owned) {
+                content = c;
+                return this;
+            }
+            return new CollisionNode(edit, this.hash, c);
+        }
+
+        Node remove(Object edit, Object key, int hash, int shift,
+                    Change change) {
+            int i = indexOf(key);
+            if (i < 0)
+                return this;
+            Object[] src = content;
+            change.oldValue = src[i + 1];
+            if (src.length == 4) {
+                int j = (i == 0) ? 2 : 0;
+                return new BitmapNode(edit, bitpos(this.hash, 0), 0,
+                    new Object[] { src[j], src[j + 1] });
+            }
+            Object[] dst = new Object[src.length - 2];
+            System.arraycopy(src, 0, dst, 0, i);
+            System.arraycopy(src, i + 2, dst, i, src.length - i - 2);
+            if (edit != null && this.edit == edit) {
+                content = dst;
+                return this;
+            }
+            return new CollisionNode(edit, this.hash, dst);
+        }
+
+        void forEach(BiConsumer<Object,Object> action) {
+            Object[] c = content;
+            for (int i = 0; i < c.length; i += 2)
+                action.accept(c[i], c[i + 1]);
+        }
+    }
+
+    // 迭代器
+
+    /**
+     * Depth-first traversal of a trie: the entries of each node are
+     * returned before those of its children.  The stack holds the nodes
+     * whose children are still to be visited, at most one per level.
+     */
+    abstract static class TrieIterator<T> implements Iterator<T> {
+        private static final int MAX_DEPTH = HASH_BITS / BITS + 2;
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] cursors = new int[MAX_DEPTH];
+        private int depth;
+        Node current;
+        int index;
+        private int limit;
+
+        TrieIterator(Node root) {
+            current = root;
+            limit = root.payloadArity();
+            if (root.nodeArity() > 0)
+                nodes[0] = root;
+            else
+                depth = -1;
+        }
+
+        public final boolean hasNext() {
+            if (index < limit)
+                return true;
+            while (depth >= 0) {
+                Node n = nodes[depth];
+                if (cursors[depth] < n.nodeArity()) {
+                    Node child = n.nodeAt(cursors[depth]++);
+                    if (child.nodeArity() > 0) {
+                        nodes[++depth] = child;
+                        cursors[depth] = 0;
+                    }
+                    int p = child.payloadArity();
+                    if (p > 0) {
+                        current = child;
+                        index = 0;
+                        limit = p;
+                        return true;
+                    }
+                } else {
+                    nodes[depth--] = null;
+                }
+            }
+            return false;
+        }
+
+        final int nextIndex() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return index++;
+        }
+    }
+
+    static final class KeyIterator<K> extends TrieIterator<K> {
+        KeyIterator(Node root) { super(root); }
+
+        @SuppressWarnings("unchecked")
+        public K next() {
+            int i = nextIndex();
+            return (K) current.keyAt(i);
+        }
+    }
+
+    static final class EntryIterator<K,V> extends TrieIterator<Map.Entry<K,V>> {
+        EntryIterator(Node root) { super(root); }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            int i = nextIndex();
+            return new AbstractMap.SimpleImmutableEntry<>(
+                (K) current.keyAt(i), (V) current.valAt(i));
+        }
+    }
+
+    // 可变构建器
+
+    /**
+     * A mutable builder of a {@link PersistentHashMap}, obtained from
+     * {@link PersistentHashMap#asTransient}.  The first update of a node
+     * copies it, as a persistent update would, and the copy belongs to the
+     * transient, which updates it in place from then on.  A batch of
+     * updates thus copies each node at most once.
+     * 持久化映射表的可变(批量)构建器
+     *
+     * <p>{@link #persistent} returns the map built so far and ends the
+     * life of the transient: any later call on it throws
+     * {@code IllegalStateException}.  A transient is not synchronized and
+     * must not be shared between threads.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     */
+    public static final class Transient<K,V> {
+        /**
+         * The token owning the nodes this transient may update in place,
+         * or null once {@link #persistent} has been called.
+         */
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        Transient(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        private Object ensureEditable() {
+            Object e = edit;
+            if (e == null)
+                throw new IllegalStateException("Transient used after persistent() call");
+            return e;
+        }
+
+        /**
+         * Returns the number of mappings.
+         *
+         * @return the number of mappings
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        /**
+         * Returns the value to which the key is mapped, or {@code null}.
+         *
+         * @param key the key whose associated value is to be returned
+         * @return the value mapped to the key, or {@code null} if none
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            ensureEditable();
+            Object v = root.find(key, hash(key), 0);
+            return (v == NOT_FOUND) ? null : (V) v;
+        }
+
+        /**
+         * Returns {@code true} if the key is mapped.
+         *
+         * @param key the key whose presence is to be tested
+         * @return {@code true} if the key is mapped
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public boolean containsKey(Object key) {
+            ensureEditable();
+            return root.find(key, hash(key), 0) != NOT_FOUND;
+        }
+
+        /**
+         * Maps the key to the value.
+         *
+         * @param key key with which the specified value is to be associated
+         * @param value value to be associated with the specified key
+         * @return the previous value mapped to the key, or {@code null}
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public V put(K key, V value) {
+            Change change = new Change();
+            root = root.update(ensureEditable(), key, value, hash(key), 0, change);
+            Object old = change.oldValue;
+            if (old == NOT_FOUND) {
+                size++;
+                return null;
+            }
+            return (V) old;
+        }
+
+        /**
+         * Maps all the keys of the specified map to their values.
+         *
+         * @param m mappings to be stored
+         * @throws NullPointerException if the specified map is null
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public void putAll(Map<? extends K, ? extends V> m) {
+            ensureEditable();
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+                put(e.getKey(), e.getValue());
+        }
+
+        /**
+         * Removes the mapping of the key, if any.
+         *
+         * @param key key whose mapping is to be removed
+         * @return the previous value mapped to the key, or {@code null}
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            Change change = new Change();
+            root = root.remove(ensureEditable(), key, hash(key), 0, change);
+            Object old = change.oldValue;
+            if (old == NOT_FOUND)
+                return null;
+            size--;
+            return (V) old;
+        }
+
+        /**
+         * Returns the map built by this transient, in constant time, and
+         * ends the life of this transient.
+         *
+         * @return an immutable map of the mappings of this transient
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public PersistentHashMap<K,V> persistent() {
+            ensureEditable();
+            edit = null;
+            return (size == 0) ? empty() : new PersistentHashMap<>(root, size);
+        }
+    }
+
+    // 序列化
+
+    /**
+     * Serializes the mappings through a proxy, since the trie of an
+     * immutable map cannot be rebuilt into final fields.
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    /**
+     * @serial include
+     */
+    private static final class SerializationProxy implements java.io.Serializable {
+        private static final long serialVersionUID = -4150235924781385271L;
+
+        private transient PersistentHashMap<?,?> map;
+
+        SerializationProxy(PersistentHashMap<?,?> map) {
+            this.map = map;
+        }
+
+        /**
+         * @serialData The number of mappings (int), followed by the key
+         *             (Object) and value (Object) of each mapping.
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(map.size());
+            for (Map.Entry<?,?> e : map.entrySet()) {
+                s.writeObject(e.getKey());
+                s.writeObject(e.getValue());
+            }
+        }
+
+        private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = s.readInt();
+            if (n < 0)
+                throw new InvalidObjectException("Illegal mappings count: " + n);
+            Transient<Object,Object> t = empty().asTransient();
+            for (int i = 0; i < n; i++)
+                t.put(s.readObject(), s.readObject());
+            map = t.persistent();
+        }
+
+        private Object readResolve() {
+            return map;
+        }
+    }
+}
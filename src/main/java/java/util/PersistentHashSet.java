@@ -0,0 +1,292 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set that is updated by creating a new version of itself,
+ * backed by a {@link PersistentHashMap} in the way {@link HashSet} is
+ * backed by a {@link HashMap}.  {@link #with} and {@link #without} return
+ * a new set sharing all but O(log<sub>32</sub>(n)) nodes with this one,
+ * and {@link #asTransient} returns a mutable builder for batches of
+ * updates.
+ * 持久化(不可变、结构共享)的散列集合，基于持久化散列映射表。
+ *
+ * <p>This set permits the {@code null} element and makes no guarantees
+ * as to the iteration order.  All the mutator methods of the {@link Set}
+ * interface throw {@code UnsupportedOperationException}.
+ *
+ * @param <E> the type of elements maintained by this set
+ *
+ * @see PersistentHashMap
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E>
+    implements java.io.Serializable {
+
+    private static final long serialVersionUID = -1867285149368025412L;
+
+    // Dummy value to associate with an Object in the backing Map
+    // 与底层映射表中的对象关联的虚拟值
+    static final Object PRESENT = Boolean.TRUE;
+
+    private static final PersistentHashSet<?> EMPTY =
+        new PersistentHashSet<>(PersistentHashMap.empty());
+
+    /**
+     * 底层的持久化映射表(元素存储在映射表的键中)
+     */
+    private final transient PersistentHashMap<E,Object> map;
+
+    private PersistentHashSet(PersistentHashMap<E,Object> map) {
+        this.map = map;
+    }
+
+    private PersistentHashSet<E> wrap(PersistentHashMap<E,Object> m) {
+        if (m == map)
+            return this;
+        return m.isEmpty() ? empty() : new PersistentHashSet<>(m);
+    }
+
+    /**
+     * Returns the empty set.
+     *
+     * @param <E> the type of elements
+     * @return the empty set
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * Returns a set of the elements of the specified collection.
+     *
+     * @param <E> the type of elements
+     * @param c the collection whose elements are to be placed into the set
+     * @return a set of the elements of {@code c}
+     * @throws NullPointerException if the specified collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> c) {
+        if (c instanceof PersistentHashSet)
+            return (PersistentHashSet<E>) c;
+        return PersistentHashSet.<E>empty().withAll(c);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    public Iterator<E> iterator() {
+        return PersistentHashMap.keyIterator(map.root);
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        map.forEach((k, v) -> action.accept(k));
+    }
+
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.DISTINCT |
+                                        Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Returns a set of the elements of this set and the specified element.
+     * If this set already contains the element, this set itself is
+     * returned.
+     *
+     * @param e element to be added
+     * @return the updated set
+     */
+    public PersistentHashSet<E> with(E e) {
+        return wrap(map.with(e, PRESENT));
+    }
+
+    /**
+     * Returns a set of the elements of this set and of the specified
+     * collection.  The elements are added through a transient.
+     *
+     * @param c elements to be added
+     * @return the updated set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public PersistentHashSet<E> withAll(Collection<? extends E> c) {
+        if (c.isEmpty())
+            return this;
+        Transient<E> t = asTransient();
+        t.addAll(c);
+        return t.persistent();
+    }
+
+    /**
+     * Returns a set of the elements of this set except the specified
+     * element.  If this set does not contain the element, this set itself
+     * is returned.
+     *
+     * @param o element to be left out
+     * @return the updated set
+     */
+    public PersistentHashSet<E> without(Object o) {
+        return wrap(map.without(o));
+    }
+
+    /**
+     * Returns a mutable builder that starts with the elements of this set.
+     * This set is not affected by the updates made on the builder.
+     *
+     * @return a transient copy of this set
+     */
+    public Transient<E> asTransient() {
+        return new Transient<>(map.asTransient());
+    }
+
+    /**
+     * A mutable builder of a {@link PersistentHashSet}, with the same
+     * rules as {@link PersistentHashMap.Transient}: it must be confined to
+     * one thread, and any call after {@link #persistent} throws
+     * {@code IllegalStateException}.
+     * 持久化集合的可变(批量)构建器
+     *
+     * @param <E> the type of elements
+     */
+    public static final class Transient<E> {
+        private final PersistentHashMap.Transient<E,Object> map;
+
+        Transient(PersistentHashMap.Transient<E,Object> map) {
+            this.map = map;
+        }
+
+        /**
+         * Returns the number of elements.
+         *
+         * @return the number of elements
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public int size() {
+            return map.size();
+        }
+
+        /**
+         * Returns {@code true} if the element is present.
+         *
+         * @param o element whose presence is to be tested
+         * @return {@code true} if the element is present
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        /**
+         * Adds the element if it is not already present.
+         *
+         * @param e element to be added
+         * @return {@code true} if the element was not already present
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public boolean add(E e) {
+            return map.put(e, PRESENT) == null;
+        }
+
+        /**
+         * Adds all the elements of the specified collection.
+         *
+         * @param c elements to be added
+         * @return {@code true} if any element was not already present
+         * @throws NullPointerException if the specified collection is null
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public boolean addAll(Collection<? extends E> c) {
+            boolean modified = false;
+            for (E e : c)
+                if (add(e))
+                    modified = true;
+            return modified;
+        }
+
+        /**
+         * Removes the element if it is present.
+         *
+         * @param o element to be removed
+         * @return {@code true} if the element was present
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public boolean remove(Object o) {
+            return map.remove(o) == PRESENT;
+        }
+
+        /**
+         * Returns the set built by this transient, in constant time, and
+         * ends the life of this transient.
+         *
+         * @return an immutable set of the elements of this transient
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public PersistentHashSet<E> persistent() {
+            PersistentHashMap<E,Object> m = map.persistent();
+            return m.isEmpty() ? empty() : new PersistentHashSet<>(m);
+        }
+    }
+
+    // 序列化
+
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    /**
+     * @serial include
+     */
+    private static final class SerializationProxy implements java.io.Serializable {
+        private static final long serialVersionUID = 2817360961403827114L;
+
+        private transient PersistentHashSet<?> set;
+
+        SerializationProxy(PersistentHashSet<?> set) {
+            this.set = set;
+        }
+
+        /**
+         * @serialData The number of elements (int), followed by each
+         *             element (Object).
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(set.size());
+            for (Object e : set)
+                s.writeObject(e);
+        }
+
+        private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = s.readInt();
+            if (n < 0)
+                throw new InvalidObjectException("Illegal size: " + n);
+            Transient<Object> t = empty().asTransient();
+            for (int i = 0; i < n; i++)
+                t.add(s.readObject());
+            set = t.persistent();
+        }
+
+        private Object readResolve() {
+            return set;
+        }
+    }
+}
@@ -0,0 +1,697 @@
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+
+/**
+ * An immutable list that is updated by creating a new version of itself:
+ * {@link #append}, {@link #with(int, Object)} and {@link #dropLast} return
+ * a new list and leave this one unchanged, copying only the
+ * O(log<sub>32</sub>(n)) nodes on the path to the changed element and
+ * sharing everything else with this list.  Such a list can be published
+ * to other threads atomically, through a {@code volatile} field or an
+ * {@link java.util.concurrent.atomic.AtomicReference}, and read there
+ * without any locking.
+ * 持久化(不可变、结构共享)的向量，基于32路基数平衡树。
+ *
+ * <p>The elements are stored in the leaves of a radix-balanced trie of
+ * 32-slot nodes: the index of an element, read five bits at a time from
+ * the most significant end, is the path to its leaf, and every leaf but
+ * the last is full.  The last, partial leaf is kept apart as the
+ * <em>tail</em>, so that {@code append} and {@code dropLast} only touch
+ * the tail, and copy a path of the trie once every 32 calls.
+ *
+ * <p>{@link #get} and {@code with} take O(log<sub>32</sub>(n)) time, at
+ * most seven node visits for any list, while {@code append},
+ * {@code dropLast} and {@code size} take amortized constant time.  The
+ * iterator walks the leaves one at a time.  Inserting and removing
+ * elements other than the last ones is not supported.
+ *
+ * <p>Many updates in a row are better made on a {@link Transient}: the
+ * {@link #asTransient} copy of a list is a mutable builder that updates
+ * the nodes it has already copied in place, and
+ * {@link Transient#persistent} turns it back into an immutable list in
+ * constant time.  A transient must be confined to one thread and must not
+ * be used after {@code persistent} is called.
+ *
+ * <p>All the mutator methods of the {@link List} interface throw
+ * {@code UnsupportedOperationException}, as do those of the sublists and
+ * list iterators.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see PersistentHashMap
+ */
+public final class PersistentVector<E> extends AbstractList<E>
+    implements RandomAccess, java.io.Serializable {
+
+    private static final long serialVersionUID = 3217945580871529336L;
+
+    /**
+     * The number of index bits consumed at each level of the trie.
+     */
+    static final int BITS = 5;
+
+    /**
+     * The number of slots in a node.
+     */
+    static final int WIDTH = 1 << BITS;
+
+    static final int MASK = WIDTH - 1;
+
+    /**
+     * A node of the trie: 32 child nodes, or 32 elements in a leaf.  A
+     * node may be updated in place only by the transient holding its edit
+     * token, as in {@link PersistentHashMap}.
+     */
+    static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        Node(Object edit) {
+            this(edit, new Object[WIDTH]);
+        }
+    }
+
+    static final Node EMPTY_NODE = new Node(null);
+
+    private static final PersistentVector<?> EMPTY =
+        new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /**
+     * The number of elements in the list.
+     */
+    private final transient int size;
+
+    /**
+     * The shift of the index bits read at the root: 5 for a trie of
+     * height one, then 10, 15 ...
+     */
+    private final transient int shift;
+
+    /**
+     * The root of the trie, never null.
+     */
+    private final transient Node root;
+
+    /**
+     * The last 1 to 32 elements (none for the empty list), in an array of
+     * their exact length.
+     */
+    private final transient Object[] tail;
+
+    PersistentVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Returns the empty list.
+     *
+     * @param <E> the type of elements
+     * @return the empty list
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Returns a list of the elements of the specified collection, in the
+     * order they are returned by its iterator.
+     *
+     * @param <E> the type of elements
+     * @param c the collection whose elements are to be placed into the list
+     * @return a list of the elements of {@code c}
+     * @throws NullPointerException if the specified collection is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> copyOf(Collection<? extends E> c) {
+        if (c instanceof PersistentVector)
+            return (PersistentVector<E>) c;
+        return PersistentVector.<E>empty().appendAll(c);
+    }
+
+    /**
+     * Returns the index of the first element of the tail.
+     */
+    static int tailOffset(int size) {
+        return (size < WIDTH) ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    /**
+     * Returns the leaf array holding the element at the given index.
+     */
+    private Object[] arrayFor(int index) {
+        if (index >= tailOffset(size))
+            return tail;
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS)
+            node = (Node) node.array[(index >>> level) & MASK];
+        return node.array;
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    // 查询操作
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        return (E) arrayFor(index)[index & MASK];
+    }
+
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        for (int base = 0; base < size; base += WIDTH) {
+            Object[] a = arrayFor(base);
+            int n = Math.min(WIDTH, size - base);
+            for (int i = 0; i < n; i++)
+                action.accept((E) a[i]);
+        }
+    }
+
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED |
+                                        Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * An iterator that looks up each leaf once, rather than each element.
+     */
+    private final class Itr implements Iterator<E> {
+        int cursor;
+        Object[] array = tail;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            if ((i & MASK) == 0)
+                array = arrayFor(i);
+            cursor = i + 1;
+            return (E) array[i & MASK];
+        }
+    }
+
+    // 更新操作(返回新版本)
+
+    /**
+     * Returns a list of the elements of this list followed by the
+     * specified element.
+     *
+     * @param e element to be appended
+     * @return the updated list
+     */
+    public PersistentVector<E> append(E e) {
+        int n = size;
+        if (n - tailOffset(n) < WIDTH) {
+            // 尾部数组未满，只复制尾部
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = e;
+            return new PersistentVector<>(n + 1, shift, root, newTail);
+        }
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((n >>> BITS) > (1 << shift)) {
+            // 根节点已满，树增高一层
+            newRoot = new Node(null);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(n, shift, root, tailNode);
+        }
+        return new PersistentVector<>(n + 1, newShift, newRoot, new Object[] { e });
+    }
+
+    /**
+     * Returns a list of the elements of this list followed by those of
+     * the specified collection.  The elements are appended through a
+     * transient.
+     *
+     * @param c elements to be appended
+     * @return the updated list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public PersistentVector<E> appendAll(Collection<? extends E> c) {
+        if (c.isEmpty())
+            return this;
+        Transient<E> t = asTransient();
+        for (E e : c)
+            t.add(e);
+        return t.persistent();
+    }
+
+    /**
+     * Returns a list of the elements of this list, with the element at the
+     * specified index replaced by the specified element.  An index equal
+     * to the size of this list appends the element.
+     *
+     * @param index index of the element to replace
+     * @param e element to be stored at the specified position
+     * @return the updated list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     */
+    public PersistentVector<E> with(int index, E e) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        if (index == size)
+            return append(e);
+        if (index >= tailOffset(size)) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = e;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        return new PersistentVector<>(size, shift,
+                                      doAssoc(shift, root, index, e), tail);
+    }
+
+    /**
+     * Returns a list of the elements of this list but the last one.
+     *
+     * @return the updated list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public PersistentVector<E> dropLast() {
+        int n = size;
+        if (n == 0)
+            throw new NoSuchElementException();
+        if (n == 1)
+            return empty();
+        if (n - tailOffset(n) > 1) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length - 1);
+            return new PersistentVector<>(n - 1, shift, root, newTail);
+        }
+        // 尾部只剩一个元素：最后一个叶子成为新的尾部
+        Object[] newTail = arrayFor(n - 2);
+        Node newRoot = popTail(n, shift, root);
+        int newShift = shift;
+        if (newRoot == null)
+            newRoot = EMPTY_NODE;
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<>(n - 1, newShift, newRoot, newTail);
+    }
+
+    /**
+     * Returns a mutable builder that starts with the elements of this
+     * list.  This list is not affected by the updates made on the builder.
+     *
+     * @return a transient copy of this list
+     */
+    public Transient<E> asTransient() {
+        return new Transient<>(this);
+    }
+
+    /**
+     * Returns a path of single-child nodes of the given height down to
+     * the given node.
+     */
+    static Node newPath(Object edit, int level, Node node) {
+        if (level == 0)
+            return node;
+        Node ret = new Node(edit);
+        ret.array[0] = newPath(edit, level - BITS, node);
+        return ret;
+    }
+
+    /**
+     * Returns a copy of the parent with the full tail of a list of the
+     * given size inserted as its last leaf.
+     */
+    private static Node pushTail(int size, int level, Node parent, Node tailNode) {
+        int subidx = ((size - 1) >>> level) & MASK;
+        Node ret = new Node(null, parent.array.clone());
+        Node child;
+        if (level == BITS)
+            child = tailNode;
+        else {
+            Node sub = (Node) parent.array[subidx];
+            child = (sub != null)
+                ? pushTail(size, level - BITS, sub, tailNode)
+                : newPath(null, level - BITS, tailNode);
+        }
+        ret.array[subidx] = child;
+        return ret;
+    }
+
+    /**
+     * Returns a copy of the node without the last leaf of a list of the
+     * given size, or null if that leaf was the only one below the node.
+     */
+    private static Node popTail(int size, int level, Node node) {
+        int subidx = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node child = popTail(size, level - BITS, (Node) node.array[subidx]);
+            if (child == null && subidx == 0)
+                return null;
+            Node ret = new Node(null, node.array.clone());
+            ret.array[subidx] = child;
+            return ret;
+        }
+        if (subidx == 0)
+            return null;
+        Node ret = new Node(null, node.array.clone());
+        ret.array[subidx] = null;
+        return ret;
+    }
+
+    private static Node doAssoc(int level, Node node, int index, Object e) {
+        Node ret = new Node(null, node.array.clone());
+        if (level == 0)
+            ret.array[index & MASK] = e;
+        else {
+            int subidx = (index >>> level) & MASK;
+            ret.array[subidx] = doAssoc(level - BITS, (Node) node.array[subidx],
+                                        index, e);
+        }
+        return ret;
+    }
+
+    // 可变构建器
+
+    /**
+     * A mutable builder of a {@link PersistentVector}, obtained from
+     * {@link PersistentVector#asTransient}.  The first update of a node
+     * copies it and the copy belongs to the transient, which updates it in
+     * place from then on; the tail is a full-width array updated in place.
+     * 持久化向量的可变(批量)构建器
+     *
+     * <p>{@link #persistent} returns the list built so far and ends the
+     * life of the transient: any later call on it throws
+     * {@code IllegalStateException}.  A transient is not synchronized and
+     * must not be shared between threads.
+     *
+     * @param <E> the type of elements
+     */
+    public static final class Transient<E> {
+        /**
+         * The token owning the nodes this transient may update in place,
+         * or null once {@link #persistent} has been called.
+         */
+        private Object edit = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        Transient(PersistentVector<E> v) {
+            size = v.size;
+            shift = v.shift;
+            root = new Node(edit, v.root.array.clone());
+            tail = Arrays.copyOf(v.tail, WIDTH);
+        }
+
+        private Object ensureEditable() {
+            Object e = edit;
+            if (e == null)
+                throw new IllegalStateException("Transient used after persistent() call");
+            return e;
+        }
+
+        /**
+         * Returns the node itself if this transient owns it, else a copy
+         * owned by this transient.
+         */
+        private Node editable(Node node) {
+            if (node.edit == edit)
+                return node;
+            return new Node(edit, node.array.clone());
+        }
+
+        private Object[] arrayFor(int index) {
+            if (index >= tailOffset(size))
+                return tail;
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS)
+                node = (Node) node.array[(index >>> level) & MASK];
+            return node.array;
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        }
+
+        /**
+         * Returns the number of elements.
+         *
+         * @return the number of elements
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        /**
+         * Returns the element at the specified position.
+         *
+         * @param index index of the element to return
+         * @return the element at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            ensureEditable();
+            rangeCheck(index);
+            return (E) arrayFor(index)[index & MASK];
+        }
+
+        /**
+         * Appends the element.
+         *
+         * @param e element to be appended
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public void add(E e) {
+            Object ed = ensureEditable();
+            int n = size;
+            if (n - tailOffset(n) < WIDTH) {
+                tail[n & MASK] = e;
+                size = n + 1;
+                return;
+            }
+            Node tailNode = new Node(ed, tail);
+            tail = new Object[WIDTH];
+            tail[0] = e;
+            if ((n >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(ed);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(ed, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(n, shift, root, tailNode);
+            }
+            size = n + 1;
+        }
+
+        private Node pushTail(int n, int level, Node parent, Node tailNode) {
+            Node ret = editable(parent);
+            int subidx = ((n - 1) >>> level) & MASK;
+            Node child;
+            if (level == BITS)
+                child = tailNode;
+            else {
+                Node sub = (Node) ret.array[subidx];
+                child = (sub != null)
+                    ? pushTail(n, level - BITS, sub, tailNode)
+                    : newPath(edit, level - BITS, tailNode);
+            }
+            ret.array[subidx] = child;
+            return ret;
+        }
+
+        /**
+         * Replaces the element at the specified position.
+         *
+         * @param index index of the element to replace
+         * @param e element to be stored at the specified position
+         * @return the element previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public E set(int index, E e) {
+            ensureEditable();
+            rangeCheck(index);
+            if (index >= tailOffset(size)) {
+                Object old = tail[index & MASK];
+                tail[index & MASK] = e;
+                return (E) old;
+            }
+            Object[] leaf = arrayFor(index);
+            Object old = leaf[index & MASK];
+            root = doAssoc(shift, root, index, e);
+            return (E) old;
+        }
+
+        private Node doAssoc(int level, Node node, int index, Object e) {
+            Node ret = editable(node);
+            if (level == 0)
+                ret.array[index & MASK] = e;
+            else {
+                int subidx = (index >>> level) & MASK;
+                ret.array[subidx] = doAssoc(level - BITS, (Node) ret.array[subidx],
+                                            index, e);
+            }
+            return ret;
+        }
+
+        /**
+         * Removes the last element.
+         *
+         * @return the removed element
+         * @throws NoSuchElementException if there are no elements
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        @SuppressWarnings("unchecked")
+        public E removeLast() {
+            ensureEditable();
+            int n = size;
+            if (n == 0)
+                throw new NoSuchElementException();
+            int i = n - 1;
+            E last = (E) arrayFor(i)[i & MASK];
+            if (n == 1 || (i & MASK) > 0) {
+                tail[i & MASK] = null; // clear to let GC do its work
+                size = i;
+                return last;
+            }
+            // 尾部只剩一个元素：最后一个叶子(复制后)成为新的尾部
+            Object[] newTail = arrayFor(n - 2).clone();
+            Node newRoot = popTail(n, shift, root);
+            if (newRoot == null)
+                newRoot = new Node(edit);
+            if (shift > BITS && newRoot.array[1] == null) {
+                newRoot = editable((Node) newRoot.array[0]);
+                shift -= BITS;
+            }
+            root = newRoot;
+            tail = newTail;
+            size = i;
+            return last;
+        }
+
+        private Node popTail(int n, int level, Node node) {
+            Node ret = editable(node);
+            int subidx = ((n - 2) >>> level) & MASK;
+            if (level > BITS) {
+                Node child = popTail(n, level - BITS, (Node) ret.array[subidx]);
+                if (child == null && subidx == 0)
+                    return null;
+                ret.array[subidx] = child;
+                return ret;
+            }
+            if (subidx == 0)
+                return null;
+            ret.array[subidx] = null;
+            return ret;
+        }
+
+        /**
+         * Returns the list built by this transient, in constant time
+         * apart from copying the tail, and ends the life of this
+         * transient.
+         *
+         * @return an immutable list of the elements of this transient
+         * @throws IllegalStateException if {@code persistent} was called
+         */
+        public PersistentVector<E> persistent() {
+            ensureEditable();
+            edit = null;
+            if (size == 0)
+                return empty();
+            Object[] t = Arrays.copyOf(tail, size - tailOffset(size));
+            return new PersistentVector<>(size, shift, root, t);
+        }
+    }
+
+    // 序列化
+
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    /**
+     * @serial include
+     */
+    private static final class SerializationProxy implements java.io.Serializable {
+        private static final long serialVersionUID = -6290218467351092117L;
+
+        private transient PersistentVector<?> list;
+
+        SerializationProxy(PersistentVector<?> list) {
+            this.list = list;
+        }
+
+        /**
+         * @serialData The number of elements (int), followed by each
+         *             element (Object) in order.
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(list.size());
+            for (Object e : list)
+                s.writeObject(e);
+        }
+
+        private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = s.readInt();
+            if (n < 0)
+                throw new InvalidObjectException("Illegal size: " + n);
+            Transient<Object> t = empty().asTransient();
+            for (int i = 0; i < n; i++)
+                t.add(s.readObject());
+            list = t.persistent();
+        }
+
+        private Object readResolve() {
+            return list;
+        }
+    }
+}
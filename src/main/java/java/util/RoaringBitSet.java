@@ -0,0 +1,1945 @@
+package java.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed set of bits indexed by nonnegative integers, suited to
+ * sparse or clustered sets where a {@link BitSet}, which allocates words
+ * up to its highest set bit, would waste memory.
+ * 压缩位集合（Roaring位图）：将整数空间按高16位分块，每块按密度选择数组、位图或游程容器存储。
+ *
+ * <p>The index space is partitioned into chunks of 2<sup>16</sup> bits
+ * sharing the same 16 high-order bits.  Only the chunks that have a bit
+ * set are stored, each in the cheapest of three containers:
+ * <ul>
+ * <li>an <em>array</em> container, a sorted array of the 16 low-order
+ *     bits of the set indices, for chunks of at most 4096 set bits;
+ * <li>a <em>bitmap</em> container, 1024 words as in a {@code BitSet},
+ *     for denser chunks;
+ * <li>a <em>run</em> container, a sorted list of runs of consecutive
+ *     set bits, used for ranges set by {@link #set(int, int)} and by
+ *     {@link #runOptimize}.
+ * </ul>
+ * Logical operations between two sets only visit the chunks present in
+ * either of them, and combine two containers with a merge of their
+ * arrays, word-wise operations on their bitmaps, or a sweep over their
+ * runs.  {@link #rank} and {@link #select} skip whole chunks by their
+ * cardinality.
+ *
+ * <p>{@link #serialize} writes the portable Roaring format shared by the
+ * Roaring bitmap libraries of other languages, and {@link #deserialize}
+ * reads it back.  This format is also used by Java serialization.  Since
+ * indices are nonnegative, reading a bitmap containing indices of
+ * 2<sup>31</sup> or more fails.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code RoaringBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code RoaringBitSet} is not safe for multithreaded use without
+ * external synchronization.
+ *
+ * @see BitSet
+ */
+public class RoaringBitSet implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 5417036624419743214L;
+
+    /**
+     * The maximum cardinality of an array container.  Beyond it, a
+     * bitmap container (8KB) is smaller.
+     * 数组容器的最大基数
+     */
+    static final int DEFAULT_MAX_SIZE = 4096;
+
+    /** Cookie of the portable format with run containers */
+    static final int SERIAL_COOKIE = 12347;
+
+    /** Cookie of the portable format without run containers */
+    static final int SERIAL_COOKIE_NO_RUNCONTAINER = 12346;
+
+    /**
+     * With run containers, the offset header is only written for this
+     * number of containers or more.
+     */
+    static final int NO_OFFSET_THRESHOLD = 4;
+
+    /** The sorted 16 high-order bits of the chunks */
+    transient char[] keys;
+
+    /** The containers of the chunks, parallel to keys */
+    transient Container[] containers;
+
+    /** The number of chunks */
+    transient int size;
+
+    /**
+     * Creates a new, empty bit set.
+     */
+    public RoaringBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    /**
+     * Returns a new bit set containing all the bits set in the given
+     * {@code BitSet}.
+     *
+     * @param  set a bit set
+     * @return a {@code RoaringBitSet} with the same bits set
+     */
+    public static RoaringBitSet valueOf(BitSet set) {
+        RoaringBitSet result = new RoaringBitSet();
+        long[] words = set.toLongArray();
+        for (int base = 0; base < words.length; base += 1024) {
+            long[] bitmap = Arrays.copyOfRange(words, base, base + 1024);
+            int card = 0;
+            for (long w : bitmap)
+                card += Long.bitCount(w);
+            if (card > 0) {
+                Container c = new BitmapContainer(bitmap, card);
+                result.append((char)(base >>> 10),
+                              card <= DEFAULT_MAX_SIZE ? ((BitmapContainer)c).toArray() : c);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new {@code BitSet} containing all the bits set in this
+     * bit set.
+     *
+     * @return a {@code BitSet} with the same bits set
+     */
+    public BitSet toBitSet() {
+        BitSet result = new BitSet(length());
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            containers[i].forEach(0, v -> result.set(base | v));
+        }
+        return result;
+    }
+
+    /* ---------------- Chunks -------------- */
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > keys.length) {
+            int newCapacity = Math.min(Math.max(n, keys.length < 64 ?
+                                                keys.length * 2 : keys.length * 5 / 4),
+                                       1 << 16);
+            keys = Arrays.copyOf(keys, newCapacity);
+            containers = Arrays.copyOf(containers, newCapacity);
+        }
+    }
+
+    private void insertAt(int i, char key, Container c) {
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Appends a chunk after the last one, dropping it if empty.
+     */
+    private void append(char key, Container c) {
+        if (!c.isEmpty()) {
+            ensureCapacity(size + 1);
+            keys[size] = key;
+            containers[size++] = c;
+        }
+    }
+
+    private static void checkIndex(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /**
+     * Returns a bit set of run containers holding the range
+     * fromIndex (inclusive) to toIndex (exclusive).
+     */
+    private static RoaringBitSet range(int fromIndex, int toIndex) {
+        RoaringBitSet r = new RoaringBitSet();
+        if (fromIndex < toIndex) {
+            int first = fromIndex >>> 16, last = (toIndex - 1) >>> 16;
+            r.ensureCapacity(last - first + 1);
+            for (int hb = first; hb <= last; hb++) {
+                int start = (hb == first) ? fromIndex & 0xFFFF : 0;
+                int end = (hb == last) ? (toIndex - 1) & 0xFFFF : 0xFFFF;
+                r.append((char)hb, new RunContainer(new char[] {
+                            (char)start, (char)(end - start) }, 1));
+            }
+        }
+        return r;
+    }
+
+    /* ---------------- Bits -------------- */
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf((char)(bitIndex >>> 16));
+        return i >= 0 && containers[i].contains((char)bitIndex);
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        checkIndex(bitIndex);
+        char hb = (char)(bitIndex >>> 16);
+        int i = indexOf(hb);
+        if (i >= 0)
+            containers[i] = containers[i].add((char)bitIndex);
+        else
+            insertAt(-i - 1, hb, new ArrayContainer((char)bitIndex));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.  Chunks
+     * entirely within the range are stored as a single run.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        or(range(fromIndex, toIndex));
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = indexOf((char)(bitIndex >>> 16));
+        if (i >= 0) {
+            Container c = containers[i].remove((char)bitIndex);
+            if (c.isEmpty())
+                removeAt(i);
+            else
+                containers[i] = c;
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        andNot(range(fromIndex, toIndex));
+    }
+
+    /**
+     * Sets all of the bits in this bit set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void flip(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        xor(range(fromIndex, toIndex));
+    }
+
+    /* ---------------- Searches -------------- */
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        checkIndex(fromIndex);
+        int i = indexOf((char)(fromIndex >>> 16));
+        int low = fromIndex & 0xFFFF;
+        if (i < 0) {
+            i = -i - 1;
+            low = 0;
+        }
+        for (; i < size; i++, low = 0) {
+            int v = containers[i].nextValue(low);
+            if (v >= 0)
+                return (keys[i] << 16) | v;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit, or {@code -1} if all the
+     *         bits from {@code fromIndex} to {@code Integer.MAX_VALUE}
+     *         are set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        checkIndex(fromIndex);
+        int hb = fromIndex >>> 16, low = fromIndex & 0xFFFF;
+        int i = indexOf((char)hb);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            int v = containers[i].nextAbsent(low);
+            if (v >= 0)
+                return (hb << 16) | v;
+            // 当前块剩余的位全部已设置，看下一个块
+            if (++hb > 0x7FFF)
+                return -1;
+            if (++i == size || keys[i] != hb)
+                return hb << 16;
+            low = 0;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int i = indexOf((char)(fromIndex >>> 16));
+        int low = fromIndex & 0xFFFF;
+        if (i < 0) {
+            i = -i - 2;
+            low = 0xFFFF;
+        }
+        for (; i >= 0; i--, low = 0xFFFF) {
+            int v = containers[i].previousValue(low);
+            if (v >= 0)
+                return (keys[i] << 16) | v;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the "logical size" of this bit set: the index of the
+     * highest set bit plus one, or zero if it contains no set bits.
+     *
+     * @return the logical size of this bit set
+     */
+    public int length() {
+        return (size == 0) ? 0 :
+            ((keys[size - 1] << 16) | containers[size - 1].last()) + 1;
+    }
+
+    /**
+     * Returns true if this bit set contains no bits that are set to
+     * {@code true}.
+     *
+     * @return boolean indicating whether this bit set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this bit set.
+     *
+     * @return the number of bits set to {@code true} in this bit set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} at or before the
+     * specified index.
+     *
+     * @param  bitIndex a bit index
+     * @return the number of set bits whose index is at most
+     *         {@code bitIndex}
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int rank(int bitIndex) {
+        checkIndex(bitIndex);
+        char hb = (char)(bitIndex >>> 16);
+        int sum = 0;
+        for (int i = 0; i < size && keys[i] <= hb; i++) {
+            if (keys[i] < hb)
+                sum += containers[i].cardinality();
+            else
+                sum += containers[i].rank((char)bitIndex);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the index of the {@code j}-th set bit, counting from zero:
+     * {@code select(0)} is the lowest set bit and
+     * {@code select(rank(i) - 1) == i} for each set bit {@code i}.
+     *
+     * @param  j the rank of the set bit, counting from zero
+     * @return the index of the {@code j}-th set bit
+     * @throws IndexOutOfBoundsException if {@code j} is negative or not
+     *         less than {@code cardinality()}
+     */
+    public int select(int j) {
+        if (j >= 0) {
+            int left = j;
+            for (int i = 0; i < size; i++) {
+                int card = containers[i].cardinality();
+                if (left < card)
+                    return (keys[i] << 16) | containers[i].select(left);
+                left -= card;
+            }
+        }
+        throw new IndexOutOfBoundsException("j: " + j + ", cardinality: " +
+                                            cardinality());
+    }
+
+    /* ---------------- Bit set operations -------------- */
+
+    /**
+     * Returns true if the specified bit set has any bits set to
+     * {@code true} that are also set to {@code true} in this bit set.
+     *
+     * @param  set bit set to intersect with
+     * @return boolean indicating whether this bit set intersects
+     *         the specified bit set
+     */
+    public boolean intersects(RoaringBitSet set) {
+        int i = 0, j = 0;
+        while (i < size && j < set.size) {
+            char k1 = keys[i], k2 = set.keys[j];
+            if (k1 < k2)
+                i++;
+            else if (k1 > k2)
+                j++;
+            else if (Container.intersects(containers[i++], set.containers[j++]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target bit set with the
+     * argument bit set. This bit set is modified so that each bit in it
+     * has the value {@code true} if and only if it both initially
+     * had the value {@code true} and the corresponding bit in the
+     * bit set argument also had the value {@code true}.
+     *
+     * @param set a bit set
+     */
+    public void and(RoaringBitSet set) {
+        if (this == set)
+            return;
+        char[] ks = keys;
+        Container[] cs = containers;
+        int n = size;
+        keys = new char[Math.max(Math.min(n, set.size), 4)];
+        containers = new Container[keys.length];
+        size = 0;
+        int i = 0, j = 0;
+        while (i < n && j < set.size) {
+            char k1 = ks[i], k2 = set.keys[j];
+            if (k1 < k2)
+                i++;
+            else if (k1 > k2)
+                j++;
+            else
+                append(k1, Container.and(cs[i++], set.containers[j++]));
+        }
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if it either already had the
+     * value {@code true} or the corresponding bit in the bit set
+     * argument has the value {@code true}.
+     *
+     * @param set a bit set
+     */
+    public void or(RoaringBitSet set) {
+        if (this == set)
+            return;
+        char[] ks = keys;
+        Container[] cs = containers;
+        int n = size;
+        keys = new char[Math.max(n + set.size, 4)];
+        containers = new Container[keys.length];
+        size = 0;
+        int i = 0, j = 0;
+        while (i < n || j < set.size) {
+            int k1 = (i < n) ? ks[i] : Integer.MAX_VALUE;
+            int k2 = (j < set.size) ? set.keys[j] : Integer.MAX_VALUE;
+            if (k1 < k2)
+                append((char)k1, cs[i++]);
+            else if (k1 > k2)
+                append((char)k2, set.containers[j++].copy());
+            else
+                append((char)k1, Container.or(cs[i++], set.containers[j++]));
+        }
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if one of the following
+     * statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a bit set
+     */
+    public void xor(RoaringBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        char[] ks = keys;
+        Container[] cs = containers;
+        int n = size;
+        keys = new char[Math.max(n + set.size, 4)];
+        containers = new Container[keys.length];
+        size = 0;
+        int i = 0, j = 0;
+        while (i < n || j < set.size) {
+            int k1 = (i < n) ? ks[i] : Integer.MAX_VALUE;
+            int k2 = (j < set.size) ? set.keys[j] : Integer.MAX_VALUE;
+            if (k1 < k2)
+                append((char)k1, cs[i++]);
+            else if (k1 > k2)
+                append((char)k2, set.containers[j++].copy());
+            else
+                append((char)k1, Container.xor(cs[i++], set.containers[j++]));
+        }
+    }
+
+    /**
+     * Clears all of the bits in this bit set whose corresponding
+     * bit is set in the specified bit set.
+     *
+     * @param  set the bit set with which to mask this bit set
+     */
+    public void andNot(RoaringBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        char[] ks = keys;
+        Container[] cs = containers;
+        int n = size;
+        keys = new char[Math.max(n, 4)];
+        containers = new Container[keys.length];
+        size = 0;
+        int i = 0, j = 0;
+        while (i < n) {
+            char k1 = ks[i];
+            while (j < set.size && set.keys[j] < k1)
+                j++;
+            if (j < set.size && set.keys[j] == k1)
+                append(k1, Container.andNot(cs[i++], set.containers[j++]));
+            else
+                append(k1, cs[i++]);
+        }
+    }
+
+    /**
+     * Converts the chunks that are stored more compactly as runs of
+     * consecutive set bits to run containers, and the run containers
+     * that are not to array or bitmap containers.
+     *
+     * @return {@code true} if some chunk is stored as runs afterwards
+     */
+    public boolean runOptimize() {
+        boolean runs = false;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i].runOptimize();
+            containers[i] = c;
+            runs |= c instanceof RunContainer;
+        }
+        return runs;
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Returns the hash code value for this bit set, which only depends
+     * on which bits are set.
+     *
+     * @return the hash code value for this bit set
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            Container c = containers[i];
+            for (int v = c.nextValue(0); v >= 0; v = (v == 0xFFFF) ? -1 : c.nextValue(v + 1))
+                h = 31 * h + (base | v);
+        }
+        return h;
+    }
+
+    /**
+     * Compares this object against the specified object.  The result is
+     * {@code true} if and only if the argument is a {@code RoaringBitSet}
+     * that has exactly the same set of bits set to {@code true}, however
+     * its chunks are stored.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RoaringBitSet))
+            return false;
+        if (this == obj)
+            return true;
+        RoaringBitSet set = (RoaringBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != set.keys[i] ||
+                !Container.equal(containers[i], set.containers[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cloning this {@code RoaringBitSet} produces a new
+     * {@code RoaringBitSet} that is equal to it.
+     *
+     * @return a clone of this bit set
+     */
+    public Object clone() {
+        try {
+            RoaringBitSet result = (RoaringBitSet) super.clone();
+            result.keys = keys.clone();
+            result.containers = new Container[containers.length];
+            for (int i = 0; i < size; i++)
+                result.containers[i] = containers[i].copy();
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this bit set, listing the
+     * indices of the set bits in braces, as {@link BitSet#toString} does.
+     *
+     * @return a string representation of this bit set
+     */
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append('{');
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            containers[i].forEach(0, v -> {
+                if (b.length() > 1)
+                    b.append(", ");
+                b.append(base | v);
+            });
+        }
+        b.append('}');
+        return b.toString();
+    }
+
+    /* ---------------- Stream -------------- */
+
+    /**
+     * Returns a stream of indices for which this bit set contains a bit
+     * in the set state. The indices are returned in order, from lowest to
+     * highest. The size of the stream is the number of bits in the set
+     * state, equal to the value returned by the {@link #cardinality()}
+     * method.  The stream splits at chunk boundaries.
+     *
+     * <p>The bit set must remain constant during the execution of the
+     * terminal stream operation.  Otherwise, the result of the terminal
+     * stream operation is undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(
+            () -> new ChunkSpliterator(keys, containers, 0, size, cardinality()),
+            ChunkSpliterator.CHARACTERISTICS, false);
+    }
+
+    static final class ChunkSpliterator implements Spliterator.OfInt {
+        static final int CHARACTERISTICS = Spliterator.ORDERED |
+            Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL |
+            Spliterator.SIZED | Spliterator.SUBSIZED;
+
+        final char[] keys;
+        final Container[] containers;
+        int index;          // current chunk
+        int low;            // next low-order bits to examine in it
+        final int fence;    // one past the last chunk
+        long est;           // exact number of remaining bits
+
+        ChunkSpliterator(char[] keys, Container[] containers, int index,
+                         int fence, long est) {
+            this.keys = keys;
+            this.containers = containers;
+            this.index = index;
+            this.fence = fence;
+            this.est = est;
+        }
+
+        public Spliterator.OfInt trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (mid <= lo)
+                return null;
+            long n = (low == 0) ? 0 : -containers[lo].rank((char)(low - 1));
+            for (int i = lo; i < mid; i++)
+                n += containers[i].cardinality();
+            ChunkSpliterator prefix = new ChunkSpliterator(keys, containers, lo, mid, n);
+            prefix.low = low;
+            index = mid;
+            low = 0;
+            est -= n;
+            return prefix;
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            for (; index < fence; index++, low = 0) {
+                int v = (low > 0xFFFF) ? -1 : containers[index].nextValue(low);
+                if (v >= 0) {
+                    low = v + 1;
+                    est--;
+                    action.accept((keys[index] << 16) | v);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            for (; index < fence; index++, low = 0) {
+                if (low <= 0xFFFF) {
+                    int base = keys[index] << 16;
+                    containers[index].forEach(low, v -> action.accept(base | v));
+                }
+            }
+            est = 0;
+        }
+
+        public long estimateSize() {
+            return est;
+        }
+
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    /* ---------------- Portable serialization -------------- */
+
+    private boolean hasRunContainers() {
+        for (int i = 0; i < size; i++)
+            if (containers[i] instanceof RunContainer)
+                return true;
+        return false;
+    }
+
+    private int headerSizeInBytes(boolean hasRun) {
+        if (hasRun)
+            return 4 + (size + 7) / 8 + 4 * size +
+                (size >= NO_OFFSET_THRESHOLD ? 4 * size : 0);
+        return 8 + 8 * size;
+    }
+
+    /**
+     * Returns the number of bytes {@link #serialize} writes.
+     *
+     * @return the size of the serialized form of this bit set
+     */
+    public int serializedSizeInBytes() {
+        int n = headerSizeInBytes(hasRunContainers());
+        for (int i = 0; i < size; i++)
+            n += containers[i].serializedSizeInBytes();
+        return n;
+    }
+
+    /**
+     * Writes this bit set in the portable Roaring format: a cookie
+     * (and with run containers, a bitmap of the chunks stored as runs),
+     * the key and cardinality of each chunk, their offsets, and the
+     * containers, all in little-endian byte order.
+     *
+     * @param  out the output to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void serialize(DataOutput out) throws IOException {
+        boolean hasRun = hasRunContainers();
+        if (hasRun) {
+            out.writeInt(Integer.reverseBytes(SERIAL_COOKIE | ((size - 1) << 16)));
+            for (int i = 0; i < size; i += 8) {
+                int b = 0;
+                for (int j = i; j < Math.min(i + 8, size); j++)
+                    if (containers[j] instanceof RunContainer)
+                        b |= 1 << (j - i);
+                out.writeByte(b);
+            }
+        } else {
+            out.writeInt(Integer.reverseBytes(SERIAL_COOKIE_NO_RUNCONTAINER));
+            out.writeInt(Integer.reverseBytes(size));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeShort(Character.reverseBytes(keys[i]));
+            out.writeShort(Character.reverseBytes((char)(containers[i].cardinality() - 1)));
+        }
+        if (!hasRun || size >= NO_OFFSET_THRESHOLD) {
+            int offset = headerSizeInBytes(hasRun);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(Integer.reverseBytes(offset));
+                offset += containers[i].serializedSizeInBytes();
+            }
+        }
+        for (int i = 0; i < size; i++)
+            containers[i].serialize(out);
+    }
+
+    /**
+     * Reads a bit set written in the portable Roaring format, by this
+     * class or by another Roaring implementation.
+     *
+     * @param  in the input to read from
+     * @return the bit set read
+     * @throws IOException if an I/O error occurs, or the input is not a
+     *         valid bitmap of nonnegative indices
+     */
+    public static RoaringBitSet deserialize(DataInput in) throws IOException {
+        RoaringBitSet r = new RoaringBitSet();
+        r.read(in);
+        return r;
+    }
+
+    private void read(DataInput in) throws IOException {
+        int cookie = Integer.reverseBytes(in.readInt());
+        int n;
+        byte[] runFlags = null;
+        if ((cookie & 0xFFFF) == SERIAL_COOKIE) {
+            n = (cookie >>> 16) + 1;
+            runFlags = new byte[(n + 7) / 8];
+            in.readFully(runFlags);
+        } else if (cookie == SERIAL_COOKIE_NO_RUNCONTAINER) {
+            n = Integer.reverseBytes(in.readInt());
+            if (n < 0 || n > 1 << 16)
+                throw new IOException("Illegal number of containers: " + n);
+        } else {
+            throw new IOException("Not a Roaring bitmap, cookie: " + cookie);
+        }
+        char[] ks = new char[Math.max(n, 4)];
+        int[] cards = new int[n];
+        for (int i = 0; i < n; i++) {
+            ks[i] = Character.reverseBytes(in.readChar());
+            cards[i] = Character.reverseBytes(in.readChar()) + 1;
+            if (ks[i] > 0x7FFF)
+                throw new IOException("Index out of range: " + ((long)ks[i] << 16));
+            if (i > 0 && ks[i] <= ks[i - 1])
+                throw new IOException("Keys out of order");
+        }
+        // 按顺序读取容器，跳过偏移量头
+        if (runFlags == null || n >= NO_OFFSET_THRESHOLD) {
+            for (int i = 0; i < n; i++)
+                in.readInt();
+        }
+        Container[] cs = new Container[ks.length];
+        for (int i = 0; i < n; i++) {
+            boolean run = runFlags != null && (runFlags[i >>> 3] & (1 << (i & 7))) != 0;
+            Container c;
+            if (run)
+                c = RunContainer.deserialize(in);
+            else if (cards[i] <= DEFAULT_MAX_SIZE)
+                c = ArrayContainer.deserialize(in, cards[i]);
+            else
+                c = BitmapContainer.deserialize(in);
+            if (c.cardinality() != cards[i])
+                throw new IOException("Cardinality mismatch in container " + i);
+            cs[i] = c;
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Saves this bit set to a stream, in the portable Roaring format.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        serialize(s);
+    }
+
+    /**
+     * Reconstitutes this bit set from a stream.
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        read(s);
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * The bits of a chunk, indexed by their 16 low-order bits.  Updates
+     * return the container to use afterwards, which may be a different
+     * kind of container; the binary operations return a new container,
+     * or one of their arguments if it is not otherwise referenced.
+     */
+    abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean isEmpty();
+
+        abstract boolean contains(char x);
+
+        abstract Container add(char x);
+
+        abstract Container remove(char x);
+
+        /** Returns the number of values at most x */
+        abstract int rank(char x);
+
+        /** Returns the j-th value, for j less than the cardinality */
+        abstract char select(int j);
+
+        /** Returns the smallest value at least from, or -1 */
+        abstract int nextValue(int from);
+
+        /** Returns the smallest absent value at least from, or -1 */
+        abstract int nextAbsent(int from);
+
+        /** Returns the largest value at most from, or -1 */
+        abstract int previousValue(int from);
+
+        /** Returns the largest value, the container being not empty */
+        abstract int last();
+
+        /** Performs the action for each value at least from, in order */
+        abstract void forEach(int from, IntConsumer action);
+
+        abstract int numberOfRuns();
+
+        /** Returns the cheapest container with the same values */
+        abstract Container runOptimize();
+
+        abstract int serializedSizeInBytes();
+
+        abstract void serialize(DataOutput out) throws IOException;
+
+        abstract Container copy();
+
+        /**
+         * Converts a run container to an array or bitmap container,
+         * returns other containers as they are.
+         */
+        static Container toArrayOrBitmap(Container c) {
+            return (c instanceof RunContainer) ? ((RunContainer)c).toArrayOrBitmap() : c;
+        }
+
+        static boolean isFull(Container c) {
+            return c.cardinality() == 1 << 16;
+        }
+
+        static Container and(Container a, Container b) {
+            if (a instanceof RunContainer) {
+                if (b instanceof RunContainer)
+                    return RunContainer.sweep((RunContainer)a, (RunContainer)b, AND);
+                if (isFull(a))
+                    return b.copy();
+                if (b instanceof ArrayContainer)
+                    return ((ArrayContainer)b).filter(a, true);
+            } else if (b instanceof RunContainer) {
+                if (isFull(b))
+                    return a;
+                if (a instanceof ArrayContainer)
+                    return ((ArrayContainer)a).filter(b, true);
+            }
+            a = toArrayOrBitmap(a);
+            b = toArrayOrBitmap(b);
+            if (a instanceof ArrayContainer) {
+                if (b instanceof ArrayContainer)
+                    return ((ArrayContainer)a).and((ArrayContainer)b);
+                return ((ArrayContainer)a).filter(b, true);
+            }
+            if (b instanceof ArrayContainer)
+                return ((ArrayContainer)b).filter(a, true);
+            return ((BitmapContainer)a).combine((BitmapContainer)b, AND);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a instanceof RunContainer && b instanceof RunContainer)
+                return RunContainer.sweep((RunContainer)a, (RunContainer)b, OR);
+            if (isFull(a))
+                return a;
+            if (isFull(b))
+                return b.copy();
+            a = toArrayOrBitmap(a);
+            b = toArrayOrBitmap(b);
+            if (a instanceof ArrayContainer) {
+                if (b instanceof ArrayContainer)
+                    return ((ArrayContainer)a).or((ArrayContainer)b);
+                return ((BitmapContainer)b).copy().addAll((ArrayContainer)a);
+            }
+            if (b instanceof ArrayContainer)
+                return ((BitmapContainer)a).copy().addAll((ArrayContainer)b);
+            return ((BitmapContainer)a).combine((BitmapContainer)b, OR);
+        }
+
+        static Container xor(Container a, Container b) {
+            if (a instanceof RunContainer && b instanceof RunContainer)
+                return RunContainer.sweep((RunContainer)a, (RunContainer)b, XOR);
+            a = toArrayOrBitmap(a);
+            b = toArrayOrBitmap(b);
+            if (a instanceof ArrayContainer) {
+                if (b instanceof ArrayContainer)
+                    return ((ArrayContainer)a).xor((ArrayContainer)b);
+                return ((BitmapContainer)b).copy().flipAll((ArrayContainer)a);
+            }
+            if (b instanceof ArrayContainer)
+                return ((BitmapContainer)a).copy().flipAll((ArrayContainer)b);
+            return ((BitmapContainer)a).combine((BitmapContainer)b, XOR);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a instanceof RunContainer && b instanceof RunContainer)
+                return RunContainer.sweep((RunContainer)a, (RunContainer)b, ANDNOT);
+            if (isFull(b))
+                return new ArrayContainer();
+            if (a instanceof ArrayContainer && b instanceof RunContainer)
+                return ((ArrayContainer)a).filter(b, false);
+            a = toArrayOrBitmap(a);
+            b = toArrayOrBitmap(b);
+            if (a instanceof ArrayContainer) {
+                if (b instanceof ArrayContainer)
+                    return ((ArrayContainer)a).andNot((ArrayContainer)b);
+                return ((ArrayContainer)a).filter(b, false);
+            }
+            if (b instanceof ArrayContainer)
+                return ((BitmapContainer)a).copy().removeAll((ArrayContainer)b);
+            return ((BitmapContainer)a).combine((BitmapContainer)b, ANDNOT);
+        }
+
+        static boolean intersects(Container a, Container b) {
+            if (a instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a;
+                for (int i = 0; i < x.cardinality; i++)
+                    if (b.contains(x.content[i]))
+                        return true;
+                return false;
+            }
+            if (b instanceof ArrayContainer)
+                return intersects(b, a);
+            if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+                long[] x = ((BitmapContainer)a).bitmap, y = ((BitmapContainer)b).bitmap;
+                for (int i = 0; i < x.length; i++)
+                    if ((x[i] & y[i]) != 0)
+                        return true;
+                return false;
+            }
+            return !and(a, b).isEmpty();
+        }
+
+        static boolean equal(Container a, Container b) {
+            if (a.cardinality() != b.cardinality())
+                return false;
+            if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+                ArrayContainer x = (ArrayContainer)a, y = (ArrayContainer)b;
+                for (int i = 0; i < x.cardinality; i++)
+                    if (x.content[i] != y.content[i])
+                        return false;
+                return true;
+            }
+            if (a instanceof BitmapContainer && b instanceof BitmapContainer)
+                return Arrays.equals(((BitmapContainer)a).bitmap,
+                                     ((BitmapContainer)b).bitmap);
+            // 表示方式不同，逐个比较
+            for (int v = a.nextValue(0), w = b.nextValue(0); ;
+                 v = (v == 0xFFFF) ? -1 : a.nextValue(v + 1),
+                 w = (w == 0xFFFF) ? -1 : b.nextValue(w + 1)) {
+                if (v != w)
+                    return false;
+                if (v < 0)
+                    return true;
+            }
+        }
+    }
+
+    /* binary operations */
+    static final int AND    = 0;
+    static final int OR     = 1;
+    static final int XOR    = 2;
+    static final int ANDNOT = 3;
+
+    /**
+     * A sorted array of values, for at most DEFAULT_MAX_SIZE values.
+     */
+    static final class ArrayContainer extends Container {
+        char[] content;
+        int cardinality;
+
+        ArrayContainer() {
+            content = new char[4];
+        }
+
+        ArrayContainer(char x) {
+            content = new char[] { x, 0, 0, 0 };
+            cardinality = 1;
+        }
+
+        ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        int cardinality() { return cardinality; }
+
+        boolean isEmpty() { return cardinality == 0; }
+
+        boolean contains(char x) {
+            return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+        }
+
+        Container add(char x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, x);
+            if (i >= 0)
+                return this;
+            if (cardinality >= DEFAULT_MAX_SIZE)
+                return toBitmap().add(x);
+            i = -i - 1;
+            if (cardinality == content.length) {
+                int newCapacity = (cardinality < 64) ? cardinality * 2 :
+                    (cardinality < 1024) ? cardinality * 3 / 2 : cardinality * 5 / 4;
+                content = Arrays.copyOf(content, Math.min(Math.max(newCapacity, 4),
+                                                          DEFAULT_MAX_SIZE));
+            }
+            System.arraycopy(content, i, content, i + 1, cardinality - i);
+            content[i] = x;
+            cardinality++;
+            return this;
+        }
+
+        Container remove(char x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        int rank(char x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, x);
+            return (i >= 0) ? i + 1 : -i - 1;
+        }
+
+        char select(int j) {
+            return content[j];
+        }
+
+        int nextValue(int from) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)from);
+            if (i < 0)
+                i = -i - 1;
+            return (i < cardinality) ? content[i] : -1;
+        }
+
+        int nextAbsent(int from) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)from);
+            if (i < 0)
+                return from;
+            while (i + 1 < cardinality && content[i + 1] == content[i] + 1)
+                i++;
+            int v = content[i] + 1;
+            return (v > 0xFFFF) ? -1 : v;
+        }
+
+        int previousValue(int from) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)from);
+            if (i < 0)
+                i = -i - 2;
+            return (i >= 0) ? content[i] : -1;
+        }
+
+        int last() {
+            return content[cardinality - 1];
+        }
+
+        void forEach(int from, IntConsumer action) {
+            int i = Arrays.binarySearch(content, 0, cardinality, (char)from);
+            for (i = (i < 0) ? -i - 1 : i; i < cardinality; i++)
+                action.accept(content[i]);
+        }
+
+        int numberOfRuns() {
+            int runs = 0;
+            for (int i = 0; i < cardinality; i++)
+                if (i == 0 || content[i] != content[i - 1] + 1)
+                    runs++;
+            return runs;
+        }
+
+        Container runOptimize() {
+            int runs = numberOfRuns();
+            if (2 + 4 * runs >= 2 * cardinality)
+                return this;
+            char[] vl = new char[2 * runs];
+            int n = 0;
+            for (int i = 0; i < cardinality; ) {
+                int j = i;
+                while (j + 1 < cardinality && content[j + 1] == content[j] + 1)
+                    j++;
+                vl[2 * n] = content[i];
+                vl[2 * n + 1] = (char)(j - i);
+                n++;
+                i = j + 1;
+            }
+            return new RunContainer(vl, n);
+        }
+
+        int serializedSizeInBytes() {
+            return 2 * cardinality;
+        }
+
+        void serialize(DataOutput out) throws IOException {
+            for (int i = 0; i < cardinality; i++)
+                out.writeShort(Character.reverseBytes(content[i]));
+        }
+
+        static ArrayContainer deserialize(DataInput in, int cardinality) throws IOException {
+            char[] content = new char[cardinality];
+            for (int i = 0; i < cardinality; i++) {
+                content[i] = Character.reverseBytes(in.readChar());
+                if (i > 0 && content[i] <= content[i - 1])
+                    throw new IOException("Array container out of order");
+            }
+            return new ArrayContainer(content, cardinality);
+        }
+
+        ArrayContainer copy() {
+            return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 4)),
+                                      cardinality);
+        }
+
+        BitmapContainer toBitmap() {
+            long[] bitmap = new long[1024];
+            for (int i = 0; i < cardinality; i++)
+                bitmap[content[i] >>> 6] |= 1L << content[i];
+            return new BitmapContainer(bitmap, cardinality);
+        }
+
+        /**
+         * Returns the values that are (or, if not keep, are not) in c.
+         */
+        ArrayContainer filter(Container c, boolean keep) {
+            char[] out = new char[Math.max(cardinality, 4)];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++)
+                if (c.contains(content[i]) == keep)
+                    out[n++] = content[i];
+            return new ArrayContainer(out, n);
+        }
+
+        ArrayContainer and(ArrayContainer b) {
+            ArrayContainer small = (cardinality <= b.cardinality) ? this : b;
+            ArrayContainer large = (small == this) ? b : this;
+            // 基数相差悬殊时，在大数组中二分查找小数组的元素
+            if (small.cardinality * 64 < large.cardinality)
+                return small.filter(large, true);
+            char[] out = new char[Math.max(small.cardinality, 4)];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality && j < b.cardinality) {
+                char x = content[i], y = b.content[j];
+                if (x < y)
+                    i++;
+                else if (x > y)
+                    j++;
+                else {
+                    out[n++] = x;
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        Container or(ArrayContainer b) {
+            if (cardinality + b.cardinality > DEFAULT_MAX_SIZE)
+                return toBitmap().addAll(b).compact();
+            char[] out = new char[Math.max(cardinality + b.cardinality, 4)];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality || j < b.cardinality) {
+                int x = (i < cardinality) ? content[i] : Integer.MAX_VALUE;
+                int y = (j < b.cardinality) ? b.content[j] : Integer.MAX_VALUE;
+                if (x <= y) {
+                    out[n++] = (char)x;
+                    i++;
+                    if (x == y)
+                        j++;
+                } else {
+                    out[n++] = (char)y;
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        Container xor(ArrayContainer b) {
+            if (cardinality + b.cardinality > DEFAULT_MAX_SIZE)
+                return toBitmap().flipAll(b);
+            char[] out = new char[Math.max(cardinality + b.cardinality, 4)];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality || j < b.cardinality) {
+                int x = (i < cardinality) ? content[i] : Integer.MAX_VALUE;
+                int y = (j < b.cardinality) ? b.content[j] : Integer.MAX_VALUE;
+                if (x < y) {
+                    out[n++] = (char)x;
+                    i++;
+                } else if (x > y) {
+                    out[n++] = (char)y;
+                    j++;
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        ArrayContainer andNot(ArrayContainer b) {
+            char[] out = new char[Math.max(cardinality, 4)];
+            int n = 0, j = 0;
+            for (int i = 0; i < cardinality; i++) {
+                char x = content[i];
+                while (j < b.cardinality && b.content[j] < x)
+                    j++;
+                if (j == b.cardinality || b.content[j] != x)
+                    out[n++] = x;
+            }
+            return new ArrayContainer(out, n);
+        }
+    }
+
+    /**
+     * A bitmap of 2^16 bits, for more than DEFAULT_MAX_SIZE values.
+     */
+    static final class BitmapContainer extends Container {
+        final long[] bitmap;
+        int cardinality;
+
+        BitmapContainer(long[] bitmap, int cardinality) {
+            this.bitmap = bitmap;
+            this.cardinality = cardinality;
+        }
+
+        int cardinality() { return cardinality; }
+
+        boolean isEmpty() { return cardinality == 0; }
+
+        boolean contains(char x) {
+            return (bitmap[x >>> 6] & (1L << x)) != 0;
+        }
+
+        Container add(char x) {
+            long w = bitmap[x >>> 6];
+            if ((w & (1L << x)) == 0) {
+                bitmap[x >>> 6] = w | (1L << x);
+                cardinality++;
+            }
+            return this;
+        }
+
+        Container remove(char x) {
+            long w = bitmap[x >>> 6];
+            if ((w & (1L << x)) != 0) {
+                bitmap[x >>> 6] = w & ~(1L << x);
+                if (--cardinality <= DEFAULT_MAX_SIZE)
+                    return toArray();
+            }
+            return this;
+        }
+
+        int rank(char x) {
+            int sum = 0, u = x >>> 6;
+            for (int i = 0; i < u; i++)
+                sum += Long.bitCount(bitmap[i]);
+            return sum + Long.bitCount(bitmap[u] & ((2L << x) - 1));
+        }
+
+        char select(int j) {
+            for (int i = 0; ; i++) {
+                long w = bitmap[i];
+                int bc = Long.bitCount(w);
+                if (j < bc) {
+                    for (; j > 0; j--)
+                        w &= w - 1;
+                    return (char)((i << 6) + Long.numberOfTrailingZeros(w));
+                }
+                j -= bc;
+            }
+        }
+
+        int nextValue(int from) {
+            int u = from >>> 6;
+            long w = bitmap[u] & (-1L << from);
+            while (true) {
+                if (w != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(w);
+                if (++u == bitmap.length)
+                    return -1;
+                w = bitmap[u];
+            }
+        }
+
+        int nextAbsent(int from) {
+            int u = from >>> 6;
+            long w = ~bitmap[u] & (-1L << from);
+            while (true) {
+                if (w != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(w);
+                if (++u == bitmap.length)
+                    return -1;
+                w = ~bitmap[u];
+            }
+        }
+
+        int previousValue(int from) {
+            int u = from >>> 6;
+            long w = bitmap[u] & (-1L >>> -(from + 1));
+            while (true) {
+                if (w != 0)
+                    return (u + 1) * 64 - 1 - Long.numberOfLeadingZeros(w);
+                if (u-- == 0)
+                    return -1;
+                w = bitmap[u];
+            }
+        }
+
+        int last() {
+            return previousValue(0xFFFF);
+        }
+
+        void forEach(int from, IntConsumer action) {
+            int u = from >>> 6;
+            long w = bitmap[u] & (-1L << from);
+            while (true) {
+                while (w != 0) {
+                    action.accept((u << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+                if (++u == bitmap.length)
+                    return;
+                w = bitmap[u];
+            }
+        }
+
+        int numberOfRuns() {
+            int runs = 0;
+            long prev = 0;
+            for (long w : bitmap) {
+                // 每个游程的起始位：已设置且前一位未设置
+                runs += Long.bitCount(w & ~((w << 1) | (prev >>> 63)));
+                prev = w;
+            }
+            return runs;
+        }
+
+        Container runOptimize() {
+            int runs = numberOfRuns();
+            if (2 + 4 * runs >= 8192)
+                return this;
+            char[] vl = new char[2 * runs];
+            int n = 0;
+            for (int v = nextValue(0); v >= 0; ) {
+                int a = nextAbsent(v);
+                int end = (a < 0) ? 0xFFFF : a - 1;
+                vl[2 * n] = (char)v;
+                vl[2 * n + 1] = (char)(end - v);
+                n++;
+                v = (a < 0) ? -1 : nextValue(a);
+            }
+            return new RunContainer(vl, n);
+        }
+
+        int serializedSizeInBytes() {
+            return 8 * bitmap.length;
+        }
+
+        void serialize(DataOutput out) throws IOException {
+            for (long w : bitmap)
+                out.writeLong(Long.reverseBytes(w));
+        }
+
+        static BitmapContainer deserialize(DataInput in) throws IOException {
+            long[] bitmap = new long[1024];
+            int card = 0;
+            for (int i = 0; i < bitmap.length; i++)
+                card += Long.bitCount(bitmap[i] = Long.reverseBytes(in.readLong()));
+            return new BitmapContainer(bitmap, card);
+        }
+
+        BitmapContainer copy() {
+            return new BitmapContainer(bitmap.clone(), cardinality);
+        }
+
+        ArrayContainer toArray() {
+            char[] content = new char[Math.max(cardinality, 4)];
+            int n = 0;
+            for (int u = 0; u < bitmap.length; u++) {
+                for (long w = bitmap[u]; w != 0; w &= w - 1)
+                    content[n++] = (char)((u << 6) + Long.numberOfTrailingZeros(w));
+            }
+            return new ArrayContainer(content, n);
+        }
+
+        /** Returns this container, or an array container if small enough */
+        Container compact() {
+            return (cardinality <= DEFAULT_MAX_SIZE) ? toArray() : this;
+        }
+
+        BitmapContainer addAll(ArrayContainer a) {
+            for (int i = 0; i < a.cardinality; i++)
+                add(a.content[i]);
+            return this;
+        }
+
+        Container flipAll(ArrayContainer a) {
+            for (int i = 0; i < a.cardinality; i++) {
+                char x = a.content[i];
+                long w = bitmap[x >>> 6] ^ (1L << x);
+                bitmap[x >>> 6] = w;
+                cardinality += ((w & (1L << x)) != 0) ? 1 : -1;
+            }
+            return compact();
+        }
+
+        Container removeAll(ArrayContainer a) {
+            for (int i = 0; i < a.cardinality; i++) {
+                char x = a.content[i];
+                long w = bitmap[x >>> 6];
+                if ((w & (1L << x)) != 0) {
+                    bitmap[x >>> 6] = w & ~(1L << x);
+                    cardinality--;
+                }
+            }
+            return compact();
+        }
+
+        Container combine(BitmapContainer b, int op) {
+            long[] out = new long[1024];
+            int card = 0;
+            for (int i = 0; i < out.length; i++) {
+                long x = bitmap[i], y = b.bitmap[i];
+                long w = (op == AND) ? x & y : (op == OR) ? x | y :
+                    (op == XOR) ? x ^ y : x & ~y;
+                card += Long.bitCount(out[i] = w);
+            }
+            return new BitmapContainer(out, card).compact();
+        }
+    }
+
+    /**
+     * Sorted, non-overlapping and non-adjacent runs of values, stored as
+     * pairs of the first value and the length minus one.
+     */
+    static final class RunContainer extends Container {
+        char[] valueslength;
+        int nbrruns;
+
+        RunContainer(char[] valueslength, int nbrruns) {
+            this.valueslength = valueslength;
+            this.nbrruns = nbrruns;
+        }
+
+        int start(int i) { return valueslength[2 * i]; }
+
+        /** Returns the last value of the i-th run */
+        int end(int i) { return valueslength[2 * i] + valueslength[2 * i + 1]; }
+
+        /**
+         * Returns the index of the last run starting at or before x,
+         * or -1.
+         */
+        int runOf(int x) {
+            int lo = 0, hi = nbrruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (start(mid) <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        int cardinality() {
+            int sum = nbrruns;
+            for (int i = 0; i < nbrruns; i++)
+                sum += valueslength[2 * i + 1];
+            return sum;
+        }
+
+        boolean isEmpty() { return nbrruns == 0; }
+
+        boolean contains(char x) {
+            int i = runOf(x);
+            return i >= 0 && x <= end(i);
+        }
+
+        private void insertRun(int i, int start, int length) {
+            if (2 * nbrruns + 2 > valueslength.length)
+                valueslength = Arrays.copyOf(valueslength, Math.max(2 * nbrruns + 2,
+                                                                    valueslength.length * 3 / 2));
+            System.arraycopy(valueslength, 2 * i, valueslength, 2 * i + 2, 2 * (nbrruns - i));
+            valueslength[2 * i] = (char)start;
+            valueslength[2 * i + 1] = (char)length;
+            nbrruns++;
+        }
+
+        private void removeRun(int i) {
+            System.arraycopy(valueslength, 2 * i + 2, valueslength, 2 * i,
+                             2 * (nbrruns - i - 1));
+            nbrruns--;
+        }
+
+        Container add(char x) {
+            int i = runOf(x);
+            if (i >= 0 && x <= end(i))
+                return this;
+            if (i >= 0 && x == end(i) + 1) {
+                valueslength[2 * i + 1]++;
+                if (i + 1 < nbrruns && start(i + 1) == x + 1) {
+                    // 与下一个游程合并
+                    valueslength[2 * i + 1] += valueslength[2 * i + 3] + 1;
+                    removeRun(i + 1);
+                }
+                return this;
+            }
+            if (i + 1 < nbrruns && start(i + 1) == x + 1) {
+                valueslength[2 * i + 2]--;
+                valueslength[2 * i + 3]++;
+                return this;
+            }
+            insertRun(i + 1, x, 0);
+            return runOptimize();
+        }
+
+        Container remove(char x) {
+            int i = runOf(x);
+            if (i < 0 || x > end(i))
+                return this;
+            int s = start(i), e = end(i);
+            if (s == e)
+                removeRun(i);
+            else if (x == s) {
+                valueslength[2 * i]++;
+                valueslength[2 * i + 1]--;
+            } else if (x == e)
+                valueslength[2 * i + 1]--;
+            else {
+                valueslength[2 * i + 1] = (char)(x - 1 - s);
+                insertRun(i + 1, x + 1, e - x - 1);
+                return runOptimize();
+            }
+            return this;
+        }
+
+        int rank(char x) {
+            int sum = 0;
+            for (int i = 0; i < nbrruns && start(i) <= x; i++)
+                sum += Math.min(x, end(i)) - start(i) + 1;
+            return sum;
+        }
+
+        char select(int j) {
+            for (int i = 0; ; i++) {
+                int len = valueslength[2 * i + 1] + 1;
+                if (j < len)
+                    return (char)(start(i) + j);
+                j -= len;
+            }
+        }
+
+        int nextValue(int from) {
+            int i = runOf(from);
+            if (i >= 0 && from <= end(i))
+                return from;
+            return (i + 1 < nbrruns) ? start(i + 1) : -1;
+        }
+
+        int nextAbsent(int from) {
+            int i = runOf(from);
+            if (i < 0 || from > end(i))
+                return from;
+            int v = end(i) + 1;
+            return (v > 0xFFFF) ? -1 : v;
+        }
+
+        int previousValue(int from) {
+            int i = runOf(from);
+            return (i < 0) ? -1 : Math.min(from, end(i));
+        }
+
+        int last() {
+            return end(nbrruns - 1);
+        }
+
+        void forEach(int from, IntConsumer action) {
+            int i = runOf(from);
+            if (i < 0) {
+                i = 0;
+                from = 0;
+            }
+            for (; i < nbrruns; i++)
+                for (int v = Math.max(from, start(i)), e = end(i); v <= e; v++)
+                    action.accept(v);
+        }
+
+        int numberOfRuns() {
+            return nbrruns;
+        }
+
+        /**
+         * Returns this container, or an array or bitmap container if
+         * smaller.
+         */
+        Container runOptimize() {
+            int card = cardinality();
+            int size = 2 + 4 * nbrruns;
+            if (card <= DEFAULT_MAX_SIZE ? size <= 2 * card : size <= 8192)
+                return this;
+            return toArrayOrBitmap();
+        }
+
+        Container toArrayOrBitmap() {
+            int card = cardinality();
+            if (card <= DEFAULT_MAX_SIZE) {
+                char[] content = new char[Math.max(card, 4)];
+                int n = 0;
+                for (int i = 0; i < nbrruns; i++)
+                    for (int v = start(i), e = end(i); v <= e; v++)
+                        content[n++] = (char)v;
+                return new ArrayContainer(content, n);
+            }
+            long[] bitmap = new long[1024];
+            for (int i = 0; i < nbrruns; i++) {
+                int s = start(i), e = end(i) + 1;
+                int su = s >>> 6, eu = (e - 1) >>> 6;
+                long first = -1L << s, last = -1L >>> -e;
+                if (su == eu)
+                    bitmap[su] |= first & last;
+                else {
+                    bitmap[su] |= first;
+                    for (int u = su + 1; u < eu; u++)
+                        bitmap[u] = -1L;
+                    bitmap[eu] |= last;
+                }
+            }
+            return new BitmapContainer(bitmap, card);
+        }
+
+        int serializedSizeInBytes() {
+            return 2 + 4 * nbrruns;
+        }
+
+        void serialize(DataOutput out) throws IOException {
+            out.writeShort(Character.reverseBytes((char)nbrruns));
+            for (int i = 0; i < 2 * nbrruns; i++)
+                out.writeShort(Character.reverseBytes(valueslength[i]));
+        }
+
+        static RunContainer deserialize(DataInput in) throws IOException {
+            int n = Character.reverseBytes(in.readChar());
+            char[] vl = new char[Math.max(2 * n, 2)];
+            int prevEnd = -2;
+            for (int i = 0; i < 2 * n; i += 2) {
+                vl[i] = Character.reverseBytes(in.readChar());
+                vl[i + 1] = Character.reverseBytes(in.readChar());
+                int end = vl[i] + vl[i + 1];
+                if (vl[i] <= prevEnd || end > 0xFFFF)
+                    throw new IOException("Run container out of order");
+                prevEnd = end;
+            }
+            RunContainer c = new RunContainer(vl, n);
+            // 其他实现可能写入相邻的游程，合并之
+            for (int i = n - 1; i > 0; i--) {
+                if (c.start(i) == c.end(i - 1) + 1) {
+                    c.valueslength[2 * i - 1] += c.valueslength[2 * i + 1] + 1;
+                    c.removeRun(i);
+                }
+            }
+            return c;
+        }
+
+        RunContainer copy() {
+            return new RunContainer(Arrays.copyOf(valueslength, Math.max(2 * nbrruns, 2)),
+                                    nbrruns);
+        }
+
+        /**
+         * Combines the runs of a and b by sweeping over their
+         * boundaries, each run i spanning [start(i), end(i) + 1).
+         */
+        static Container sweep(RunContainer a, RunContainer b, int op) {
+            char[] out = new char[Math.max(2 * (a.nbrruns + b.nbrruns), 2)];
+            int n = 0, i = 0, j = 0, runStart = 0;
+            int na = 2 * a.nbrruns, nb = 2 * b.nbrruns;
+            boolean in = false;
+            while (i < na || j < nb) {
+                int x = (i < na) ? a.boundary(i) : Integer.MAX_VALUE;
+                int y = (j < nb) ? b.boundary(j) : Integer.MAX_VALUE;
+                int p = Math.min(x, y);
+                if (x == p)
+                    i++;
+                if (y == p)
+                    j++;
+                // an odd number of boundaries passed means inside a run
+                boolean inA = (i & 1) != 0, inB = (j & 1) != 0;
+                boolean now = (op == AND) ? inA && inB : (op == OR) ? inA || inB :
+                    (op == XOR) ? inA != inB : inA && !inB;
+                if (now != in) {
+                    if (now)
+                        runStart = p;
+                    else {
+                        out[2 * n] = (char)runStart;
+                        out[2 * n + 1] = (char)(p - 1 - runStart);
+                        n++;
+                    }
+                    in = now;
+                }
+            }
+            return new RunContainer(out, n).runOptimize();
+        }
+
+        int boundary(int k) {
+            return ((k & 1) == 0) ? start(k >>> 1) : end(k >>> 1) + 1;
+        }
+    }
+}
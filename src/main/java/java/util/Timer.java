@@ -25,6 +25,11 @@
 
 package java.util;
 import java.util.Date;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -78,6 +83,17 @@ import java.util.concurrent.atomic.AtomicInteger;
  * it uses a binary heap to represent its task queue, so the cost to schedule
  * a task is O(log n), where n is the number of concurrently scheduled tasks.
  *
+ * <p>A timer created with a number of worker threads (see {@link
+ * #Timer(String, boolean, int)}) runs its tasks in a pool of that many
+ * threads instead, so that a slow task only delays other tasks once all
+ * workers are busy, and a repeating task is never run by two threads at
+ * once.  Its tasks are kept in a {@link TimingWheelScheduledExecutor}:
+ * scheduling and cancelling a task take constant time, and a cancelled
+ * task is dropped right away, so {@link #purge} is never needed.  Delays
+ * are measured from the time a task is scheduled with a resolution of
+ * one millisecond, and do not follow later changes of the system clock.
+ * 池化模式：多个工作线程执行任务，时间轮保存任务，取消为O(1)。
+ *
  * <p>Implementation note: All constructors start a timer thread.
  *
  * @author  Josh Bloch
@@ -93,12 +109,24 @@ public class Timer {
      * and the timer thread consumes, executing timer tasks as appropriate,
      * and removing them from the queue when they're obsolete.
      */
-    private final TaskQueue queue = new TaskQueue();
+    private final TaskQueue queue;
 
     /**
      * The timer thread.
      */
-    private final TimerThread thread = new TimerThread(queue);
+    private final TimerThread thread;
+
+    /**
+     * The executor running the tasks of a pooled timer, in place of the
+     * queue and the timer thread, which are then null.  Its threads do
+     * not reference the Timer, but its pending tasks do.
+     */
+    private final TimingWheelScheduledExecutor executor;
+
+    /**
+     * Set by cancel on a pooled timer.
+     */
+    private volatile boolean cancelled;
 
     /**
      * This object causes the timer's task execution thread to exit
@@ -109,6 +137,11 @@ public class Timer {
      */
     private final Object threadReaper = new Object() {
         protected void finalize() throws Throwable {
+            if (executor != null) {
+                // 没有待执行的任务引用本Timer，线程池可以关闭
+                executor.shutdown();
+                return;
+            }
             synchronized(queue) {
                 thread.newTasksMayBeScheduled = false;
                 queue.notify(); // In case queue is empty.
@@ -156,6 +189,9 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name) {
+        queue = new TaskQueue();
+        thread = new TimerThread(queue);
+        executor = null;
         thread.setName(name);
         thread.start();
     }
@@ -171,11 +207,42 @@ public class Timer {
      * @since 1.5
      */
     public Timer(String name, boolean isDaemon) {
+        queue = new TaskQueue();
+        thread = new TimerThread(queue);
+        executor = null;
         thread.setName(name);
         thread.setDaemon(isDaemon);
         thread.start();
     }
 
+    /**
+     * Creates a new timer that runs its tasks in a pool of worker threads,
+     * all of which may be specified to
+     * {@linkplain Thread#setDaemon run as a daemon}.  The timer thread has
+     * the specified name, and the workers that name followed by
+     * {@code "-worker-"} and a number.  Workers are started as tasks
+     * become due, up to {@code workerThreads}.  As with a single timer
+     * thread, a task that throws an exception cancels the timer; the
+     * exception is passed to the uncaught exception handler of the
+     * worker that ran the task.
+     *
+     * @param name the name of the associated thread
+     * @param isDaemon true if the associated threads should run as daemons
+     * @param workerThreads the number of threads running the tasks
+     * @throws IllegalArgumentException if {@code workerThreads <= 0}
+     * @throws NullPointerException if {@code name} is null
+     */
+    public Timer(String name, boolean isDaemon, int workerThreads) {
+        if (name == null)
+            throw new NullPointerException();
+        queue = null;
+        thread = null;
+        executor = new TimingWheelScheduledExecutor(
+            workerThreads, 1L, TimeUnit.MILLISECONDS,
+            new PoolThreadFactory(name, isDaemon));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
     /**
      * Schedules the specified task for execution after the specified delay.
      *
@@ -392,6 +459,11 @@ public class Timer {
         if (Math.abs(period) > (Long.MAX_VALUE >> 1))
             period >>= 1;
 
+        if (executor != null) {
+            schedPooled(task, time, period);
+            return;
+        }
+
         synchronized(queue) {
             if (!thread.newTasksMayBeScheduled)
                 throw new IllegalStateException("Timer already cancelled.");
@@ -411,6 +483,121 @@ public class Timer {
         }
     }
 
+    /**
+     * Schedules task on the executor of a pooled timer.  Each execution
+     * is a one-shot task of the executor, scheduled when the previous
+     * execution has completed, so that the task never runs concurrently
+     * with itself.  A timer cancelled concurrently may make the executor
+     * cancel the execution rather than reject it, so the returned future
+     * is checked as well.
+     */
+    private void schedPooled(TimerTask task, long time, long period) {
+        if (cancelled)
+            throw new IllegalStateException("Timer already cancelled.");
+
+        synchronized(task.lock) {
+            if (task.state != TimerTask.VIRGIN)
+                throw new IllegalStateException(
+                    "Task already scheduled or cancelled");
+            task.nextExecutionTime = time;
+            task.period = period;
+            task.state = TimerTask.SCHEDULED;
+            Future<?> f;
+            try {
+                f = executor.schedule(
+                    new PooledExecution(task),
+                    time - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                f = null;
+            }
+            // 与关闭竞争时执行器会直接取消任务而不抛出异常
+            if (f == null || f.isCancelled() || cancelled) {
+                if (f != null)
+                    f.cancel(false);
+                task.state = TimerTask.VIRGIN;
+                throw new IllegalStateException("Timer already cancelled.");
+            }
+            task.future = f;
+        }
+    }
+
+    /**
+     * An execution of a task on a pooled timer, doing what the timer
+     * thread does for a task that fires.  It references the Timer, so
+     * that the timer stays reachable while it has pending tasks.
+     */
+    private final class PooledExecution implements Runnable {
+        private final TimerTask task;
+
+        PooledExecution(TimerTask task) {
+            this.task = task;
+        }
+
+        public void run() {
+            final TimerTask task = this.task;
+            synchronized(task.lock) {
+                if (task.state != TimerTask.SCHEDULED || cancelled)
+                    return;  // Lost a race with cancel
+                long currentTime = System.currentTimeMillis();
+                long executionTime = task.nextExecutionTime;
+                if (task.period == 0) { // Non-repeating
+                    task.state = TimerTask.EXECUTED;
+                    task.future = null;
+                } else { // Repeating task, reschedule after this execution
+                    task.nextExecutionTime =
+                        task.period<0 ? currentTime   - task.period
+                                      : executionTime + task.period;
+                }
+            }
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                // 与单线程模式一致：任务抛出异常时取消整个Timer，并报告该异常
+                cancel();
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+                return;
+            }
+            if (task.period != 0) {
+                synchronized(task.lock) {
+                    if (task.state != TimerTask.SCHEDULED || cancelled)
+                        return;
+                    try {
+                        task.future = executor.schedule(
+                            this,
+                            task.nextExecutionTime - System.currentTimeMillis(),
+                            TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // Timer cancelled meanwhile
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the threads of a pooled timer.  It must not reference the
+     * Timer, or the timer would never become unreachable.
+     */
+    private static final class PoolThreadFactory implements ThreadFactory {
+        private final String name;
+        private final boolean isDaemon;
+        private final AtomicInteger count = new AtomicInteger();
+
+        PoolThreadFactory(String name, boolean isDaemon) {
+            this.name = name;
+            this.isDaemon = isDaemon;
+        }
+
+        public Thread newThread(Runnable r) {
+            // 第一个线程是时间轮线程
+            int n = count.getAndIncrement();
+            Thread t = new Thread(r, (n == 0) ? name : name + "-worker-" + n);
+            t.setDaemon(isDaemon);
+            return t;
+        }
+    }
+
     /**
      * Terminates this timer, discarding any currently scheduled tasks.
      * Does not interfere with a currently executing task (if it exists).
@@ -426,6 +613,11 @@ public class Timer {
      * calls have no effect.
      */
     public void cancel() {
+        if (executor != null) {
+            cancelled = true;
+            executor.shutdown();
+            return;
+        }
         synchronized(queue) {
             thread.newTasksMayBeScheduled = false;
             queue.clear();
@@ -450,11 +642,16 @@ public class Timer {
      * <p>Note that it is permissible to call this method from within a
      * a task scheduled on this timer.
      *
+     * <p>A pooled timer drops cancelled tasks as they are cancelled, so
+     * that this method has nothing to do and returns zero.
+     *
      * @return the number of tasks removed from the queue.
      * @since 1.5
      */
      public int purge() {
          int result = 0;
+         if (executor != null)
+             return result;
 
          synchronized(queue) {
              for (int i = queue.size(); i > 0; i--) {
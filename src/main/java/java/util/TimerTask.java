@@ -25,6 +25,8 @@
 
 package java.util;
 
+import java.util.concurrent.Future;
+
 /**
  * A task that can be scheduled for one-time or repeated execution by a Timer.
  *
@@ -80,6 +82,12 @@ public abstract class TimerTask implements Runnable {
      */
     long period = 0;
 
+    /**
+     * The pending execution of this task on a pooled timer, cancelled
+     * along with the task so that it leaves the timer at once.
+     */
+    Future<?> future;
+
     /**
      * Creates a new timer task.
      */
@@ -117,6 +125,10 @@ public abstract class TimerTask implements Runnable {
         synchronized(lock) {
             boolean result = (state == SCHEDULED);
             state = CANCELLED;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
             return result;
         }
     }
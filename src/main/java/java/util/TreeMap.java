@@ -1186,6 +1186,77 @@ public class TreeMap<K,V>
         }
     }
 
+    /**
+     * Returns a new {@link MapCursor} over the mappings of this map, in
+     * ascending key order.  The cursor allocates nothing while
+     * traversing, and can be {@linkplain MapCursor#reset() reset} and
+     * reused for any number of traversals.  It supports
+     * {@link MapCursor#remove}.
+     *
+     * @return a new cursor over the mappings of this map
+     */
+    public MapCursor<K,V> cursor() {
+        return new EntryCursor();
+    }
+
+    final class EntryCursor implements MapCursor<K,V> {
+        Entry<K,V> next;
+        Entry<K,V> current;
+        int expectedModCount;
+
+        EntryCursor() {
+            reset();
+        }
+
+        public void reset() {
+            expectedModCount = modCount;
+            current = null;
+            next = getFirstEntry();
+        }
+
+        public boolean advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Entry<K,V> e = next;
+            if ((current = e) == null)
+                return false;
+            next = successor(e);
+            return true;
+        }
+
+        private Entry<K,V> current() {
+            Entry<K,V> e = current;
+            if (e == null)
+                throw new IllegalStateException();
+            return e;
+        }
+
+        public K getKey() {
+            return current().key;
+        }
+
+        public V getValue() {
+            return current().value;
+        }
+
+        public V setValue(V value) {
+            return current().setValue(value);
+        }
+
+        public void remove() {
+            if (current == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            // deleted entries are replaced by their successors
+            if (current.left != null && current.right != null)
+                next = current;
+            deleteEntry(current);
+            expectedModCount = modCount;
+            current = null;
+        }
+    }
+
     // Little utilities
 
     /**
@@ -0,0 +1,1484 @@
+package java.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Unrolled doubly-linked list implementation of the {@code List} and
+ * {@code Deque} interfaces.  Implements all optional list operations, and
+ * permits all elements (including {@code null}).
+ * List和Deque接口的展开双向链表实现，每个结点存储一个小数组。
+ *
+ * <p>Where a {@link LinkedList} allocates one node per element, this list
+ * links nodes holding a small array of up to {@code nodeCapacity}
+ * consecutive elements (32 by default).  The per-element overhead is that
+ * of one array slot instead of a whole node, and a traversal reads the
+ * elements of a node from one array instead of following one pointer per
+ * element.  Each node keeps its elements in a contiguous range of its
+ * array, so that the deque operations at either end only move a range
+ * boundary, and a new node is linked only once every
+ * {@code nodeCapacity} additions.  Inserting into a full node splits it in
+ * two, and a node made sparse by removals absorbs its successor when both
+ * fit in half a node.
+ *
+ * <p>The deque operations and the {@code add}, {@code set} and
+ * {@code remove} operations of the list iterators take amortized
+ * constant time, plus the time to move at most {@code nodeCapacity}
+ * elements inside a node.  Operations that index into the list skip whole
+ * nodes from the beginning, the end or the position of the previous
+ * indexed access, whichever is closest, so that visiting the indices in
+ * sequence takes constant time per index.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access an unrolled linked list concurrently, and at
+ * least one of the threads modifies the list structurally, it <i>must</i>
+ * be synchronized externally.  (A structural modification is any operation
+ * that adds or deletes one or more elements; merely setting the value of
+ * an element is not a structural modification.)
+ *
+ * <p>The iterators returned by this class's {@code iterator} and
+ * {@code listIterator} methods, and its spliterator, are <i>fail-fast</i>
+ * in the same way as those of {@link LinkedList}: if the list is
+ * structurally modified at any time after the iterator is created, in
+ * any way except through the Iterator's own {@code remove} or
+ * {@code add} methods, the iterator will throw a {@link
+ * ConcurrentModificationException} on a best-effort basis.
+ *
+ * @see     LinkedList
+ * @see     ArrayDeque
+ * @param <E> the type of elements held in this collection
+ */
+public class UnrolledLinkedList<E>
+    extends AbstractSequentialList<E>
+    implements List<E>, Deque<E>, Cloneable, java.io.Serializable
+{
+    /**
+     * The default number of elements held by a node.
+     */
+    private static final int DEFAULT_NODE_CAPACITY = 32;
+
+    /**
+     * The number of elements held by a full node.
+     * 结点数组的容量
+     * @serial
+     */
+    private final int nodeCapacity;
+
+    /**
+     * 链表元素的数量
+     */
+    transient int size = 0;
+
+    /**
+     * Pointer to first node.
+     * Invariant: (first == null && last == null) ||
+     *            (first.prev == null && first holds at least one element)
+     * 指向第一个结点的指针
+     */
+    transient Node<E> first;
+
+    /**
+     * Pointer to last node.
+     * Invariant: (first == null && last == null) ||
+     *            (last.next == null && last holds at least one element)
+     * 指向最后一个结点的指针
+     */
+    transient Node<E> last;
+
+    /**
+     * The node found by the last indexed access, and the index of its
+     * first element; valid while fingerModCount equals modCount.
+     * 最近一次按索引访问的结点(游标)
+     */
+    private transient Node<E> finger;
+    private transient int fingerBase;
+    private transient int fingerModCount;
+
+    /**
+     * Constructs an empty list with the default node capacity (32).
+     */
+    public UnrolledLinkedList() {
+        this.nodeCapacity = DEFAULT_NODE_CAPACITY;
+    }
+
+    /**
+     * Constructs an empty list whose nodes hold up to the specified number
+     * of elements.
+     *
+     * @param  nodeCapacity the number of elements held by a full node
+     * @throws IllegalArgumentException if {@code nodeCapacity} is less
+     *         than 2
+     */
+    public UnrolledLinkedList(int nodeCapacity) {
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " +
+                                               nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param  c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public UnrolledLinkedList(Collection<? extends E> c) {
+        this();
+        addAll(c);
+    }
+
+    /**
+     * A node of the list: its elements are items[start] .. items[end - 1].
+     * 展开链表的结点
+     */
+    private static final class Node<E> {
+        final Object[] items;
+        int start;
+        int end;
+        Node<E> prev;
+        Node<E> next;
+
+        Node(Node<E> prev, int capacity, Node<E> next) {
+            this.items = new Object[capacity];
+            this.prev = prev;
+            this.next = next;
+        }
+
+        int count() {
+            return end - start;
+        }
+
+        @SuppressWarnings("unchecked")
+        E get(int k) {
+            return (E) items[start + k];
+        }
+
+        /**
+         * Inserts e before the k-th element of this non-full node,
+         * moving the shorter side that has room.
+         */
+        void insert(int k, Object e) {
+            Object[] a = items;
+            int n = end - start;
+            if (end < a.length && (start == 0 || n - k <= k)) {
+                int p = start + k;
+                System.arraycopy(a, p, a, p + 1, n - k);
+                a[p] = e;
+                end++;
+            } else if (start > 0) {
+                System.arraycopy(a, start, a, start - 1, k);
+                start--;
+                a[start + k] = e;
+            } else {
+                throw new AssertionError();
+            }
+        }
+
+        /**
+         * Removes and returns the k-th element, moving the shorter side.
+         */
+        @SuppressWarnings("unchecked")
+        E remove(int k) {
+            Object[] a = items;
+            int p = start + k;
+            E e = (E) a[p];
+            if (k < ((end - start) >>> 1)) {
+                System.arraycopy(a, start, a, start + 1, k);
+                a[start++] = null;
+            } else {
+                System.arraycopy(a, p + 1, a, p, end - p - 1);
+                a[--end] = null;
+            }
+            return e;
+        }
+
+        /**
+         * Moves the elements to the beginning of the array.
+         */
+        void compact() {
+            int n = end - start;
+            if (start > 0) {
+                System.arraycopy(items, start, items, 0, n);
+                Arrays.fill(items, Math.max(n, start), end, null);
+                start = 0;
+                end = n;
+            }
+        }
+    }
+
+    /**
+     * Links e as first element.
+     * 将e链接为第一个元素。
+     */
+    private void linkFirst(E e) {
+        final Node<E> f = first;
+        if (f != null && f.count() < nodeCapacity) {
+            if (f.start == 0) {
+                // 把元素移到数组末尾，为头部腾出空间
+                int n = f.end;
+                int s = nodeCapacity - n;
+                System.arraycopy(f.items, 0, f.items, s, n);
+                Arrays.fill(f.items, 0, Math.min(s, n), null);
+                f.start = s;
+                f.end = nodeCapacity;
+            }
+            f.items[--f.start] = e;
+        } else {
+            final Node<E> newNode = new Node<>(null, nodeCapacity, f);
+            newNode.start = nodeCapacity - 1;
+            newNode.end = nodeCapacity;
+            newNode.items[newNode.start] = e;
+            first = newNode;
+            if (f == null)
+                last = newNode;
+            else
+                f.prev = newNode;
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Links e as last element.
+     * 将e链接为最后一个元素。
+     */
+    void linkLast(E e) {
+        final Node<E> l = last;
+        if (l != null && l.count() < nodeCapacity) {
+            if (l.end == nodeCapacity)
+                l.compact();
+            l.items[l.end++] = e;
+        } else {
+            final Node<E> newNode = new Node<>(l, nodeCapacity, null);
+            newNode.items[0] = e;
+            newNode.end = 1;
+            last = newNode;
+            if (l == null)
+                first = newNode;
+            else
+                l.next = newNode;
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts e before the k-th element of non-null node x, or after its
+     * last element if k is the count of x, and returns the node in which
+     * e was stored: x, its predecessor or its successor.
+     * 在结点x的第k个元素之前插入e，返回e所在的结点。
+     */
+    private Node<E> insert(Node<E> x, int k, E e) {
+        // assert x != null && 0 <= k && k <= x.count();
+        int n = x.count();
+        if (k == n && x == last) {
+            linkLast(e);
+            return last;
+        }
+        if (k == 0 && x == first) {
+            linkFirst(e);
+            return first;
+        }
+        Node<E> target;
+        if (n < nodeCapacity) {
+            x.insert(k, e);
+            target = x;
+        } else if (k == 0 && x.prev.count() < nodeCapacity) {
+            target = x.prev;
+            target.insert(target.count(), e);
+        } else if (k == n && x.next.count() < nodeCapacity) {
+            target = x.next;
+            target.insert(0, e);
+        } else if (k == 0 || k == n) {
+            // 在x之前或之后链接只有一个元素的新结点
+            Node<E> pred = (k == 0) ? x.prev : x;
+            Node<E> succ = pred.next;
+            target = new Node<>(pred, nodeCapacity, succ);
+            int p = (k == 0) ? nodeCapacity - 1 : 0;
+            target.items[p] = e;
+            target.start = p;
+            target.end = p + 1;
+            pred.next = target;
+            succ.prev = target;
+        } else {
+            // 拆分已满的结点：后一半元素移到新的后继结点
+            Node<E> succ = x.next;
+            Node<E> y = new Node<>(x, nodeCapacity, succ);
+            int mid = n >>> 1;
+            int from = x.start + mid;
+            System.arraycopy(x.items, from, y.items, 0, n - mid);
+            Arrays.fill(x.items, from, x.end, null);
+            y.end = n - mid;
+            x.end = from;
+            x.next = y;
+            if (succ == null)
+                last = y;
+            else
+                succ.prev = y;
+            if (k <= mid) {
+                x.insert(k, e);
+                target = x;
+            } else {
+                y.insert(k - mid, e);
+                target = y;
+            }
+        }
+        size++;
+        modCount++;
+        return target;
+    }
+
+    /**
+     * Unlinks the empty node x.
+     */
+    private void unlinkNode(Node<E> x) {
+        final Node<E> next = x.next;
+        final Node<E> prev = x.prev;
+
+        if (prev == null) {
+            first = next;
+        } else {
+            prev.next = next;
+            x.prev = null;
+        }
+
+        if (next == null) {
+            last = prev;
+        } else {
+            next.prev = prev;
+            x.next = null;
+        }
+    }
+
+    /**
+     * Removes the k-th element of non-null node x.  The node is unlinked
+     * if it is left empty, or absorbs its successor if both fit in half a
+     * node; the elements of x keep their positions in x either way.
+     * 删除结点x的第k个元素。
+     */
+    private E remove(Node<E> x, int k) {
+        // assert x != null && 0 <= k && k < x.count();
+        final E element = x.remove(k);
+        int n = x.count();
+        Node<E> succ;
+        if (n == 0) {
+            unlinkNode(x);
+        } else if ((succ = x.next) != null &&
+                   n + succ.count() <= (nodeCapacity >>> 1)) {
+            // 合并稀疏的相邻结点
+            if (x.end + succ.count() > nodeCapacity)
+                x.compact();
+            System.arraycopy(succ.items, succ.start, x.items, x.end, succ.count());
+            x.end += succ.count();
+            Arrays.fill(succ.items, succ.start, succ.end, null);
+            succ.start = succ.end = 0;
+            unlinkNode(succ);
+        }
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Unlinks the first element of non-null node f, the first node.
+     */
+    private E unlinkFirst(Node<E> f) {
+        // assert f == first && f != null;
+        @SuppressWarnings("unchecked")
+        final E element = (E) f.items[f.start];
+        f.items[f.start++] = null; // help GC
+        if (f.start == f.end)
+            unlinkNode(f);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Unlinks the last element of non-null node l, the last node.
+     */
+    private E unlinkLast(Node<E> l) {
+        // assert l == last && l != null;
+        @SuppressWarnings("unchecked")
+        final E element = (E) l.items[--l.end];
+        l.items[l.end] = null; // help GC
+        if (l.start == l.end)
+            unlinkNode(l);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Returns the first element in this list.
+     *
+     * @return the first element in this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E getFirst() {
+        final Node<E> f = first;
+        if (f == null)
+            throw new NoSuchElementException();
+        return f.get(0);
+    }
+
+    /**
+     * Returns the last element in this list.
+     *
+     * @return the last element in this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E getLast() {
+        final Node<E> l = last;
+        if (l == null)
+            throw new NoSuchElementException();
+        return l.get(l.count() - 1);
+    }
+
+    /**
+     * Removes and returns the first element from this list.
+     *
+     * @return the first element from this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E removeFirst() {
+        final Node<E> f = first;
+        if (f == null)
+            throw new NoSuchElementException();
+        return unlinkFirst(f);
+    }
+
+    /**
+     * Removes and returns the last element from this list.
+     *
+     * @return the last element from this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E removeLast() {
+        final Node<E> l = last;
+        if (l == null)
+            throw new NoSuchElementException();
+        return unlinkLast(l);
+    }
+
+    /**
+     * Inserts the specified element at the beginning of this list.
+     *
+     * @param e the element to add
+     */
+    public void addFirst(E e) {
+        linkFirst(e);
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * <p>This method is equivalent to {@link #add}.
+     *
+     * @param e the element to add
+     */
+    public void addLast(E e) {
+        linkLast(e);
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * <p>This method is equivalent to {@link #addLast}.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        linkLast(e);
+        return true;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If this list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        for (Node<E> x = first; x != null; x = x.next) {
+            Object[] a = x.items;
+            for (int i = x.start; i < x.end; i++) {
+                if (o == null ? a[i] == null : o.equals(a[i])) {
+                    remove(x, i - x.start);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the specified
+     * collection's iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements will appear
+     * in the list in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param index index at which to insert the first element
+     *              from the specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        checkPositionIndex(index);
+
+        Object[] a = c.toArray();
+        int numNew = a.length;
+        if (numNew == 0)
+            return false;
+
+        if (index == size) {
+            for (Object o : a) {
+                @SuppressWarnings("unchecked") E e = (E) o;
+                linkLast(e);
+            }
+        } else {
+            ListItr it = new ListItr(index);
+            for (Object o : a) {
+                @SuppressWarnings("unchecked") E e = (E) o;
+                it.add(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        // Clearing all of the links between nodes is "unnecessary", but:
+        // - helps a generational GC if the discarded nodes inhabit
+        //   more than one generation
+        // - is sure to free memory even if there is a reachable Iterator
+        for (Node<E> x = first; x != null; ) {
+            Node<E> next = x.next;
+            Arrays.fill(x.items, x.start, x.end, null);
+            x.start = x.end = 0;
+            x.next = null;
+            x.prev = null;
+            x = next;
+        }
+        first = last = null;
+        finger = null;
+        size = 0;
+        modCount++;
+    }
+
+
+    // Positional Access Operations
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        checkElementIndex(index);
+        Node<E> x = node(index);
+        return x.get(index - fingerBase);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        Node<E> x = node(index);
+        int p = x.start + index - fingerBase;
+        @SuppressWarnings("unchecked")
+        E oldVal = (E) x.items[p];
+        x.items[p] = element;
+        return oldVal;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this list.
+     * Shifts the element currently at that position (if any) and any
+     * subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+
+        if (index == size)
+            linkLast(element);
+        else {
+            Node<E> x = node(index);
+            insert(x, index - fingerBase, element);
+        }
+    }
+
+    /**
+     * Removes the element at the specified position in this list.  Shifts any
+     * subsequent elements to the left (subtracts one from their indices).
+     * Returns the element that was removed from the list.
+     *
+     * @param index the index of the element to be removed
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        checkElementIndex(index);
+        Node<E> x = node(index);
+        return remove(x, index - fingerBase);
+    }
+
+    /**
+     * Tells if the argument is the index of an existing element.
+     */
+    private boolean isElementIndex(int index) {
+        return index >= 0 && index < size;
+    }
+
+    /**
+     * Tells if the argument is the index of a valid position for an
+     * iterator or an add operation.
+     */
+    private boolean isPositionIndex(int index) {
+        return index >= 0 && index <= size;
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    private void checkElementIndex(int index) {
+        if (!isElementIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void checkPositionIndex(int index) {
+        if (!isPositionIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * Returns the node holding the element at the specified element index,
+     * and leaves it in finger, with the index of its first element in
+     * fingerBase.  The walk starts from the first node, the last node or
+     * the finger, whichever is closest.
+     * 返回指定元素索引处的结点，并记录为游标。
+     */
+    Node<E> node(int index) {
+        // assert isElementIndex(index);
+        Node<E> x;
+        int base;
+        if (index < (size >> 1)) {
+            x = first;
+            base = 0;
+        } else {
+            x = last;
+            base = size - x.count();
+        }
+        Node<E> f = finger;
+        if (f != null && fingerModCount == modCount &&
+            Math.abs(index - fingerBase) < Math.abs(index - base)) {
+            x = f;
+            base = fingerBase;
+        }
+        while (index >= base + x.count()) {
+            base += x.count();
+            x = x.next;
+        }
+        while (index < base) {
+            x = x.prev;
+            base -= x.count();
+        }
+        finger = x;
+        fingerBase = base;
+        fingerModCount = modCount;
+        return x;
+    }
+
+    // Search Operations
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     * More formally, returns the lowest index {@code i} such that
+     * <tt>(o==null&nbsp;?&nbsp;get(i)==null&nbsp;:&nbsp;o.equals(get(i)))</tt>,
+     * or -1 if there is no such index.
+     *
+     * @param o element to search for
+     * @return the index of the first occurrence of the specified element in
+     *         this list, or -1 if this list does not contain the element
+     */
+    public int indexOf(Object o) {
+        int base = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            Object[] a = x.items;
+            if (o == null) {
+                for (int i = x.start; i < x.end; i++)
+                    if (a[i] == null)
+                        return base + i - x.start;
+            } else {
+                for (int i = x.start; i < x.end; i++)
+                    if (o.equals(a[i]))
+                        return base + i - x.start;
+            }
+            base += x.count();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     * More formally, returns the highest index {@code i} such that
+     * <tt>(o==null&nbsp;?&nbsp;get(i)==null&nbsp;:&nbsp;o.equals(get(i)))</tt>,
+     * or -1 if there is no such index.
+     *
+     * @param o element to search for
+     * @return the index of the last occurrence of the specified element in
+     *         this list, or -1 if this list does not contain the element
+     */
+    public int lastIndexOf(Object o) {
+        int base = size;
+        for (Node<E> x = last; x != null; x = x.prev) {
+            base -= x.count();
+            Object[] a = x.items;
+            if (o == null) {
+                for (int i = x.end - 1; i >= x.start; i--)
+                    if (a[i] == null)
+                        return base + i - x.start;
+            } else {
+                for (int i = x.end - 1; i >= x.start; i--)
+                    if (o.equals(a[i]))
+                        return base + i - x.start;
+            }
+        }
+        return -1;
+    }
+
+    // Queue operations.
+    // 队列操作
+
+    /**
+     * Retrieves, but does not remove, the head (first element) of this list.
+     *
+     * @return the head of this list, or {@code null} if this list is empty
+     */
+    public E peek() {
+        final Node<E> f = first;
+        return (f == null) ? null : f.get(0);
+    }
+
+    /**
+     * Retrieves, but does not remove, the head (first element) of this list.
+     *
+     * @return the head of this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E element() {
+        return getFirst();
+    }
+
+    /**
+     * Retrieves and removes the head (first element) of this list.
+     *
+     * @return the head of this list, or {@code null} if this list is empty
+     */
+    public E poll() {
+        final Node<E> f = first;
+        return (f == null) ? null : unlinkFirst(f);
+    }
+
+    /**
+     * Retrieves and removes the head (first element) of this list.
+     *
+     * @return the head of this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E remove() {
+        return removeFirst();
+    }
+
+    /**
+     * Adds the specified element as the tail (last element) of this list.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Queue#offer})
+     */
+    public boolean offer(E e) {
+        return add(e);
+    }
+
+    // Deque operations
+    // 双端队列操作
+
+    /**
+     * Inserts the specified element at the front of this list.
+     *
+     * @param e the element to insert
+     * @return {@code true} (as specified by {@link Deque#offerFirst})
+     */
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the end of this list.
+     *
+     * @param e the element to insert
+     * @return {@code true} (as specified by {@link Deque#offerLast})
+     */
+    public boolean offerLast(E e) {
+        addLast(e);
+        return true;
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this list,
+     * or returns {@code null} if this list is empty.
+     *
+     * @return the first element of this list, or {@code null}
+     *         if this list is empty
+     */
+    public E peekFirst() {
+        final Node<E> f = first;
+        return (f == null) ? null : f.get(0);
+    }
+
+    /**
+     * Retrieves, but does not remove, the last element of this list,
+     * or returns {@code null} if this list is empty.
+     *
+     * @return the last element of this list, or {@code null}
+     *         if this list is empty
+     */
+    public E peekLast() {
+        final Node<E> l = last;
+        return (l == null) ? null : l.get(l.count() - 1);
+    }
+
+    /**
+     * Retrieves and removes the first element of this list,
+     * or returns {@code null} if this list is empty.
+     *
+     * @return the first element of this list, or {@code null} if
+     *     this list is empty
+     */
+    public E pollFirst() {
+        final Node<E> f = first;
+        return (f == null) ? null : unlinkFirst(f);
+    }
+
+    /**
+     * Retrieves and removes the last element of this list,
+     * or returns {@code null} if this list is empty.
+     *
+     * @return the last element of this list, or {@code null} if
+     *     this list is empty
+     */
+    public E pollLast() {
+        final Node<E> l = last;
+        return (l == null) ? null : unlinkLast(l);
+    }
+
+    /**
+     * Pushes an element onto the stack represented by this list.  In other
+     * words, inserts the element at the front of this list.
+     *
+     * <p>This method is equivalent to {@link #addFirst}.
+     *
+     * @param e the element to push
+     */
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    /**
+     * Pops an element from the stack represented by this list.  In other
+     * words, removes and returns the first element of this list.
+     *
+     * <p>This method is equivalent to {@link #removeFirst()}.
+     *
+     * @return the element at the front of this list (which is the top
+     *         of the stack represented by this list)
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E pop() {
+        return removeFirst();
+    }
+
+    /**
+     * Removes the first occurrence of the specified element in this
+     * list (when traversing the list from head to tail).  If the list
+     * does not contain the element, it is unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if the list contained the specified element
+     */
+    public boolean removeFirstOccurrence(Object o) {
+        return remove(o);
+    }
+
+    /**
+     * Removes the last occurrence of the specified element in this
+     * list (when traversing the list from head to tail).  If the list
+     * does not contain the element, it is unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if the list contained the specified element
+     */
+    public boolean removeLastOccurrence(Object o) {
+        for (Node<E> x = last; x != null; x = x.prev) {
+            Object[] a = x.items;
+            for (int i = x.end - 1; i >= x.start; i--) {
+                if (o == null ? a[i] == null : o.equals(a[i])) {
+                    remove(x, i - x.start);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a list-iterator of the elements in this list (in proper
+     * sequence), starting at the specified position in the list.
+     * Obeys the general contract of {@code List.listIterator(int)}.<p>
+     *
+     * The list-iterator is <i>fail-fast</i>: if the list is structurally
+     * modified at any time after the Iterator is created, in any way except
+     * through the list-iterator's own {@code remove} or {@code add}
+     * methods, the list-iterator will throw a
+     * {@code ConcurrentModificationException}.
+     *
+     * @param index index of the first element to be returned from the
+     *              list-iterator (by a call to {@code next})
+     * @return a ListIterator of the elements in this list (in proper
+     *         sequence), starting at the specified position in the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @see List#listIterator(int)
+     */
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        checkPositionIndex(index);
+        return new ListItr(index);
+    }
+
+    /**
+     * The cursor of the iterator is a position in a node: before its k-th
+     * element, or after its last element when k is its count, so that the
+     * node of the last returned element is always at hand.  The node is
+     * null only when the list is empty.
+     */
+    private class ListItr implements ListIterator<E> {
+        /**
+         * 游标所在的结点及结点内的位置
+         */
+        private Node<E> node;
+        private int k;
+        /**
+         * 最后返回的元素所在的结点及结点内的位置
+         */
+        private Node<E> lastNode;
+        private int lastK;
+        /**
+         * 最后返回的元素是否由next返回
+         */
+        private boolean lastForward;
+        /**
+         * 下一个元素的索引
+         */
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            // assert isPositionIndex(index);
+            if (index == size) {
+                node = last;
+                k = (node == null) ? 0 : node.count();
+            } else {
+                node = node(index);
+                k = index - fingerBase;
+            }
+            nextIndex = index;
+        }
+
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            if (k == node.count()) {
+                node = node.next;
+                k = 0;
+            }
+            lastNode = node;
+            lastK = k;
+            lastForward = true;
+            nextIndex++;
+            return node.get(k++);
+        }
+
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+
+            if (k == 0) {
+                node = node.prev;
+                k = node.count();
+            }
+            lastNode = node;
+            lastK = --k;
+            lastForward = false;
+            nextIndex--;
+            return node.get(k);
+        }
+
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        public void remove() {
+            checkForComodification();
+            if (lastNode == null)
+                throw new IllegalStateException();
+
+            Node<E> x = lastNode;
+            Node<E> succ = x.next;
+            Node<E> pred = x.prev;
+            UnrolledLinkedList.this.remove(x, lastK);
+            if (x.count() > 0) {
+                node = x;
+                k = lastK;
+            } else if (succ != null) {
+                node = succ;
+                k = 0;
+            } else {
+                node = pred;
+                k = (pred == null) ? 0 : pred.count();
+            }
+            if (lastForward)
+                nextIndex--;
+            lastNode = null;
+            expectedModCount++;
+        }
+
+        public void set(E e) {
+            if (lastNode == null)
+                throw new IllegalStateException();
+            checkForComodification();
+            lastNode.items[lastNode.start + lastK] = e;
+        }
+
+        public void add(E e) {
+            checkForComodification();
+            lastNode = null;
+            Node<E> x = node;
+            if (x == null) {
+                linkLast(e);
+                node = last;
+                k = 1;
+            } else {
+                Node<E> target = insert(x, k, e);
+                int i;
+                if (target == x)
+                    i = k;
+                else if (target == x.next)
+                    i = k - x.count();
+                else
+                    i = target.count() - 1;
+                node = target;
+                k = i + 1;
+            }
+            nextIndex++;
+            expectedModCount++;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (modCount == expectedModCount && nextIndex < size) {
+                if (k == node.count()) {
+                    node = node.next;
+                    k = 0;
+                }
+                lastNode = node;
+                lastK = k;
+                lastForward = true;
+                nextIndex++;
+                action.accept(node.get(k++));
+            }
+            checkForComodification();
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this deque in reverse
+     * sequential order.  The elements will be returned in order from
+     * last (tail) to first (head).
+     *
+     * @return an iterator over the elements in this deque in reverse
+     *         sequence
+     */
+    public Iterator<E> descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    /**
+     * Adapter to provide descending iterators via ListItr.previous
+     */
+    private class DescendingIterator implements Iterator<E> {
+        private final ListItr itr = new ListItr(size());
+        public boolean hasNext() {
+            return itr.hasPrevious();
+        }
+        public E next() {
+            return itr.previous();
+        }
+        public void remove() {
+            itr.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private UnrolledLinkedList<E> superClone() {
+        try {
+            return (UnrolledLinkedList<E>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this {@code UnrolledLinkedList}. (The
+     * elements themselves are not cloned.)
+     *
+     * @return a shallow copy of this {@code UnrolledLinkedList} instance
+     */
+    public Object clone() {
+        UnrolledLinkedList<E> clone = superClone();
+
+        // Put clone into "virgin" state
+        clone.first = clone.last = clone.finger = null;
+        clone.size = 0;
+        clone.modCount = 0;
+
+        // Initialize clone with our elements
+        for (Node<E> x = first; x != null; x = x.next)
+            for (int i = x.start; i < x.end; i++) {
+                @SuppressWarnings("unchecked") E e = (E) x.items[i];
+                clone.linkLast(e);
+            }
+
+        return clone;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this list.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * @return an array containing all of the elements in this list
+     *         in proper sequence
+     */
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        int i = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            System.arraycopy(x.items, x.start, result, i, x.count());
+            i += x.count();
+        }
+        return result;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in
+     * proper sequence (from first to last element); the runtime type of
+     * the returned array is that of the specified array.  If the list fits
+     * in the specified array, it is returned therein.  Otherwise, a new
+     * array is allocated with the runtime type of the specified array and
+     * the size of this list.
+     *
+     * <p>If the list fits in the specified array with room to spare (i.e.,
+     * the array has more elements than the list), the element in the array
+     * immediately following the end of the list is set to {@code null}.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size)
+            a = (T[])java.lang.reflect.Array.newInstance(
+                                a.getClass().getComponentType(), size);
+        int i = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            System.arraycopy(x.items, x.start, a, i, x.count());
+            i += x.count();
+        }
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    private static final long serialVersionUID = -7394052843193850741L;
+
+    /**
+     * Saves the state of this {@code UnrolledLinkedList} instance to a
+     * stream (that is, serializes it).
+     *
+     * @serialData The node capacity is emitted (int) as a serial field,
+     *             then the size of the list (the number of elements it
+     *             contains) is emitted (int), followed by all of its
+     *             elements (each an Object) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out node capacity, and any hidden serialization magic
+        s.defaultWriteObject();
+
+        // Write out size
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        for (Node<E> x = first; x != null; x = x.next)
+            for (int i = x.start; i < x.end; i++)
+                s.writeObject(x.items[i]);
+    }
+
+    /**
+     * Reconstitutes this {@code UnrolledLinkedList} instance from a stream
+     * (that is, deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in node capacity, and any hidden serialization magic
+        s.defaultReadObject();
+        if (nodeCapacity < 2)
+            throw new java.io.InvalidObjectException("Illegal node capacity: " +
+                                                     nodeCapacity);
+
+        // Read in size
+        int size = s.readInt();
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < size; i++)
+            linkLast((E)s.readObject());
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED} and {@link Spliterator#ORDERED}.
+     * Overriding implementations should document the reporting of
+     * additional characteristic values.
+     *
+     * @implNote
+     * Unlike that of {@link LinkedList}, the {@code Spliterator} splits
+     * without copying: the prefix it splits off covers half of the
+     * remaining elements, found by skipping whole nodes.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ULSpliterator<E>(this, null, 0, -1, 0);
+    }
+
+    /**
+     * A spliterator over est elements starting at the k-th element of a
+     * node.  Splits walk the nodes, which is cheap compared to traversing
+     * the elements of the prefix.
+     */
+    static final class ULSpliterator<E> implements Spliterator<E> {
+        /**
+         * The minimum number of elements in a spliterator that is split.
+         * 拆分的最小元素数量
+         */
+        static final int MIN_SPLIT = 1 << 6;
+        /**
+         * 基础链表
+         */
+        final UnrolledLinkedList<E> list;
+        /**
+         * 当前结点及结点内的位置
+         */
+        Node<E> current;      // current node; null until initialized
+        int k;                // index in current node
+        int est;              // remaining elements; -1 until first needed
+        int expectedModCount; // initialized when est set
+
+        ULSpliterator(UnrolledLinkedList<E> list, Node<E> current, int k,
+                      int est, int expectedModCount) {
+            this.list = list;
+            this.current = current;
+            this.k = k;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getEst() {
+            int s; // force initialization
+            if ((s = est) < 0) {
+                expectedModCount = list.modCount;
+                current = list.first;
+                k = 0;
+                s = est = list.size;
+            }
+            return s;
+        }
+
+        public long estimateSize() { return (long) getEst(); }
+
+        public Spliterator<E> trySplit() {
+            int s = getEst();
+            if (s < MIN_SPLIT || current == null)
+                return null;
+            int half = s >>> 1;
+            ULSpliterator<E> prefix =
+                new ULSpliterator<>(list, current, k, half, expectedModCount);
+            // 跳过前一半元素所在的结点
+            Node<E> p = current;
+            int i = k + half;
+            while (p != null && i >= p.count()) {
+                i -= p.count();
+                p = p.next;
+            }
+            if (p == null)
+                throw new ConcurrentModificationException();
+            current = p;
+            k = i;
+            est = s - half;
+            return prefix;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            Node<E> p; int n;
+            if (action == null) throw new NullPointerException();
+            if ((n = getEst()) > 0 && (p = current) != null) {
+                int i = k;
+                current = null;
+                est = 0;
+                do {
+                    Object[] a = p.items;
+                    int hi = Math.min(p.end, p.start + i + n);
+                    for (int j = p.start + i; j < hi; j++, n--) {
+                        @SuppressWarnings("unchecked") E e = (E) a[j];
+                        action.accept(e);
+                    }
+                    i = 0;
+                } while (n > 0 && (p = p.next) != null);
+            }
+            if (list.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Node<E> p;
+            if (action == null) throw new NullPointerException();
+            if (getEst() > 0 && (p = current) != null) {
+                if (k >= p.count()) {
+                    if ((p = p.next) == null)
+                        throw new ConcurrentModificationException();
+                    current = p;
+                    k = 0;
+                }
+                --est;
+                E e = p.get(k++);
+                action.accept(e);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+}
@@ -0,0 +1,1183 @@
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A thread-safe cache holding a bounded number (or total weight) of
+ * mappings, evicting entries that are unlikely to be used again when the
+ * bound would be exceeded.  Lookups go straight to a
+ * {@link ConcurrentHashMap} and never block; the bookkeeping needed to
+ * keep entries in recency order is recorded into buffers and replayed
+ * later in batches by whichever thread manages to acquire the eviction
+ * lock, so that no lock is taken on the read path.
+ * 基于ConcurrentHashMap的有界并发缓存，读操作无锁，淘汰策略的簿记通过缓冲区批量重放。
+ *
+ * <p>Reads are recorded into a small number of <em>striped, lossy</em>
+ * ring buffers, selected by the per-thread probe in the same way as the
+ * cells of {@link java.util.concurrent.atomic.LongAdder}; a read that finds
+ * its buffer contended or full is simply dropped, since recency order only
+ * needs to be approximately right.  Writes are recorded into an unbounded
+ * queue that is never lossy, and schedule a drain of all buffers.  The
+ * draining thread applies the buffered events to an access-ordered list,
+ * expires entries and evicts entries while the cache is over its bound.
+ *
+ * <p>Eviction uses <em>TinyLFU admission</em>: the access frequencies of
+ * recently seen keys are approximated by a count-min sketch of 4-bit
+ * counters that are periodically halved, and a newly added entry only
+ * displaces the least recently used entry if it is estimated to be used
+ * more often.  This keeps one-hit wonders from flushing out the popular
+ * entries, at the cost of newly added entries possibly being evicted
+ * immediately.  Admission can be turned off, in which case the cache is a
+ * plain (approximate) LRU cache.
+ *
+ * <p>Entries may also expire a fixed duration after they were created or
+ * last replaced ({@link Builder#expireAfterWrite}), and/or after they were
+ * last read ({@link Builder#expireAfterAccess}).  An expired entry is never
+ * returned, but it keeps counting towards the bound until it is removed by
+ * the next maintenance cycle.  Hits, misses, loads and evictions are
+ * counted with {@link LongAdder}s and reported by {@link #stats()}.
+ *
+ * <p>A cache is configured and created with a {@link Builder}:
+ * <pre> {@code
+ * BoundedConcurrentCache<String, byte[]> cache =
+ *     BoundedConcurrentCache.<String, byte[]>newBuilder()
+ *         .maximumWeight(64L << 20)
+ *         .weigher((k, v) -> v.length)
+ *         .expireAfterAccess(10, TimeUnit.MINUTES)
+ *         .build();
+ * }</pre>
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does not allow {@code null}
+ * to be used as a key or value.  The bound is not a hard limit: the cache
+ * may temporarily exceed it by the number of writes that have not been
+ * replayed yet.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class BoundedConcurrentCache<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Each mapping is a Node held by the ConcurrentHashMap "data".
+     * A node is alive while it is in the map; it is retired (under
+     * its own monitor, inside a map compute, so that both happen
+     * atomically with respect to writers) when it is removed from
+     * the map, and dead once the eviction policy has unlinked it.
+     * Writers update the value of an alive node under its monitor.
+     *
+     * Everything else -- the access-order and write-order lists, the
+     * weighted size, the frequency sketch and the read buffer read
+     * counters -- is guarded by evictionLock and only touched by the
+     * thread performing maintenance.  Writes enqueue a task (add,
+     * update or removal of a node) that is applied during the next
+     * maintenance cycle; since tasks of different threads can be
+     * reordered, an add task for a node that is already retired is
+     * ignored and a removal task for a node that was never linked
+     * just marks it dead.
+     *
+     * drainStatus makes sure that a write is never left sitting in
+     * the write buffer: a writer sets it to REQUIRED before trying
+     * the lock, and the lock holder only resets it from PROCESSING
+     * to IDLE, so if a writer failed to get the lock while
+     * maintenance was running the holder sees REQUIRED and runs
+     * another cycle after unlocking.
+     */
+
+    /** Number of CPUS, to place bound on the number of read buffers */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The number of slots in each read buffer, a power of two. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** Mask for indexing into a read buffer. */
+    static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /** The largest number of write tasks applied in one maintenance cycle. */
+    static final int WRITE_BUFFER_DRAIN_MAX = 1024;
+
+    /** The largest sketch, in longs (counters for 4M keys). */
+    static final int MAXIMUM_SKETCH_CAPACITY = 1 << 22;
+
+    /* drainStatus values */
+    static final int IDLE       = 0;
+    static final int REQUIRED   = 1;
+    static final int PROCESSING = 2;
+
+    /** The map holding the mappings. */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    /** The striped buffers of recorded reads. */
+    final ReadBuffer[] readBuffers;
+
+    /** The buffered writes, applied during maintenance. */
+    final ConcurrentLinkedQueue<Runnable> writeBuffer;
+
+    /** Guards the eviction policy. */
+    final ReentrantLock evictionLock;
+
+    /** The access frequency sketch, or null without admission. */
+    final FrequencySketch sketch;
+
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final long maximum;
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+
+    /** Whether there are writes to apply. */
+    volatile int drainStatus;
+
+    /** The weight of the linked entries, written under evictionLock. */
+    volatile long weightedSize;
+
+    // access-order list, least recently used first
+    Node<K,V> accessFirst, accessLast;
+    // write-order list, oldest first (only if expiring after write)
+    Node<K,V> writeFirst, writeLast;
+
+    // statistics
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+    final LongAdder loadSuccessCount = new LongAdder();
+    final LongAdder loadFailureCount = new LongAdder();
+    final LongAdder evictionCount = new LongAdder();
+    final LongAdder evictionWeight = new LongAdder();
+
+    BoundedConcurrentCache(Builder<K,V> builder) {
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(builder.initialCapacity);
+        this.weigher = builder.weigher;
+        this.maximum = builder.maximum;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.sketch = (builder.admission && builder.maximumSet) ?
+            new FrequencySketch(maximum) : null;
+        int n = 1;
+        while (n < NCPU)
+            n <<= 1;
+        this.readBuffers = new ReadBuffer[n];
+        for (int i = 0; i < n; ++i)
+            readBuffers[i] = new ReadBuffer();
+        this.writeBuffer = new ConcurrentLinkedQueue<Runnable>();
+        this.evictionLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns a new builder of caches, without a bound until one of
+     * {@link Builder#maximumSize} or {@link Builder#maximumWeight} is
+     * specified.
+     *
+     * @param <K> the type of keys of the cache
+     * @param <V> the type of values of the cache
+     * @return a new builder
+     */
+    public static <K,V> Builder<K,V> newBuilder() {
+        return new Builder<K,V>();
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the value cached for the specified key, or {@code null} if
+     * there is no mapping for it or the mapping has expired.
+     *
+     * @param key the key whose cached value is to be returned
+     * @return the cached value, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> node = data.get(key);
+        if (node != null) {
+            long now = expires() ? System.nanoTime() : 0L;
+            V v = node.value;
+            if (!hasExpired(node, now)) {
+                hitCount.increment();
+                afterRead(node, now);
+                return v;
+            }
+            scheduleDrain(); // 清理过期的条目
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if this cache contains an unexpired mapping for
+     * the specified key.  Does not count as an access of the entry.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this cache contains a mapping for the key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        Node<K,V> node = data.get(key);
+        return node != null &&
+            !hasExpired(node, expires() ? System.nanoTime() : 0L);
+    }
+
+    /**
+     * Associates the specified value with the specified key, replacing
+     * the previous value, if any.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous unexpired value associated with the key, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * If the specified key has no unexpired mapping, associates it with
+     * the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the current unexpired value associated with the key, or
+     *         {@code null} if there was none and the value was added
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Implementation for put and putIfAbsent.
+     */
+    final V put(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int weight = weigh(key, value);
+        long now = expires() ? System.nanoTime() : 0L;
+        for (Node<K,V> node = null;;) {
+            Node<K,V> prior = data.get(key);
+            if (prior == null) {
+                if (node == null)
+                    node = new Node<K,V>(key, value, weight, now);
+                if ((prior = data.putIfAbsent(key, node)) == null) {
+                    afterWrite(new AddTask(node));
+                    return null;
+                }
+            }
+            V oldValue;
+            boolean expired;
+            synchronized (prior) {
+                if (!prior.isAlive())
+                    continue; // 已被删除，重试
+                oldValue = prior.value;
+                expired = hasExpired(prior, now);
+                if (!onlyIfAbsent || expired) {
+                    prior.value = value;
+                    prior.weight = weight;
+                    prior.writeTime = prior.accessTime = now;
+                }
+            }
+            if (onlyIfAbsent && !expired) {
+                afterRead(prior, now);
+                return oldValue;
+            }
+            afterWrite(new UpdateTask(prior));
+            return expired ? null : oldValue;
+        }
+    }
+
+    /**
+     * Returns the value cached for the specified key, computing it with
+     * the given function and caching it if there is no unexpired mapping
+     * for the key.  The function is invoked at most once per key at a
+     * time, while other threads attempting to compute the same key are
+     * blocked, so it should be short and simple and must not update any
+     * other mappings of this cache.
+     *
+     * @param key key with which the value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the key, or {@code null} if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        long now = expires() ? System.nanoTime() : 0L;
+        Node<K,V> node = data.get(key);
+        if (node != null) {
+            V v = node.value;
+            if (!hasExpired(node, now)) {
+                hitCount.increment();
+                afterRead(node, now);
+                return v;
+            }
+            if (removeNode(node))
+                afterWrite(new RemovalTask(node));
+        }
+        missCount.increment();
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] added = (Node<K,V>[])new Node<?,?>[1];
+        try {
+            node = data.computeIfAbsent(key, k -> {
+                V v = mappingFunction.apply(k);
+                return (v == null) ? null :
+                    (added[0] = new Node<K,V>(k, v, weigh(k, v), now));
+            });
+        } catch (RuntimeException | Error ex) {
+            loadFailureCount.increment();
+            throw ex;
+        }
+        if (node == null) {
+            loadFailureCount.increment();
+            return null;
+        }
+        if (node == added[0]) {
+            loadSuccessCount.increment();
+            afterWrite(new AddTask(node));
+        }
+        else
+            afterRead(node, now);
+        return node.value;
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param key key whose mapping is to be removed
+     * @return the previous unexpired value associated with the key, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> node = data.get(key);
+        if (node == null || !removeNode(node))
+            return null;
+        afterWrite(new RemovalTask(node));
+        return hasExpired(node, expires() ? System.nanoTime() : 0L) ?
+            null : node.value;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        final ReentrantLock lock = this.evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+            for (Node<K,V> node : data.values()) {
+                if (removeNode(node))
+                    unlinkRemoved(node);
+            }
+            // 所有已链接的条目都已删除
+            drainWriteBuffer();
+        } finally {
+            lock.unlock();
+        }
+        if (drainStatus == REQUIRED)
+            scheduleDrain();
+    }
+
+    /**
+     * Performs the action for each unexpired mapping of this cache, in no
+     * particular order.  Does not count as an access of the entries.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        long now = expires() ? System.nanoTime() : 0L;
+        for (Node<K,V> node : data.values()) {
+            V v = node.value;
+            if (!hasExpired(node, now))
+                action.accept(node.key, v);
+        }
+    }
+
+    /**
+     * Returns the approximate number of mappings in this cache, including
+     * mappings that have expired but have not been removed yet.
+     *
+     * @return the estimated number of mappings
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Returns the total weight of the mappings the eviction policy knows
+     * about, which lags behind the most recent writes.
+     *
+     * @return the weighted size of this cache
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Returns the maximum size or weight of this cache.
+     *
+     * @return the bound of this cache
+     */
+    public long maximum() {
+        return maximum;
+    }
+
+    /**
+     * Performs any pending maintenance: applies the buffered reads and
+     * writes, removes expired entries and evicts entries while this cache
+     * is over its bound.  Maintenance is otherwise performed as a side
+     * effect of the other operations, so this only needs to be called to
+     * make expired entries eligible for garbage collection promptly on a
+     * cache that is not being used.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = this.evictionLock;
+        lock.lock();
+        try {
+            drainStatus = PROCESSING;
+            maintenance();
+        } finally {
+            U.compareAndSwapInt(this, DRAINSTATUS, PROCESSING, IDLE);
+            lock.unlock();
+        }
+        if (drainStatus == REQUIRED)
+            scheduleDrain();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        return new Stats(hitCount.sum(), missCount.sum(),
+                         loadSuccessCount.sum(), loadFailureCount.sum(),
+                         evictionCount.sum(), evictionWeight.sum());
+    }
+
+    /**
+     * Returns a string representation of this cache, describing its bound
+     * and statistics rather than its mappings.
+     *
+     * @return a string representation of this cache
+     */
+    public String toString() {
+        return super.toString() + "[estimatedSize=" + estimatedSize() +
+            ", weightedSize=" + weightedSize + ", maximum=" + maximum +
+            ", " + stats() + "]";
+    }
+
+    /* ---------------- Reads and writes -------------- */
+
+    final boolean expires() {
+        return (expireAfterWriteNanos | expireAfterAccessNanos) != 0L;
+    }
+
+    final boolean hasExpired(Node<K,V> node, long now) {
+        return (expireAfterWriteNanos != 0L &&
+                now - node.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos != 0L &&
+             now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    final int weigh(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0)
+            throw new IllegalArgumentException("Negative weight: " + weight);
+        return weight;
+    }
+
+    /**
+     * Removes the node from the map if it is still mapped, retiring it.
+     *
+     * @return true if this call removed the node
+     */
+    final boolean removeNode(Node<K,V> node) {
+        boolean[] removed = new boolean[1];
+        data.computeIfPresent(node.key, (k, n) -> {
+            if (n != node)
+                return n;
+            synchronized (n) {
+                n.retire();
+            }
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Records a read of the node into the read buffer of the current
+     * thread's stripe, and drains the buffers if that one is full.
+     * The read is dropped if the buffer is contended or full.
+     */
+    final void afterRead(Node<K,V> node, long now) {
+        if (expireAfterAccessNanos != 0L)
+            node.accessTime = now;
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = ThreadLocalRandom.getProbe();
+        }
+        ReadBuffer b = readBuffers[h & (readBuffers.length - 1)];
+        long head = b.readCounter, tail = b.writeCounter;
+        if (tail - head >= READ_BUFFER_SIZE)
+            scheduleDrain();
+        else if (b.casWriteCounter(tail, tail + 1)) {
+            U.putOrderedObject(b.buffer, ((tail & READ_BUFFER_MASK) << ASHIFT) + ABASE,
+                               node);
+            if (tail + 1 - head >= READ_BUFFER_SIZE)
+                scheduleDrain();
+        }
+        else
+            ThreadLocalRandom.advanceProbe(h); // 换一个缓冲区
+    }
+
+    /**
+     * Records a write and performs maintenance if the eviction lock is
+     * free; otherwise the current lock holder does it.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        drainStatus = REQUIRED;
+        scheduleDrain();
+    }
+
+    /**
+     * Performs maintenance if the eviction lock can be acquired without
+     * blocking, repeating while writes arrived during maintenance.
+     */
+    final void scheduleDrain() {
+        final ReentrantLock lock = this.evictionLock;
+        do {
+            if (!lock.tryLock())
+                return;
+            try {
+                drainStatus = PROCESSING;
+                maintenance();
+            } finally {
+                U.compareAndSwapInt(this, DRAINSTATUS, PROCESSING, IDLE);
+                lock.unlock();
+            }
+        } while (drainStatus == REQUIRED);
+    }
+
+    /* ---------------- Maintenance, under evictionLock -------------- */
+
+    /**
+     * Applies buffered events, then expires and evicts entries.
+     */
+    final void maintenance() {
+        drainReadBuffers();
+        if (!drainWriteBuffer())
+            drainStatus = REQUIRED; // 写缓冲区未清空，再来一轮
+        if (expires())
+            expireEntries(System.nanoTime());
+        evictEntries(null);
+    }
+
+    final void drainReadBuffers() {
+        for (ReadBuffer b : readBuffers) {
+            Object[] buffer = b.buffer;
+            long head = b.readCounter, tail = b.writeCounter;
+            for (; head != tail; ++head) {
+                long offset = ((head & READ_BUFFER_MASK) << ASHIFT) + ABASE;
+                @SuppressWarnings("unchecked")
+                Node<K,V> node = (Node<K,V>)U.getObjectVolatile(buffer, offset);
+                if (node == null)
+                    break; // 槽位已预留但尚未写入
+                U.putOrderedObject(buffer, offset, null);
+                onAccess(node);
+            }
+            b.readCounter = head;
+        }
+    }
+
+    /**
+     * Applies at most WRITE_BUFFER_DRAIN_MAX buffered writes.
+     *
+     * @return true if the write buffer was emptied
+     */
+    final boolean drainWriteBuffer() {
+        for (int i = 0; i < WRITE_BUFFER_DRAIN_MAX; ++i) {
+            Runnable task = writeBuffer.poll();
+            if (task == null)
+                return true;
+            task.run();
+        }
+        return false;
+    }
+
+    final void onAccess(Node<K,V> node) {
+        if (sketch != null)
+            sketch.increment(node.key.hashCode());
+        if (node.linked)
+            moveToAccessLast(node);
+    }
+
+    /**
+     * Removes the entries that expired by the given time, oldest first.
+     */
+    final void expireEntries(long now) {
+        if (expireAfterAccessNanos != 0L) {
+            for (Node<K,V> node; (node = accessFirst) != null &&
+                     now - node.accessTime >= expireAfterAccessNanos; )
+                evict(node);
+        }
+        if (expireAfterWriteNanos != 0L) {
+            for (Node<K,V> node; (node = writeFirst) != null &&
+                     now - node.writeTime >= expireAfterWriteNanos; )
+                evict(node);
+        }
+    }
+
+    /**
+     * Evicts entries while the weighted size exceeds the maximum.  If
+     * a candidate is given (an entry that was just added), it only
+     * survives as long as it is estimated to be used more often than
+     * the least recently used entry it would displace.
+     */
+    final void evictEntries(Node<K,V> candidate) {
+        while (weightedSize > maximum) {
+            Node<K,V> victim = accessFirst;
+            if (victim == null)
+                break;
+            if (candidate != null && candidate != victim && candidate.linked &&
+                (candidate.policyWeight > maximum ||
+                 (sketch != null && !admit(candidate, victim)))) {
+                evict(candidate);
+                break;
+            }
+            evict(victim);
+        }
+    }
+
+    /**
+     * TinyLFU: admits the candidate only if it is estimated to be used
+     * more often than the victim.
+     */
+    final boolean admit(Node<K,V> candidate, Node<K,V> victim) {
+        return sketch.frequency(candidate.key.hashCode()) >
+            sketch.frequency(victim.key.hashCode());
+    }
+
+    /**
+     * Removes the node from the map if still mapped, and from the
+     * eviction policy.
+     */
+    final void evict(Node<K,V> node) {
+        if (removeNode(node)) {
+            evictionCount.increment();
+            evictionWeight.add(node.policyWeight);
+        }
+        unlinkRemoved(node);
+    }
+
+    /**
+     * Unlinks a node that is no longer mapped, if it is linked.
+     */
+    final void unlinkRemoved(Node<K,V> node) {
+        if (node.linked) {
+            unlinkAccess(node);
+            if (expireAfterWriteNanos != 0L)
+                unlinkWrite(node);
+            node.linked = false;
+            weightedSize = weightedSize - node.policyWeight;
+        }
+        node.die();
+    }
+
+    /** Adds a new node to the eviction policy. */
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> n = node;
+            if (sketch != null)
+                sketch.increment(n.key.hashCode());
+            if (n.isAlive()) {
+                n.linked = true;
+                n.policyWeight = n.weight;
+                weightedSize = weightedSize + n.policyWeight;
+                linkAccessLast(n);
+                if (expireAfterWriteNanos != 0L)
+                    linkWriteLast(n);
+                evictEntries(n);
+            }
+        }
+    }
+
+    /** Applies the replacement of the value of a node. */
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> n = node;
+            if (sketch != null)
+                sketch.increment(n.key.hashCode());
+            if (n.linked) {
+                int w = n.weight;
+                weightedSize = weightedSize + (w - n.policyWeight);
+                n.policyWeight = w;
+                moveToAccessLast(n);
+                if (expireAfterWriteNanos != 0L) {
+                    unlinkWrite(n);
+                    linkWriteLast(n);
+                }
+                evictEntries(null);
+            }
+        }
+    }
+
+    /** Removes a node removed from the map from the eviction policy. */
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            unlinkRemoved(node);
+        }
+    }
+
+    /* ---------------- Access and write order lists -------------- */
+
+    final void linkAccessLast(Node<K,V> node) {
+        Node<K,V> last = accessLast;
+        node.prevInAccess = last;
+        node.nextInAccess = null;
+        accessLast = node;
+        if (last == null)
+            accessFirst = node;
+        else
+            last.nextInAccess = node;
+    }
+
+    final void unlinkAccess(Node<K,V> node) {
+        Node<K,V> p = node.prevInAccess, n = node.nextInAccess;
+        if (p == null)
+            accessFirst = n;
+        else
+            p.nextInAccess = n;
+        if (n == null)
+            accessLast = p;
+        else
+            n.prevInAccess = p;
+        node.prevInAccess = node.nextInAccess = null;
+    }
+
+    final void moveToAccessLast(Node<K,V> node) {
+        if (accessLast != node) {
+            unlinkAccess(node);
+            linkAccessLast(node);
+        }
+    }
+
+    final void linkWriteLast(Node<K,V> node) {
+        Node<K,V> last = writeLast;
+        node.prevInWrite = last;
+        node.nextInWrite = null;
+        writeLast = node;
+        if (last == null)
+            writeFirst = node;
+        else
+            last.nextInWrite = node;
+    }
+
+    final void unlinkWrite(Node<K,V> node) {
+        Node<K,V> p = node.prevInWrite, n = node.nextInWrite;
+        if (p == null)
+            writeFirst = n;
+        else
+            p.nextInWrite = n;
+        if (n == null)
+            writeLast = p;
+        else
+            n.prevInWrite = p;
+        node.prevInWrite = node.nextInWrite = null;
+    }
+
+    /* ---------------- Nodes and buffers -------------- */
+
+    /**
+     * A cache entry.  The value, weight and timestamps are written by
+     * writers under the node's monitor; the list links, linked flag
+     * and policyWeight belong to the eviction policy.
+     */
+    static final class Node<K,V> {
+        static final int ALIVE   = 0;
+        static final int RETIRED = 1;
+        static final int DEAD    = 2;
+
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile int state;
+        volatile long writeTime;
+        volatile long accessTime;
+
+        int policyWeight;
+        boolean linked;
+        Node<K,V> prevInAccess, nextInAccess;
+        Node<K,V> prevInWrite, nextInWrite;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = this.accessTime = now;
+        }
+
+        boolean isAlive() { return state == ALIVE; }
+        void retire() { state = RETIRED; }
+        void die() { state = DEAD; }
+    }
+
+    /**
+     * A lossy ring buffer of reads.  Readers claim a slot by CAS on
+     * writeCounter and then publish the node; the maintenance thread
+     * consumes published slots and advances readCounter.  Padded to
+     * reduce contention between the buffers of different stripes.
+     */
+    @sun.misc.Contended static final class ReadBuffer {
+        volatile long writeCounter;
+        volatile long readCounter;
+        final Object[] buffer = new Object[READ_BUFFER_SIZE];
+
+        final boolean casWriteCounter(long cmp, long val) {
+            return U.compareAndSwapLong(this, WRITECOUNTER, cmp, val);
+        }
+    }
+
+    /**
+     * A count-min sketch estimating the access frequency of keys, with
+     * four 4-bit counters per key packed sixteen to a long.  The four
+     * counters of a key are in different longs, each selected by its own
+     * hash function, and at the same nibble position of a group of four
+     * chosen by the key.  After sampleSize increments all counters are
+     * halved, so that the frequencies age.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int sampleSize;
+        int size;
+
+        FrequencySketch(long maximum) {
+            int n = 1;
+            while (n < maximum && n < MAXIMUM_SKETCH_CAPACITY)
+                n <<= 1;
+            table = new long[n];
+            sampleSize = 10 * n;
+        }
+
+        static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        final int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return (int)hash & (table.length - 1);
+        }
+
+        /** Returns the estimated number of occurrences, at most 15. */
+        final int frequency(int hashCode) {
+            int h = spread(hashCode), start = (h & 3) << 2, f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int shift = (start + i) << 2;
+                int count = (int)((table[indexOf(h, i)] >>> shift) & 0xfL);
+                if (count < f)
+                    f = count;
+            }
+            return f;
+        }
+
+        /** Increments the counters of the key, if not saturated. */
+        final void increment(int hashCode) {
+            int h = spread(hashCode), start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int index = indexOf(h, i), shift = (start + i) << 2;
+                long mask = 0xfL << shift;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++size == sampleSize)
+                reset();
+        }
+
+        /** Halves all counters, and the sample size accordingly. */
+        final void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; ++i) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+    }
+
+    /* ---------------- Builder and statistics -------------- */
+
+    /**
+     * A builder of {@link BoundedConcurrentCache} instances.  Either a
+     * maximum size or a maximum weight (together with a weigher) may be
+     * specified, but not both.
+     *
+     * @param <K> the type of keys of the cache
+     * @param <V> the type of values of the cache
+     */
+    public static final class Builder<K,V> {
+        long maximum = Long.MAX_VALUE;
+        boolean maximumSet;
+        boolean weighted;
+        ToIntBiFunction<? super K, ? super V> weigher = SingletonWeigher.INSTANCE;
+        int initialCapacity = 16;
+        long expireAfterWriteNanos;
+        long expireAfterAccessNanos;
+        boolean admission = true;
+
+        Builder() {}
+
+        /**
+         * Sets the initial capacity of the underlying map.
+         *
+         * @param initialCapacity the initial capacity
+         * @return this builder
+         * @throws IllegalArgumentException if the capacity is negative
+         */
+        public Builder<K,V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException();
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of entries of the cache.
+         *
+         * @param maximumSize the maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if the size is negative
+         * @throws IllegalStateException if a maximum was already set
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0L)
+                throw new IllegalArgumentException();
+            if (maximumSet)
+                throw new IllegalStateException("maximum was already set");
+            this.maximum = maximumSize;
+            this.maximumSet = true;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total weight of the entries of the cache, as
+         * determined by the {@link #weigher}.
+         *
+         * @param maximumWeight the maximum total weight
+         * @return this builder
+         * @throws IllegalArgumentException if the weight is negative
+         * @throws IllegalStateException if a maximum was already set
+         */
+        public Builder<K,V> maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0L)
+                throw new IllegalArgumentException();
+            if (maximumSet)
+                throw new IllegalStateException("maximum was already set");
+            this.maximum = maximumWeight;
+            this.maximumSet = true;
+            this.weighted = true;
+            return this;
+        }
+
+        /**
+         * Sets the function determining the weight of an entry when it
+         * is added or replaced, which must not be negative.  Requires a
+         * {@link #maximumWeight}.
+         *
+         * @param weigher the weigher
+         * @return this builder
+         * @throws NullPointerException if the weigher is null
+         */
+        public Builder<K,V> weigher(ToIntBiFunction<? super K, ? super V> weigher) {
+            if (weigher == null)
+                throw new NullPointerException();
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Entries expire once the given duration has elapsed since they
+         * were added or their value was last replaced.
+         *
+         * @param duration the length of time after a write after which
+         *        the entry expires
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is not positive
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Entries expire once the given duration has elapsed since they
+         * were last read or written.
+         *
+         * @param duration the length of time after an access after which
+         *        the entry expires
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is not positive
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Sets whether TinyLFU admission is used when evicting (the
+         * default), or plain least-recently-used eviction.
+         *
+         * @param admission whether to use TinyLFU admission
+         * @return this builder
+         */
+        public Builder<K,V> admission(boolean admission) {
+            this.admission = admission;
+            return this;
+        }
+
+        /**
+         * Builds a cache with the current configuration of this builder.
+         *
+         * @return a new cache
+         * @throws IllegalStateException if a weigher was specified
+         *         without a maximum weight, or a maximum weight without
+         *         a weigher
+         */
+        public BoundedConcurrentCache<K,V> build() {
+            boolean customWeigher = !(weigher instanceof SingletonWeigher);
+            if (weighted != customWeigher)
+                throw new IllegalStateException
+                    (weighted ? "maximumWeight requires weigher" :
+                     "weigher requires maximumWeight");
+            return new BoundedConcurrentCache<K,V>(this);
+        }
+
+        static long toNanos(long duration, TimeUnit unit) {
+            if (duration <= 0L)
+                throw new IllegalArgumentException();
+            return unit.toNanos(duration);
+        }
+    }
+
+    /** The default weigher, weighing every entry as 1. */
+    enum SingletonWeigher implements ToIntBiFunction<Object,Object> {
+        INSTANCE;
+        public int applyAsInt(Object key, Object value) { return 1; }
+    }
+
+    /**
+     * An immutable snapshot of the statistics of a cache.  Evictions
+     * include expirations.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long evictionCount;
+        private final long evictionWeight;
+
+        Stats(long hitCount, long missCount,
+              long loadSuccessCount, long loadFailureCount,
+              long evictionCount, long evictionWeight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.evictionCount = evictionCount;
+            this.evictionWeight = evictionWeight;
+        }
+
+        /** @return the number of lookups that returned a cached value */
+        public long hitCount() { return hitCount; }
+
+        /** @return the number of lookups that found no unexpired value */
+        public long missCount() { return missCount; }
+
+        /** @return the number of lookups */
+        public long requestCount() { return hitCount + missCount; }
+
+        /** @return the ratio of hits to lookups, or 1.0 if none */
+        public double hitRate() {
+            long requests = requestCount();
+            return (requests == 0L) ? 1.0 : (double)hitCount / requests;
+        }
+
+        /** @return the number of values computed by computeIfAbsent */
+        public long loadSuccessCount() { return loadSuccessCount; }
+
+        /** @return the number of computations that returned null or threw */
+        public long loadFailureCount() { return loadFailureCount; }
+
+        /** @return the number of entries evicted or expired */
+        public long evictionCount() { return evictionCount; }
+
+        /** @return the total weight of the entries evicted or expired */
+        public long evictionWeight() { return evictionWeight; }
+
+        public String toString() {
+            return "hitCount=" + hitCount + ", missCount=" + missCount +
+                ", loadSuccessCount=" + loadSuccessCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", evictionCount=" + evictionCount +
+                ", evictionWeight=" + evictionWeight;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long DRAINSTATUS;
+    private static final long WRITECOUNTER;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            DRAINSTATUS = U.objectFieldOffset
+                (BoundedConcurrentCache.class.getDeclaredField("drainStatus"));
+            WRITECOUNTER = U.objectFieldOffset
+                (ReadBuffer.class.getDeclaredField("writeCounter"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,2610 @@
+package java.util.concurrent;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A scalable concurrent {@link ConcurrentNavigableMap} implementation
+ * based on a B-link tree.  The map is sorted according to the
+ * {@linkplain Comparable natural ordering} of its keys, or by a
+ * {@link Comparator} provided at map creation time, depending on which
+ * constructor is used.
+ * 基于B-link树的可伸缩的并发的ConcurrentNavigableMap实现。
+ *
+ * <p>Keys and values are kept in sorted arrays within the nodes of a
+ * balanced tree of high fan-out, providing guaranteed <i>log(n)</i>
+ * time cost for the {@code containsKey}, {@code get}, {@code put} and
+ * {@code remove} operations and their variants, while touching only a
+ * handful of nodes per operation.  Compared with
+ * {@link ConcurrentSkipListMap}, there is no per-mapping node or index
+ * tower to allocate, and ordered traversals read consecutive array
+ * slots.  Insertion, removal, update, and access operations safely
+ * execute concurrently by multiple threads.
+ *
+ * <p>Each node is guarded by its own {@link StampedLock}.  Lookups and
+ * traversals take optimistic reads, retrying under a read lock only when
+ * a node is being modified at the same time, so that readers do not
+ * write to shared memory.  Updates write-lock the single leaf they
+ * change; a full node is split and its new sibling is linked in before
+ * the parent is told about it, so that readers and writers never wait
+ * for a split to complete.  A leaf emptied by removals is merged with
+ * a sibling, so that the size of the tree, and the cost of finding
+ * the first or last mapping, follow the number of mappings rather than
+ * the number of insertions ever made.
+ *
+ * <p>Iterators and spliterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ * Ascending key ordered views and their iterators are faster than
+ * descending ones.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class
+ * and its views represent snapshots of mappings at the time they were
+ * produced. They do <em>not</em> support the {@code Entry.setValue}
+ * method.
+ *
+ * <p>The {@code size} method takes constant time, but may report
+ * inaccurate results while the map is being modified.  The bulk
+ * operations {@code putAll}, {@code equals}, {@code toArray} and
+ * {@code containsValue} are <em>not</em> guaranteed to be performed
+ * atomically.
+ *
+ * <p>This class and its views and iterators implement all of the
+ * <em>optional</em> methods of the {@link Map} and {@link Iterator}
+ * interfaces. Like most other concurrent collections, this class does
+ * <em>not</em> permit the use of {@code null} keys or values because some
+ * null return values cannot be reliably distinguished from the absence of
+ * elements.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see ConcurrentSkipListMap
+ */
+public class ConcurrentBLinkTreeMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+    /*
+     * This class implements the tree of Lehman and Yao ("Efficient
+     * Locking for Concurrent Operations on B-Trees", 1981).  Every node
+     * holds a high key, an exclusive upper bound of the keys stored in
+     * it and below it (null for the rightmost node of each level), and
+     * a link to its right sibling.  A node covers the keys from the
+     * high key of its left sibling up to its own high key.
+     *
+     * A split moves the upper half of a node into a new right sibling
+     * and lowers the node's high key, all under the node's write lock.
+     * Any traversal that arrives at the node afterwards with a key at
+     * or beyond the high key simply follows the right link, so the
+     * separator can be posted to the parent later, after releasing the
+     * lock on the child.  Writers hold at most one lock at a time, so
+     * there is no lock ordering to respect.
+     *
+     * A leaf emptied by a removal, or an inner node left with a single
+     * child, is merged with its left or right sibling under their
+     * parent (see reclaim): the right one of the pair is copied into
+     * the left one, which takes over its high key and right link, and
+     * its separator and link are removed from the parent, all under
+     * the write locks of the parent and of both nodes.  The right node
+     * is then marked dead, and its right link is pointed back at the
+     * node that absorbed its range, so that a traversal arriving at it
+     * through a stale link just follows that link.  Only nodes with a
+     * left sibling under the same parent are ever absorbed, so the
+     * leftmost node of each level never changes, which lets a traversal
+     * retried after a concurrent change restart from the node it is
+     * on.  Locks are taken top-down, and left to right within a level,
+     * so merges do not deadlock with each other, and splits hold one
+     * lock at a time.  A merge that loses a race with a split is just
+     * skipped; findNear retries it on the empty leaves it crosses.
+     *
+     * Readers use the canonical StampedLock idiom per node: read the
+     * fields under an optimistic stamp, then validate.  Fields read
+     * optimistically may be torn, so all such reads are bounds-checked
+     * and treat a null slot as a failed read.  After a couple of
+     * failed attempts the read is repeated under the read lock.
+     *
+     * Routing with a key that equals a separator goes right, since
+     * the separator is the low bound of the right subtree.  Searches
+     * for the greatest key below a given key use strict routing
+     * instead, landing in the leaf whose range ends at the key, and
+     * otherwise record the low bound of the leaf they land in to
+     * continue into the preceding leaf.
+     *
+     * The whole tree hangs off a Tree holder, so that clear() can
+     * replace it at once.  Operations that were running on the old
+     * tree are ordered before the clear.
+     */
+
+    private static final long serialVersionUID = -2830549173436183297L;
+
+    /**
+     * The maximum number of mappings in a leaf, and of children of an
+     * inner node.  Splitting the rightmost leaf when appending to it
+     * leaves the left half full, so that ascending insertion builds
+     * full leaves.
+     */
+    static final int NODE_CAPACITY = 64;
+
+    /**
+     * The number of optimistic reads of a node attempted before
+     * falling back to the read lock.
+     */
+    private static final int OPTIMISTIC_READS = 2;
+
+    /**
+     * The comparator used to maintain order in this map, or null if
+     * using natural ordering.  (Non-private to simplify access in
+     * nested classes.)
+     * @serial
+     */
+    final Comparator<? super K> comparator;
+
+    /** The tree, replaced by clear */
+    private transient volatile Tree tree;
+    /** Lazily initialized key set */
+    private transient KeySet<K> keySet;
+    /** Lazily initialized entry set */
+    private transient EntrySet<K,V> entrySet;
+    /** Lazily initialized values collection */
+    private transient Values<V> values;
+    /** Lazily initialized descending key set */
+    private transient ConcurrentNavigableMap<K,V> descendingMap;
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Tree node.  Leaves hold the mappings in {@code keys} and
+     * {@code vals}; inner nodes hold {@code n} children and the
+     * {@code n - 1} separator keys between them, each separator being
+     * the low bound of the child on its right.
+     * 树节点
+     */
+    static final class Node {
+        final StampedLock lock = new StampedLock();
+        /** 0 for leaves, else height above the leaves */
+        final int level;
+        final Object[] keys;
+        final Object[] vals;
+        final Node[] children;
+        /** Number of mappings in a leaf, or of children of an inner node */
+        int n;
+        /** Exclusive upper bound of the keys covered, or null if none */
+        Object highKey;
+        /** Right sibling, non-null iff highKey is non-null */
+        Node right;
+        /** Set when merged into the node that right now links to */
+        boolean dead;
+
+        Node(int level) {
+            this.level = level;
+            if (level == 0) {
+                keys = new Object[NODE_CAPACITY];
+                vals = new Object[NODE_CAPACITY];
+                children = null;
+            } else {
+                keys = new Object[NODE_CAPACITY - 1];
+                vals = null;
+                children = new Node[NODE_CAPACITY];
+            }
+        }
+    }
+
+    /**
+     * The root and leftmost leaf of a tree, with its size.
+     */
+    static final class Tree {
+        volatile Node root;
+        /** The leftmost leaf, which never changes */
+        final Node head;
+        final LongAdder count = new LongAdder();
+
+        Tree() {
+            root = head = new Node(0);
+        }
+    }
+
+    /* ---------------- Comparison utilities -------------- */
+
+    /**
+     * Compares using comparator or natural ordering if null.
+     * Called only by methods that have performed required type checks.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final int cpr(Comparator c, Object x, Object y) {
+        return (c != null) ? c.compare(x, y) : ((Comparable)x).compareTo(y);
+    }
+
+    /**
+     * Binary search among the first n keys.  Returns the index of the
+     * key if found, else {@code -(insertion point) - 1}, or
+     * {@link #TORN} if a null slot was read, as an optimistic read
+     * may.
+     */
+    private int search(Object[] keys, int n, Object key) {
+        Comparator<? super K> cmp = comparator;
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Object k = keys[mid];
+            if (k == null)
+                return TORN;
+            int c = cpr(cmp, k, key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /** Result of search for a torn optimistic read */
+    private static final int TORN = Integer.MIN_VALUE;
+
+    /* ---------------- Traversal -------------- */
+
+    /*
+     * Relations for findNear, as in ConcurrentSkipListMap.
+     */
+    static final int EQ = 1;
+    static final int LT = 2;
+    static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Returns the node to visit after x on the way to the leaf covering
+     * key: the right sibling if key is beyond the range of x, the
+     * covering child of an inner node, or x itself for a leaf covering
+     * key.  A null key stands for a key above all others.  With strict
+     * routing a key equal to a bound goes left instead.  If low is
+     * non-null, low[0] is updated to the low bound of the returned
+     * node's range when it is known to be narrower.
+     */
+    private Node next(Node x, Object key, boolean strict, Object[] low) {
+        StampedLock lock = x.lock;
+        Object lowKey = (low == null) ? null : low[0];
+        for (int tries = 0;; ++tries) {
+            boolean locked = tries >= OPTIMISTIC_READS;
+            long stamp = locked ? lock.readLock() : lock.tryOptimisticRead();
+            try {
+                if (low != null)
+                    low[0] = lowKey;
+                Node y = (stamp == 0L) ? null : route(x, key, strict, low);
+                if (y != null && (locked || lock.validate(stamp)))
+                    return y;
+            } finally {
+                if (locked)
+                    lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Body of next, returning null on a torn read.
+     */
+    private Node route(Node x, Object key, boolean strict, Object[] low) {
+        if (x.dead)
+            return x.right;
+        Object hk = x.highKey;
+        if (hk != null) {
+            int c;
+            if (key == null || (c = cpr(comparator, key, hk)) > 0 ||
+                (c == 0 && !strict)) {
+                if (low != null)
+                    low[0] = hk;
+                return x.right;
+            }
+        }
+        if (x.level == 0)
+            return x;
+        int n = x.n;
+        Object[] keys = x.keys;
+        Node[] children = x.children;
+        if (n <= 0 || n > children.length)
+            return null;
+        int lo = 0, hi = n - 1;
+        if (key == null)
+            lo = hi;
+        else {
+            // 找出小于等于(严格时为小于)键的分隔键的数量
+            Comparator<? super K> cmp = comparator;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                Object k = keys[mid];
+                if (k == null)
+                    return null;
+                int c = cpr(cmp, key, k);
+                if (c > 0 || (c == 0 && !strict))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+        }
+        if (lo > 0 && low != null) {
+            Object sep = keys[lo - 1];
+            if (sep == null)
+                return null;
+            low[0] = sep;
+        }
+        return children[lo];
+    }
+
+    /**
+     * Returns the leaf covering key, routing from x.
+     */
+    private Node findLeaf(Node x, Object key, boolean strict, Object[] low) {
+        for (Node y; (y = next(x, key, strict, low)) != x; )
+            x = y;
+        return x;
+    }
+
+    /** Result of leafGet when the key is beyond the leaf */
+    private static final Object MOVED = new Object();
+
+    /**
+     * Returns the value for key in leaf x, null if absent, or MOVED if
+     * the leaf no longer covers key.
+     */
+    private Object leafGet(Node x, Object key) {
+        StampedLock lock = x.lock;
+        for (int tries = 0;; ++tries) {
+            boolean locked = tries >= OPTIMISTIC_READS;
+            long stamp = locked ? lock.readLock() : lock.tryOptimisticRead();
+            try {
+                if (stamp != 0L) {
+                    Object hk = x.highKey, v = null;
+                    boolean torn = false;
+                    if (x.dead || (hk != null && cpr(comparator, key, hk) >= 0))
+                        v = MOVED;
+                    else {
+                        int n = x.n;
+                        Object[] keys = x.keys;
+                        int i = (n < 0 || n > keys.length) ?
+                            TORN : search(keys, n, key);
+                        if (i == TORN)
+                            torn = true;
+                        else if (i >= 0 && (v = x.vals[i]) == null)
+                            torn = true;
+                    }
+                    if (!torn && (locked || lock.validate(stamp)))
+                        return v;
+                }
+            } finally {
+                if (locked)
+                    lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Gets value for key.
+     */
+    private V doGet(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Node x = findLeaf(tree.root, key, false, null);
+        for (;;) {
+            Object v = leafGet(x, key);
+            if (v != MOVED) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+            x = findLeaf(x, key, false, null);
+        }
+    }
+
+    /*
+     * Results of leafNear
+     */
+    private static final int FOUND = 0;
+    private static final int NONE = 1;   // no mapping in the leaf
+    private static final int BEYOND = 2; // the leaf does not cover key
+    private static final int RETRY = 3;  // torn read
+
+    /**
+     * Looks in leaf x for the mapping nearest to key with the given
+     * relation.  If found, stores the key and value in out[1] and
+     * out[2].  Otherwise stores the right sibling in out[3].  A null
+     * key stands for a key below all others for GT relations, and above
+     * all others for LT relations.
+     */
+    private int leafNear(Node x, Object key, int rel, Object[] out) {
+        StampedLock lock = x.lock;
+        for (int tries = 0;; ++tries) {
+            boolean locked = tries >= OPTIMISTIC_READS;
+            long stamp = locked ? lock.readLock() : lock.tryOptimisticRead();
+            try {
+                int s = (stamp == 0L) ? RETRY : near(x, key, rel, out);
+                if (s != RETRY && (locked || lock.validate(stamp)))
+                    return s;
+            } finally {
+                if (locked)
+                    lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Body of leafNear.
+     */
+    private int near(Node x, Object key, int rel, Object[] out) {
+        boolean lt = (rel & LT) != 0;
+        if (x.dead) {
+            if (key != null || lt)
+                return BEYOND;
+            out[3] = x.right;
+            return NONE;
+        }
+        Object hk = x.highKey;
+        int n = x.n;
+        Object[] keys = x.keys;
+        if (n < 0 || n > keys.length)
+            return RETRY;
+        int idx;
+        if (key == null) {
+            if (!lt)
+                idx = 0;
+            else if (hk != null)
+                return BEYOND;
+            else
+                idx = n - 1;
+        } else {
+            if (hk != null) {
+                int c = cpr(comparator, key, hk);
+                if (c > 0 || (c == 0 && rel != LT))
+                    return BEYOND;
+            }
+            int i = search(keys, n, key);
+            if (i == TORN)
+                return RETRY;
+            if (i >= 0)
+                idx = ((rel & EQ) != 0) ? i : lt ? i - 1 : i + 1;
+            else
+                idx = lt ? -(i + 1) - 1 : -(i + 1);
+        }
+        if (idx < 0 || idx >= n) {
+            out[3] = x.right;
+            return NONE;
+        }
+        Object k = keys[idx], v = x.vals[idx];
+        if (k == null || v == null)
+            return RETRY;
+        out[1] = k;
+        out[2] = v;
+        return FOUND;
+    }
+
+    /**
+     * Returns a snapshot of the mapping nearest to key with the given
+     * relation, or null if there is none.  A null key stands for a key
+     * below all others for GT relations, and above all others for LT
+     * relations, giving the first and last mappings.
+     */
+    final AbstractMap.SimpleImmutableEntry<K,V> findNear(Object key, int rel) {
+        Tree t = tree;
+        Object[] out = new Object[4];
+        boolean strict = rel == LT;
+        Node x = (key == null && (rel & LT) == 0) ? t.head :
+            findLeaf(t.root, key, strict, out);
+        for (;;) {
+            int s = leafNear(x, key, rel, out);
+            if (s == FOUND) {
+                @SuppressWarnings("unchecked") K k = (K)out[1];
+                @SuppressWarnings("unchecked") V v = (V)out[2];
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+            if (s == BEYOND) {
+                x = findLeaf(x, key, strict, out);
+                continue;
+            }
+            if (x.n == 0 && x != t.head && !x.dead)
+                reclaim(t, x); // 合并先前未能合并的空叶子
+            if ((rel & LT) == 0) {
+                // 所有更大的键都在右边的叶子中
+                if ((x = (Node)out[3]) == null)
+                    return null;
+            } else {
+                // 所有更小的键都小于叶子的下界
+                if ((key = out[0]) == null)
+                    return null;
+                rel = LT;
+                strict = true;
+                out[0] = null;
+                x = findLeaf(t.root, key, true, out);
+            }
+        }
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Write-locks and returns the node at the level of x covering key,
+     * moving right from x.
+     */
+    private Node lockCovering(Node x, Object key) {
+        for (;;) {
+            long stamp = x.lock.writeLock();
+            boolean covers = false;
+            Node r;
+            try {
+                Object hk = x.highKey;
+                r = x.right;
+                covers = !x.dead && (hk == null || cpr(comparator, key, hk) < 0);
+            } finally {
+                if (!covers)
+                    x.lock.unlockWrite(stamp);
+            }
+            if (covers)
+                return x;
+            x = r;
+        }
+    }
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Tree t = tree;
+        Node x = lockCovering(findLeaf(t.root, key, false, null), key);
+        Node r;
+        Object sep;
+        try {
+            int n = x.n;
+            if (n == 0)
+                cpr(comparator, key, key); // type check
+            int i = search(x.keys, n, key);
+            if (i >= 0) {
+                @SuppressWarnings("unchecked") V old = (V)x.vals[i];
+                if (!onlyIfAbsent)
+                    x.vals[i] = value;
+                return old;
+            }
+            i = -(i + 1);
+            if (n < NODE_CAPACITY) {
+                System.arraycopy(x.keys, i, x.keys, i + 1, n - i);
+                System.arraycopy(x.vals, i, x.vals, i + 1, n - i);
+                x.keys[i] = key;
+                x.vals[i] = value;
+                x.n = n + 1;
+                t.count.increment();
+                return null;
+            }
+            r = splitLeaf(x, i, key, value);
+            sep = x.highKey;
+            t.count.increment();
+            if (t.root == x) {
+                t.root = newRoot(x, sep, r);
+                return null;
+            }
+        } finally {
+            x.lock.tryUnlockWrite();
+        }
+        insertSeparator(t, 1, sep, r);
+        return null;
+    }
+
+    /**
+     * Splits the full, write-locked leaf x while inserting a mapping at
+     * index i, and links in and returns the new right sibling.
+     */
+    private static Node splitLeaf(Node x, int i, Object key, Object value) {
+        final int CAP = NODE_CAPACITY;
+        Node r = new Node(0);
+        // 在最右边的叶子末尾追加时保持左边满
+        int left = (x.right == null && i == CAP) ? CAP : (CAP + 1) >>> 1;
+        if (i < left) {
+            int m = CAP - (left - 1);
+            System.arraycopy(x.keys, left - 1, r.keys, 0, m);
+            System.arraycopy(x.vals, left - 1, r.vals, 0, m);
+            System.arraycopy(x.keys, i, x.keys, i + 1, left - 1 - i);
+            System.arraycopy(x.vals, i, x.vals, i + 1, left - 1 - i);
+            x.keys[i] = key;
+            x.vals[i] = value;
+            r.n = m;
+        } else {
+            int j = i - left, m = CAP - left;
+            System.arraycopy(x.keys, left, r.keys, 0, j);
+            System.arraycopy(x.vals, left, r.vals, 0, j);
+            r.keys[j] = key;
+            r.vals[j] = value;
+            System.arraycopy(x.keys, i, r.keys, j + 1, CAP - i);
+            System.arraycopy(x.vals, i, r.vals, j + 1, CAP - i);
+            r.n = m + 1;
+        }
+        for (int k = left; k < CAP; ++k) {
+            x.keys[k] = null;
+            x.vals[k] = null;
+        }
+        x.n = left;
+        r.highKey = x.highKey;
+        r.right = x.right;
+        // 先建好右兄弟再链接，读者经右链接总能看到完整的节点
+        x.highKey = r.keys[0];
+        x.right = r;
+        return r;
+    }
+
+    /**
+     * Returns a new root over the two halves of a split root.
+     */
+    private static Node newRoot(Node x, Object sep, Node r) {
+        Node root = new Node(x.level + 1);
+        root.children[0] = x;
+        root.children[1] = r;
+        root.keys[0] = sep;
+        root.n = 2;
+        return root;
+    }
+
+    /**
+     * Posts the separator of a split node at the given level minus one
+     * to its parent, splitting ancestors as needed.
+     */
+    private void insertSeparator(Tree t, int level, Object sep, Node child) {
+        final int CAP = NODE_CAPACITY;
+        for (;;) {
+            Node p = t.root;
+            while (p.level < level) {
+                // the root split below has not been published yet
+                Thread.yield();
+                p = t.root;
+            }
+            while (p.level > level)
+                p = next(p, sep, false, null);
+            p = lockCovering(p, sep);
+            Node q;
+            Object up;
+            try {
+                int n = p.n;
+                int pos = -(search(p.keys, n - 1, sep) + 1) + 1;
+                if (n < CAP) {
+                    System.arraycopy(p.keys, pos - 1, p.keys, pos, n - pos);
+                    System.arraycopy(p.children, pos, p.children, pos + 1,
+                                     n - pos);
+                    p.keys[pos - 1] = sep;
+                    p.children[pos] = child;
+                    p.n = n + 1;
+                    return;
+                }
+                Object[] ks = new Object[CAP];
+                Node[] cs = new Node[CAP + 1];
+                System.arraycopy(p.keys, 0, ks, 0, pos - 1);
+                ks[pos - 1] = sep;
+                System.arraycopy(p.keys, pos - 1, ks, pos, CAP - pos);
+                System.arraycopy(p.children, 0, cs, 0, pos);
+                cs[pos] = child;
+                System.arraycopy(p.children, pos, cs, pos + 1, CAP - pos);
+                int left = (p.right == null && pos == CAP) ?
+                    CAP - 1 : (CAP + 1) >>> 1;
+                q = new Node(level);
+                System.arraycopy(cs, left, q.children, 0, CAP + 1 - left);
+                System.arraycopy(ks, left, q.keys, 0, CAP - left);
+                q.n = CAP + 1 - left;
+                q.highKey = p.highKey;
+                q.right = p.right;
+                up = ks[left - 1];
+                System.arraycopy(cs, 0, p.children, 0, left);
+                System.arraycopy(ks, 0, p.keys, 0, left - 1);
+                for (int k = left; k < CAP; ++k)
+                    p.children[k] = null;
+                for (int k = left - 1; k < CAP - 1; ++k)
+                    p.keys[k] = null;
+                p.n = left;
+                p.highKey = up;
+                p.right = q;
+                if (t.root == p) {
+                    t.root = newRoot(p, up, q);
+                    return;
+                }
+            } finally {
+                p.lock.tryUnlockWrite();
+            }
+            sep = up;
+            child = q;
+            ++level;
+        }
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Main deletion method.  Removes the mapping for key if present,
+     * and if value is non-null only if mapped to a value equal to it.
+     *
+     * @param key the key
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the removed value, or null if not found
+     */
+    final V doRemove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Tree t = tree;
+        Node x = lockCovering(findLeaf(t.root, key, false, null), key);
+        V v;
+        try {
+            int n = x.n;
+            int i = search(x.keys, n, key);
+            if (i < 0)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)x.vals[i];
+            if (value != null && !value.equals(vv))
+                return null;
+            v = vv;
+            System.arraycopy(x.keys, i + 1, x.keys, i, n - 1 - i);
+            System.arraycopy(x.vals, i + 1, x.vals, i, n - 1 - i);
+            x.keys[n - 1] = null;
+            x.vals[n - 1] = null;
+            x.n = n - 1;
+            t.count.decrement();
+        } finally {
+            x.lock.tryUnlockWrite();
+        }
+        if (x.n == 0)
+            reclaim(t, x);
+        return v;
+    }
+
+    /* ---------------- Merging -------------- */
+
+    /*
+     * Results of merge
+     */
+    private static final int SKIPPED = 0;
+    private static final int MERGED = 1;
+    private static final int LONELY = 2; // the parent has a single child
+
+    /**
+     * Merges x, if it is an empty leaf or an inner node with a single
+     * child, with a sibling, and then the parents left with a single
+     * child in turn.  If the parent of x itself has a single child, it
+     * is merged first.
+     */
+    private void reclaim(Tree t, Node x) {
+        Node[] parent = new Node[1];
+        for (boolean retried = false;;) {
+            int s = merge(t, x, parent);
+            Node p = parent[0];
+            parent[0] = null;
+            if (s == MERGED) {
+                if (p == null)
+                    return;
+                x = p;
+                retried = false;
+            } else if (s == LONELY && !retried) {
+                reclaim(t, p);
+                retried = true;
+            } else
+                return;
+        }
+    }
+
+    /**
+     * Write-locks and returns the node at the given level covering
+     * key with strict routing, that is the parent of the node whose
+     * range ends at key, or of the rightmost node if key is null.
+     */
+    private Node lockParent(Tree t, int level, Object key) {
+        Node p = t.root;
+        while (p.level > level)
+            p = next(p, key, true, null);
+        for (;;) {
+            long stamp = p.lock.writeLock();
+            boolean covers = false;
+            Node r;
+            try {
+                Object hk = p.highKey;
+                r = p.right;
+                covers = !p.dead && (hk == null ||
+                                     (key != null && cpr(comparator, key, hk) <= 0));
+            } finally {
+                if (!covers)
+                    p.lock.unlockWrite(stamp);
+            }
+            if (covers)
+                return p;
+            p = r;
+        }
+    }
+
+    /**
+     * One step of reclaim: merges x with its right sibling, or its left
+     * one if x is the last child of its parent, provided that both are
+     * linked under the parent and fit in one node.  Stores the parent
+     * in parent[0] if it is left with a single child, or has one.
+     */
+    private int merge(Tree t, Node x, Node[] parent) {
+        final int CAP = NODE_CAPACITY;
+        int level = x.level;
+        if (t.root.level <= level)
+            return SKIPPED;
+        Node p = lockParent(t, level + 1, x.highKey);
+        try {
+            int n = p.n, j = 0;
+            Node[] cs = p.children;
+            while (j < n && cs[j] != x)
+                ++j;
+            if (j == n)
+                return SKIPPED; // not linked in yet, or moved away
+            if (n == 1) {
+                if (p == t.root)
+                    return SKIPPED;
+                parent[0] = p;
+                return LONELY;
+            }
+            Node l, r;
+            if (j < n - 1 && (level == 0 || cs[j + 1].n < CAP)) {
+                l = x;
+                r = cs[j + 1];
+            } else if (j > 0) {
+                l = cs[j - 1];
+                r = x;
+            } else
+                return SKIPPED;
+            int ri = (r == x) ? j : j + 1;
+            long ls = l.lock.writeLock();
+            try {
+                long rs = r.lock.writeLock();
+                try {
+                    int ln = l.n, rn = r.n;
+                    if (l.dead || r.dead || l.right != r || ln + rn > CAP ||
+                        x.n != ((level == 0) ? 0 : 1))
+                        return SKIPPED;
+                    if (level == 0) {
+                        System.arraycopy(r.keys, 0, l.keys, ln, rn);
+                        System.arraycopy(r.vals, 0, l.vals, ln, rn);
+                        Arrays.fill(r.keys, 0, rn, null);
+                        Arrays.fill(r.vals, 0, rn, null);
+                    } else {
+                        // 父节点中的分隔键成为合并后节点的分隔键
+                        l.keys[ln - 1] = p.keys[ri - 1];
+                        System.arraycopy(r.keys, 0, l.keys, ln, rn - 1);
+                        System.arraycopy(r.children, 0, l.children, ln, rn);
+                        Arrays.fill(r.keys, 0, rn - 1, null);
+                        Arrays.fill(r.children, 0, rn, null);
+                    }
+                    l.n = ln + rn;
+                    l.highKey = r.highKey;
+                    l.right = r.right;
+                    r.n = 0;
+                    r.right = l;
+                    r.dead = true;
+                } finally {
+                    r.lock.unlockWrite(rs);
+                }
+            } finally {
+                l.lock.unlockWrite(ls);
+            }
+            System.arraycopy(p.keys, ri, p.keys, ri - 1, n - 1 - ri);
+            System.arraycopy(cs, ri + 1, cs, ri, n - 1 - ri);
+            p.keys[n - 2] = null;
+            cs[n - 1] = null;
+            p.n = n - 1;
+            if (n == 2 && p != t.root)
+                parent[0] = p;
+            return MERGED;
+        } finally {
+            p.lock.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Replaces the value for key if present, and if oldValue is
+     * non-null only if mapped to a value equal to it.
+     *
+     * @return the previous value, or null if not replaced
+     */
+    private V doReplace(K key, V oldValue, V newValue) {
+        if (key == null || newValue == null)
+            throw new NullPointerException();
+        Node x = lockCovering(findLeaf(tree.root, key, false, null), key);
+        try {
+            int i = search(x.keys, x.n, key);
+            if (i < 0)
+                return null;
+            @SuppressWarnings("unchecked") V v = (V)x.vals[i];
+            if (oldValue != null && !oldValue.equals(v))
+                return null;
+            x.vals[i] = newValue;
+            return v;
+        } finally {
+            x.lock.tryUnlockWrite();
+        }
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map, sorted according to the
+     * {@linkplain Comparable natural ordering} of the keys.
+     */
+    public ConcurrentBLinkTreeMap() {
+        this.comparator = null;
+        tree = new Tree();
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public ConcurrentBLinkTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        tree = new Tree();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * sorted according to the {@linkplain Comparable natural ordering} of
+     * the keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in {@code m} are not
+     *         {@link Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified map or any of its keys
+     *         or values are null
+     */
+    public ConcurrentBLinkTreeMap(Map<? extends K, ? extends V> m) {
+        this.comparator = null;
+        tree = new Tree();
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.
+     *
+     * @param m the sorted map whose mappings are to be placed in this
+     *        map, and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified sorted map or any of
+     *         its keys or values are null
+     */
+    public ConcurrentBLinkTreeMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        tree = new Tree();
+        putAll(m);
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ConcurrentBLinkTreeMap}
+     * instance. (The keys and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public ConcurrentBLinkTreeMap<K,V> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ConcurrentBLinkTreeMap<K,V> clone =
+                (ConcurrentBLinkTreeMap<K,V>) super.clone();
+            clone.tree = new Tree();
+            clone.keySet = null;
+            clone.entrySet = null;
+            clone.values = null;
+            clone.descendingMap = null;
+            // 按升序插入，追加到最右边的叶子
+            clone.putAll(this);
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The key (Object) and value (Object) for each
+     * key-value mapping represented by the map, followed by
+     * {@code null}. The key-value mappings are emitted in key-order
+     * (as determined by the Comparator, or by the keys' natural
+     * ordering if no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out keys and values (alternating)
+        for (Iter<K> it = new KeyIterator(null, false, null, false, false);
+             it.nextKey != null; it.advance()) {
+            s.writeObject(it.nextKey);
+            s.writeObject(it.nextValue);
+        }
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+        // Reset transients
+        tree = new Tree();
+        for (;;) {
+            Object k = s.readObject();
+            if (k == null)
+                break;
+            Object v = s.readObject();
+            if (v == null)
+                throw new NullPointerException();
+            doPut((K)k, (V)v, false);
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        return doGet(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Iter<K> it = new KeyIterator(null, false, null, false, false);
+             it.nextKey != null; it.advance()) {
+            if (value.equals(it.nextValue))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this map
+     * contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * <p>The count is kept in a {@link LongAdder}, so this method takes
+     * constant time, but it may not reflect updates in progress.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long n = tree.count.sum();
+        return (n < 0L) ? 0 : (n > Integer.MAX_VALUE) ?
+            Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findNear(null, GT) == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        tree = new Tree();
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, in
+     * ascending key order.
+     *
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null) throw new NullPointerException();
+        Iter<K> it = new KeyIterator(null, false, null, false, false);
+        for (Object k; (k = it.nextKey) != null; ) {
+            Object v = it.nextValue;
+            it.advance();
+            @SuppressWarnings("unchecked") K kk = (K)k;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            action.accept(kk, vv);
+        }
+    }
+
+    /* ---------------- View methods -------------- */
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this map.
+     * The set's iterator returns the keys in ascending order.  The set is
+     * backed by the map, so changes to the map are reflected in the set,
+     * and vice-versa.  The set supports element removal, but not the
+     * {@code add} or {@code addAll} operations.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     * The spliterator reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#NONNULL}, {@link Spliterator#SORTED},
+     * {@link Spliterator#ORDERED} and {@link Spliterator#DISTINCT}, and
+     * splits at separator keys of the tree.
+     *
+     * @return a navigable set view of the keys in this map
+     */
+    public NavigableSet<K> keySet() {
+        KeySet<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K>(this));
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return keySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection's iterator returns the values in ascending order
+     * of the corresponding keys.  The collection supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return a collection view of the values in this map
+     */
+    public Collection<V> values() {
+        Values<V> vs = values;
+        return (vs != null) ? vs : (values = new Values<V>(this));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set's iterator returns the entries in ascending key order.  The
+     * {@code Map.Entry} elements are snapshots and do <em>not</em> support
+     * the {@code setValue} operation.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return a set view of the mappings contained in this map,
+     *         sorted in ascending key order
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet<K,V>(this));
+    }
+
+    public ConcurrentNavigableMap<K,V> descendingMap() {
+        ConcurrentNavigableMap<K,V> dm = descendingMap;
+        return (dm != null) ? dm : (descendingMap = new SubMap<K,V>
+                                    (this, null, false, null, false, true));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /* ------ ConcurrentMap API methods ------ */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null)
+            throw new NullPointerException();
+        return doReplace(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        return doReplace(key, null, value);
+    }
+
+    /* ------ SortedMap API methods ------ */
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        Map.Entry<K,V> e = findNear(null, GT);
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.getKey();
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        Map.Entry<K,V> e = findNear(null, LT);
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.getKey();
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey,
+                                              boolean fromInclusive,
+                                              K toKey,
+                                              boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey,
+                                               boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, null, false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey,
+                                               boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, inclusive, null, false, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key. The returned entry does <em>not</em> support the
+     * {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        if (key == null) throw new NullPointerException();
+        return findNear(key, LT);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        if (key == null) throw new NullPointerException();
+        return findNear(key, LT|EQ);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K floorKey(K key) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such entry. The returned entry does <em>not</em>
+     * support the {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        if (key == null) throw new NullPointerException();
+        return findNear(key, GT|EQ);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        if (key == null) throw new NullPointerException();
+        return findNear(key, GT);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K higherKey(K key) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        return findNear(null, GT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        return findNear(null, LT);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        return pollNear(GT);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        return pollNear(LT);
+    }
+
+    /**
+     * Removes and returns the first (GT) or last (LT) mapping, retrying
+     * if it is removed by another thread in the meantime.
+     */
+    private Map.Entry<K,V> pollNear(int rel) {
+        for (;;) {
+            Map.Entry<K,V> e = findNear(null, rel);
+            if (e == null)
+                return null;
+            K k = e.getKey();
+            V v = doRemove(k, null);
+            if (v != null)
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+        }
+    }
+
+    static <K> K keyOrNull(Map.Entry<K,?> e) {
+        return (e == null) ? null : e.getKey();
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Base of iterator classes, traversing a key range in either
+     * direction.  Each leaf is copied under a validated read, and
+     * mappings are returned from the copy; keys not beyond the last
+     * one returned are skipped, in case a leaf split concurrently.
+     */
+    abstract class Iter<T> implements Iterator<T> {
+        final Object lo, hi;
+        final boolean loInclusive, hiInclusive, descending;
+        final Tree t;
+        final Object[] keys = new Object[NODE_CAPACITY];
+        final Object[] vals = new Object[NODE_CAPACITY];
+        /** Low bound of the leaf copied, for descending traversal */
+        final Object[] low = new Object[1];
+        /** Index of the next slot of the copy to look at */
+        int cursor;
+        /** Number of mappings in the copy */
+        int count;
+        /** Right sibling and high key of the leaf copied */
+        Node right;
+        Object highKey;
+        /** Whether to skip keys returned already or out of range */
+        boolean skip;
+        /** Next mapping to return, or null if none */
+        Object nextKey, nextValue;
+        /** Last key returned, for remove */
+        Object lastReturned;
+
+        Iter(Object lo, boolean loInclusive, Object hi, boolean hiInclusive,
+             boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            t = tree;
+            if (!descending) {
+                load((lo == null) ? t.head : findLeaf(t.root, lo, false, null));
+                cursor = 0;
+            }
+            else
+                loadLeft(hi, hi != null && !hiInclusive);
+            skip = true;
+            advance();
+        }
+
+        /**
+         * Copies leaf x.
+         */
+        final void load(Node x) {
+            StampedLock lock = x.lock;
+            for (int tries = 0;; ++tries) {
+                boolean locked = tries >= OPTIMISTIC_READS;
+                long stamp = locked ? lock.readLock() : lock.tryOptimisticRead();
+                try {
+                    int n;
+                    if (stamp != 0L && (n = x.n) >= 0 && n <= NODE_CAPACITY) {
+                        System.arraycopy(x.keys, 0, keys, 0, n);
+                        System.arraycopy(x.vals, 0, vals, 0, n);
+                        Node r = x.right;
+                        Object hk = x.highKey;
+                        if (locked || lock.validate(stamp)) {
+                            count = n;
+                            right = r;
+                            highKey = hk;
+                            return;
+                        }
+                    }
+                } finally {
+                    if (locked)
+                        lock.unlockRead(stamp);
+                }
+            }
+        }
+
+        /**
+         * Copies the leaf covering the keys just below bound, or up
+         * to and including it unless strict, for descending traversal.
+         */
+        final void loadLeft(Object bound, boolean strict) {
+            low[0] = null;
+            Node x = findLeaf(t.root, bound, strict, low);
+            for (int c;;) {
+                load(x);
+                if (highKey == null ||
+                    (bound != null && ((c = cpr(comparator, bound, highKey)) < 0 ||
+                                       (c == 0 && strict))))
+                    break;
+                x = findLeaf(x, bound, strict, low);
+            }
+            cursor = count - 1;
+        }
+
+        final boolean tooLow(Object key) {
+            int c;
+            return (lo != null && ((c = cpr(comparator, key, lo)) < 0 ||
+                                   (c == 0 && !loInclusive)));
+        }
+
+        final boolean tooHigh(Object key) {
+            int c;
+            return (hi != null && ((c = cpr(comparator, key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)));
+        }
+
+        /**
+         * Advances nextKey and nextValue to the next mapping in range.
+         */
+        final void advance() {
+            Comparator<? super K> cmp = comparator;
+            Object prev = nextKey;
+            nextKey = nextValue = null;
+            for (;;) {
+                if (!descending) {
+                    while (cursor < count) {
+                        Object k = keys[cursor], v = vals[cursor++];
+                        if (skip) {
+                            if (prev != null ? cpr(cmp, k, prev) <= 0 : tooLow(k))
+                                continue;
+                            skip = false;
+                        }
+                        if (!tooHigh(k)) {
+                            nextKey = k;
+                            nextValue = v;
+                        }
+                        return;
+                    }
+                    if (right == null || (hi != null && tooHigh(highKey)))
+                        return;
+                    load(right);
+                    cursor = 0;
+                } else {
+                    while (cursor >= 0) {
+                        Object k = keys[cursor], v = vals[cursor--];
+                        if (skip) {
+                            if (prev != null ? cpr(cmp, k, prev) >= 0 : tooHigh(k))
+                                continue;
+                            skip = false;
+                        }
+                        if (!tooLow(k)) {
+                            nextKey = k;
+                            nextValue = v;
+                        }
+                        return;
+                    }
+                    Object bound = low[0];
+                    if (bound == null || tooLow(bound))
+                        return;
+                    loadLeft(bound, true);
+                }
+                skip = true;
+            }
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+
+        public void remove() {
+            Object k = lastReturned;
+            if (k == null)
+                throw new IllegalStateException();
+            ConcurrentBLinkTreeMap.this.remove(k);
+            lastReturned = null;
+        }
+    }
+
+    final class ValueIterator extends Iter<V> {
+        ValueIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public V next() {
+            Object k = nextKey;
+            if (k == null)
+                throw new NoSuchElementException();
+            @SuppressWarnings("unchecked") V v = (V)nextValue;
+            lastReturned = k;
+            advance();
+            return v;
+        }
+    }
+
+    final class KeyIterator extends Iter<K> {
+        KeyIterator(Object lo, boolean loInclusive, Object hi,
+                    boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public K next() {
+            Object k = nextKey;
+            if (k == null)
+                throw new NoSuchElementException();
+            lastReturned = k;
+            advance();
+            @SuppressWarnings("unchecked") K kk = (K)k;
+            return kk;
+        }
+    }
+
+    final class EntryIterator extends Iter<Map.Entry<K,V>> {
+        EntryIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public Map.Entry<K,V> next() {
+            Object k = nextKey;
+            if (k == null)
+                throw new NoSuchElementException();
+            @SuppressWarnings("unchecked") K kk = (K)k;
+            @SuppressWarnings("unchecked") V v = (V)nextValue;
+            lastReturned = k;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<K,V>(kk, v);
+        }
+    }
+
+    // Factory methods for iterators needed by the views and submaps
+
+    Iterator<K> keyIterator(Object lo, boolean loInclusive, Object hi,
+                            boolean hiInclusive, boolean descending) {
+        return new KeyIterator(lo, loInclusive, hi, hiInclusive, descending);
+    }
+
+    Iterator<V> valueIterator(Object lo, boolean loInclusive, Object hi,
+                              boolean hiInclusive, boolean descending) {
+        return new ValueIterator(lo, loInclusive, hi, hiInclusive, descending);
+    }
+
+    Iterator<Map.Entry<K,V>> entryIterator(Object lo, boolean loInclusive,
+                                           Object hi, boolean hiInclusive,
+                                           boolean descending) {
+        return new EntryIterator(lo, loInclusive, hi, hiInclusive, descending);
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /*
+     * Kinds of spliterators
+     */
+    static final int KEYS = 0;
+    static final int VALUES = 1;
+    static final int ENTRIES = 2;
+
+    /**
+     * Returns a key strictly between lo and hi (null for unbounded) at
+     * which to split a traversal of that range, or null if none is
+     * found.  Takes the middle one of the separators in range of the
+     * highest node that has any, so that the halves hold about the same
+     * number of subtrees.
+     */
+    final Object splitKey(Object lo, Object hi) {
+        Comparator<? super K> cmp = comparator;
+        Node x = tree.root;
+        for (;;) {
+            StampedLock lock = x.lock;
+            long stamp = lock.readLock();
+            try {
+                Object hk = x.highKey;
+                if (x.dead ||
+                    (lo != null && hk != null && cpr(cmp, lo, hk) >= 0))
+                    return null; // moved meanwhile; give up
+                Object[] keys = x.keys;
+                int m = (x.level == 0) ? x.n : x.n - 1;
+                int a = 0, b = m;
+                if (lo != null) {
+                    while (a < b) {
+                        int mid = (a + b) >>> 1;
+                        if (cpr(cmp, keys[mid], lo) <= 0)
+                            a = mid + 1;
+                        else
+                            b = mid;
+                    }
+                    b = m;
+                }
+                int c = a;
+                if (hi != null) {
+                    while (c < b) {
+                        int mid = (c + b) >>> 1;
+                        if (cpr(cmp, keys[mid], hi) < 0)
+                            c = mid + 1;
+                        else
+                            b = mid;
+                    }
+                }
+                if (x.level == 0)
+                    return (b - a >= 2) ? keys[(a + b) >>> 1] : null;
+                if (b > a)
+                    return keys[(a + b) >>> 1];
+                // 范围落在一个子树中
+                x = x.children[a];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Spliterator over a key range in ascending order, splitting at
+     * separator keys of the tree.  Traversal is delegated to an
+     * iterator created on first use.
+     */
+    final class RangeSpliterator<T> implements Spliterator<T> {
+        final int kind;
+        Object lo;
+        boolean loInclusive;
+        final Object hi;
+        final boolean hiInclusive;
+        long est;
+        Iterator<T> it;
+
+        RangeSpliterator(int kind, Object lo, boolean loInclusive,
+                         Object hi, boolean hiInclusive, long est) {
+            this.kind = kind;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.est = est;
+        }
+
+        public Spliterator<T> trySplit() {
+            Object s;
+            if (it != null || (s = splitKey(lo, hi)) == null)
+                return null;
+            Spliterator<T> prefix = new RangeSpliterator<T>
+                (kind, lo, loInclusive, s, false, est >>>= 1);
+            lo = s;
+            loInclusive = true;
+            return prefix;
+        }
+
+        @SuppressWarnings("unchecked")
+        final Iterator<T> iterator() {
+            Iterator<T> i = it;
+            if (i == null) {
+                i = (kind == KEYS) ?
+                    (Iterator<T>)keyIterator(lo, loInclusive, hi, hiInclusive, false) :
+                    (kind == VALUES) ?
+                    (Iterator<T>)valueIterator(lo, loInclusive, hi, hiInclusive, false) :
+                    (Iterator<T>)entryIterator(lo, loInclusive, hi, hiInclusive, false);
+                it = i;
+            }
+            return i;
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            Iterator<T> i = iterator();
+            if (!i.hasNext())
+                return false;
+            action.accept(i.next());
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            Iterator<T> i = iterator();
+            while (i.hasNext())
+                action.accept(i.next());
+        }
+
+        public long estimateSize() {
+            return est;
+        }
+
+        public int characteristics() {
+            return (kind == VALUES) ?
+                Spliterator.CONCURRENT | Spliterator.NONNULL |
+                Spliterator.ORDERED :
+                Spliterator.CONCURRENT | Spliterator.NONNULL |
+                Spliterator.ORDERED | Spliterator.SORTED |
+                Spliterator.DISTINCT;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Comparator<? super T> getComparator() {
+            if (kind == KEYS)
+                return (Comparator<? super T>)comparator;
+            if (kind == ENTRIES)
+                return (comparator != null) ?
+                    (Comparator<? super T>)(Comparator)
+                    Map.Entry.comparingByKey(comparator) :
+                    (Comparator<? super T>)(Comparator)
+                    (Comparator<Map.Entry<K,V>> & Serializable)
+                    (e1, e2) -> cpr(null, e1.getKey(), e2.getKey());
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Returns a spliterator of the given kind over a range, splitting
+     * at separator keys when ascending.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Spliterator<T> spliterator(int kind, Object lo, boolean loInclusive,
+                                   Object hi, boolean hiInclusive,
+                                   boolean descending) {
+        if (!descending)
+            return new RangeSpliterator<T>(kind, lo, loInclusive,
+                                           hi, hiInclusive, size());
+        Iterator<T> it = (kind == KEYS) ?
+            (Iterator<T>)keyIterator(lo, loInclusive, hi, hiInclusive, true) :
+            (kind == VALUES) ?
+            (Iterator<T>)valueIterator(lo, loInclusive, hi, hiInclusive, true) :
+            (Iterator<T>)entryIterator(lo, loInclusive, hi, hiInclusive, true);
+        return Spliterators.spliteratorUnknownSize
+            (it, (kind == VALUES) ?
+             Spliterator.CONCURRENT | Spliterator.NONNULL |
+             Spliterator.ORDERED :
+             Spliterator.CONCURRENT | Spliterator.NONNULL |
+             Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+
+    /* ---------------- View Classes -------------- */
+
+    /*
+     * View classes are static, delegating to a ConcurrentNavigableMap
+     * to allow use by SubMaps, as in ConcurrentSkipListMap.
+     */
+
+    static <E> List<E> toList(Collection<E> c) {
+        // Using size() here would be a pessimization.
+        ArrayList<E> list = new ArrayList<E>();
+        for (E e : c)
+            list.add(e);
+        return list;
+    }
+
+    static final class KeySet<E>
+            extends AbstractSet<E> implements NavigableSet<E> {
+        final ConcurrentNavigableMap<E,?> m;
+        KeySet(ConcurrentNavigableMap<E,?> map) { m = map; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<E,Object>)m).keyIterator
+                    (null, false, null, false, false);
+            else
+                return ((SubMap<E,Object>)m).keyIterator();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+        public NavigableSet<E> subSet(E fromElement,
+                                      boolean fromInclusive,
+                                      E toElement,
+                                      boolean toInclusive) {
+            return new KeySet<E>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(m.tailMap(fromElement, inclusive));
+        }
+        public NavigableSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(m.descendingMap());
+        }
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<E,?>)m).spliterator
+                    (KEYS, null, false, null, false, false);
+            else
+                return ((SubMap<E,?>)m).spliterator(KEYS);
+        }
+    }
+
+    static final class Values<E> extends AbstractCollection<E> {
+        final ConcurrentNavigableMap<?, E> m;
+        Values(ConcurrentNavigableMap<?, E> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<?,E>)m).valueIterator
+                    (null, false, null, false, false);
+            else
+                return ((SubMap<?,E>)m).valueIterator();
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public boolean contains(Object o) {
+            return m.containsValue(o);
+        }
+        public void clear() {
+            m.clear();
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<?,E>)m).spliterator
+                    (VALUES, null, false, null, false, false);
+            else
+                return ((SubMap<?,E>)m).spliterator(VALUES);
+        }
+    }
+
+    static final class EntrySet<K1,V1> extends AbstractSet<Map.Entry<K1,V1>> {
+        final ConcurrentNavigableMap<K1, V1> m;
+        EntrySet(ConcurrentNavigableMap<K1, V1> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K1,V1>> iterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<K1,V1>)m).entryIterator
+                    (null, false, null, false, false);
+            else
+                return ((SubMap<K1,V1>)m).entryIterator();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            V1 v = m.get(e.getKey());
+            return v != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return m.remove(e.getKey(),
+                            e.getValue());
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public void clear() {
+            m.clear();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        @SuppressWarnings("unchecked")
+        public Spliterator<Map.Entry<K1,V1>> spliterator() {
+            if (m instanceof ConcurrentBLinkTreeMap)
+                return ((ConcurrentBLinkTreeMap<K1,V1>)m).spliterator
+                    (ENTRIES, null, false, null, false, false);
+            else
+                return ((SubMap<K1,V1>)m).spliterator(ENTRIES);
+        }
+    }
+
+    /**
+     * Submaps returned by {@link ConcurrentBLinkTreeMap} submap operations
+     * represent a subrange of mappings of their underlying
+     * maps. Instances of this class support all methods of their
+     * underlying maps, differing in that mappings outside their range are
+     * ignored, and attempts to add mappings outside their ranges result
+     * in {@link IllegalArgumentException}.  Instances of this class are
+     * constructed only using the {@code subMap}, {@code headMap}, and
+     * {@code tailMap} methods of their underlying maps.
+     *
+     * @serial include
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+        private static final long serialVersionUID = 5302843912748616731L;
+
+        /** Underlying map */
+        private final ConcurrentBLinkTreeMap<K,V> m;
+        /** lower bound key, or null if from start */
+        private final K lo;
+        /** upper bound key, or null if to end */
+        private final K hi;
+        /** inclusion flag for lo */
+        private final boolean loInclusive;
+        /** inclusion flag for hi */
+        private final boolean hiInclusive;
+        /** direction */
+        private final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K> keySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        /**
+         * Creates a new submap, initializing all fields.
+         */
+        SubMap(ConcurrentBLinkTreeMap<K,V> map,
+               K fromKey, boolean fromInclusive,
+               K toKey, boolean toInclusive,
+               boolean isDescending) {
+            Comparator<? super K> cmp = map.comparator;
+            if (fromKey != null && toKey != null &&
+                cpr(cmp, fromKey, toKey) > 0)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.lo = fromKey;
+            this.hi = toKey;
+            this.loInclusive = fromInclusive;
+            this.hiInclusive = toInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        boolean tooLow(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (lo != null && ((c = cpr(cmp, key, lo)) < 0 ||
+                                   (c == 0 && !loInclusive)));
+        }
+
+        boolean tooHigh(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (hi != null && ((c = cpr(cmp, key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)));
+        }
+
+        boolean inBounds(Object key, Comparator<? super K> cmp) {
+            return !tooLow(key, cmp) && !tooHigh(key, cmp);
+        }
+
+        void checkKeyBounds(K key, Comparator<? super K> cmp) {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inBounds(key, cmp))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        /**
+         * Returns lowest entry in range, ignoring directionality.
+         */
+        Map.Entry<K,V> lowestEntry() {
+            Map.Entry<K,V> e = (lo == null) ? m.findNear(null, GT) :
+                m.findNear(lo, loInclusive ? GT|EQ : GT);
+            return (e == null || tooHigh(e.getKey(), m.comparator)) ? null : e;
+        }
+
+        /**
+         * Returns highest entry in range, ignoring directionality.
+         */
+        Map.Entry<K,V> highestEntry() {
+            Map.Entry<K,V> e = (hi == null) ? m.findNear(null, LT) :
+                m.findNear(hi, hiInclusive ? LT|EQ : LT);
+            return (e == null || tooLow(e.getKey(), m.comparator)) ? null : e;
+        }
+
+        K lowestKey() {
+            Map.Entry<K,V> e = lowestEntry();
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        K highestKey() {
+            Map.Entry<K,V> e = highestEntry();
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        Map.Entry<K,V> removeLowest() {
+            for (;;) {
+                Map.Entry<K,V> e = lowestEntry();
+                if (e == null)
+                    return null;
+                K k = e.getKey();
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+        }
+
+        Map.Entry<K,V> removeHighest() {
+            for (;;) {
+                Map.Entry<K,V> e = highestEntry();
+                if (e == null)
+                    return null;
+                K k = e.getKey();
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+        }
+
+        /**
+         * Submap version of ConcurrentBLinkTreeMap.findNear
+         */
+        Map.Entry<K,V> getNearEntry(K key, int rel) {
+            if (key == null)
+                throw new NullPointerException();
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // adjust relation for direction
+                if ((rel & LT) == 0)
+                    rel |= LT;
+                else
+                    rel &= ~LT;
+            }
+            if (tooLow(key, cmp))
+                return ((rel & LT) != 0) ? null : lowestEntry();
+            if (tooHigh(key, cmp))
+                return ((rel & LT) != 0) ? highestEntry() : null;
+            Map.Entry<K,V> e = m.findNear(key, rel);
+            return (e == null || !inBounds(e.getKey(), cmp)) ? null : e;
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (key == null) throw new NullPointerException();
+            return inBounds(key, m.comparator) && m.containsKey(key);
+        }
+
+        public V get(Object key) {
+            if (key == null) throw new NullPointerException();
+            return (!inBounds(key, m.comparator)) ? null : m.get(key);
+        }
+
+        public V put(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return (!inBounds(key, m.comparator)) ? null : m.remove(key);
+        }
+
+        public int size() {
+            long count = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++count;
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return lowestEntry() == null;
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (Iterator<V> it = valueIterator(); it.hasNext(); ) {
+                if (value.equals(it.next()))
+                    return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            for (Iterator<K> it = keyIterator(); it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            return inBounds(key, m.comparator) && m.remove(key, value);
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (isDescending)
+                return Collections.reverseOrder(cmp);
+            else
+                return cmp;
+        }
+
+        /**
+         * Utility to create submaps, where given bounds override
+         * unbounded(null) ones and/or are checked against bounded ones.
+         */
+        SubMap<K,V> newSubMap(K fromKey, boolean fromInclusive,
+                              K toKey, boolean toInclusive) {
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // flip senses
+                K tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (lo != null) {
+                if (fromKey == null) {
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = cpr(cmp, fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            if (hi != null) {
+                if (toKey == null) {
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = cpr(cmp, toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            return new SubMap<K,V>(m, fromKey, fromInclusive,
+                                   toKey, toInclusive, isDescending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                  K toKey, boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public SubMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return new SubMap<K,V>(m, lo, loInclusive,
+                                   hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return getNearEntry(key, GT|EQ);
+        }
+
+        public K ceilingKey(K key) {
+            return keyOrNull(getNearEntry(key, GT|EQ));
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return getNearEntry(key, LT);
+        }
+
+        public K lowerKey(K key) {
+            return keyOrNull(getNearEntry(key, LT));
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return getNearEntry(key, LT|EQ);
+        }
+
+        public K floorKey(K key) {
+            return keyOrNull(getNearEntry(key, LT|EQ));
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return getNearEntry(key, GT);
+        }
+
+        public K higherKey(K key) {
+            return keyOrNull(getNearEntry(key, GT));
+        }
+
+        public K firstKey() {
+            return isDescending ? highestKey() : lowestKey();
+        }
+
+        public K lastKey() {
+            return isDescending ? lowestKey() : highestKey();
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return isDescending ? highestEntry() : lowestEntry();
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return isDescending ? lowestEntry() : highestEntry();
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return isDescending ? removeHighest() : removeLowest();
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return isDescending ? removeLowest() : removeHighest();
+        }
+
+        /* ---------------- Submap Views -------------- */
+
+        @Override
+        public NavigableSet<K> keySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            return keySet();
+        }
+
+        @Override
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = new Values<V>(this));
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySet<K,V>(this));
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        Iterator<K> keyIterator() {
+            return m.keyIterator(lo, loInclusive, hi, hiInclusive, isDescending);
+        }
+
+        Iterator<V> valueIterator() {
+            return m.valueIterator(lo, loInclusive, hi, hiInclusive, isDescending);
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return m.entryIterator(lo, loInclusive, hi, hiInclusive, isDescending);
+        }
+
+        <T> Spliterator<T> spliterator(int kind) {
+            return m.spliterator(kind, lo, loInclusive, hi, hiInclusive,
+                                 isDescending);
+        }
+    }
+}
@@ -71,6 +71,7 @@ import java.util.function.ToIntFunction;
 import java.util.function.ToLongBiFunction;
 import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A hash table supporting full concurrency of retrievals and
@@ -202,6 +203,8 @@ import java.util.stream.Stream;
  * computations. Normally, you would initially choose one of these
  * extreme values, and then measure performance of using in-between
  * values that trade off overhead versus throughput.
+ * Methods {@link #keyStream}, {@link #valueStream} and {@link
+ * #entryStream} apply the same threshold to streams over the map.
  *
  * <p>The concurrency properties of bulk operations follow
  * from those of ConcurrentHashMap: Any non-null result returned
@@ -588,6 +591,20 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
 
+    /**
+     * The maximum number of bins weighed when choosing where to split
+     * a spliterator. Ranges of at most this many bins are weighed
+     * exactly; larger ones are sampled at one bin per equal stride.
+     */
+    private static final int SPLIT_SAMPLES = 128;
+
+    /**
+     * The maximum number of nodes counted in a single bin when
+     * weighing bins for splitting, bounding the cost of walking long
+     * TreeBin lists. A bin this heavy dominates its range anyway.
+     */
+    private static final int SPLIT_WEIGHT_LIMIT = 1 << 10;
+
     /*
      * Encodings for Node hash fields. See above for explanation.
      */
@@ -2110,6 +2127,55 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
 
     // ConcurrentHashMap-only methods
 
+    /**
+     * Returns a Stream over the keys in this map that is parallel only
+     * if the map is estimated to hold at least {@code
+     * parallelismThreshold} mappings; equivalent to {@code
+     * keySet().parallelStream(parallelismThreshold)}.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for the stream to be parallel
+     * @return a possibly parallel Stream over the keys in this map
+     * @see CollectionView#parallelStream(long)
+     */
+    public Stream<K> keyStream(long parallelismThreshold) {
+        return keySet().parallelStream(parallelismThreshold);
+    }
+
+    /**
+     * Returns a Stream over the values in this map that is parallel
+     * only if the map is estimated to hold at least {@code
+     * parallelismThreshold} mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for the stream to be parallel
+     * @return a possibly parallel Stream over the values in this map
+     * @see #values()
+     */
+    public Stream<V> valueStream(long parallelismThreshold) {
+        ValuesView<K,V> vs;
+        if ((vs = values) == null)
+            values = vs = new ValuesView<K,V>(this);
+        return vs.parallelStream(parallelismThreshold);
+    }
+
+    /**
+     * Returns a Stream over the mappings in this map that is parallel
+     * only if the map is estimated to hold at least {@code
+     * parallelismThreshold} mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for the stream to be parallel
+     * @return a possibly parallel Stream over the mappings in this map
+     * @see #entrySet()
+     */
+    public Stream<Map.Entry<K,V>> entryStream(long parallelismThreshold) {
+        EntrySetView<K,V> es;
+        if ((es = entrySet) == null)
+            entrySet = es = new EntrySetView<K,V>(this);
+        return es.parallelStream(parallelismThreshold);
+    }
+
     /**
      * Returns the number of mappings. This method should be used
      * instead of {@link #size} because a ConcurrentHashMap may
@@ -2125,6 +2191,91 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (n < 0L) ? 0L : n; // ignore transient negative values
     }
 
+    /**
+     * Copies all of the mappings from the specified map to this one,
+     * with the same effect as {@link #putAll}, but amortizing the
+     * per-entry costs over the whole batch: the table is presized
+     * once for the combined size, the mappings are grouped by the
+     * bin they fall into so that each bin is locked at most once,
+     * and the element count is updated once per (parallel) task
+     * rather than once per mapping. Concurrent retrievals may observe
+     * any subset of the mappings while the load is in progress, and
+     * {@link #size} may not reflect them until this method returns.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values is null
+     */
+    public void putAllBatched(Map<? extends K, ? extends V> m) {
+        loadBatch(Long.MAX_VALUE, m, null);
+    }
+
+    /**
+     * Same as {@link #putAllBatched(Map)}, but loading disjoint ranges
+     * of bins in parallel using the {@link ForkJoinPool#commonPool()}
+     * when the specified map holds at least the given number of
+     * mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map or any of its
+     *         keys or values is null
+     */
+    public void putAllBatched(long parallelismThreshold,
+                              Map<? extends K, ? extends V> m) {
+        loadBatch(parallelismThreshold, m, null);
+    }
+
+    /**
+     * Performs {@link #merge} for each mapping of the specified map,
+     * batched in the same way as {@link #putAllBatched(Map)}. The
+     * remapping function is invoked while holding the lock of the
+     * bin, so it should be short and simple, and must not attempt to
+     * update any other mappings of this map.
+     *
+     * <p>If the remapping function throws an exception, the mappings
+     * of the bins not yet loaded by the (parallel) task that invoked
+     * it are skipped, and the exception is rethrown once all tasks
+     * have finished, so that this map is not changed by this method
+     * after it returns; it may then hold any subset of the merged
+     * mappings.
+     *
+     * @param m mappings to be merged into this map
+     * @param remappingFunction the function to recompute a value if
+     *        present
+     * @throws NullPointerException if the specified map, any of its
+     *         keys or values, or the remappingFunction is null
+     */
+    public void mergeAll(Map<? extends K, ? extends V> m,
+                         BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        loadBatch(Long.MAX_VALUE, m, remappingFunction);
+    }
+
+    /**
+     * Same as {@link #mergeAll(Map, BiFunction)}, but merging disjoint
+     * ranges of bins in parallel using the {@link
+     * ForkJoinPool#commonPool()} when the specified map holds at least
+     * the given number of mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param m mappings to be merged into this map
+     * @param remappingFunction the function to recompute a value if
+     *        present
+     * @throws NullPointerException if the specified map, any of its
+     *         keys or values, or the remappingFunction is null
+     */
+    public void mergeAll(long parallelismThreshold,
+                         Map<? extends K, ? extends V> m,
+                         BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        loadBatch(parallelismThreshold, m, remappingFunction);
+    }
+
     /**
      * Creates a new {@link Set} backed by a ConcurrentHashMap
      * from the given type to {@code Boolean.TRUE}.
@@ -2619,6 +2770,93 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /* ---------------- Batched loading -------------- */
+
+    /**
+     * Implementation for putAllBatched and mergeAll. Snapshots the
+     * source mappings into parallel arrays (so that no foreign code
+     * other than the remapping function runs while holding a bin
+     * lock), presizes the table for the combined size, orders the
+     * mappings by bin index in the current table, and loads them
+     * with a BatchLoadTask, each subtask of which adds to the count
+     * once, also when the remapping function throws.  An exception is
+     * recorded in the root task rather than completing it abnormally,
+     * which would make invoke return while other subtasks are still
+     * loading, and rethrown when all have completed.
+     *
+     * @param remappingFunction the function for mergeAll, or null
+     * for putAllBatched
+     */
+    private final void loadBatch(long parallelismThreshold,
+                                 Map<? extends K, ? extends V> m,
+                                 BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int c = m.size(), n = 0;
+        Object[] ks = new Object[c], vs = new Object[c];
+        int[] hs = new int[c];
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            K k = e.getKey(); V v = e.getValue();
+            if (k == null || v == null)
+                throw new NullPointerException();
+            if (n == c) { // size was an underestimate (concurrent source)
+                c = (c < 8) ? 16 : c + (c >>> 1);
+                ks = Arrays.copyOf(ks, c);
+                vs = Arrays.copyOf(vs, c);
+                hs = Arrays.copyOf(hs, c);
+            }
+            ks[n] = k;
+            vs[n] = v;
+            hs[n++] = spread(k.hashCode());
+        }
+        if (n == 0)
+            return;
+        long s = sumCount() + n;
+        tryPresize((s >= (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)s);
+        Node<K,V>[] tab = table;
+        if (tab == null || tab.length == 0)
+            tab = initTable();
+        BatchLoadTask<K,V> t = new BatchLoadTask<K,V>
+            (null, batchFor(parallelismThreshold, n), 0, n, this, tab,
+             ks, vs, hs, binOrder(hs, n, tab.length - 1),
+             remappingFunction);
+        t.invoke();
+        Throwable ex = t.failure;
+        if (ex != null) {
+            if (ex instanceof RuntimeException)
+                throw (RuntimeException)ex;
+            if (ex instanceof Error)
+                throw (Error)ex;
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the indices 0..n-1 of the given hashes stably sorted by
+     * bin index (h & mask), so that the mappings of each bin are
+     * contiguous. Uses one counting-sort pass per 16 bits of mask,
+     * so at most two passes for the largest tables.
+     */
+    static int[] binOrder(int[] hs, int n, int mask) {
+        int[] order = new int[n], sorted = null;
+        for (int j = 0; j < n; ++j)
+            order[j] = j;
+        for (int shift = 0; shift < 32 && (mask >>> shift) != 0; shift += 16) {
+            int r = (mask >>> shift) & 0xffff;
+            int[] counts = new int[r + 2];
+            for (int j = 0; j < n; ++j)
+                ++counts[((hs[j] >>> shift) & r) + 1];
+            for (int b = 1; b <= r; ++b)
+                counts[b + 1] += counts[b];
+            if (sorted == null)
+                sorted = new int[n];
+            for (int j = 0; j < n; ++j) {
+                int x = order[j];
+                sorted[counts[(hs[x] >>> shift) & r]++] = x;
+            }
+            int[] tmp = order; order = sorted; sorted = tmp;
+        }
+        return order;
+    }
+
     /* ---------------- Conversion from/to TreeBins -------------- */
 
     /**
@@ -3394,6 +3632,91 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Returns the number of nodes in bin i of table t, counting at
+     * most SPLIT_WEIGHT_LIMIT of them. A bin already moved by a resize
+     * in progress weighs as much as the two bins of the next table it
+     * was split into, which is what a Traverser visits in its place.
+     */
+    static <K,V> int binWeight(Node<K,V>[] t, int i) {
+        Node<K,V> e; int w = 0;
+        if ((e = tabAt(t, i)) != null && e.hash < 0) {
+            if (e instanceof ForwardingNode) {
+                Node<K,V>[] nt = ((ForwardingNode<K,V>)e).nextTable;
+                return binWeight(nt, i) + binWeight(nt, i + t.length);
+            }
+            e = (e instanceof TreeBin) ? ((TreeBin<K,V>)e).first : null;
+        }
+        for (; e != null && w < SPLIT_WEIGHT_LIMIT; e = e.next)
+            ++w;
+        return w;
+    }
+
+    /**
+     * Base of key, value, and entry Spliterators. Splits by the
+     * weight of bins rather than at the midpoint index, so that
+     * skewed tables (long lists or TreeBins clustered in a few bins,
+     * or half of the table already transferred by a resize) still
+     * divide into parts holding about the same number of nodes, and
+     * apportions the size estimate in the same ratio.
+     * 按桶的实际节点数（而不是下标中点）切分，避免并行流出现热点任务。
+     */
+    static class BaseSpliterator<K,V> extends Traverser<K,V> {
+        long est;               // size estimate
+        BaseSpliterator(Node<K,V>[] tab, int size, int index, int limit,
+                        long est) {
+            super(tab, size, index, limit);
+            this.est = est;
+        }
+
+        /**
+         * Splits off the upper part of the remaining range, returning
+         * its first index and leaving the lower part (with its share
+         * of est) in this spliterator; or returns baseIndex if the
+         * range is too small to split. The midpoint is kept unless the
+         * weighed bins put less than a third or more than two thirds
+         * of the nodes below it, in which case the sampled boundary
+         * closest to half the weight is used instead.
+         */
+        final int split() {
+            Node<K,V>[] t; int n;
+            int i = baseIndex, f = baseLimit, r = f - i;
+            if (r < 2)
+                return i;
+            int h = (i + f) >>> 1;
+            long e = est, lower = e >>> 1;
+            if ((t = tab) != null && (n = t.length) >= f) {
+                int m = (r <= SPLIT_SAMPLES) ? r : SPLIT_SAMPLES;
+                int[] ws = new int[m];
+                long total = 0L;
+                for (int j = 0; j < m; ++j)
+                    total += ws[j] = binWeight(t, i + (int)((long)j * r / m));
+                long acc = 0L, best = 0L, bestDiff = Long.MAX_VALUE, mid = 0L;
+                int k = 1, half = m >>> 1;
+                for (int j = 1; j < m; ++j) {
+                    long d = Math.abs(((acc += ws[j - 1]) << 1) - total);
+                    if (j == half)
+                        mid = d;
+                    if (d < bestDiff) {
+                        bestDiff = d;
+                        best = acc;
+                        k = j;
+                    }
+                }
+                // 仅当中点明显失衡时才偏移，避免采样噪声影响均匀的表
+                if (mid * 3L > total) {
+                    h = i + (int)((long)k * r / m);
+                    lower = (long)((double)e * best / total);
+                }
+            }
+            baseLimit = h;
+            est = lower;
+            return h;
+        }
+
+        public final long estimateSize() { return est; }
+    }
+
     /**
      * Base of key, value, and entry Iterators. Adds fields to
      * Traverser to support iterator.remove.
@@ -3522,20 +3845,17 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
-    static final class KeySpliterator<K,V> extends Traverser<K,V>
+    static final class KeySpliterator<K,V> extends BaseSpliterator<K,V>
         implements Spliterator<K> {
-        long est;               // size estimate
         KeySpliterator(Node<K,V>[] tab, int size, int index, int limit,
                        long est) {
-            super(tab, size, index, limit);
-            this.est = est;
+            super(tab, size, index, limit, est);
         }
 
         public Spliterator<K> trySplit() {
-            int i, f, h;
-            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
-                new KeySpliterator<K,V>(tab, baseSize, baseLimit = h,
-                                        f, est >>>= 1);
+            int f = baseLimit, h; long e = est;
+            return (h = split()) <= baseIndex ? null :
+                new KeySpliterator<K,V>(tab, baseSize, h, f, e - est);
         }
 
         public void forEachRemaining(Consumer<? super K> action) {
@@ -3553,28 +3873,23 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             return true;
         }
 
-        public long estimateSize() { return est; }
-
         public int characteristics() {
             return Spliterator.DISTINCT | Spliterator.CONCURRENT |
                 Spliterator.NONNULL;
         }
     }
 
-    static final class ValueSpliterator<K,V> extends Traverser<K,V>
+    static final class ValueSpliterator<K,V> extends BaseSpliterator<K,V>
         implements Spliterator<V> {
-        long est;               // size estimate
         ValueSpliterator(Node<K,V>[] tab, int size, int index, int limit,
                          long est) {
-            super(tab, size, index, limit);
-            this.est = est;
+            super(tab, size, index, limit, est);
         }
 
         public Spliterator<V> trySplit() {
-            int i, f, h;
-            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
-                new ValueSpliterator<K,V>(tab, baseSize, baseLimit = h,
-                                          f, est >>>= 1);
+            int f = baseLimit, h; long e = est;
+            return (h = split()) <= baseIndex ? null :
+                new ValueSpliterator<K,V>(tab, baseSize, h, f, e - est);
         }
 
         public void forEachRemaining(Consumer<? super V> action) {
@@ -3592,29 +3907,24 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             return true;
         }
 
-        public long estimateSize() { return est; }
-
         public int characteristics() {
             return Spliterator.CONCURRENT | Spliterator.NONNULL;
         }
     }
 
-    static final class EntrySpliterator<K,V> extends Traverser<K,V>
+    static final class EntrySpliterator<K,V> extends BaseSpliterator<K,V>
         implements Spliterator<Map.Entry<K,V>> {
         final ConcurrentHashMap<K,V> map; // To export MapEntry
-        long est;               // size estimate
         EntrySpliterator(Node<K,V>[] tab, int size, int index, int limit,
                          long est, ConcurrentHashMap<K,V> map) {
-            super(tab, size, index, limit);
+            super(tab, size, index, limit, est);
             this.map = map;
-            this.est = est;
         }
 
         public Spliterator<Map.Entry<K,V>> trySplit() {
-            int i, f, h;
-            return (h = ((i = baseIndex) + (f = baseLimit)) >>> 1) <= i ? null :
-                new EntrySpliterator<K,V>(tab, baseSize, baseLimit = h,
-                                          f, est >>>= 1, map);
+            int f = baseLimit, h; long e = est;
+            return (h = split()) <= baseIndex ? null :
+                new EntrySpliterator<K,V>(tab, baseSize, h, f, e - est, map);
         }
 
         public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
@@ -3632,8 +3942,6 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             return true;
         }
 
-        public long estimateSize() { return est; }
-
         public int characteristics() {
             return Spliterator.DISTINCT | Spliterator.CONCURRENT |
                 Spliterator.NONNULL;
@@ -3651,8 +3959,16 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      * two anyway.
      */
     final int batchFor(long b) {
-        long n;
-        if (b == Long.MAX_VALUE || (n = sumCount()) <= 1L || n < b)
+        return batchFor(b, sumCount());
+    }
+
+    /**
+     * Same as batchFor(long), but for n elements rather than the
+     * current size; used by batched loads, which split the incoming
+     * mappings instead of the table.
+     */
+    static int batchFor(long b, long n) {
+        if (b == Long.MAX_VALUE || n <= 1L || n < b)
             return 0;
         int sp = ForkJoinPool.getCommonPoolParallelism() << 2; // slack of 4
         return (b <= 0L || (n /= b) >= sp) ? sp : (int)n;
@@ -4408,6 +4724,23 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         public final int size()        { return map.size(); }
         public final boolean isEmpty() { return map.isEmpty(); }
 
+        /**
+         * Returns a Stream over the elements of this view that is
+         * parallel only if the backing map is estimated to hold at
+         * least the given number of mappings, the same test the bulk
+         * operations of the map apply to their {@code
+         * parallelismThreshold}. Small views thus avoid the overhead of
+         * forking tasks that {@link #parallelStream()} always incurs.
+         *
+         * @param parallelismThreshold the (estimated) number of elements
+         * needed for the stream to be parallel
+         * @return a possibly parallel Stream over the elements of this view
+         */
+        public final Stream<E> parallelStream(long parallelismThreshold) {
+            return StreamSupport.stream(spliterator(),
+                                        map.batchFor(parallelismThreshold) > 0);
+        }
+
         // implementations below rely on concrete classes supplying these
         // abstract methods
         /**
@@ -6296,6 +6629,221 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Task for putAllBatched and mergeAll. Unlike BulkTasks, splits
+     * the range [lo, hi) of the bin-ordered mappings, always at a bin
+     * boundary so that each bin is loaded by exactly one task, and
+     * accumulates the net change of the count in delta, which it adds
+     * to the count when done, even if the remapping function throws
+     * (a completion-time reduction to the root would lose the deltas
+     * of the tasks below one that throws). If a bin is found moved by
+     * a concurrent resize, the rest of the range falls back to
+     * putVal/merge.
+     */
+    @SuppressWarnings("serial")
+    static final class BatchLoadTask<K,V> extends CountedCompleter<Void> {
+        final ConcurrentHashMap<K,V> map;
+        final Node<K,V>[] tab;  // table the mappings were ordered for
+        final Object[] keys, vals;
+        final int[] hashes, order;
+        final BiFunction<? super V, ? super V, ? extends V> remappingFunction;
+        final int lo;
+        int hi;
+        int batch;              // split control
+        long delta;             // net change of the count by this task
+        volatile Throwable failure; // in root: first exception thrown
+        BatchLoadTask
+            (BatchLoadTask<K,V> p, int b, int lo, int hi,
+             ConcurrentHashMap<K,V> map, Node<K,V>[] tab,
+             Object[] keys, Object[] vals, int[] hashes, int[] order,
+             BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            super(p);
+            this.batch = b; this.lo = lo; this.hi = hi;
+            this.map = map; this.tab = tab;
+            this.keys = keys; this.vals = vals;
+            this.hashes = hashes; this.order = order;
+            this.remappingFunction = remappingFunction;
+        }
+        public final void compute() {
+            final int[] hs = hashes, ord = order;
+            final int mask = tab.length - 1;
+            for (int i = lo, f, h; batch > 0 &&
+                     (h = ((f = hi) + i) >>> 1) > i;) {
+                // 向后移动到桶的边界
+                for (int b = hs[ord[h]] & mask;
+                     h < f && (hs[ord[h]] & mask) == b; ++h)
+                    ;
+                if (h >= f)
+                    break;
+                addToPendingCount(1);
+                new BatchLoadTask<K,V>
+                    (this, batch >>>= 1, h, f, map, tab, keys, vals, hs, ord,
+                     remappingFunction).fork();
+                hi = h;
+            }
+            try {
+                for (int j = lo, end = hi; j < end; ) {
+                    int i = hs[ord[j]] & mask, k = j + 1;
+                    while (k < end && (hs[ord[k]] & mask) == i)
+                        ++k;
+                    if ((j = loadBin(i, j, k)) < k) {
+                        loadEach(j, end);
+                        break;
+                    }
+                }
+            } catch (Throwable ex) {
+                // 记录在根任务中，等所有子任务完成后再由调用者抛出
+                @SuppressWarnings("unchecked")
+                BatchLoadTask<K,V> r = (BatchLoadTask<K,V>)getRoot();
+                if (r.failure == null)
+                    r.failure = ex;
+            } finally {
+                // 已载入的映射即使函数抛出异常也要计数
+                long d = delta;
+                if (d != 0L)
+                    map.addCount(d, (d > 0L) ? 2 : -1);
+            }
+            propagateCompletion();
+        }
+
+        /**
+         * Loads the mappings order[j..k), which all fall into bin i
+         * of tab, normally locking the bin once for all of them.
+         * Relocks only if the bin head changes, for example when a
+         * merge removes it.
+         *
+         * @return the index of the first mapping not loaded, less
+         * than k only if the bin has been moved by a resize
+         */
+        @SuppressWarnings("unchecked")
+        final int loadBin(int i, int j, int k) {
+            final Node<K,V>[] tab = this.tab;
+            final Object[] ks = keys, vs = vals;
+            final int[] hs = hashes, ord = order;
+            final BiFunction<? super V, ? super V, ? extends V> fn =
+                remappingFunction;
+            int binCount = 0;
+            while (j < k) {
+                Node<K,V> f; int fh;
+                if ((f = tabAt(tab, i)) == null) {
+                    int x = ord[j];
+                    if (casTabAt(tab, i, null, new Node<K,V>
+                                 (hs[x], (K)ks[x], (V)vs[x], null))) {
+                        ++delta;
+                        ++j;
+                    }
+                }
+                else if ((fh = f.hash) == MOVED)
+                    return j;
+                else {
+                    synchronized (f) {
+                        if (tabAt(tab, i) == f) {
+                            if (fh >= 0) {
+                                scan: for (; j < k; ++j) {
+                                    int x = ord[j], h = hs[x], c = 1;
+                                    K key = (K)ks[x];
+                                    V value = (V)vs[x];
+                                    for (Node<K,V> e = f, pred = null;; ++c) {
+                                        K ek;
+                                        if (e.hash == h &&
+                                            ((ek = e.key) == key ||
+                                             (ek != null && key.equals(ek)))) {
+                                            V val = (fn == null) ? value :
+                                                fn.apply(e.val, value);
+                                            if (val != null)
+                                                e.val = val;
+                                            else {
+                                                --delta;
+                                                Node<K,V> en = e.next;
+                                                if (pred != null)
+                                                    pred.next = en;
+                                                else {
+                                                    // 头节点已删除，需重新加锁
+                                                    setTabAt(tab, i, en);
+                                                    ++j;
+                                                    break scan;
+                                                }
+                                            }
+                                            break;
+                                        }
+                                        pred = e;
+                                        if ((e = e.next) == null) {
+                                            ++delta;
+                                            pred.next =
+                                                new Node<K,V>(h, key, value, null);
+                                            break;
+                                        }
+                                    }
+                                    if (c > binCount)
+                                        binCount = c;
+                                }
+                            }
+                            else if (f instanceof TreeBin) {
+                                binCount = 2;
+                                TreeBin<K,V> t = (TreeBin<K,V>)f;
+                                for (; j < k; ++j) {
+                                    int x = ord[j], h = hs[x];
+                                    K key = (K)ks[x];
+                                    V value = (V)vs[x];
+                                    TreeNode<K,V> p;
+                                    if (fn == null) {
+                                        if ((p = t.putTreeVal(h, key, value)) != null)
+                                            p.val = value;
+                                        else
+                                            ++delta;
+                                        continue;
+                                    }
+                                    TreeNode<K,V> r = t.root;
+                                    p = (r == null) ? null :
+                                        r.findTreeNode(h, key, null);
+                                    V val = (p == null) ? value :
+                                        fn.apply(p.val, value);
+                                    if (val != null) {
+                                        if (p != null)
+                                            p.val = val;
+                                        else {
+                                            ++delta;
+                                            t.putTreeVal(h, key, val);
+                                        }
+                                    }
+                                    else if (p != null) {
+                                        --delta;
+                                        if (t.removeTreeNode(p)) {
+                                            setTabAt(tab, i, untreeify(t.first));
+                                            ++j;
+                                            break;
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (binCount >= TREEIFY_THRESHOLD)
+                map.treeifyBin(tab, i);
+            return j;
+        }
+
+        /**
+         * Loads the mappings order[j..k) one at a time, each adding
+         * to the count itself.
+         */
+        @SuppressWarnings("unchecked")
+        final void loadEach(int j, int k) {
+            final ConcurrentHashMap<K,V> m = map;
+            final BiFunction<? super V, ? super V, ? extends V> fn =
+                remappingFunction;
+            for (; j < k; ++j) {
+                int x = order[j];
+                if (fn == null)
+                    m.putVal((K)keys[x], (V)vals[x], false);
+                else
+                    m.merge((K)keys[x], (V)vals[x], fn);
+            }
+        }
+    }
+
     // Unsafe mechanics
     private static final sun.misc.Unsafe U;
     private static final long SIZECTL;
@@ -17,10 +17,13 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToLongBiFunction;
 
 /**
  * A scalable concurrent {@link ConcurrentNavigableMap} implementation.
@@ -47,6 +50,16 @@ import java.util.function.Function;
  * <p>Ascending key ordered views and their iterators are faster than
  * descending ones.
  *
+ * <p>Like {@link ConcurrentHashMap}, this class supports parallel bulk
+ * operations ({@code forEach}, {@code search}, {@code reduce} and
+ * {@code reduceToLong}) taking a {@code parallelismThreshold} argument,
+ * over the whole map or over a range of keys.  They run in the
+ * {@link ForkJoinPool#commonPool()}, dividing the mappings among tasks
+ * at nodes of the index levels.  As for {@code ConcurrentHashMap}, the
+ * supplied functions should not rely on any ordering, and reducers must
+ * be associative and commutative.
+ * 支持按索引层分割并行执行的批量操作。
+ *
  * <p>All {@code Map.Entry} pairs returned by methods in this class
  * and its views represent snapshots of mappings at the time they were
  * produced. They do <em>not</em> support the {@code Entry.setValue}
@@ -2366,6 +2379,252 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
     }
 
 
+    /* ---------------- Parallel bulk operations -------------- */
+
+    /**
+     * Computes initial batch value for bulk tasks, as in
+     * ConcurrentHashMap: approximately the number of tasks to split
+     * into.  Since counting the elements takes a traversal, their
+     * number is estimated from the height of the index levels, each
+     * of which holds about half of the nodes of the level below, and
+     * the lowest about a quarter of the base nodes.
+     */
+    final int batchFor(long b) {
+        long n = 1L << Math.min(head.level + 2, 62);
+        if (b == Long.MAX_VALUE || n < b)
+            return 0;
+        int sp = ForkJoinPool.getCommonPoolParallelism() << 2; // slack of 4
+        return (b <= 0L || (n /= b) >= sp) ? sp : (int)n;
+    }
+
+    /**
+     * Returns the first node of a range for bulk tasks, checking the
+     * bounds as for submaps.
+     */
+    private Node<K,V> bulkOrigin(K fromKey, boolean fromInclusive, K toKey) {
+        Comparator<? super K> cmp = comparator;
+        if (fromKey == null)
+            return findFirst();
+        if (toKey != null && cpr(cmp, fromKey, toKey) > 0)
+            throw new IllegalArgumentException("inconsistent range");
+        return findNear(fromKey, fromInclusive ? GT|EQ : GT, cmp);
+    }
+
+    /**
+     * Performs the given action for each (key, value).
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param action the action
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K,? super V> action) {
+        forEach(parallelismThreshold, null, false, null, false, action);
+    }
+
+    /**
+     * Performs the given action for each (key, value) with a key in
+     * the given range, which is that of {@link #subMap(Object, boolean,
+     * Object, boolean) subMap}, except that a null bound leaves the
+     * range unbounded on that side.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param fromKey low endpoint of the keys, or null if none
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys, or null if none
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @param action the action
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     */
+    public void forEach(long parallelismThreshold,
+                        K fromKey, boolean fromInclusive,
+                        K toKey, boolean toInclusive,
+                        BiConsumer<? super K,? super V> action) {
+        if (action == null) throw new NullPointerException();
+        new ForEachMappingTask<K,V>
+            (null, batchFor(parallelismThreshold), comparator, head,
+             bulkOrigin(fromKey, fromInclusive, toKey), toKey, toInclusive,
+             action).invoke();
+    }
+
+    /**
+     * Returns a non-null result from applying the given search
+     * function on each (key, value), or null if none.  Upon
+     * success, further element processing is suppressed and the
+     * results of any other parallel invocations of the search
+     * function are ignored.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param searchFunction a function returning a non-null
+     * result on success, else null
+     * @param <U> the return type of the search function
+     * @return a non-null result from applying the given search
+     * function on each (key, value), or null if none
+     */
+    public <U> U search(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return search(parallelismThreshold, null, false, null, false,
+                      searchFunction);
+    }
+
+    /**
+     * Returns a non-null result from applying the given search
+     * function on each (key, value) with a key in the given range, or
+     * null if none.  The range is as for {@link #forEach(long, Object,
+     * boolean, Object, boolean, BiConsumer) forEach}.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param fromKey low endpoint of the keys, or null if none
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys, or null if none
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @param searchFunction a function returning a non-null
+     * result on success, else null
+     * @param <U> the return type of the search function
+     * @return a non-null result from applying the given search
+     * function on each (key, value) in range, or null if none
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     */
+    public <U> U search(long parallelismThreshold,
+                        K fromKey, boolean fromInclusive,
+                        K toKey, boolean toInclusive,
+                        BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) throw new NullPointerException();
+        return new SearchMappingsTask<K,V,U>
+            (null, batchFor(parallelismThreshold), comparator, head,
+             bulkOrigin(fromKey, fromInclusive, toKey), toKey, toInclusive,
+             searchFunction, new AtomicReference<U>()).invoke();
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param transformer a function returning the transformation
+     * for an element, or null if there is no transformation (in
+     * which case it is not combined)
+     * @param reducer a commutative associative combining function
+     * @param <U> the return type of the transformer
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return reduce(parallelismThreshold, null, false, null, false,
+                      transformer, reducer);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs with a key in the given range using
+     * the given reducer to combine values, or null if none.  The range
+     * is as for {@link #forEach(long, Object, boolean, Object, boolean,
+     * BiConsumer) forEach}.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param fromKey low endpoint of the keys, or null if none
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys, or null if none
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @param transformer a function returning the transformation
+     * for an element, or null if there is no transformation (in
+     * which case it is not combined)
+     * @param reducer a commutative associative combining function
+     * @param <U> the return type of the transformer
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs in range
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        K fromKey, boolean fromInclusive,
+                        K toKey, boolean toInclusive,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new MapReduceMappingsTask<K,V,U>
+            (null, batchFor(parallelismThreshold), comparator, head,
+             bulkOrigin(fromKey, fromInclusive, toKey), toKey, toInclusive,
+             null, transformer, reducer).invoke();
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, and the given basis as an identity value.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param transformer a function returning the transformation
+     * for an element
+     * @param basis the identity (initial default value) for the reduction
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     */
+    public long reduceToLong(long parallelismThreshold,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        return reduceToLong(parallelismThreshold, null, false, null, false,
+                            transformer, basis, reducer);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs with a key in the given range using
+     * the given reducer to combine values, and the given basis as an
+     * identity value.  The range is as for {@link #forEach(long, Object,
+     * boolean, Object, boolean, BiConsumer) forEach}.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param fromKey low endpoint of the keys, or null if none
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys, or null if none
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @param transformer a function returning the transformation
+     * for an element
+     * @param basis the identity (initial default value) for the reduction
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs in range
+     * @throws IllegalArgumentException if {@code fromKey} is greater than
+     *         {@code toKey}
+     */
+    public long reduceToLong(long parallelismThreshold,
+                             K fromKey, boolean fromInclusive,
+                             K toKey, boolean toInclusive,
+                             ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis,
+                             LongBinaryOperator reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new MapReduceMappingsToLongTask<K,V>
+            (null, batchFor(parallelismThreshold), comparator, head,
+             bulkOrigin(fromKey, fromInclusive, toKey), toKey, toInclusive,
+             null, transformer, basis, reducer).invoke();
+    }
+
     /* ---------------- Iterators -------------- */
 
     /**
@@ -3694,6 +3953,277 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /* ---------------- Bulk tasks -------------- */
+
+    /**
+     * Base class for bulk tasks.  A task covers the base nodes from
+     * {@code current} up to its fence, and splits off its lower part at
+     * an index node, as CSLMSpliterator does: walking along the row
+     * from the current key, the first index node below the fence gives
+     * the split key, and the row below holds the index nodes of the
+     * lower part.  Failing that, the row moves down a level.
+     */
+    @SuppressWarnings("serial")
+    abstract static class BulkTask<K,V,R> extends CountedCompleter<R> {
+        final Comparator<? super K> comparator;
+        final K fence;               // upper bound for keys, or null if to end
+        final boolean fenceInclusive;
+        Index<K,V> row;              // the level to split out
+        Node<K,V> current;           // current traversal node
+        int batch;                   // split control
+        Node<K,V> splitOrigin;       // lower part of last split
+        Index<K,V> splitRow;
+        K key;                       // mapping found by advance
+        V value;
+
+        BulkTask(BulkTask<K,V,?> par, int b, Comparator<? super K> cmp,
+                 Index<K,V> row, Node<K,V> origin, K fence,
+                 boolean fenceInclusive) {
+            super(par);
+            this.batch = b;
+            this.comparator = cmp;
+            this.row = row;
+            this.current = origin;
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+        }
+
+        /**
+         * Narrows this task to the keys from the split key on, recording
+         * the lower part in splitOrigin and splitRow.  Returns the split
+         * key, which is the exclusive fence of the lower part, or null
+         * if no split point was found.
+         */
+        final K split() {
+            Comparator<? super K> cmp = comparator;
+            K f = fence;
+            Node<K,V> e; K ek;
+            if ((e = current) == null || (ek = e.key) == null)
+                return null;
+            for (Index<K,V> q = row; q != null; q = row = q.down) {
+                Index<K,V> s; Node<K,V> b, n; K bk, sk;
+                // 沿着这一层前进到当前键
+                while ((s = q.right) != null && (b = s.node) != null &&
+                       (bk = b.key) != null && cpr(cmp, bk, ek) < 0)
+                    q = s;
+                if (s != null && (b = s.node) != null &&
+                    (n = b.next) != null && n.value != null &&
+                    (sk = n.key) != null && cpr(cmp, sk, ek) > 0 &&
+                    (f == null || cpr(cmp, sk, f) < 0)) {
+                    splitOrigin = e;
+                    splitRow = q.down;
+                    current = n;
+                    row = (s.right != null) ? s : s.down;
+                    return sk;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Advances to the next mapping in range, recording it in key and
+         * value.  Returns false at the end of the range.
+         */
+        @SuppressWarnings("unchecked")
+        final boolean advance() {
+            Comparator<? super K> cmp = comparator;
+            K f = fence;
+            for (Node<K,V> e = current; e != null; e = e.next) {
+                K k; Object v; int c;
+                if ((k = e.key) != null && f != null &&
+                    ((c = cpr(cmp, k, f)) > 0 || (c == 0 && !fenceInclusive)))
+                    break;
+                if (k != null && (v = e.value) != null && v != e) {
+                    current = e.next;
+                    key = k;
+                    value = (V)v;
+                    return true;
+                }
+            }
+            current = null;
+            key = null;
+            value = null;
+            return false;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ForEachMappingTask<K,V>
+        extends BulkTask<K,V,Void> {
+        final BiConsumer<? super K, ? super V> action;
+        ForEachMappingTask
+            (BulkTask<K,V,?> p, int b, Comparator<? super K> cmp,
+             Index<K,V> row, Node<K,V> origin, K fence, boolean fenceInclusive,
+             BiConsumer<? super K,? super V> action) {
+            super(p, b, cmp, row, origin, fence, fenceInclusive);
+            this.action = action;
+        }
+        public final void compute() {
+            final BiConsumer<? super K, ? super V> action;
+            if ((action = this.action) != null) {
+                for (K sk; batch > 0 && (sk = split()) != null; ) {
+                    addToPendingCount(1);
+                    new ForEachMappingTask<K,V>
+                        (this, batch >>>= 1, comparator, splitRow,
+                         splitOrigin, sk, false, action).fork();
+                }
+                while (advance())
+                    action.accept(key, value);
+                propagateCompletion();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class SearchMappingsTask<K,V,U>
+        extends BulkTask<K,V,U> {
+        final BiFunction<? super K, ? super V, ? extends U> searchFunction;
+        final AtomicReference<U> result;
+        SearchMappingsTask
+            (BulkTask<K,V,?> p, int b, Comparator<? super K> cmp,
+             Index<K,V> row, Node<K,V> origin, K fence, boolean fenceInclusive,
+             BiFunction<? super K, ? super V, ? extends U> searchFunction,
+             AtomicReference<U> result) {
+            super(p, b, cmp, row, origin, fence, fenceInclusive);
+            this.searchFunction = searchFunction; this.result = result;
+        }
+        public final U getRawResult() { return result.get(); }
+        public final void compute() {
+            final BiFunction<? super K, ? super V, ? extends U> searchFunction;
+            final AtomicReference<U> result;
+            if ((searchFunction = this.searchFunction) != null &&
+                (result = this.result) != null) {
+                for (K sk; batch > 0 && (sk = split()) != null; ) {
+                    if (result.get() != null)
+                        return;
+                    addToPendingCount(1);
+                    new SearchMappingsTask<K,V,U>
+                        (this, batch >>>= 1, comparator, splitRow,
+                         splitOrigin, sk, false, searchFunction,
+                         result).fork();
+                }
+                while (result.get() == null) {
+                    U u;
+                    if (!advance()) {
+                        propagateCompletion();
+                        break;
+                    }
+                    if ((u = searchFunction.apply(key, value)) != null) {
+                        if (result.compareAndSet(null, u))
+                            quietlyCompleteRoot();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsTask<K,V,U>
+        extends BulkTask<K,V,U> {
+        final BiFunction<? super K, ? super V, ? extends U> transformer;
+        final BiFunction<? super U, ? super U, ? extends U> reducer;
+        U result;
+        MapReduceMappingsTask<K,V,U> rights, nextRight;
+        MapReduceMappingsTask
+            (BulkTask<K,V,?> p, int b, Comparator<? super K> cmp,
+             Index<K,V> row, Node<K,V> origin, K fence, boolean fenceInclusive,
+             MapReduceMappingsTask<K,V,U> nextRight,
+             BiFunction<? super K, ? super V, ? extends U> transformer,
+             BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(p, b, cmp, row, origin, fence, fenceInclusive);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+        public final U getRawResult() { return result; }
+        public final void compute() {
+            final BiFunction<? super K, ? super V, ? extends U> transformer;
+            final BiFunction<? super U, ? super U, ? extends U> reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                for (K sk; batch > 0 && (sk = split()) != null; ) {
+                    addToPendingCount(1);
+                    (rights = new MapReduceMappingsTask<K,V,U>
+                     (this, batch >>>= 1, comparator, splitRow, splitOrigin,
+                      sk, false, rights, transformer, reducer)).fork();
+                }
+                U r = null;
+                while (advance()) {
+                    U u;
+                    if ((u = transformer.apply(key, value)) != null)
+                        r = (r == null) ? u : reducer.apply(r, u);
+                }
+                result = r;
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    MapReduceMappingsTask<K,V,U>
+                        t = (MapReduceMappingsTask<K,V,U>)c,
+                        s = t.rights;
+                    while (s != null) {
+                        U tr, sr;
+                        if ((sr = s.result) != null)
+                            t.result = (((tr = t.result) == null) ? sr :
+                                        reducer.apply(tr, sr));
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsToLongTask<K,V>
+        extends BulkTask<K,V,Long> {
+        final ToLongBiFunction<? super K, ? super V> transformer;
+        final LongBinaryOperator reducer;
+        final long basis;
+        long result;
+        MapReduceMappingsToLongTask<K,V> rights, nextRight;
+        MapReduceMappingsToLongTask
+            (BulkTask<K,V,?> p, int b, Comparator<? super K> cmp,
+             Index<K,V> row, Node<K,V> origin, K fence, boolean fenceInclusive,
+             MapReduceMappingsToLongTask<K,V> nextRight,
+             ToLongBiFunction<? super K, ? super V> transformer,
+             long basis,
+             LongBinaryOperator reducer) {
+            super(p, b, cmp, row, origin, fence, fenceInclusive);
+            this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.basis = basis; this.reducer = reducer;
+        }
+        public final Long getRawResult() { return result; }
+        public final void compute() {
+            final ToLongBiFunction<? super K, ? super V> transformer;
+            final LongBinaryOperator reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                long r = this.basis;
+                for (K sk; batch > 0 && (sk = split()) != null; ) {
+                    addToPendingCount(1);
+                    (rights = new MapReduceMappingsToLongTask<K,V>
+                     (this, batch >>>= 1, comparator, splitRow, splitOrigin,
+                      sk, false, rights, transformer, r, reducer)).fork();
+                }
+                while (advance())
+                    r = reducer.applyAsLong(r, transformer.applyAsLong(key, value));
+                result = r;
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    MapReduceMappingsToLongTask<K,V>
+                        t = (MapReduceMappingsToLongTask<K,V>)c,
+                        s = t.rights;
+                    while (s != null) {
+                        t.result = reducer.applyAsLong(t.result, s.result);
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
     // Unsafe mechanics
     // 非安全机制
     /**
@@ -201,6 +201,38 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         last = last.next = node;
     }
 
+    /**
+     * Links the chain of nodes from first to end at end of queue.
+     *
+     * @param first the first node of the chain
+     * @param end the last node of the chain
+     */
+    private void enqueue(Node<E> first, Node<E> end) {
+        // assert putLock.isHeldByCurrentThread();
+        // assert last.next == null && end.next == null;
+        last.next = first;
+        last = end;
+    }
+
+    /**
+     * Links the elements of c into a chain of new nodes, outside of
+     * any lock, returning the first node (or null if c is empty).
+     */
+    private static <E> Node<E> chain(Collection<? extends E> c) {
+        Node<E> first = null, end = null;
+        for (E e : c) {
+            if (e == null)
+                throw new NullPointerException();
+            Node<E> node = new Node<E>(e);
+            if (first == null)
+                first = node;
+            else
+                end.next = node;
+            end = node;
+        }
+        return first;
+    }
+
     /**
      * Removes a node from head of queue.
      *
@@ -431,6 +463,125 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         return c >= 0;
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the tail
+     * of this queue, in traversal order of the collection's iterator, if it
+     * is possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * (inserting none of them) if there is not room for all of them.
+     *
+     * <p>The nodes are linked together before taking the put lock, and
+     * appended with a single acquisition of the lock and a single update
+     * of the count, so that inserting a batch costs about as much as a
+     * single {@link #offer(Object) offer}.  The elements are contiguous in
+     * this queue.
+     *
+     * @param c the elements to insert
+     * @return {@code true} if the elements were inserted (or {@code c} is
+     *         empty), else {@code false}
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null (in which case nothing is inserted)
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public boolean offerAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> first = chain(c);
+        if (first == null)
+            return true;
+        Node<E> end = first;
+        int n = 1;
+        for (Node<E> p; (p = end.next) != null; end = p)
+            ++n;
+        final AtomicInteger count = this.count;
+        if (count.get() > capacity - n)
+            return false;
+        int k = -1;
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            if (count.get() <= capacity - n) {
+                enqueue(first, end);
+                k = count.getAndAdd(n);
+                if (k + n < capacity)
+                    notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        // 只唤醒一个消费者，其余由级联通知唤醒
+        if (k == 0)
+            signalNotEmpty();
+        return k >= 0;
+    }
+
+    /**
+     * Inserts all of the elements of the specified collection at the tail
+     * of this queue, in traversal order of the collection's iterator,
+     * waiting if necessary for space to become available.
+     *
+     * <p>Each time there is room, as many of the remaining elements as fit
+     * are appended with a single update of the count, all under one
+     * acquisition of the put lock; elements inserted by other threads can
+     * come between two such runs only while this method waits for space.
+     *
+     * @param c the elements to insert
+     * @throws InterruptedException if interrupted while waiting, in which
+     *         case only a (possibly empty) prefix of the elements has been
+     *         inserted
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null (in which case nothing is inserted)
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> first = chain(c);
+        if (first == null)
+            return;
+        Node<E> chainEnd = first;
+        int n = 1;
+        for (Node<E> p; (p = chainEnd.next) != null; chainEnd = p)
+            ++n;
+        boolean signal = false;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            for (;;) {
+                int size;
+                while ((size = count.get()) == capacity) {
+                    notFull.await();
+                }
+                int k = Math.min(n, capacity - size);
+                Node<E> end = chainEnd;
+                if (k < n) {
+                    end = first;
+                    for (int i = 1; i < k; ++i)
+                        end = end.next;
+                }
+                Node<E> rest = end.next;
+                end.next = null;
+                enqueue(first, end);
+                int c0 = count.getAndAdd(k);
+                if (c0 + k < capacity)
+                    notFull.signal();
+                if ((n -= k) == 0) {
+                    signal = (c0 == 0);
+                    break;
+                }
+                // 还要继续等待空间，须在持锁时通知消费者
+                if (c0 == 0)
+                    signalNotEmpty();
+                first = rest;
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (signal)
+            signalNotEmpty();
+    }
+
     public E take() throws InterruptedException {
         E x;
         int c = -1;
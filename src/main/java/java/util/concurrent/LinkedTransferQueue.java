@@ -473,6 +473,15 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             this.isData = isData;
         }
 
+        /**
+         * Links a node after this one in a chain being built for a batch
+         * append.  Uses relaxed write because the chain can only be seen
+         * after publication of its first node via casNext.
+         */
+        final void chainNext(Node val) {
+            UNSAFE.putObject(this, nextOffset, val);
+        }
+
         /**
          * Links node to itself to avoid garbage retention.  Called
          * only after CASing head field, so uses relaxed write.
@@ -660,11 +669,29 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * predecessor
      */
     private Node tryAppend(Node s, boolean haveData) {
+        return tryAppend(s, s, haveData);
+    }
+
+    /**
+     * Tries to append the chain of nodes from s to last, already
+     * linked through their next fields, with a single CAS.
+     *
+     * @param s the first node to append
+     * @param last the last node of the chain
+     * @param haveData true if appending in data mode
+     * @return null on failure due to losing race with append in
+     * different mode, else s's predecessor, or s itself if no
+     * predecessor
+     */
+    private Node tryAppend(Node s, Node last, boolean haveData) {
         for (Node t = tail, p = t;;) {        // move p to last node and append
             Node n, u;                        // temps for reads of next & tail
             if (p == null && (p = head) == null) {
-                if (casHead(null, s))
+                if (casHead(null, s)) {
+                    if (s != last)
+                        casTail(null, last);
                     return s;                 // initialize
+                }
             }
             else if (p.cannotPrecede(haveData))
                 return null;                  // lost race vs opposite mode
@@ -674,7 +701,8 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             else if (!p.casNext(null, s))
                 p = p.next;                   // re-read on CAS failure
             else {
-                if (p != t) {                 // update if slack now >= 2
+                if (p != t || s != last) {    // update if slack now >= 2
+                    s = last;
                     while ((tail != t || !casTail(t, s)) &&
                            (t = tail)   != null &&
                            (s = t.next) != null && // advance and retry
@@ -1210,6 +1238,53 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         return true;
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the tail
+     * of this queue, in traversal order of the collection's iterator.
+     * As the queue is unbounded, this method will never throw
+     * {@link IllegalStateException}.
+     *
+     * <p>Elements are first transferred one by one to consumers already
+     * waiting in {@link #take} or timed {@link #poll(long,TimeUnit) poll},
+     * if any.  The remaining elements are linked into a chain of nodes
+     * beforehand, and appended together with a single CAS, so that the
+     * elements are contiguous in this queue and a batch costs about as
+     * much as a single {@link #offer(Object) offer}.
+     *
+     * @param c the elements to insert
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null (in which case nothing is inserted)
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        int n = a.length;
+        for (int i = 0; i < n; ++i) {
+            if (a[i] == null)
+                throw new NullPointerException();
+        }
+        for (int i = 0; i < n; ) {
+            // 先直接交给已在等待的消费者
+            if (xfer(LinkedTransferQueue.<E>cast(a[i]), true, NOW, 0) == null) {
+                ++i;
+                continue;
+            }
+            Node first = new Node(a[i], true), last = first;
+            for (int j = i + 1; j < n; ++j) {
+                Node q = new Node(a[j], true);
+                last.chainNext(q);
+                last = q;
+            }
+            if (tryAppend(first, last, true) != null)
+                break;
+            // lost race vs a newly waiting consumer; match it first
+        }
+        return n > 0;
+    }
+
     /**
      * Transfers the element to a waiting consumer immediately, if possible.
      *
@@ -0,0 +1,822 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, in which producers and consumers never take a lock.  This
+ * queue orders elements FIFO (first-in-first-out), like {@link
+ * ArrayBlockingQueue}, and like it holds at most a fixed number of
+ * elements given when it is created.
+ * 基于数组的有界无锁多生产者多消费者阻塞队列(每个槽位一个序号，CAS推进头尾计数器)。
+ *
+ * <p>Every slot of the array carries a sequence number telling which
+ * position of the queue it is ready for, so an insertion or removal is a
+ * single CAS on the tail or head counter followed by a write of the slot,
+ * and threads contend only on the counter of their own end of the queue.
+ * The two counters are padded to keep them on different cache lines.
+ * Threads block (by {@link LockSupport#park parking}) only in {@code put}
+ * when the queue is full and in {@code take} when it is empty, and are
+ * woken one per element by the threads that make room or add elements.
+ * Bulk {@link #drainTo(Collection) drainTo} and {@link #addAll addAll}
+ * claim a whole run of slots with one CAS.
+ *
+ * <p>The queue has no lock to order waiting threads, so there is no
+ * fairness policy.  Interior elements can be removed, by {@link
+ * #remove(Object)} or by the {@code remove} method of the iterator, but
+ * the slot of a removed element is only freed when consumers reach it,
+ * so until then it still counts against the capacity: {@link
+ * #remainingCapacity} may be less than the capacity minus {@code size}.
+ * Iterators are <i>weakly consistent</i>.  The {@code size} method
+ * returns the number of positions claimed by producers and not yet by
+ * consumers, less the removed elements, which may briefly include
+ * elements that are still being written.
+ *
+ * <p>This class does not permit {@code null} elements.
+ *
+ * @param <E> the type of elements held in this collection
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = -4457193226581624361L;
+
+    /*
+     * This is D. Vyukov's bounded MPMC queue.  Positions are counted
+     * from 0 by the long counters head (next position to take) and
+     * tail (next position to put); position p lives in slot
+     * p % capacity.  The sequence number of a slot is
+     *
+     *   2p      when the slot is free to receive the element of position p,
+     *   2p + 1  once that element has been written, and
+     *   2(p + capacity)  once it has been taken again (free for the next
+     *           lap).
+     *
+     * (Vyukov's queue uses p, p + 1 and p + capacity, which cannot tell a
+     * full slot from a free one when the capacity is 1.)  A producer reads
+     * tail = p; if the slot's sequence is 2p it CASes tail to p + 1, writes
+     * the element and then the sequence 2p + 1; if the sequence is less
+     * than 2p the slot still holds an element of the previous lap, so the
+     * queue is full; if it is greater, tail is stale and it retries.
+     * Consumers do the same on head, expecting 2p + 1, and release the
+     * slot with 2(p + capacity).  Bulk operations count a
+     * run of consecutive ready slots and claim all of them with a single
+     * CAS of the counter, which is valid since nobody else can claim a
+     * position at or past the counter value the CAS expects.
+     *
+     * An interior element is removed by CASing its slot to null while
+     * the sequence still shows it present, which leaves the slot
+     * occupied.  So consumers take the element of a claimed position by
+     * swapping null into the slot, and if they get null, free the slot
+     * and move on to the next position.  The removed count corrects
+     * size for the removed elements not yet passed by consumers; it is
+     * incremented by removers after their CAS and decremented by the
+     * consumers that skip the slot, so it may briefly be one off.
+     *
+     * Blocking uses two Treiber stacks of WaitNodes, takers and
+     * putters.  A thread that finds the queue empty (full) pushes a
+     * node, re-checks, and parks.  A thread that publishes an element
+     * (releases a slot) and then sees a non-empty takers (putters) stack
+     * pops nodes until it claims one by CASing its thread to null, and
+     * unparks that thread.  Since the sequence stores are volatile, as
+     * are the pushes and the reads of the stack heads, either the waiter's
+     * re-check sees the new element or the publisher sees the waiter.
+     * A waiter that leaves, whether it gives up (timeout, interrupt) or
+     * succeeds on a re-check, withdraws its node by the same CAS; if it
+     * loses, it was signalled by a publisher whose element (slot) it may
+     * not have got, so it passes the signal on.  Withdrawn nodes stay in
+     * the stack until popped by a signal or pruned from the top by the
+     * next push.
+     */
+
+    /** The maximum number of elements. */
+    final int capacity;
+
+    /** capacity - 1 if capacity is a power of two, else -1. */
+    private transient int mask;
+
+    /** The queued elements, position p in slot p % capacity. */
+    private transient Object[] items;
+
+    /** The sequence number of each slot, as described above. */
+    private transient long[] sequences;
+
+    /** The next position to take. */
+    @sun.misc.Contended
+    private transient volatile long head;
+
+    /** The next position to put. */
+    @sun.misc.Contended
+    private transient volatile long tail;
+
+    /** Threads waiting for an element. */
+    private transient volatile WaitNode takers;
+
+    /** Threads waiting for a free slot. */
+    private transient volatile WaitNode putters;
+
+    /** The number of removed elements whose slots are not yet freed. */
+    private transient volatile long removed;
+
+    /**
+     * A thread waiting in take or put. The thread field is cleared by
+     * whoever claims the node: a signalling thread, or the waiter itself
+     * when it gives up.
+     */
+    static final class WaitNode {
+        volatile Thread thread;
+        WaitNode next;
+        WaitNode(Thread thread) { this.thread = thread; }
+    }
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        init();
+    }
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with the given (fixed)
+     * capacity, initially containing the elements of the given
+     * collection, added in traversal order of the collection's iterator.
+     *
+     * @param capacity the capacity of this queue
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         {@code c.size()}, or less than 1.
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public MpmcArrayBlockingQueue(int capacity, Collection<? extends E> c) {
+        this(capacity);
+        Object[] a = c.toArray();
+        if (a.length > capacity)
+            throw new IllegalArgumentException();
+        for (Object e : a) {
+            if (e == null)
+                throw new NullPointerException();
+        }
+        offerBatch(a, 0, a.length);
+    }
+
+    private void init() {
+        int n = capacity;
+        mask = ((n & (n - 1)) == 0) ? n - 1 : -1;
+        items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = (long) i << 1;
+        sequences = seqs;
+    }
+
+    /** Returns the slot of position p. */
+    private int index(long p) {
+        int m = mask;
+        return (m >= 0) ? (int) p & m : (int) (p % capacity);
+    }
+
+    private long seqAt(int i) {
+        return U.getLongVolatile(sequences, ((long) i << SSHIFT) + SBASE);
+    }
+
+    private void setSeq(int i, long s) {
+        U.putLongVolatile(sequences, ((long) i << SSHIFT) + SBASE, s);
+    }
+
+    private Object itemAt(int i) {
+        return U.getObjectVolatile(items, ((long) i << ASHIFT) + ABASE);
+    }
+
+    /**
+     * Takes the element of position p, which the caller has claimed,
+     * and frees its slot; returns null if the element was removed.
+     */
+    private Object takeAt(long p) {
+        int i = index(p);
+        Object x = U.getAndSetObject(items, ((long) i << ASHIFT) + ABASE, null);
+        setSeq(i, (p + capacity) << 1);
+        if (x == null)
+            U.getAndAddLong(this, REMOVED, -1L);
+        return x;
+    }
+
+    /**
+     * Removes the element x of position p, if it is still there.
+     */
+    private boolean removeAt(long p, Object x) {
+        int i = index(p);
+        if (seqAt(i) == (p << 1) + 1 &&
+            U.compareAndSwapObject(items, ((long) i << ASHIFT) + ABASE, x, null)) {
+            U.getAndAddLong(this, REMOVED, 1L);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and {@code false} if this queue
+     * is full.  This method is generally preferable to method {@link #add},
+     * which can fail to insert an element only by throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long p = tail;
+        for (;;) {
+            int i = index(p);
+            long d = seqAt(i) - (p << 1);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, TAIL, p, p + 1)) {
+                    items[i] = e;
+                    setSeq(i, (p << 1) + 1);
+                    if (takers != null)
+                        signal(TAKERS);
+                    return true;
+                }
+                p = tail;
+            }
+            else if (d < 0L)
+                return false; // 上一轮的元素尚未取走，队列已满
+            else
+                p = tail;
+        }
+    }
+
+    public E poll() {
+        long p = head;
+        for (;;) {
+            int i = index(p);
+            long d = seqAt(i) - ((p << 1) + 1);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, HEAD, p, p + 1)) {
+                    Object x = takeAt(p);
+                    if (putters != null)
+                        signal(PUTTERS);
+                    if (x != null) {
+                        @SuppressWarnings("unchecked") E e = (E) x;
+                        return e;
+                    }
+                }
+                p = head;   // 已被移除的元素，继续取下一个
+            }
+            else if (d < 0L)
+                return null; // 队列为空
+            else
+                p = head;
+        }
+    }
+
+    public E peek() {
+        restart: for (;;) {
+            for (long p = head;; ++p) {
+                int i = index(p);
+                long s = seqAt(i), full = (p << 1) + 1;
+                if (s - full < 0L)
+                    return null;
+                if (s != full)
+                    continue restart;   // 位置已被取走
+                Object x = itemAt(i);
+                if (x != null && seqAt(i) == full) {
+                    @SuppressWarnings("unchecked") E e = (E) x;
+                    return e;
+                }
+                // removed, or being taken: look at the next position
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (!offer(e))
+            awaitPut(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return offer(e) || awaitPut(e, true, unit.toNanos(timeout));
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        return ((e = poll()) != null) ? e : awaitTake(false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        return ((e = poll()) != null) ? e : awaitTake(true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits for an element, returning it, or null on timeout.
+     */
+    private E awaitTake(boolean timed, long nanos) throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        WaitNode node = null;
+        for (;;) {
+            E e;
+            if ((e = poll()) != null) {
+                // 若节点已被其他发布者认领，其信号须转交给下一个等待者
+                abandon(node, TAKERS);
+                return e;
+            }
+            if (Thread.interrupted()) {
+                abandon(node, TAKERS);
+                throw new InterruptedException();
+            }
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L) {
+                abandon(node, TAKERS);
+                return null;
+            }
+            if (node == null) {
+                // 先登记再检查一次，避免丢失唤醒
+                node = new WaitNode(Thread.currentThread());
+                pushWaiter(TAKERS, node);
+            }
+            else if (node.thread == null)
+                node = null;    // signalled; retry, re-registering if need be
+            else if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Waits for a free slot to insert e, returning false on timeout.
+     */
+    private boolean awaitPut(E e, boolean timed, long nanos) throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        WaitNode node = null;
+        for (;;) {
+            if (offer(e)) {
+                abandon(node, PUTTERS);
+                return true;
+            }
+            if (Thread.interrupted()) {
+                abandon(node, PUTTERS);
+                throw new InterruptedException();
+            }
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L) {
+                abandon(node, PUTTERS);
+                return false;
+            }
+            if (node == null) {
+                node = new WaitNode(Thread.currentThread());
+                pushWaiter(PUTTERS, node);
+            }
+            else if (node.thread == null)
+                node = null;
+            else if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Pushes node onto the given stack, first popping withdrawn nodes
+     * off its top.
+     */
+    private void pushWaiter(long stack, WaitNode node) {
+        for (;;) {
+            WaitNode h = (WaitNode) U.getObjectVolatile(this, stack);
+            if (h != null && h.thread == null)
+                U.compareAndSwapObject(this, stack, h, h.next);
+            else {
+                node.next = h;
+                if (U.compareAndSwapObject(this, stack, h, node))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Wakes up one thread waiting on the given stack, if there is any.
+     */
+    private void signal(long stack) {
+        WaitNode h;
+        while ((h = (WaitNode) U.getObjectVolatile(this, stack)) != null) {
+            if (U.compareAndSwapObject(this, stack, h, h.next)) {
+                Thread t = h.thread;
+                if (t != null && U.compareAndSwapObject(h, THREAD, t, null)) {
+                    LockSupport.unpark(t);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Withdraws the caller's node, returning false if it had already
+     * been claimed by a signal.
+     */
+    private static boolean withdraw(WaitNode node) {
+        Thread t = node.thread;
+        return t != null && U.compareAndSwapObject(node, THREAD, t, null);
+    }
+
+    /**
+     * Withdraws the node, if any, of a leaving waiter, passing on the
+     * signal it may already have received.
+     */
+    private void abandon(WaitNode node, long stack) {
+        if (node != null && !withdraw(node))
+            signal(stack);
+    }
+
+    /**
+     * Claims the longest run of free slots, up to to - from, with one
+     * CAS of tail, and fills it from a[from..]; returns the number of
+     * elements inserted, 0 if the queue is full.
+     */
+    private int offerBatch(Object[] a, int from, int to) {
+        for (;;) {
+            long p = tail;
+            int limit = Math.min(to - from, capacity), k = 0;
+            while (k < limit && seqAt(index(p + k)) == (p + k) << 1)
+                ++k;
+            if (k == 0) {
+                if (limit == 0 || seqAt(index(p)) - (p << 1) < 0L)
+                    return 0;
+            }
+            else if (U.compareAndSwapLong(this, TAIL, p, p + k)) {
+                for (int j = 0; j < k; ++j) {
+                    int i = index(p + j);
+                    items[i] = a[from + j];
+                    setSeq(i, ((p + j) << 1) + 1);
+                }
+                for (int j = 0; j < k && takers != null; ++j)
+                    signal(TAKERS);
+                return k;
+            }
+        }
+    }
+
+    /**
+     * Adds all of the elements in the specified collection to this
+     * queue, in the order of the collection's iterator, claiming runs of
+     * free slots with one CAS each.  If the queue becomes full, the
+     * elements that fit have been added when {@code IllegalStateException}
+     * is thrown.
+     *
+     * @param c collection containing elements to be added to this queue
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null (in which case nothing is added)
+     * @throws IllegalArgumentException if the collection is this queue
+     * @throws IllegalStateException if not all the elements can be added
+     *         at this time due to insertion restrictions
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a) {
+            if (e == null)
+                throw new NullPointerException();
+        }
+        for (int i = 0, k; i < a.length; i += k) {
+            if ((k = offerBatch(a, i, a.length)) == 0)
+                throw new IllegalStateException("Queue full");
+        }
+        return a.length > 0;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection, claiming each run of
+     * available elements with one CAS of the head counter.  As the
+     * elements of a claimed run are already removed, an exception thrown
+     * by {@code c.add} loses the remaining elements of that run.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        while (n < maxElements) {
+            long p = head;
+            int limit = Math.min(maxElements - n, capacity), k = 0;
+            while (k < limit && seqAt(index(p + k)) == ((p + k) << 1) + 1)
+                ++k;
+            if (k == 0) {
+                if (seqAt(index(p)) - ((p << 1) + 1) < 0L)
+                    break;
+            }
+            else if (U.compareAndSwapLong(this, HEAD, p, p + k)) {
+                // 一次CAS认领了k个元素
+                int j = 0, added = 0;
+                try {
+                    for (; j < k; ++j) {
+                        @SuppressWarnings("unchecked") E e = (E) takeAt(p + j);
+                        if (e != null) {
+                            c.add(e);
+                            ++added;
+                        }
+                    }
+                } finally {
+                    for (int r = j + 1; r < k; ++r)
+                        takeAt(p + r);
+                    n += added;
+                    for (int w = 0; w < k && putters != null; ++w)
+                        signal(PUTTERS);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long r = removed, n = occupied() - r;
+        return (n <= 0L) ? 0 : (int) n;
+    }
+
+    /**
+     * Returns the number of positions claimed by producers and not yet
+     * by consumers, between 0 and capacity.
+     */
+    private long occupied() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0L : Math.min(n, capacity);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can ideally
+     * (in the absence of memory or resource constraints) accept without
+     * blocking.  This is the initial capacity of this queue less the
+     * number of slots in use, which include those of removed elements
+     * that consumers have not yet reached.
+     */
+    public int remainingCapacity() {
+        return capacity - (int) occupied();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.  The slot of the removed element is freed when consumers
+     * reach it.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            for (long p = head; p < tail; ++p) {
+                long h = head;
+                if (p < h)
+                    p = h;
+                int i = index(p);
+                if (seqAt(i) == (p << 1) + 1) {
+                    Object x = itemAt(i);
+                    if (x != null && o.equals(x) && removeAt(p, x))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (E e : this) {
+                if (o.equals(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper sequence.
+     * The elements will be returned in order from first (head) to last (tail).
+     *
+     * <p>The returned iterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Iterator over the positions from head to the current tail, returning
+     * the elements that are still in their slots when visited.  An element
+     * is read between two reads of the sequence of its slot, and is only
+     * returned if both show it present for the position being visited.
+     * Removing the last returned element succeeds only if it is still at
+     * its position.
+     */
+    final class Itr implements Iterator<E> {
+        private long cursor;    // next position to visit
+        private E nextItem;     // element to return next, or null
+        private long lastRet;   // position of lastItem
+        private E lastItem;     // element last returned, or null
+
+        Itr() {
+            cursor = head;
+            advance();
+        }
+
+        private void advance() {
+            for (long p = cursor; p < tail; ++p) {
+                long h = head;
+                if (p < h)
+                    p = h;      // 跳过已被取走的位置
+                int i = index(p);
+                long full = (p << 1) + 1;
+                if (seqAt(i) == full) {
+                    Object x = itemAt(i);
+                    if (x != null && seqAt(i) == full) {
+                        @SuppressWarnings("unchecked") E e = (E) x;
+                        nextItem = e;
+                        cursor = p + 1;
+                        return;
+                    }
+                }
+            }
+            nextItem = null;
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        public E next() {
+            E e = nextItem;
+            if (e == null)
+                throw new NoSuchElementException();
+            lastRet = cursor - 1;
+            lastItem = e;
+            advance();
+            return e;
+        }
+
+        public void remove() {
+            E e = lastItem;
+            if (e == null)
+                throw new IllegalStateException();
+            lastItem = null;
+            removeAt(lastRet, e);
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#ORDERED}, and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The capacity (int), followed by the elements in
+     * order, followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (E e : this)
+            s.writeObject(e);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.InvalidObjectException if invariants are violated
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (capacity <= 0)
+            throw new java.io.InvalidObjectException("capacity: " + capacity);
+        init();
+        for (;;) {
+            @SuppressWarnings("unchecked") E e = (E) s.readObject();
+            if (e == null)
+                break;
+            if (!offer(e))
+                throw new java.io.InvalidObjectException("capacity exceeded");
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long TAKERS;
+    private static final long PUTTERS;
+    private static final long REMOVED;
+    private static final long THREAD;
+    private static final long SBASE;
+    private static final int SSHIFT;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpmcArrayBlockingQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+            TAKERS = U.objectFieldOffset(k.getDeclaredField("takers"));
+            PUTTERS = U.objectFieldOffset(k.getDeclaredField("putters"));
+            REMOVED = U.objectFieldOffset(k.getDeclaredField("removed"));
+            THREAD = U.objectFieldOffset
+                (WaitNode.class.getDeclaredField("thread"));
+            SBASE = U.arrayBaseOffset(long[].class);
+            int ss = U.arrayIndexScale(long[].class);
+            if ((ss & (ss - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            SSHIFT = 31 - Integer.numberOfLeadingZeros(ss);
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int as = U.arrayIndexScale(Object[].class);
+            if ((as & (as - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(as);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
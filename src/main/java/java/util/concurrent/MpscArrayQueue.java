@@ -0,0 +1,333 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A bounded array-based {@link java.util.Queue} for any number of producer
+ * threads and exactly one consumer thread.  Elements are ordered FIFO.
+ * 多生产者单消费者的有界数组队列，适用于只有一个消费者的邮箱。
+ *
+ * <p>Producers claim a position with one CAS on the tail index and
+ * publish the element with an ordered (lazy) write of its slot; the
+ * capacity check against the head index reads a limit cached by the
+ * producers, refreshed only when it is reached.  Removal and examination
+ * at the head ({@link #poll poll}, {@link #peek peek}, {@link #drain
+ * drain}, {@link #remove() remove}, {@link #clear clear}) must only be
+ * performed by one thread at a time, which needs neither CAS nor fence,
+ * and hands slots back with an ordered write of the head index.  The
+ * {@link #drain drain} method takes a whole batch of elements with a
+ * single write of the head.
+ *
+ * <p>A producer that has claimed a position but not yet written its
+ * element blocks the consumer at that position: {@code poll} and
+ * {@code peek} spin until the element appears, while {@code drain} stops
+ * there.
+ *
+ * <p>{@link #size size}, {@link #isEmpty isEmpty}, {@link #contains
+ * contains} and the iterator may be used from any thread, and are
+ * weakly consistent.  The iterator does not support {@code remove}.
+ *
+ * <p>This class does not permit {@code null} elements.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class MpscArrayQueue<E> extends AbstractQueue<E> {
+
+    /*
+     * Position p lives in buffer[p & mask], where the buffer length is
+     * the capacity rounded up to a power of two; a null slot is free.
+     * A producer claims p by CASing tail from p to p + 1 if
+     * p < head + capacity, so the slot of p is free once the claim
+     * succeeds, and then writes the element with putOrderedObject.  The
+     * consumer reads the slot of head volatile-ly: null means empty, or
+     * that the producer of p has not yet written it, which is told apart
+     * by comparing with tail.  It then clears the slot and advances head
+     * with putOrdered stores, which producers see (at the latest) when
+     * they refresh producerLimit = head + capacity.
+     *
+     * The producers' fields (tail, producerLimit) and the consumer's
+     * (head) are kept in separately padded groups.
+     */
+
+    /** The maximum number of elements. */
+    private final int capacity;
+
+    /** buffer.length - 1 */
+    private final int mask;
+
+    /** The elements, position p at index p & mask; null if free. */
+    private final Object[] buffer;
+
+    /** Next position to claim; CASed by producers. */
+    @sun.misc.Contended("producer")
+    private volatile long tail;
+
+    /** Lower bound of head + capacity, cached by producers. */
+    @sun.misc.Contended("producer")
+    private volatile long producerLimit;
+
+    /** Next position to read; written by the consumer only. */
+    @sun.misc.Contended("consumer")
+    private volatile long head;
+
+    /**
+     * Creates an {@code MpscArrayQueue} with the given (fixed) capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}, or greater
+     *         than {@code 1 << 30}
+     */
+    public MpscArrayQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < capacity)
+            n <<= 1;
+        this.capacity = capacity;
+        this.mask = n - 1;
+        this.buffer = new Object[n];
+        this.producerLimit = capacity;
+    }
+
+    private long offset(long p) {
+        return ((long) ((int) p & mask) << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so without exceeding the queue's capacity, returning
+     * {@code true} upon success and {@code false} if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long limit = producerLimit, p;
+        do {
+            p = tail;
+            if (p >= limit) {
+                // 缓存的上限已用完，重新读取head
+                if (p >= (limit = head + capacity))
+                    return false;
+                producerLimit = limit;
+            }
+        } while (!U.compareAndSwapLong(this, TAIL, p, p + 1));
+        U.putOrderedObject(buffer, offset(p), e);
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code null}
+     * if this queue is empty.  Must be called by the consumer thread.
+     */
+    public E poll() {
+        long h = U.getLong(this, HEAD), off = offset(h);
+        Object x = U.getObjectVolatile(buffer, off);
+        if (x == null) {
+            if (h == tail)
+                return null;
+            // 位置已被认领但元素尚未写入，等待生产者
+            while ((x = U.getObjectVolatile(buffer, off)) == null)
+                Thread.yield();
+        }
+        U.putOrderedObject(buffer, off, null);
+        U.putOrderedLong(this, HEAD, h + 1);
+        @SuppressWarnings("unchecked") E e = (E) x;
+        return e;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or returns
+     * {@code null} if this queue is empty.  Must be called by the consumer
+     * thread.
+     */
+    public E peek() {
+        long h = U.getLong(this, HEAD), off = offset(h);
+        Object x = U.getObjectVolatile(buffer, off);
+        if (x == null) {
+            if (h == tail)
+                return null;
+            while ((x = U.getObjectVolatile(buffer, off)) == null)
+                Thread.yield();
+        }
+        @SuppressWarnings("unchecked") E e = (E) x;
+        return e;
+    }
+
+    /**
+     * Removes at most the given number of elements from this queue,
+     * passing them in order to the given action.  Stops at the first
+     * position whose element has not been written yet.  The head index is
+     * published once, after the last element (also if the action throws
+     * an exception, in which case the element passed to it is removed).
+     * Must be called by the consumer thread.
+     *
+     * @param action the action to be performed for each element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the specified action is null
+     */
+    public int drain(Consumer<? super E> action, int limit) {
+        if (action == null) throw new NullPointerException();
+        long h = U.getLong(this, HEAD);
+        int i = 0;
+        try {
+            while (i < limit) {
+                long off = offset(h + i);
+                Object x = U.getObjectVolatile(buffer, off);
+                if (x == null)
+                    break;
+                U.putOrderedObject(buffer, off, null);
+                ++i;
+                @SuppressWarnings("unchecked") E e = (E) x;
+                action.accept(e);
+            }
+        } finally {
+            if (i > 0)
+                U.putOrderedLong(this, HEAD, h + i);
+        }
+        return i;
+    }
+
+    /**
+     * Removes all of the elements from this queue.  Must be called by the
+     * consumer thread.
+     */
+    public void clear() {
+        while (drain(e -> { }, Integer.MAX_VALUE) > 0)
+            ;
+    }
+
+    /**
+     * Returns the number of elements in this queue, including those
+     * whose positions have been claimed but not yet written.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (n >= capacity) ? capacity : (int) n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Returns the capacity of this queue.
+     *
+     * @return the maximum number of elements this queue can hold
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (E e : this) {
+                if (o.equals(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the elements in this queue
+     * in proper sequence.  The iterator does not support {@code remove}.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Visits the positions from head to the tail, skipping those not
+     * yet written; the element read for position p is only returned if p
+     * has still not been consumed after the read, since the slot cannot
+     * be reused before that.
+     */
+    final class Itr implements Iterator<E> {
+        private long cursor;
+        private E nextItem;
+
+        Itr() {
+            cursor = head;
+            advance();
+        }
+
+        private void advance() {
+            for (long p = cursor; p < tail; ++p) {
+                long h = head;
+                if (p < h)
+                    p = h;
+                Object x = U.getObjectVolatile(buffer, offset(p));
+                if (x != null && head <= p) {
+                    @SuppressWarnings("unchecked") E e = (E) x;
+                    nextItem = e;
+                    cursor = p + 1;
+                    return;
+                }
+            }
+            nextItem = null;
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        public E next() {
+            E e = nextItem;
+            if (e == null)
+                throw new NoSuchElementException();
+            advance();
+            return e;
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue,
+     * reporting {@link Spliterator#CONCURRENT}, {@link Spliterator#ORDERED},
+     * and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpscArrayQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
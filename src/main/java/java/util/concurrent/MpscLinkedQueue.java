@@ -0,0 +1,453 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * An unbounded linked {@link BlockingQueue} for any number of producer
+ * threads and exactly one consumer thread.  Elements are ordered FIFO.
+ * 多生产者单消费者的无界链表阻塞队列，适用于actor邮箱。
+ *
+ * <p>An insertion is a single atomic exchange of the tail pointer
+ * followed by an ordered (lazy) write linking the new node, so producers
+ * never retry, and never block.  Removal and examination at the head
+ * ({@link #poll() poll}, {@link #take take}, {@link #peek peek},
+ * {@link #drain drain}, {@link #drainTo(Collection) drainTo}, {@link
+ * #remove() remove}, {@link #clear clear}) must only be performed by one
+ * thread at a time, which unlinks nodes without CAS.  The consumer parks
+ * in {@code take} and the timed {@code poll} when the queue is empty, and
+ * is unparked by the next insertion.  The {@link #drain drain} method
+ * takes a whole batch of elements without looking at the tail pointer or
+ * the waiting consumer.
+ *
+ * <p>A producer that has swung the tail but not yet linked its node
+ * blocks the consumer at that node: {@code poll} and {@code peek} spin
+ * until the link appears, while {@code drain} stops there.
+ *
+ * <p>Beware that, unlike in most collections, the {@code size} method
+ * is <em>NOT</em> a constant-time operation.  {@link #size size}, {@link
+ * #isEmpty isEmpty}, {@link #contains contains} and the iterator may be
+ * used from any thread, and are weakly consistent.  The iterator does not
+ * support {@code remove}.
+ *
+ * <p>This class does not permit {@code null} elements.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class MpscLinkedQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * This is D. Vyukov's non-intrusive MPSC queue.  head is a dummy
+     * node whose successor holds the first element; a producer swaps
+     * tail to its new node with getAndSet and then sets the old tail's
+     * next.  Between the two steps the list is disconnected, which the
+     * consumer notices as head.next == null while head != tail.
+     *
+     * The consumer moves head to the successor, clears that node's item
+     * (it becomes the new dummy) and self-links the old head to help GC,
+     * as in ConcurrentLinkedQueue; traversals that reach a self-linked
+     * node restart from head.
+     *
+     * Blocking: the consumer publishes itself in waiter (a volatile
+     * write) before re-checking tail; a producer reads waiter after its
+     * getAndSet of tail.  Either the consumer sees the new tail, or the
+     * producer sees the consumer and unparks it; a spurious unpark only
+     * leaves a permit behind, which the park loop tolerates.
+     */
+
+    static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+
+        Node(E item) {
+            U.putObject(this, ITEM, item);
+        }
+
+        void lazySetNext(Node<E> val) {
+            U.putOrderedObject(this, NEXT, val);
+        }
+
+        void lazySetItem(E val) {
+            U.putOrderedObject(this, ITEM, val);
+        }
+
+        // Unsafe mechanics
+
+        private static final sun.misc.Unsafe U;
+        private static final long ITEM;
+        private static final long NEXT;
+
+        static {
+            try {
+                U = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Node.class;
+                ITEM = U.objectFieldOffset(k.getDeclaredField("item"));
+                NEXT = U.objectFieldOffset(k.getDeclaredField("next"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** The dummy node before the first element; written by the consumer. */
+    @sun.misc.Contended("consumer")
+    private transient volatile Node<E> head;
+
+    /** The last node; swapped by producers. */
+    @sun.misc.Contended("producer")
+    private transient volatile Node<E> tail;
+
+    /** The consumer while it is parked (or about to park), else null. */
+    private transient volatile Thread waiter;
+
+    /**
+     * Creates an empty {@code MpscLinkedQueue}.
+     */
+    public MpscLinkedQueue() {
+        head = tail = new Node<E>(null);
+    }
+
+    /**
+     * Creates an {@code MpscLinkedQueue} initially containing the elements
+     * of the given collection, added in traversal order of the collection's
+     * iterator.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public MpscLinkedQueue(Collection<? extends E> c) {
+        this();
+        for (E e : c)
+            offer(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue.
+     * As the queue is unbounded, this method will never return
+     * {@code false}.
+     *
+     * @return {@code true} (as specified by {@link java.util.Queue#offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        Node<E> node = new Node<E>(e);
+        @SuppressWarnings("unchecked")
+        Node<E> prev = (Node<E>) U.getAndSetObject(this, TAIL, node);
+        prev.lazySetNext(node);
+        Thread w;
+        if ((w = waiter) != null)
+            LockSupport.unpark(w);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue.
+     * As the queue is unbounded, this method will never block.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public void put(E e) {
+        offer(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue.
+     * As the queue is unbounded, this method will never block or
+     * return {@code false}.
+     *
+     * @return {@code true} (as specified by
+     *  {@link BlockingQueue#offer(Object,long,TimeUnit) BlockingQueue.offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    /**
+     * Returns the successor of the dummy node h, spinning while a
+     * producer has swung the tail past h without linking it yet;
+     * null if the queue is empty.
+     */
+    private Node<E> first(Node<E> h) {
+        Node<E> n = h.next;
+        if (n == null && h != tail) {
+            // 生产者已交换tail但尚未链接，自旋等待
+            while ((n = h.next) == null)
+                Thread.yield();
+        }
+        return n;
+    }
+
+    /**
+     * Makes n, the successor of the dummy node h, the new dummy node,
+     * returning its element.
+     */
+    private E advance(Node<E> h, Node<E> n) {
+        E e = n.item;
+        n.lazySetItem(null);
+        U.putOrderedObject(this, HEAD, n);
+        h.lazySetNext(h);
+        return e;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code null}
+     * if this queue is empty.  Must be called by the consumer thread.
+     */
+    public E poll() {
+        Node<E> h = head, n = first(h);
+        return (n == null) ? null : advance(h, n);
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or returns
+     * {@code null} if this queue is empty.  Must be called by the consumer
+     * thread.
+     */
+    public E peek() {
+        Node<E> n = first(head);
+        return (n == null) ? null : n.item;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting if necessary
+     * until an element becomes available.  Must be called by the consumer
+     * thread.
+     */
+    public E take() throws InterruptedException {
+        E e;
+        return ((e = poll()) != null) ? e : await(false, 0L);
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting up to the
+     * specified wait time if necessary for an element to become available.
+     * Must be called by the consumer thread.
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        return ((e = poll()) != null) ? e : await(true, unit.toNanos(timeout));
+    }
+
+    private E await(boolean timed, long nanos) throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        // 先发布等待线程，再检查队列，与offer中先交换tail再读waiter相配合
+        waiter = Thread.currentThread();
+        try {
+            E e;
+            while ((e = poll()) == null) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                if (!timed)
+                    LockSupport.park(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    LockSupport.parkNanos(this, nanos);
+                else
+                    break;
+            }
+            return e;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Removes at most the given number of elements from this queue,
+     * passing them in order to the given action, and stopping at the first
+     * node not linked yet.  Must be called by the consumer thread.
+     *
+     * @param action the action to be performed for each element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the specified action is null
+     */
+    public int drain(Consumer<? super E> action, int limit) {
+        if (action == null) throw new NullPointerException();
+        Node<E> h = head, n;
+        int i = 0;
+        while (i < limit && (n = h.next) != null) {
+            E e = advance(h, n);
+            h = n;
+            ++i;
+            action.accept(e);
+        }
+        return i;
+    }
+
+    /**
+     * Must be called by the consumer thread.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Must be called by the consumer thread.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        return drain(c::add, maxElements);
+    }
+
+    /**
+     * Removes all of the elements from this queue.  Must be called by the
+     * consumer thread.
+     */
+    public void clear() {
+        while (drain(e -> { }, Integer.MAX_VALUE) > 0)
+            ;
+    }
+
+    /**
+     * Always returns {@code Integer.MAX_VALUE} because an
+     * {@code MpscLinkedQueue} is not capacity constrained.
+     *
+     * @return {@code Integer.MAX_VALUE} (as specified by
+     *         {@link BlockingQueue#remainingCapacity()})
+     */
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of elements in this queue.  If this queue
+     * contains more than {@code Integer.MAX_VALUE} elements, returns
+     * {@code Integer.MAX_VALUE}.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        int count = 0;
+        for (Node<E> p = head; ; ) {
+            Node<E> q = p.next;
+            if (q == null)
+                return count;
+            if (q == p) {       // 已出队的节点，从head重新开始
+                p = head;
+                count = 0;
+            }
+            else {
+                if (q.item != null && ++count == Integer.MAX_VALUE)
+                    return count;
+                p = q;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (E e : this) {
+                if (o.equals(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the elements in this queue
+     * in proper sequence.  The iterator does not support {@code remove}.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    final class Itr implements Iterator<E> {
+        private Node<E> node;   // node of nextItem
+        private E nextItem;
+
+        Itr() {
+            node = head;
+            advance();
+        }
+
+        private void advance() {
+            for (Node<E> p = node; ; ) {
+                Node<E> q = p.next;
+                if (q == null) {
+                    nextItem = null;
+                    return;
+                }
+                if (q == p)
+                    q = head;   // consumed meanwhile; skip to the dummy
+                else {
+                    E e = q.item;
+                    if (e != null) {
+                        node = q;
+                        nextItem = e;
+                        return;
+                    }
+                }
+                p = q;
+            }
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        public E next() {
+            E e = nextItem;
+            if (e == null)
+                throw new NoSuchElementException();
+            advance();
+            return e;
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue,
+     * reporting {@link Spliterator#CONCURRENT}, {@link Spliterator#ORDERED},
+     * and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize
+            (iterator(), Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpscLinkedQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A bounded array-based {@link java.util.Queue} for exactly one producer
+ * thread and one consumer thread.  Elements are ordered FIFO.
+ * 单生产者单消费者的有界数组队列(延迟写发布，缓存对端索引)。
+ *
+ * <p>Insertion ({@link #offer offer}, {@link #add add}) must only be
+ * performed by one thread at a time, and removal and examination at the
+ * head ({@link #poll poll}, {@link #peek peek}, {@link #drain drain},
+ * {@link #remove() remove}, {@link #clear clear}) by one thread at a
+ * time, for example by the owner of an actor mailbox; the two may be
+ * different threads running concurrently.  In exchange neither side ever
+ * performs a CAS or a full memory fence: an element is published by an
+ * ordered (lazy) write of the tail index, and a slot is handed back by an
+ * ordered write of the head index.  Each side also caches the last index
+ * it read of the other side, and reads it again only when the cached
+ * value says the queue is full (or empty).  The {@link #drain drain}
+ * method takes a whole batch of elements with a single read of the tail
+ * and a single write of the head.
+ *
+ * <p>{@link #size size}, {@link #isEmpty isEmpty}, {@link #contains
+ * contains} and the iterator may be used from any thread, and are
+ * weakly consistent.  The iterator does not support {@code remove}.
+ *
+ * <p>This class does not permit {@code null} elements.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class SpscArrayQueue<E> extends AbstractQueue<E> {
+
+    /*
+     * Position p lives in buffer[p & mask], where the buffer length is
+     * the capacity rounded up to a power of two.  The producer may write
+     * position p once p < head + capacity, and the consumer may read it
+     * once p < tail.  The indices are only ever written with putOrdered
+     * (a release store), which orders the preceding element write (or
+     * clear) before them; the matching volatile reads of the other side's
+     * index are the acquires.  Only the owner of an index writes it, so
+     * the owners may read their own index without ordering.
+     *
+     * The producer's fields (tail, headCache) and the consumer's (head,
+     * tailCache) are kept in two separately padded groups, so the only
+     * cache traffic between the two threads is on the elements and on a
+     * cache refresh.
+     */
+
+    /** The maximum number of elements. */
+    private final int capacity;
+
+    /** buffer.length - 1 */
+    private final int mask;
+
+    /** The elements, position p at index p & mask. */
+    private final Object[] buffer;
+
+    /** Next position to write; written by the producer only. */
+    @sun.misc.Contended("producer")
+    private volatile long tail;
+
+    /** Producer's last read of head. */
+    @sun.misc.Contended("producer")
+    private long headCache;
+
+    /** Next position to read; written by the consumer only. */
+    @sun.misc.Contended("consumer")
+    private volatile long head;
+
+    /** Consumer's last read of tail. */
+    @sun.misc.Contended("consumer")
+    private long tailCache;
+
+    /**
+     * Creates an {@code SpscArrayQueue} with the given (fixed) capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}, or greater
+     *         than {@code 1 << 30}
+     */
+    public SpscArrayQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < capacity)
+            n <<= 1;
+        this.capacity = capacity;
+        this.mask = n - 1;
+        this.buffer = new Object[n];
+    }
+
+    private long offset(long p) {
+        return ((long) ((int) p & mask) << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so without exceeding the queue's capacity, returning
+     * {@code true} upon success and {@code false} if this queue is full.
+     * Must be called by the producer thread.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long p = U.getLong(this, TAIL);
+        if (p - headCache >= capacity) {
+            // 缓存的head已过期，重新读取一次
+            if (p - (headCache = head) >= capacity)
+                return false;
+        }
+        U.putObject(buffer, offset(p), e);
+        U.putOrderedLong(this, TAIL, p + 1);
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns {@code null}
+     * if this queue is empty.  Must be called by the consumer thread.
+     */
+    public E poll() {
+        long h = U.getLong(this, HEAD);
+        if (h >= tailCache && h >= (tailCache = tail))
+            return null;
+        long off = offset(h);
+        @SuppressWarnings("unchecked") E e = (E) U.getObject(buffer, off);
+        U.putObject(buffer, off, null);
+        U.putOrderedLong(this, HEAD, h + 1);
+        return e;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or returns
+     * {@code null} if this queue is empty.  Must be called by the consumer
+     * thread.
+     */
+    public E peek() {
+        long h = U.getLong(this, HEAD);
+        if (h >= tailCache && h >= (tailCache = tail))
+            return null;
+        @SuppressWarnings("unchecked") E e = (E) U.getObject(buffer, offset(h));
+        return e;
+    }
+
+    /**
+     * Removes at most the given number of elements from this queue,
+     * passing them in order to the given action.  The head index is
+     * published once, after the last element (also if the action throws
+     * an exception, in which case the element passed to it is removed).
+     * Must be called by the consumer thread.
+     *
+     * @param action the action to be performed for each element
+     * @param limit the maximum number of elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the specified action is null
+     */
+    public int drain(Consumer<? super E> action, int limit) {
+        if (action == null) throw new NullPointerException();
+        long h = U.getLong(this, HEAD), t = tailCache;
+        if (t - h < limit)
+            tailCache = t = tail;
+        int n = (int) Math.min(t - h, (long) Math.max(limit, 0)), i = 0;
+        try {
+            while (i < n) {
+                long off = offset(h + i);
+                @SuppressWarnings("unchecked") E e = (E) U.getObject(buffer, off);
+                U.putObject(buffer, off, null);
+                ++i;
+                action.accept(e);
+            }
+        } finally {
+            if (i > 0)
+                U.putOrderedLong(this, HEAD, h + i);
+        }
+        return i;
+    }
+
+    /**
+     * Removes all of the elements from this queue.  Must be called by the
+     * consumer thread.
+     */
+    public void clear() {
+        while (drain(e -> { }, Integer.MAX_VALUE) > 0)
+            ;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (n >= capacity) ? capacity : (int) n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Returns the capacity of this queue.
+     *
+     * @return the maximum number of elements this queue can hold
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (E e : this) {
+                if (o.equals(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the elements in this queue
+     * in proper sequence.  The iterator does not support {@code remove}.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Visits the positions from head to the tail; the element read for
+     * position p is only returned if p has still not been consumed after
+     * the read, since the slot cannot be reused before that.
+     */
+    final class Itr implements Iterator<E> {
+        private long cursor;
+        private E nextItem;
+
+        Itr() {
+            cursor = head;
+            advance();
+        }
+
+        private void advance() {
+            for (long p = cursor; p < tail; ++p) {
+                long h = head;
+                if (p < h)
+                    p = h;
+                Object x = U.getObjectVolatile(buffer, offset(p));
+                if (x != null && head <= p) {
+                    @SuppressWarnings("unchecked") E e = (E) x;
+                    nextItem = e;
+                    cursor = p + 1;
+                    return;
+                }
+            }
+            nextItem = null;
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        public E next() {
+            E e = nextItem;
+            if (e == null)
+                throw new NoSuchElementException();
+            advance();
+            return e;
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue,
+     * reporting {@link Spliterator#CONCURRENT}, {@link Spliterator#ORDERED},
+     * and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = SpscArrayQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
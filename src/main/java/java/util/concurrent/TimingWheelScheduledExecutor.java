@@ -0,0 +1,876 @@
+package java.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps its delayed tasks in a
+ * hashed hierarchical timing wheel, so that scheduling and cancelling a
+ * task take constant time however many tasks are pending.  It suits
+ * large numbers of timeouts that are mostly cancelled before they expire,
+ * such as per-request deadlines.
+ * 基于分层哈希时间轮的定时任务执行器，调度与取消均为O(1)。
+ *
+ * <p>Time is divided into ticks of a duration given when the executor is
+ * created.  A task never runs before its delay has elapsed, but may run up
+ * to one tick later (in addition to the time it waits for a free worker);
+ * a coarser tick costs less, in wake-ups of the timer thread, and is less
+ * precise.  The tasks due in the same tick are handed to the workers in
+ * the order of their trigger times, and those with equal trigger times in
+ * first-in-first-out order of submission.
+ *
+ * <p>Tasks run in a fixed pool of worker threads.  A single timer thread
+ * owns the wheel; {@code schedule} and {@code cancel} only add the task
+ * to a lock-free queue that the timer thread drains when it wakes up, so
+ * neither of them takes a lock or contends with the other.  The timer
+ * thread only wakes up for the ticks at which tasks are due (and at most
+ * 64 ticks apart), so a fine tick costs little while few tasks are
+ * pending.  Cancelled tasks are removed from the wheel when it next
+ * wakes up, as if by {@link
+ * ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy} set to
+ * {@code true}.  Tasks with zero or negative delays (including those
+ * submitted with {@code execute} or {@code submit}) go straight to the
+ * workers.
+ *
+ * <p>Otherwise the returned {@link ScheduledFuture}s behave as those of
+ * {@link ScheduledThreadPoolExecutor}, with the same shutdown policies:
+ * after {@link #shutdown}, delayed tasks still run when due unless {@link
+ * #setExecuteExistingDelayedTasksAfterShutdownPolicy} is set to {@code
+ * false}, while periodic tasks are cancelled; {@link #shutdownNow}
+ * returns the tasks that had not started.  If an execution of a
+ * periodic task throws an exception, or takes longer than its period,
+ * the same rules apply as there.
+ *
+ * @see ScheduledThreadPoolExecutor
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /*
+     * Overview:
+     *
+     * Tick t covers the time startNanos + t * tickNanos.  A task is due
+     * at the first tick at or after its trigger time (deadlineTick).
+     * The wheel has LEVELS levels of WHEEL_SIZE slots; level L holds
+     * the tasks due between 64^L and 64^(L+1) ticks from the tick at
+     * which they were placed, in slot (deadline >>> 6L) & 63.  This is
+     * the classic kernel timer layout: when processing tick t whose low
+     * 6 bits are zero, the level-1 slot for t is emptied and its tasks
+     * are placed again relative to t (so into level 0); if that slot
+     * index was zero too, the same is done for level 2, and so on.
+     * Deadlines beyond the range of all levels are placed as if due at
+     * its end, and placed again from there.  Each task is thus moved at
+     * most LEVELS times, independently of the number of tasks.
+     *
+     * Slots are doubly linked lists threaded through the tasks, so a
+     * cancelled task is unlinked in O(1).  Only the timer thread ever
+     * touches the wheel: new tasks (and periodic tasks to run again)
+     * reach it through the MPSC queue "submissions", and cancelled ones
+     * through "cancellations".
+     *
+     * The bitmaps "occupied" tell which slots are not empty, so that
+     * nextTick finds the next tick with something to do (a level-0 slot
+     * to expire, or an upper-level slot to cascade) in O(LEVELS) rather
+     * than stepping through the empty ticks in between; with a fine
+     * tick there may be millions of those.  The timer thread catches up
+     * with the elapsed ticks that way, then parks until the next such
+     * tick, but for at most WHEEL_SIZE ticks so that cancellations do
+     * not pile up in their queue; with an empty wheel it parks until a
+     * submission unparks it.  It publishes the tick it parks until in
+     * "wakeTick" before re-checking the queue, and submitters read
+     * wakeTick after their offer, whose getAndSet is a full fence, and
+     * unpark it if their task is due earlier.
+     *
+     * Shutdown: a submitter re-checks the run state after its offer and
+     * cancels its own task if it changed, since the timer thread may have
+     * finished draining by then.  After shutdown the timer thread keeps
+     * running one-shot tasks (unless the policy says to discard them,
+     * which it checks whenever it wakes up) until the wheel and the
+     * submissions are empty, then exits and shuts down the worker pool.
+     * shutdownNow makes it exit at once, handing over the tasks left in
+     * the wheel.
+     */
+
+    /** log2 of the number of slots per level. */
+    private static final int WHEEL_BITS = 6;
+
+    /** The number of slots per level. */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** The number of levels. */
+    private static final int LEVELS = 6;
+
+    /** The number of ticks covered by all the levels. */
+    private static final long SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    private static final int RUNNING  = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP     = 2;
+
+    /**
+     * Sequence number to break scheduling ties, and in turn to
+     * guarantee FIFO order among tied entries.
+     */
+    private static final AtomicLong sequencer = new AtomicLong();
+
+    /** The duration of a tick. */
+    private final long tickNanos;
+
+    /** The time of tick 0. */
+    private final long startNanos;
+
+    /** The pool running the tasks. */
+    private final ThreadPoolExecutor workers;
+
+    /** The thread advancing the wheel. */
+    private final Thread timer;
+
+    /** Tasks to place in the wheel. */
+    private final MpscLinkedQueue<ScheduledFutureTask<?>> submissions =
+        new MpscLinkedQueue<ScheduledFutureTask<?>>();
+
+    /** Cancelled tasks to remove from the wheel. */
+    private final MpscLinkedQueue<ScheduledFutureTask<?>> cancellations =
+        new MpscLinkedQueue<ScheduledFutureTask<?>>();
+
+    /** RUNNING, SHUTDOWN or STOP; only increases. */
+    private final AtomicInteger runState = new AtomicInteger(RUNNING);
+
+    /**
+     * False if should cancel non-periodic not-yet-expired tasks on shutdown.
+     */
+    private volatile boolean executeExistingDelayedTasksAfterShutdown = true;
+
+    /**
+     * The tick until which the timer thread parks, Long.MAX_VALUE if it
+     * parks with an empty wheel, or -1 if it is not parked.
+     */
+    private volatile long wakeTick = -1L;
+
+    /** Set when the timer thread has exited. */
+    private volatile boolean timerExited;
+
+    /** Counted down when the timer thread has exited. */
+    private final CountDownLatch timerDone = new CountDownLatch(1);
+
+    /**
+     * The tasks left in the wheel on shutdownNow; guarded by timerDone's
+     * monitor.
+     */
+    private List<Runnable> unrun;
+
+    // Fields below are only accessed by the timer thread
+
+    /** The slot lists, level by level. */
+    private final ScheduledFutureTask<?>[] wheel =
+        new ScheduledFutureTask<?>[LEVELS * WHEEL_SIZE];
+
+    /** For each level, the bitmap of its slots that are not empty. */
+    private final long[] occupied = new long[LEVELS];
+
+    /** The number of tasks in the wheel. */
+    private int wheelCount;
+
+    /** Reused buffer for the tasks due in a tick. */
+    private final ArrayList<ScheduledFutureTask<?>> due =
+        new ArrayList<ScheduledFutureTask<?>>();
+
+    private class ScheduledFutureTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** Neighbours in the slot list; timer thread only. */
+        ScheduledFutureTask<?> prev, next;
+
+        /** Index of the slot holding this task, or -1; timer thread only. */
+        int slot = -1;
+
+        ScheduledFutureTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        ScheduledFutureTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof ScheduledFutureTask) {
+                ScheduledFutureTask<?> x = (ScheduledFutureTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        /**
+         * Returns {@code true} if this is a periodic (not a one-shot) action.
+         *
+         * @return {@code true} if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && !timerExited)
+                cancellations.offer(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            if (period == 0)
+                super.run();
+            else if (runState.get() != RUNNING)
+                cancel(false);
+            else if (super.runAndReset()) {
+                long p = period;
+                time = (p > 0) ? time + p : triggerTime(-p);
+                reExecutePeriodic(this);
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads and a tick of one millisecond.
+     *
+     * @param workerThreads the number of threads running the tasks
+     * @throws IllegalArgumentException if {@code workerThreads <= 0}
+     */
+    public TimingWheelScheduledExecutor(int workerThreads) {
+        this(workerThreads, 1L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads and tick duration.
+     *
+     * @param workerThreads the number of threads running the tasks
+     * @param tickDuration the resolution of the timer
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code workerThreads <= 0} or
+     *         {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(int workerThreads,
+                                        long tickDuration, TimeUnit unit) {
+        this(workerThreads, tickDuration, unit,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * number of worker threads, tick duration and thread factory.  The
+     * factory creates the timer thread, which is started at once, and
+     * the worker threads.
+     *
+     * @param workerThreads the number of threads running the tasks
+     * @param tickDuration the resolution of the timer
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @throws IllegalArgumentException if {@code workerThreads <= 0} or
+     *         {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null, or the factory fails to
+     *         create the timer thread
+     */
+    public TimingWheelScheduledExecutor(int workerThreads,
+                                        long tickDuration, TimeUnit unit,
+                                        ThreadFactory threadFactory) {
+        if (workerThreads <= 0 || tickDuration <= 0)
+            throw new IllegalArgumentException();
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads,
+                                              0L, TimeUnit.MILLISECONDS,
+                                              new LinkedBlockingQueue<Runnable>(),
+                                              threadFactory);
+        this.startNanos = System.nanoTime();
+        Thread t = threadFactory.newThread(new Runnable() {
+                public void run() { runTimer(); }
+            });
+        if (t == null)
+            throw new NullPointerException();
+        this.timer = t;
+        t.start();
+    }
+
+    /**
+     * Returns the nanoTime-based trigger time of a delayed action.
+     */
+    private static long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    private static long triggerTime(long delay) {
+        // 限制延迟，使触发时间之差不溢出
+        return System.nanoTime() + Math.min(delay, Long.MAX_VALUE >> 1);
+    }
+
+    /**
+     * Main execution method for delayed or periodic tasks.  Tasks that
+     * are already due go straight to the workers, others to the timer
+     * thread.
+     */
+    private void delayedExecute(ScheduledFutureTask<?> task) {
+        if (runState.get() != RUNNING)
+            throw new RejectedExecutionException("Task " + task.toString() +
+                                                 " rejected from " +
+                                                 toString());
+        if (task.time - System.nanoTime() <= 0L)
+            workers.execute(task);
+        else {
+            submissions.offer(task);
+            signalTimer(task);
+            if (runState.get() != RUNNING)
+                task.cancel(false);
+        }
+    }
+
+    /**
+     * Requeues a periodic task unless the executor has been shut down.
+     */
+    private void reExecutePeriodic(ScheduledFutureTask<?> task) {
+        if (runState.get() == RUNNING) {
+            submissions.offer(task);
+            signalTimer(task);
+            if (runState.get() == RUNNING)
+                return;
+        }
+        task.cancel(false);
+    }
+
+    /**
+     * Unparks the timer thread if it sleeps past the tick at which the
+     * just offered task is due.
+     */
+    private void signalTimer(ScheduledFutureTask<?> task) {
+        long w = wakeTick;
+        if (w >= 0L && deadlineTick(task.time) < w)
+            LockSupport.unpark(timer);
+    }
+
+    // Timer thread
+
+    private void runTimer() {
+        long tick = 0L;                     // the next tick to process
+        boolean draining = false;
+        boolean keepDelayed = true;         // policy applied on shutdown
+        try {
+            for (;;) {
+                int rs = runState.get();
+                if (rs == STOP) {
+                    takeUnrun();
+                    break;
+                }
+                if (rs == SHUTDOWN &&
+                    (!draining ||
+                     (keepDelayed && !executeExistingDelayedTasksAfterShutdown))) {
+                    draining = true;
+                    keepDelayed = executeExistingDelayedTasksAfterShutdown;
+                    onShutdown(keepDelayed);
+                }
+                for (ScheduledFutureTask<?> t; (t = cancellations.poll()) != null; )
+                    unlink(t);
+                long elapsed = (System.nanoTime() - startNanos) / tickNanos;
+                if (wheelCount == 0 && tick < elapsed)
+                    tick = elapsed;         // nothing to cascade or expire
+                for (ScheduledFutureTask<?> t; (t = submissions.poll()) != null; ) {
+                    if (t.isCancelled())
+                        continue;
+                    if (draining && (t.isPeriodic() || !keepDelayed))
+                        t.cancel(false);
+                    else
+                        place(t, tick);
+                }
+                // 跳过空的tick，只处理有任务到期或需要级联的tick
+                while (wheelCount != 0) {
+                    long t = nextTick(tick);
+                    if (t > elapsed)
+                        break;
+                    expire(t);
+                    tick = t + 1;
+                }
+                if (tick <= elapsed)
+                    tick = elapsed + 1;
+                if (draining && wheelCount == 0 && submissions.isEmpty())
+                    break;
+                long w = (wheelCount == 0) ? Long.MAX_VALUE :
+                    Math.min(nextTick(tick), tick + WHEEL_SIZE);
+                wakeTick = w;
+                if (submissions.isEmpty() && runState.get() == rs) {
+                    if (w == Long.MAX_VALUE)
+                        LockSupport.park(this);
+                    else {
+                        long wait = startNanos + w * tickNanos - System.nanoTime();
+                        if (wait > 0L)
+                            LockSupport.parkNanos(this, wait);
+                    }
+                }
+                wakeTick = -1L;
+            }
+        } finally {
+            timerExited = true;
+            timerDone.countDown();
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Returns the first tick at or after the given nanoTime.
+     */
+    private long deadlineTick(long time) {
+        long r = time - startNanos;
+        if (r <= 0L)
+            return 0L;
+        long q = r / tickNanos;
+        return (q * tickNanos == r) ? q : q + 1;
+    }
+
+    /**
+     * Places task in the wheel relative to the tick being processed, or
+     * hands it to the workers if it is due already.
+     */
+    private void place(ScheduledFutureTask<?> task, long tick) {
+        long d = deadlineTick(task.time), delta = d - tick;
+        if (delta < 0L) {
+            dispatch(task);
+            return;
+        }
+        if (delta >= SPAN) {
+            // 超出时间轮范围，先放在最高层的末端，到时再重新放置
+            delta = SPAN - 1;
+            d = tick + delta;
+        }
+        int level = (delta == 0L) ? 0 :
+            (63 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+        int slot = (level << WHEEL_BITS) +
+            (int) ((d >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        ScheduledFutureTask<?> h = wheel[slot];
+        task.slot = slot;
+        task.prev = null;
+        task.next = h;
+        if (h != null)
+            h.prev = task;
+        wheel[slot] = task;
+        occupied[level] |= 1L << (slot & WHEEL_MASK);
+        ++wheelCount;
+    }
+
+    /**
+     * Removes task from its slot, if it is in the wheel.
+     */
+    private void unlink(ScheduledFutureTask<?> task) {
+        int slot = task.slot;
+        if (slot < 0)
+            return;
+        ScheduledFutureTask<?> p = task.prev, n = task.next;
+        if (p == null) {
+            if ((wheel[slot] = n) == null)
+                occupied[slot >>> WHEEL_BITS] &= ~(1L << (slot & WHEEL_MASK));
+        }
+        else
+            p.next = n;
+        if (n != null)
+            n.prev = p;
+        task.prev = task.next = null;
+        task.slot = -1;
+        --wheelCount;
+    }
+
+    /**
+     * Detaches and returns the list of the given slot.
+     */
+    private ScheduledFutureTask<?> detach(int slot) {
+        ScheduledFutureTask<?> h = wheel[slot];
+        wheel[slot] = null;
+        occupied[slot >>> WHEEL_BITS] &= ~(1L << (slot & WHEEL_MASK));
+        for (ScheduledFutureTask<?> p = h; p != null; p = p.next) {
+            p.slot = -1;
+            --wheelCount;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the first tick at or after the given one that has a
+     * level-0 slot to expire or an upper-level slot to cascade.  A
+     * level-L slot is cascaded at the first multiple of 64^L whose
+     * level-L index is that slot's; the placement rules make this the
+     * right one, less than a turn of the level away.
+     */
+    private long nextTick(long from) {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; ++level) {
+            long bits = occupied[level];
+            if (bits == 0L)
+                continue;
+            int shift = level * WHEEL_BITS;
+            long b = (from + (1L << shift) - 1L) >>> shift;
+            long m = Long.rotateRight(bits, (int) (b & WHEEL_MASK));
+            long t = (b + Long.numberOfTrailingZeros(m)) << shift;
+            if (t < next)
+                next = t;
+        }
+        return next;
+    }
+
+    /**
+     * Processes tick t: cascades the upper levels if t starts their
+     * current slot, then runs the tasks of the level-0 slot of t.
+     */
+    private void expire(long t) {
+        if ((t & WHEEL_MASK) == 0L) {
+            for (int level = 1; level < LEVELS; ++level) {
+                int idx = (int) ((t >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+                for (ScheduledFutureTask<?> p = detach((level << WHEEL_BITS) + idx), n;
+                     p != null; p = n) {
+                    n = p.next;
+                    p.prev = p.next = null;
+                    if (!p.isCancelled())
+                        place(p, t);
+                }
+                if (idx != 0)
+                    break;
+            }
+        }
+        ScheduledFutureTask<?> p = detach((int) (t & WHEEL_MASK));
+        if (p == null)
+            return;
+        ArrayList<ScheduledFutureTask<?>> ready = due;
+        for (ScheduledFutureTask<?> n; p != null; p = n) {
+            n = p.next;
+            p.prev = p.next = null;
+            ready.add(p);
+        }
+        if (ready.size() > 1)
+            Collections.sort(ready);
+        for (int i = 0, s = ready.size(); i < s; ++i)
+            dispatch(ready.get(i));
+        ready.clear();
+    }
+
+    private void dispatch(ScheduledFutureTask<?> task) {
+        if (task.isCancelled())
+            return;
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels the periodic tasks in the wheel, and the others unless
+     * keepDelayed, on shutdown.
+     */
+    private void onShutdown(boolean keepDelayed) {
+        for (int slot = 0; slot < wheel.length; ++slot) {
+            for (ScheduledFutureTask<?> p = wheel[slot], n; p != null; p = n) {
+                n = p.next;
+                if (p.isPeriodic() || !keepDelayed) {
+                    unlink(p);
+                    p.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Empties the wheel and the submissions into unrun, on shutdownNow.
+     */
+    private void takeUnrun() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int slot = 0; slot < wheel.length; ++slot) {
+            for (ScheduledFutureTask<?> p = detach(slot), n; p != null; p = n) {
+                n = p.next;
+                p.prev = p.next = null;
+                if (!p.isCancelled())
+                    tasks.add(p);
+            }
+        }
+        for (ScheduledFutureTask<?> t; (t = submissions.poll()) != null; ) {
+            if (!t.isCancelled())
+                tasks.add(t);
+        }
+        synchronized (timerDone) {
+            unrun = tasks;
+        }
+    }
+
+    // Scheduling methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        ScheduledFutureTask<Void> t =
+            new ScheduledFutureTask<Void>(command, null,
+                                          triggerTime(delay, unit), 0L);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        ScheduledFutureTask<V> t =
+            new ScheduledFutureTask<V>(callable, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        ScheduledFutureTask<Void> t =
+            new ScheduledFutureTask<Void>(command, null,
+                                          triggerTime(initialDelay, unit),
+                                          unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        ScheduledFutureTask<Void> t =
+            new ScheduledFutureTask<Void>(command, null,
+                                          triggerTime(initialDelay, unit),
+                                          unit.toNanos(-delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay.
+     *
+     * @throws RejectedExecutionException at discretion of
+     *         {@code RejectedExecutionHandler}, if the task
+     *         cannot be accepted for execution because the
+     *         executor has been shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    // Lifecycle
+
+    /**
+     * Sets the policy on whether to execute existing delayed
+     * tasks even when this executor has been {@code shutdown}.
+     * In this case, these tasks will only terminate upon
+     * {@code shutdownNow}, or after setting the policy to
+     * {@code false} when already shutdown.
+     * This value is by default {@code true}.
+     *
+     * @param value if {@code true}, execute after shutdown, else don't
+     * @see #getExecuteExistingDelayedTasksAfterShutdownPolicy
+     */
+    public void setExecuteExistingDelayedTasksAfterShutdownPolicy(boolean value) {
+        executeExistingDelayedTasksAfterShutdown = value;
+        if (!value && isShutdown())
+            LockSupport.unpark(timer);
+    }
+
+    /**
+     * Gets the policy on whether to execute existing delayed
+     * tasks even when this executor has been {@code shutdown}.
+     * In this case, these tasks will only terminate upon
+     * {@code shutdownNow}, or after setting the policy to
+     * {@code false} when already shutdown.
+     * This value is by default {@code true}.
+     *
+     * @return {@code true} if will execute after shutdown
+     * @see #setExecuteExistingDelayedTasksAfterShutdownPolicy
+     */
+    public boolean getExecuteExistingDelayedTasksAfterShutdownPolicy() {
+        return executeExistingDelayedTasksAfterShutdown;
+    }
+
+    private void advanceRunState(int targetState) {
+        for (;;) {
+            int rs = runState.get();
+            if (rs >= targetState || runState.compareAndSet(rs, targetState))
+                break;
+        }
+    }
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * tasks are executed, but no new tasks will be accepted.
+     * Delayed tasks still run when due, unless the {@code
+     * ExecuteExistingDelayedTasksAfterShutdownPolicy} has been set
+     * {@code false}; periodic tasks are cancelled.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        advanceRunState(SHUTDOWN);
+        LockSupport.unpark(timer);
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained (removed)
+     * from the timing wheel and the worker queue upon return from this
+     * method.
+     *
+     * <p>This method waits for the timer thread to stop, which takes at
+     * most about a tick, but does not wait for actively executing tasks
+     * to terminate.  Use {@link #awaitTermination awaitTermination} to
+     * do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * cancels tasks via {@link Thread#interrupt}, so any task that
+     * fails to respond to interrupts may never terminate.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        advanceRunState(STOP);
+        LockSupport.unpark(timer);
+        boolean interrupted = false;
+        while (timerDone.getCount() != 0L) {
+            try {
+                timerDone.await();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        synchronized (timerDone) {
+            if (unrun != null) {
+                tasks.addAll(unrun);
+                unrun = null;
+            }
+        }
+        tasks.addAll(workers.shutdownNow());
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState.get() != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return timerDone.getCount() == 0L && workers.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        return timerDone.await(nanos, NANOSECONDS) &&
+            workers.awaitTermination(deadline - System.nanoTime(), NANOSECONDS);
+    }
+}
@@ -0,0 +1,66 @@
+package java.util.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The codecs returned by the factory methods of {@link FixedWidthCodec}.
+ */
+final class Codecs {
+    private Codecs() {}
+
+    enum LongCodec implements FixedWidthCodec<Long> {
+        INSTANCE;
+        public int width() { return 8; }
+        public void encode(Long value, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, value);
+        }
+        public Long decode(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+    }
+
+    enum IntCodec implements FixedWidthCodec<Integer> {
+        INSTANCE;
+        public int width() { return 4; }
+        public void encode(Integer value, ByteBuffer buffer, int offset) {
+            buffer.putInt(offset, value);
+        }
+        public Integer decode(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+    }
+
+    enum DoubleCodec implements FixedWidthCodec<Double> {
+        INSTANCE;
+        public int width() { return 8; }
+        public void encode(Double value, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, Double.doubleToLongBits(value));
+        }
+        public Double decode(ByteBuffer buffer, int offset) {
+            return Double.longBitsToDouble(buffer.getLong(offset));
+        }
+    }
+
+    static final class BytesCodec implements FixedWidthCodec<byte[]> {
+        final int width;
+        BytesCodec(int width) {
+            if (width <= 0)
+                throw new IllegalArgumentException("Illegal width: " + width);
+            this.width = width;
+        }
+        public int width() { return width; }
+        public void encode(byte[] value, ByteBuffer buffer, int offset) {
+            if (value.length != width)
+                throw new IllegalArgumentException("Expected " + width +
+                                                   " bytes: " + value.length);
+            for (int i = 0; i < width; i++)
+                buffer.put(offset + i, value[i]);
+        }
+        public byte[] decode(ByteBuffer buffer, int offset) {
+            byte[] value = new byte[width];
+            for (int i = 0; i < width; i++)
+                value[i] = buffer.get(offset + i);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package java.util.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts objects to and from a fixed number of bytes, for collections
+ * that store their elements in encoded form outside of the Java heap.
+ * 定长编解码器：对象与固定字节数之间的转换。
+ *
+ * <p>Both methods use absolute positioning: they must access only the
+ * {@link #width()} bytes of the buffer starting at the given offset, and
+ * must not change the position, limit or mark of the buffer.  Since the
+ * encoded bytes of keys are hashed and compared instead of the keys
+ * themselves, an encoding must be <i>canonical</i>: two keys are equal
+ * if and only if their encodings are equal.  The encoding should not
+ * depend on the JVM (for example on identity hash codes) if the
+ * collection is persisted.
+ *
+ * @param <T> the type of encoded objects
+ */
+public interface FixedWidthCodec<T> {
+
+    /**
+     * Returns the number of bytes of an encoded object.
+     *
+     * @return the number of bytes of an encoded object, positive
+     */
+    int width();
+
+    /**
+     * Writes the encoding of the given object.
+     *
+     * @param value the object to encode, never {@code null}
+     * @param buffer the buffer to write to
+     * @param offset the index of the first byte to write
+     * @throws IllegalArgumentException if the object cannot be encoded
+     *         in {@link #width()} bytes
+     */
+    void encode(T value, ByteBuffer buffer, int offset);
+
+    /**
+     * Reads an encoded object.
+     *
+     * @param buffer the buffer to read from
+     * @param offset the index of the first byte to read
+     * @return the decoded object
+     */
+    T decode(ByteBuffer buffer, int offset);
+
+    /**
+     * Returns a codec encoding {@code Long}s in 8 bytes.
+     *
+     * @return a codec for {@code Long}s
+     */
+    static FixedWidthCodec<Long> ofLong() {
+        return Codecs.LongCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec encoding {@code Integer}s in 4 bytes.
+     *
+     * @return a codec for {@code Integer}s
+     */
+    static FixedWidthCodec<Integer> ofInt() {
+        return Codecs.IntCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec encoding {@code Double}s in 8 bytes, by their
+     * {@link Double#doubleToLongBits raw bits} with NaN canonicalized.
+     *
+     * @return a codec for {@code Double}s
+     */
+    static FixedWidthCodec<Double> ofDouble() {
+        return Codecs.DoubleCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec for byte arrays of exactly the given length, such
+     * as fixed-size records.  Decoding returns a new array.
+     *
+     * @param width the length of the arrays
+     * @return a codec for byte arrays of the given length
+     * @throws IllegalArgumentException if the width is not positive
+     */
+    static FixedWidthCodec<byte[]> ofBytes(int width) {
+        return new Codecs.BytesCodec(width);
+    }
+}
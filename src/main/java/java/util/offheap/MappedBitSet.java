@@ -0,0 +1,971 @@
+package java.util.offheap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A vector of bits, like {@link java.util.BitSet}, whose words are stored
+ * in direct or memory-mapped buffers instead of a {@code long[]}.  A bit
+ * set backed by a file is opened in constant time, whatever its size, and
+ * its pages are loaded on demand and shared by every process mapping the
+ * file.
+ * 内存映射位集合：字存放在直接内存或内存映射文件中，打开文件的时间与大小无关。
+ *
+ * <p>Unlike {@code BitSet}, a {@code MappedBitSet} has a fixed number of
+ * bits, set when it is created, and bits are indexed by {@code long}s, so
+ * it can hold more than {@code Integer.MAX_VALUE} bits.  Accessing a bit
+ * at an index outside of {@code [0, size())} throws an
+ * {@code IndexOutOfBoundsException}.  The bit-wise operations work a word
+ * at a time, as those of {@code BitSet} do.
+ *
+ * <p>A bit set file starts with a 64-byte big-endian header (magic number,
+ * format version and number of bits), followed by the words in
+ * little-endian byte order, bit {@code n} being bit {@code n % 64} of word
+ * {@code n / 64}: the words are laid out as
+ * {@link java.util.BitSet#toLongArray} returns them, and the bytes as
+ * {@link java.util.BitSet#toByteArray} does.
+ *
+ * <p>A bit set must be {@linkplain #close closed} when it is no longer
+ * needed, which releases its direct memory or unmaps its file immediately;
+ * any use of the bit set afterwards throws an
+ * {@link IllegalStateException}.
+ *
+ * <p>A {@code MappedBitSet} is not safe for multithreaded use without
+ * external synchronization, except that several threads may read it
+ * concurrently.  Whether, and when, changes made by another process to
+ * a shared file become visible is up to the operating system.
+ */
+public class MappedBitSet implements Closeable {
+
+    /** The magic number of the file format, "MBITSET1" */
+    static final long MAGIC = 0x4D42495453455431L;
+
+    /** The version of the file format */
+    static final int VERSION = 1;
+
+    /** The size of the file header, in bytes */
+    static final int HEADER_SIZE = 64;
+
+    // header fields 文件头字段的偏移量
+    static final int MAGIC_OFFSET   = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int NBITS_OFFSET   = 16;
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+    private static final long WORD_MASK = 0xffffffffffffffffL;
+
+    /** log2 of the number of words per segment (1GB) */
+    static final int SEGMENT_SHIFT = 27;
+    static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    /** The number of bits */
+    final long nbits;
+
+    /** The number of words */
+    final long wordCount;
+
+    /** Word views of the buffers, null once closed */
+    LongBuffer[] words;
+
+    /** The buffers holding the words */
+    final ByteBuffer[] buffers;
+
+    /** The header, mapped for a file-backed bit set */
+    final ByteBuffer header;
+
+    final boolean readOnly;
+
+    MappedBitSet(long nbits, ByteBuffer header, ByteBuffer[] buffers, boolean readOnly) {
+        this.nbits = nbits;
+        this.wordCount = wordCount(nbits);
+        this.header = header;
+        this.buffers = buffers;
+        this.readOnly = readOnly;
+        LongBuffer[] w = new LongBuffer[buffers.length];
+        for (int i = 0; i < w.length; i++)
+            w[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.words = w;
+    }
+
+    /**
+     * Returns the number of words needed to hold nbits bits.
+     */
+    static long wordCount(long nbits) {
+        return (nbits >>> ADDRESS_BITS_PER_WORD) + ((nbits & (BITS_PER_WORD - 1)) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of bytes of each segment of a bit set of the
+     * given number of words.
+     */
+    static long[] segmentSizes(long wordCount) {
+        int n = (int)((wordCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        long[] sizes = new long[n];
+        for (int i = 0; i < n; i++)
+            sizes[i] = Math.min(wordCount - ((long)i << SEGMENT_SHIFT),
+                                1L << SEGMENT_SHIFT) << 3;
+        return sizes;
+    }
+
+    /* ---------------- Creation -------------- */
+
+    /**
+     * Creates a bit set in direct memory, with the given number of bits,
+     * all initially {@code false}.
+     *
+     * @param  nbits the number of bits
+     * @return a new bit set
+     * @throws NegativeArraySizeException if the specified number of bits
+     *         is negative
+     * @throws OutOfMemoryError if the direct memory cannot be allocated
+     */
+    public static MappedBitSet allocate(long nbits) {
+        ByteBuffer header = newHeader(nbits);
+        long[] sizes = segmentSizes(wordCount(nbits));
+        ByteBuffer[] buffers = new ByteBuffer[sizes.length];
+        try {
+            for (int i = 0; i < buffers.length; i++)
+                buffers[i] = ByteBuffer.allocateDirect((int)sizes[i]);
+        } catch (OutOfMemoryError e) {
+            for (ByteBuffer b : buffers)
+                OffHeapHashMap.free(b);
+            throw e;
+        }
+        return new MappedBitSet(nbits, header, buffers, false);
+    }
+
+    /**
+     * Creates a bit set backed by a new file, with the given number of
+     * bits, all initially {@code false}.  The file is extended to its full
+     * size (which on most file systems does not allocate the unwritten
+     * blocks).
+     *
+     * @param  file the file to create
+     * @param  nbits the number of bits
+     * @return a new bit set
+     * @throws NegativeArraySizeException if the specified number of bits
+     *         is negative
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists
+     * @throws IOException if an I/O error occurs
+     */
+    public static MappedBitSet create(Path file, long nbits) throws IOException {
+        ByteBuffer h = newHeader(nbits);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE)) {
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.put(h);
+            return map(ch, header, nbits, false);
+        }
+    }
+
+    /**
+     * Opens a bit set from a file written by a file-backed bit set or by
+     * {@link #writeTo}, by mapping it into memory.  This takes constant
+     * time; the pages of the file are loaded on demand.
+     *
+     * @param  file the file to open
+     * @param  readOnly whether to map the file read-only, in which case
+     *         the bit set cannot be modified
+     * @return the bit set
+     * @throws IOException if an I/O error occurs, or the file is not a
+     *         bit set file
+     */
+    public static MappedBitSet open(Path file, boolean readOnly) throws IOException {
+        try (FileChannel ch = readOnly ?
+             FileChannel.open(file, StandardOpenOption.READ) :
+             FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < HEADER_SIZE)
+                throw new IOException("Not a bit set: " + file);
+            ByteBuffer header = ch.map(readOnly ? FileChannel.MapMode.READ_ONLY :
+                                       FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getLong(MAGIC_OFFSET) != MAGIC)
+                throw new IOException("Not a bit set: " + file);
+            if (header.getInt(VERSION_OFFSET) != VERSION)
+                throw new IOException("Unsupported version: " +
+                                      header.getInt(VERSION_OFFSET));
+            long nbits = header.getLong(NBITS_OFFSET);
+            if (nbits < 0L || ch.size() < HEADER_SIZE + (wordCount(nbits) << 3))
+                throw new IOException("Corrupted bit set: " + file);
+            return map(ch, header, nbits, readOnly);
+        }
+    }
+
+    /**
+     * Maps the words of a file whose header is valid.
+     */
+    static MappedBitSet map(FileChannel ch, ByteBuffer header, long nbits,
+                            boolean readOnly) throws IOException {
+        long[] sizes = segmentSizes(wordCount(nbits));
+        ByteBuffer[] buffers = new ByteBuffer[sizes.length];
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY :
+            FileChannel.MapMode.READ_WRITE;
+        try {
+            long position = HEADER_SIZE;
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ch.map(mode, position, sizes[i]);
+                position += sizes[i];
+            }
+        } catch (IOException | RuntimeException e) {
+            OffHeapHashMap.free(header);
+            for (ByteBuffer b : buffers)
+                OffHeapHashMap.free(b);
+            throw e;
+        }
+        return new MappedBitSet(nbits, header, buffers, readOnly);
+    }
+
+    /**
+     * Returns a new heap header of a bit set of nbits bits.
+     */
+    static ByteBuffer newHeader(long nbits) {
+        if (nbits < 0)
+            throw new NegativeArraySizeException("nbits < 0: " + nbits);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putLong(NBITS_OFFSET, nbits);
+        return header;
+    }
+
+    /* ---------------- Words -------------- */
+
+    final LongBuffer[] words() {
+        LongBuffer[] w = words;
+        if (w == null)
+            throw new IllegalStateException("Bit set is closed");
+        return w;
+    }
+
+    final LongBuffer[] writableWords() {
+        if (readOnly)
+            throw new UnsupportedOperationException("Bit set is read-only");
+        return words();
+    }
+
+    private void checkIndex(long bitIndex) {
+        if (bitIndex < 0 || bitIndex >= nbits)
+            throw new IndexOutOfBoundsException("bitIndex: " + bitIndex +
+                                                ", size: " + nbits);
+    }
+
+    /**
+     * Checks that fromIndex ... toIndex is a valid range of bit indices.
+     */
+    private void checkRange(long fromIndex, long toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex > nbits)
+            throw new IndexOutOfBoundsException("toIndex > size: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /* range operations */
+    private static final int SET   = 0;
+    private static final int CLEAR = 1;
+    private static final int FLIP  = 2;
+
+    private static void apply(LongBuffer[] w, long u, long mask, int op) {
+        LongBuffer seg = w[(int)(u >>> SEGMENT_SHIFT)];
+        int i = (int)u & SEGMENT_MASK;
+        long word = seg.get(i);
+        seg.put(i, op == SET ? word | mask : op == CLEAR ? word & ~mask : word ^ mask);
+    }
+
+    private void applyRange(long fromIndex, long toIndex, int op) {
+        checkRange(fromIndex, toIndex);
+        LongBuffer[] w = writableWords();
+        if (fromIndex == toIndex)
+            return;
+
+        long startWordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        long endWordIndex = (toIndex - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstWordMask = WORD_MASK << fromIndex;
+        long lastWordMask  = WORD_MASK >>> -toIndex;
+        if (startWordIndex == endWordIndex) {
+            // Case 1: One word
+            apply(w, startWordIndex, firstWordMask & lastWordMask, op);
+        } else {
+            // Case 2: Multiple words
+            // Handle first word
+            apply(w, startWordIndex, firstWordMask, op);
+
+            // Handle intermediate words, if any
+            for (long u = startWordIndex + 1; u < endWordIndex; u++)
+                apply(w, u, WORD_MASK, op);
+
+            // Handle last word
+            apply(w, endWordIndex, lastWordMask, op);
+        }
+    }
+
+    /* ---------------- Bits -------------- */
+
+    /**
+     * Returns the number of bits of this bit set.
+     *
+     * @return the number of bits of this bit set
+     */
+    public long size() {
+        return nbits;
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the index is negative or not
+     *         less than {@code size()}
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public boolean get(long bitIndex) {
+        checkIndex(bitIndex);
+        long u = bitIndex >>> ADDRESS_BITS_PER_WORD;
+        return (words()[(int)(u >>> SEGMENT_SHIFT)].get((int)u & SEGMENT_MASK)
+                & (1L << bitIndex)) != 0;
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the index is negative or not
+     *         less than {@code size()}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void set(long bitIndex) {
+        checkIndex(bitIndex);
+        apply(writableWords(), bitIndex >>> ADDRESS_BITS_PER_WORD, 1L << bitIndex, SET);
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the index is negative or not
+     *         less than {@code size()}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void set(long bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is larger than {@code size()}, or
+     *         {@code fromIndex} is larger than {@code toIndex}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void set(long fromIndex, long toIndex) {
+        applyRange(fromIndex, toIndex, SET);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the index is negative or not
+     *         less than {@code size()}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void clear(long bitIndex) {
+        checkIndex(bitIndex);
+        apply(writableWords(), bitIndex >>> ADDRESS_BITS_PER_WORD, 1L << bitIndex, CLEAR);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is larger than {@code size()}, or
+     *         {@code fromIndex} is larger than {@code toIndex}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void clear(long fromIndex, long toIndex) {
+        applyRange(fromIndex, toIndex, CLEAR);
+    }
+
+    /**
+     * Sets all of the bits in this bit set to {@code false}.
+     *
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void clear() {
+        for (LongBuffer seg : writableWords()) {
+            for (int i = 0, n = seg.limit(); i < n; i++)
+                seg.put(i, 0L);
+        }
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the index is negative or not
+     *         less than {@code size()}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void flip(long bitIndex) {
+        checkIndex(bitIndex);
+        apply(writableWords(), bitIndex >>> ADDRESS_BITS_PER_WORD, 1L << bitIndex, FLIP);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is larger than {@code size()}, or
+     *         {@code fromIndex} is larger than {@code toIndex}
+     * @throws IllegalStateException if this bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void flip(long fromIndex, long toIndex) {
+        applyRange(fromIndex, toIndex, FLIP);
+    }
+
+    /* ---------------- Searches -------------- */
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long nextSetBit(long fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        return nextSetBit(words(), fromIndex, wordCount);
+    }
+
+    /**
+     * Returns the first set bit on or after fromIndex, in the words
+     * before endWordIndex, or -1.
+     */
+    static long nextSetBit(LongBuffer[] w, long fromIndex, long endWordIndex) {
+        long u = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        if (u >= endWordIndex)
+            return -1;
+        // 按段遍历，避免每个字都计算段下标
+        int s = (int)(u >>> SEGMENT_SHIFT), i = (int)u & SEGMENT_MASK;
+        LongBuffer seg = w[s];
+        int n = (int)Math.min(seg.limit(), endWordIndex - ((long)s << SEGMENT_SHIFT));
+        long word = seg.get(i) & (WORD_MASK << fromIndex);
+        while (true) {
+            if (word != 0)
+                return ((((long)s << SEGMENT_SHIFT) + i) << ADDRESS_BITS_PER_WORD) +
+                    Long.numberOfTrailingZeros(word);
+            if (++i == n) {
+                long base = (long)++s << SEGMENT_SHIFT;
+                if (base >= endWordIndex)
+                    return -1;
+                seg = w[s];
+                n = (int)Math.min(seg.limit(), endWordIndex - base);
+                i = 0;
+            }
+            word = seg.get(i);
+        }
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.  Bits at and
+     * after {@code size()} are considered {@code false}.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long nextClearBit(long fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        LongBuffer[] w = words();
+        long u = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        if (u >= wordCount)
+            return fromIndex;
+
+        int s = (int)(u >>> SEGMENT_SHIFT), i = (int)u & SEGMENT_MASK;
+        LongBuffer seg = w[s];
+        long word = ~seg.get(i) & (WORD_MASK << fromIndex);
+        while (true) {
+            if (word != 0)
+                return ((((long)s << SEGMENT_SHIFT) + i) << ADDRESS_BITS_PER_WORD) +
+                    Long.numberOfTrailingZeros(word);
+            if (++i == seg.limit()) {
+                if (++s == w.length)
+                    return wordCount << ADDRESS_BITS_PER_WORD;
+                seg = w[s];
+                i = 0;
+            }
+            word = ~seg.get(i);
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long previousSetBit(long fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        LongBuffer[] w = words();
+        if (fromIndex >= nbits) {
+            if (nbits == 0)
+                return -1;
+            fromIndex = nbits - 1;
+        }
+
+        long u = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        int s = (int)(u >>> SEGMENT_SHIFT), i = (int)u & SEGMENT_MASK;
+        LongBuffer seg = w[s];
+        long word = seg.get(i) & (WORD_MASK >>> -(fromIndex+1));
+        while (true) {
+            if (word != 0)
+                return ((((long)s << SEGMENT_SHIFT) + i + 1) << ADDRESS_BITS_PER_WORD) -
+                    1 - Long.numberOfLeadingZeros(word);
+            if (i-- == 0) {
+                if (s-- == 0)
+                    return -1;
+                seg = w[s];
+                i = seg.limit() - 1;
+            }
+            word = seg.get(i);
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code false}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long previousClearBit(long fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        LongBuffer[] w = words();
+        if (fromIndex >= nbits)
+            return fromIndex;
+
+        long u = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        int s = (int)(u >>> SEGMENT_SHIFT), i = (int)u & SEGMENT_MASK;
+        LongBuffer seg = w[s];
+        long word = ~seg.get(i) & (WORD_MASK >>> -(fromIndex+1));
+        while (true) {
+            if (word != 0)
+                return ((((long)s << SEGMENT_SHIFT) + i + 1) << ADDRESS_BITS_PER_WORD) -
+                    1 - Long.numberOfLeadingZeros(word);
+            if (i-- == 0) {
+                if (s-- == 0)
+                    return -1;
+                seg = w[s];
+                i = seg.limit() - 1;
+            }
+            word = ~seg.get(i);
+        }
+    }
+
+    /**
+     * Returns the "logical size" of this bit set: the index of the
+     * highest set bit plus one, or zero if it contains no set bits.
+     *
+     * @return the logical size of this bit set
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long length() {
+        return previousSetBit(nbits - 1) + 1;
+    }
+
+    /**
+     * Returns true if this bit set contains no bits that are set to
+     * {@code true}.
+     *
+     * @return boolean indicating whether this bit set is empty
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public boolean isEmpty() {
+        return nextSetBit(0) < 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this bit set.
+     *
+     * @return the number of bits set to {@code true} in this bit set
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public long cardinality() {
+        long sum = 0;
+        for (LongBuffer seg : words()) {
+            for (int i = 0, n = seg.limit(); i < n; i++)
+                sum += Long.bitCount(seg.get(i));
+        }
+        return sum;
+    }
+
+    /* ---------------- Bit set operations -------------- */
+
+    /**
+     * Returns true if the specified bit set has any bits set to
+     * {@code true} that are also set to {@code true} in this bit set.
+     *
+     * @param  set bit set to intersect with
+     * @return boolean indicating whether this bit set intersects
+     *         the specified bit set
+     * @throws IllegalStateException if either bit set is closed
+     */
+    public boolean intersects(MappedBitSet set) {
+        LongBuffer[] w = words(), o = set.words();
+        for (int s = 0, m = Math.min(w.length, o.length); s < m; s++) {
+            LongBuffer a = w[s], b = o[s];
+            for (int i = 0, n = Math.min(a.limit(), b.limit()); i < n; i++)
+                if ((a.get(i) & b.get(i)) != 0)
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target bit set with the
+     * argument bit set. This bit set is modified so that each bit in it
+     * has the value {@code true} if and only if it both initially
+     * had the value {@code true} and the corresponding bit in the
+     * bit set argument also had the value {@code true}.
+     *
+     * @param  set a bit set
+     * @throws IllegalStateException if either bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void and(MappedBitSet set) {
+        LongBuffer[] w = writableWords(), o = set.words();
+        if (this == set)
+            return;
+        for (int s = 0; s < w.length; s++) {
+            LongBuffer a = w[s], b = (s < o.length) ? o[s] : null;
+            int n = a.limit(), m = (b == null) ? 0 : Math.min(n, b.limit());
+            int i = 0;
+            // Perform logical AND on words in common
+            for (; i < m; i++)
+                a.put(i, a.get(i) & b.get(i));
+            // Clear words the argument does not have
+            for (; i < n; i++)
+                a.put(i, 0L);
+        }
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if it either already had the
+     * value {@code true} or the corresponding bit in the bit set
+     * argument has the value {@code true}.
+     *
+     * @param  set a bit set
+     * @throws IndexOutOfBoundsException if the argument has a bit set at
+     *         an index not less than {@code size()}
+     * @throws IllegalStateException if either bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void or(MappedBitSet set) {
+        LongBuffer[] w = writableWords(), o = set.words();
+        if (this == set)
+            return;
+        checkFits(set, o);
+        for (int s = 0, k = Math.min(w.length, o.length); s < k; s++) {
+            LongBuffer a = w[s], b = o[s];
+            for (int i = 0, n = Math.min(a.limit(), b.limit()); i < n; i++)
+                a.put(i, a.get(i) | b.get(i));
+        }
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this bit set with the bit set
+     * argument. This bit set is modified so that a bit in it has the
+     * value {@code true} if and only if one of the following
+     * statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a bit set
+     * @throws IndexOutOfBoundsException if the argument has a bit set at
+     *         an index not less than {@code size()}
+     * @throws IllegalStateException if either bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void xor(MappedBitSet set) {
+        LongBuffer[] w = writableWords(), o = set.words();
+        checkFits(set, o);
+        for (int s = 0, k = Math.min(w.length, o.length); s < k; s++) {
+            LongBuffer a = w[s], b = o[s];
+            for (int i = 0, n = Math.min(a.limit(), b.limit()); i < n; i++)
+                a.put(i, a.get(i) ^ b.get(i));
+        }
+    }
+
+    /**
+     * Clears all of the bits in this bit set whose corresponding
+     * bit is set in the specified bit set.
+     *
+     * @param  set the bit set with which to mask this bit set
+     * @throws IllegalStateException if either bit set is closed
+     * @throws UnsupportedOperationException if this bit set is read-only
+     */
+    public void andNot(MappedBitSet set) {
+        LongBuffer[] w = writableWords(), o = set.words();
+        for (int s = 0, k = Math.min(w.length, o.length); s < k; s++) {
+            LongBuffer a = w[s], b = o[s];
+            for (int i = 0, n = Math.min(a.limit(), b.limit()); i < n; i++)
+                a.put(i, a.get(i) & ~b.get(i));
+        }
+    }
+
+    /**
+     * Checks that the given bit set has no bit set beyond the size of
+     * this one, which would be lost by or and xor.
+     */
+    private void checkFits(MappedBitSet set, LongBuffer[] o) {
+        if (set.nbits > nbits) {
+            long i = nextSetBit(o, nbits, set.wordCount);
+            if (i >= 0)
+                throw new IndexOutOfBoundsException("bitIndex: " + i +
+                                                    ", size: " + nbits);
+        }
+    }
+
+    /* ---------------- Stream -------------- */
+
+    /**
+     * Returns a stream of indices for which this bit set contains a bit
+     * in the set state. The indices are returned in order, from lowest to
+     * highest.  The stream splits the bit set into word-aligned ranges,
+     * so it can be processed in parallel.
+     *
+     * <p>The bit set must remain constant during the execution of the
+     * terminal stream operation.  Otherwise, the result of the terminal
+     * stream operation is undefined.  If the bit set is closed before or
+     * during the terminal operation, the traversal throws an
+     * {@link IllegalStateException}.
+     *
+     * @return a stream of longs representing set indices
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public LongStream stream() {
+        words();
+        return StreamSupport.longStream(new SetBitSpliterator(this, 0L, wordCount),
+                                        false);
+    }
+
+    /**
+     * Spliterator over the set bits of a range of words.  It fetches the
+     * words from the bit set at each step, rather than holding on to
+     * them, so that it fails instead of reading freed memory once the
+     * bit set is closed.
+     */
+    static final class SetBitSpliterator implements Spliterator.OfLong {
+        final MappedBitSet set;
+        long index;              // next bit to examine
+        final long fence;        // one past the last word
+
+        SetBitSpliterator(MappedBitSet set, long index, long fence) {
+            this.set = set;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        public Spliterator.OfLong trySplit() {
+            long lo = index >>> ADDRESS_BITS_PER_WORD, mid = (lo + fence) >>> 1;
+            if (mid <= lo)
+                return null;
+            // 前半部分交给新的分割器，字边界对齐
+            SetBitSpliterator prefix = new SetBitSpliterator(set, index, mid);
+            index = mid << ADDRESS_BITS_PER_WORD;
+            return prefix;
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            Objects.requireNonNull(action);
+            long i = nextSetBit(set.words(), index, fence);
+            if (i < 0) {
+                index = fence << ADDRESS_BITS_PER_WORD;
+                return false;
+            }
+            index = i + 1;
+            action.accept(i);
+            return true;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            Objects.requireNonNull(action);
+            // 每次都经由words()取字缓冲区，关闭后立即失败
+            for (long i; (i = nextSetBit(set.words(), index, fence)) >= 0; ) {
+                index = i + 1;
+                action.accept(i);
+            }
+            index = fence << ADDRESS_BITS_PER_WORD;
+        }
+
+        public long estimateSize() {
+            return Math.max((fence << ADDRESS_BITS_PER_WORD) - index, 0L);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT |
+                Spliterator.SORTED | Spliterator.NONNULL;
+        }
+
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+
+    /* ---------------- Persistence and lifecycle -------------- */
+
+    /**
+     * Writes this bit set to a new file, which can later be mapped back
+     * in with {@link #open}.
+     *
+     * @param  file the file to write
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public void writeTo(Path file) throws IOException {
+        words();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.WRITE)) {
+            writeFully(ch, header);
+            for (ByteBuffer b : buffers)
+                writeFully(ch, b);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        ByteBuffer src = b.duplicate();
+        src.clear();
+        while (src.hasRemaining())
+            ch.write(src);
+    }
+
+    /**
+     * Forces any changes made to a file-backed bit set to be written to
+     * the storage device.  Does nothing for a bit set in direct memory.
+     *
+     * @throws IllegalStateException if this bit set is closed
+     */
+    public void force() {
+        words();
+        if (!readOnly && header instanceof MappedByteBuffer) {
+            for (ByteBuffer b : buffers)
+                ((MappedByteBuffer)b).force();
+            ((MappedByteBuffer)header).force();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this bit set has not been closed.
+     *
+     * @return <tt>true</tt> if this bit set is open
+     */
+    public boolean isOpen() {
+        return words != null;
+    }
+
+    /**
+     * Releases the direct memory of this bit set, or unmaps its file,
+     * right away.  A {@linkplain #stream stream} of the bit set that is
+     * traversed afterwards throws an {@link IllegalStateException}.
+     * Closing a closed bit set has no effect.
+     */
+    public void close() {
+        if (words != null) {
+            words = null;
+            for (ByteBuffer b : buffers)
+                OffHeapHashMap.free(b);
+            OffHeapHashMap.free(header);
+        }
+    }
+
+    /**
+     * Returns a string describing this bit set (not its bits).
+     *
+     * @return a string describing this bit set
+     */
+    public String toString() {
+        return getClass().getName() + "[size=" + nbits +
+            (header instanceof MappedByteBuffer ? ", mapped" : ", direct") +
+            (readOnly ? ", read-only" : "") +
+            (words == null ? ", closed]" : "]");
+    }
+}
@@ -0,0 +1,702 @@
+package java.util.offheap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A hash map whose keys and values are stored outside of the Java heap,
+ * encoded by {@link FixedWidthCodec}s into direct or memory-mapped
+ * {@link ByteBuffer}s.  However many mappings it holds, the map is a
+ * handful of objects to the garbage collector, which makes it suitable for
+ * large, long-lived lookup tables.
+ * 堆外哈希映射表：键值按定长编码存放在直接内存或内存映射文件中，垃圾回收器不可见。
+ *
+ * <p>Each mapping occupies a fixed-size slot holding a state byte, the
+ * encoded key and the encoded value.  Collisions are resolved by linear
+ * probing, and removal shifts the following slots of the probe sequence
+ * backwards, so the table never accumulates deleted markers.  Keys are
+ * hashed and compared by their encoded bytes, so the key codec must be
+ * canonical.  Since slots are spread over several buffers (each at most
+ * 1GB), the number of mappings is not limited by the size of a single
+ * buffer.
+ *
+ * <p>The capacity of the map is fixed when it is created: {@link #put}
+ * throws an {@link IllegalStateException} once the map holds
+ * {@link #maxSize()} mappings.  The table is sized so that it is at most
+ * three quarters full at that point.
+ *
+ * <p>A map is either held in direct memory ({@link #allocate}) or backed
+ * by a file ({@link #create}, {@link #open}).  The file starts with a
+ * 64-byte header (magic number, format version, key and value widths,
+ * number of slots, maximum and current size) followed by the slots, all
+ * in big-endian byte order, so it can be mapped back in by any JVM in
+ * constant time, and its pages are shared by all processes mapping it.
+ * A map held in direct memory can be saved to such a file with
+ * {@link #writeTo}.  Changes to a file-backed map are written to the file
+ * by the operating system; {@link #force} forces them to the storage
+ * device.
+ *
+ * <p>A map must be {@linkplain #close closed} when it is no longer needed,
+ * which releases its direct memory or unmaps its file immediately; any use
+ * of the map afterwards throws an {@link IllegalStateException}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Several threads may read the map concurrently (each thread encodes keys
+ * into its own scratch buffer), but if a thread modifies the map, all
+ * accesses must be synchronized externally.  The map must not be closed
+ * while other threads still use it.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapHashMap<K,V> implements Closeable {
+
+    /** The magic number of the file format, "OHHMAP01" */
+    static final long MAGIC = 0x4F48484D41503031L;
+
+    /** The version of the file format */
+    static final int VERSION = 1;
+
+    /** The size of the file header, in bytes */
+    static final int HEADER_SIZE = 64;
+
+    // header fields 文件头字段的偏移量
+    static final int MAGIC_OFFSET       = 0;
+    static final int VERSION_OFFSET     = 8;
+    static final int KEY_WIDTH_OFFSET   = 12;
+    static final int VALUE_WIDTH_OFFSET = 16;
+    static final int SLOTS_OFFSET       = 24;
+    static final int MAX_SIZE_OFFSET    = 32;
+    static final int SIZE_OFFSET        = 40;
+
+    /** The maximum number of bytes of a buffer holding slots */
+    static final int MAXIMUM_SEGMENT_SIZE = 1 << 30;
+
+    /** The maximum number of slots */
+    static final long MAXIMUM_SLOTS = 1L << 40;
+
+    /* slot states */
+    static final byte FREE = 0;
+    static final byte FULL = 1;
+
+    final FixedWidthCodec<K> keyCodec;
+    final FixedWidthCodec<V> valueCodec;
+    final int keyWidth;
+    final int valueWidth;
+
+    /** state byte + key + value */
+    final int slotSize;
+
+    /** The number of slots, a power of two */
+    final long slots;
+
+    /** The maximum number of mappings */
+    final long maxSize;
+
+    /** log2 of the number of slots per segment */
+    final int segmentShift;
+
+    /** The buffers holding the slots, null once closed */
+    ByteBuffer[] segments;
+
+    /** The header, mapped for a file-backed map */
+    final ByteBuffer header;
+
+    final boolean readOnly;
+
+    /** The number of mappings */
+    long size;
+
+    /** The number of times this map has been structurally modified */
+    int modCount;
+
+    /** Per-thread buffer holding the encoding of the key looked up */
+    final ThreadLocal<ByteBuffer> scratch;
+
+    OffHeapHashMap(FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec,
+                   ByteBuffer header, ByteBuffer[] segments, boolean readOnly) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.keyWidth = keyCodec.width();
+        this.valueWidth = valueCodec.width();
+        this.slotSize = 1 + keyWidth + valueWidth;
+        this.header = header;
+        this.slots = header.getLong(SLOTS_OFFSET);
+        this.maxSize = header.getLong(MAX_SIZE_OFFSET);
+        this.size = header.getLong(SIZE_OFFSET);
+        this.segmentShift = segmentShift(slotSize, slots);
+        this.segments = segments;
+        this.readOnly = readOnly;
+        final int w = keyWidth;
+        this.scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(w));
+    }
+
+    /* ---------------- Creation -------------- */
+
+    /**
+     * Creates an empty map in direct memory, able to hold the given
+     * number of mappings.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param maxSize the maximum number of mappings
+     * @return a new map
+     * @throws IllegalArgumentException if maxSize is negative or too large
+     * @throws OutOfMemoryError if the direct memory cannot be allocated
+     */
+    public static <K,V> OffHeapHashMap<K,V> allocate(FixedWidthCodec<K> keyCodec,
+                                                     FixedWidthCodec<V> valueCodec,
+                                                     long maxSize) {
+        ByteBuffer header = newHeader(keyCodec, valueCodec, maxSize);
+        int slotSize = 1 + keyCodec.width() + valueCodec.width();
+        long slots = header.getLong(SLOTS_OFFSET);
+        int shift = segmentShift(slotSize, slots);
+        ByteBuffer[] segments = new ByteBuffer[(int)(slots >>> shift)];
+        try {
+            for (int i = 0; i < segments.length; i++)
+                segments[i] = ByteBuffer.allocateDirect(slotSize << shift);
+        } catch (OutOfMemoryError e) {
+            for (ByteBuffer b : segments)
+                free(b);
+            throw e;
+        }
+        return new OffHeapHashMap<K,V>(keyCodec, valueCodec, header, segments, false);
+    }
+
+    /**
+     * Creates an empty map backed by a new file, able to hold the given
+     * number of mappings.  The file is extended to its full size (which
+     * on most file systems does not allocate the unwritten blocks).
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @param file the file to create
+     * @param keyCodec the codec of the keys
+     * @param valueCodec the codec of the values
+     * @param maxSize the maximum number of mappings
+     * @return a new map
+     * @throws IllegalArgumentException if maxSize is negative or too large
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists
+     * @throws IOException if an I/O error occurs
+     */
+    public static <K,V> OffHeapHashMap<K,V> create(Path file,
+                                                   FixedWidthCodec<K> keyCodec,
+                                                   FixedWidthCodec<V> valueCodec,
+                                                   long maxSize)
+        throws IOException {
+        ByteBuffer h = newHeader(keyCodec, valueCodec, maxSize);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE)) {
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.put(h);
+            return map(ch, header, keyCodec, valueCodec, false);
+        }
+    }
+
+    /**
+     * Opens a map from a file written by a file-backed map or by
+     * {@link #writeTo}, by mapping it into memory.  This takes constant
+     * time; the pages of the file are loaded on demand.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @param file the file to open
+     * @param keyCodec the codec of the keys, of the width the map was
+     *        created with
+     * @param valueCodec the codec of the values, of the width the map was
+     *        created with
+     * @param readOnly whether to map the file read-only, in which case
+     *        the map cannot be modified
+     * @return the map
+     * @throws IOException if an I/O error occurs, or the file is not a map
+     *         of the given key and value widths
+     */
+    public static <K,V> OffHeapHashMap<K,V> open(Path file,
+                                                 FixedWidthCodec<K> keyCodec,
+                                                 FixedWidthCodec<V> valueCodec,
+                                                 boolean readOnly)
+        throws IOException {
+        try (FileChannel ch = readOnly ?
+             FileChannel.open(file, StandardOpenOption.READ) :
+             FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < HEADER_SIZE)
+                throw new IOException("Not an off-heap map: " + file);
+            ByteBuffer header = ch.map(readOnly ? FileChannel.MapMode.READ_ONLY :
+                                       FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getLong(MAGIC_OFFSET) != MAGIC)
+                throw new IOException("Not an off-heap map: " + file);
+            if (header.getInt(VERSION_OFFSET) != VERSION)
+                throw new IOException("Unsupported version: " +
+                                      header.getInt(VERSION_OFFSET));
+            if (header.getInt(KEY_WIDTH_OFFSET) != keyCodec.width() ||
+                header.getInt(VALUE_WIDTH_OFFSET) != valueCodec.width())
+                throw new IOException("Codec widths " + keyCodec.width() + "/" +
+                                      valueCodec.width() + " do not match " +
+                                      header.getInt(KEY_WIDTH_OFFSET) + "/" +
+                                      header.getInt(VALUE_WIDTH_OFFSET));
+            long slots = header.getLong(SLOTS_OFFSET);
+            long maxSize = header.getLong(MAX_SIZE_OFFSET);
+            long size = header.getLong(SIZE_OFFSET);
+            int slotSize = 1 + keyCodec.width() + valueCodec.width();
+            if (slots <= 0L || slots > MAXIMUM_SLOTS || (slots & (slots - 1)) != 0L ||
+                maxSize < 0L || maxSize >= slots || size < 0L || size > maxSize ||
+                ch.size() < HEADER_SIZE + slots * slotSize)
+                throw new IOException("Corrupted off-heap map: " + file);
+            return map(ch, header, keyCodec, valueCodec, readOnly);
+        }
+    }
+
+    /**
+     * Maps the slots of a file whose header is valid.
+     */
+    static <K,V> OffHeapHashMap<K,V> map(FileChannel ch, ByteBuffer header,
+                                         FixedWidthCodec<K> keyCodec,
+                                         FixedWidthCodec<V> valueCodec,
+                                         boolean readOnly)
+        throws IOException {
+        int slotSize = 1 + keyCodec.width() + valueCodec.width();
+        long slots = header.getLong(SLOTS_OFFSET);
+        int shift = segmentShift(slotSize, slots);
+        long segmentSize = (long)slotSize << shift;
+        ByteBuffer[] segments = new ByteBuffer[(int)(slots >>> shift)];
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY :
+            FileChannel.MapMode.READ_WRITE;
+        try {
+            for (int i = 0; i < segments.length; i++)
+                segments[i] = ch.map(mode, HEADER_SIZE + i * segmentSize, segmentSize);
+        } catch (IOException | RuntimeException e) {
+            free(header);
+            for (ByteBuffer b : segments)
+                free(b);
+            throw e;
+        }
+        return new OffHeapHashMap<K,V>(keyCodec, valueCodec, header, segments, readOnly);
+    }
+
+    /**
+     * Returns a new heap header of an empty map.
+     */
+    static ByteBuffer newHeader(FixedWidthCodec<?> keyCodec,
+                                FixedWidthCodec<?> valueCodec, long maxSize) {
+        int slotSize = 1 + keyCodec.width() + valueCodec.width();
+        if (keyCodec.width() <= 0 || valueCodec.width() <= 0 ||
+            slotSize > MAXIMUM_SEGMENT_SIZE)
+            throw new IllegalArgumentException("Illegal codec widths: " +
+                                               keyCodec.width() + "/" +
+                                               valueCodec.width());
+        // 负载因子最大为3/4
+        if (maxSize < 0L || maxSize > MAXIMUM_SLOTS / 4 * 3)
+            throw new IllegalArgumentException("Illegal maximum size: " + maxSize);
+        long slots = Long.highestOneBit(Math.max(maxSize + maxSize / 3 + 1, 2L));
+        if (slots < maxSize + maxSize / 3 + 1)
+            slots <<= 1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(KEY_WIDTH_OFFSET, keyCodec.width());
+        header.putInt(VALUE_WIDTH_OFFSET, valueCodec.width());
+        header.putLong(SLOTS_OFFSET, slots);
+        header.putLong(MAX_SIZE_OFFSET, maxSize);
+        header.putLong(SIZE_OFFSET, 0L);
+        return header;
+    }
+
+    /**
+     * Returns log2 of the number of slots per segment: the largest
+     * power of two of slots fitting in MAXIMUM_SEGMENT_SIZE bytes, but
+     * not more than the number of slots.
+     */
+    static int segmentShift(int slotSize, long slots) {
+        int perSegment = Integer.highestOneBit(MAXIMUM_SEGMENT_SIZE / slotSize);
+        return Math.min(Integer.numberOfTrailingZeros(perSegment),
+                        Long.numberOfTrailingZeros(slots));
+    }
+
+    /**
+     * Releases the memory of a direct or mapped buffer now rather than
+     * when it is garbage collected.
+     */
+    static void free(ByteBuffer b) {
+        if (b != null && b.isDirect()) {
+            sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer)b).cleaner();
+            if (cleaner != null)
+                cleaner.clean();
+        }
+    }
+
+    /* ---------------- Slots -------------- */
+
+    final ByteBuffer[] segments() {
+        ByteBuffer[] segs = segments;
+        if (segs == null)
+            throw new IllegalStateException("Map is closed");
+        return segs;
+    }
+
+    final void checkWritable() {
+        if (readOnly)
+            throw new UnsupportedOperationException("Map is read-only");
+    }
+
+    /**
+     * Hashes len bytes of a buffer: 8 bytes at a time, then the
+     * remaining bytes, followed by the murmur3 64-bit finalizer.
+     */
+    static long hash(ByteBuffer b, int off, int len) {
+        long h = 0x9E3779B97F4A7C15L ^ len;
+        int i = 0;
+        for (; i + 8 <= len; i += 8)
+            h = Long.rotateLeft(h ^ b.getLong(off + i), 29) * 0x9E3779B97F4A7C15L;
+        for (; i < len; i++)
+            h = (h ^ (b.get(off + i) & 0xFF)) * 0x100000001B3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Encodes the key into the current thread's scratch buffer.
+     */
+    final ByteBuffer encode(K key) {
+        ByteBuffer k = scratch.get();
+        keyCodec.encode(Objects.requireNonNull(key), k, 0);
+        return k;
+    }
+
+    /**
+     * Returns the slot holding the encoded key, or -(slot + 1) for
+     * the free slot where it would be inserted.
+     */
+    final long find(ByteBuffer[] segs, ByteBuffer k) {
+        final int w = keyWidth, shift = segmentShift, size = slotSize;
+        final long mask = slots - 1, segMask = (1L << shift) - 1;
+        for (long i = hash(k, 0, w) & mask;; i = (i + 1) & mask) {
+            ByteBuffer seg = segs[(int)(i >>> shift)];
+            int off = (int)(i & segMask) * size;
+            if (seg.get(off) == FREE)
+                return -(i + 1);
+            if (equalBytes(seg, off + 1, k, 0, w))
+                return i;
+        }
+    }
+
+    static boolean equalBytes(ByteBuffer a, int aOff, ByteBuffer b, int bOff, int len) {
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            if (a.getLong(aOff + i) != b.getLong(bOff + i))
+                return false;
+        }
+        for (; i < len; i++) {
+            if (a.get(aOff + i) != b.get(bOff + i))
+                return false;
+        }
+        return true;
+    }
+
+    static void copyBytes(ByteBuffer src, int srcOff, ByteBuffer dst, int dstOff, int len) {
+        int i = 0;
+        for (; i + 8 <= len; i += 8)
+            dst.putLong(dstOff + i, src.getLong(srcOff + i));
+        for (; i < len; i++)
+            dst.put(dstOff + i, src.get(srcOff + i));
+    }
+
+    final ByteBuffer segmentOf(ByteBuffer[] segs, long slot) {
+        return segs[(int)(slot >>> segmentShift)];
+    }
+
+    final int offsetOf(long slot) {
+        return (int)(slot & ((1L << segmentShift) - 1)) * slotSize;
+    }
+
+    final void setSize(long s) {
+        size = s;
+        header.putLong(SIZE_OFFSET, s);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings in this map
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no mappings.
+     *
+     * @return <tt>true</tt> if this map contains no mappings
+     */
+    public boolean isEmpty() {
+        return size == 0L;
+    }
+
+    /**
+     * Returns the maximum number of mappings this map can hold.
+     *
+     * @return the capacity of this map
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, decoded by
+     * the value codec, or {@code null} if this map contains no mapping for
+     * the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value associated with the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map is closed
+     */
+    public V get(K key) {
+        ByteBuffer[] segs = segments();
+        long i = find(segs, encode(key));
+        return (i < 0L) ? null :
+            valueCodec.decode(segmentOf(segs, i), offsetOf(i) + 1 + keyWidth);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the key
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map is closed
+     */
+    public boolean containsKey(K key) {
+        return find(segments(), encode(key)) >= 0L;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map,
+     * replacing the previous value, if any.
+     *
+     * @param key key with which the value is to be associated
+     * @param value value to be associated with the key
+     * @return the previous value associated with the key, or {@code null}
+     *         if there was no mapping for the key
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalStateException if this map is closed, or the key is
+     *         absent and the map already holds {@link #maxSize()} mappings
+     * @throws UnsupportedOperationException if this map is read-only
+     */
+    public V put(K key, V value) {
+        checkWritable();
+        Objects.requireNonNull(value);
+        ByteBuffer[] segs = segments();
+        ByteBuffer k = encode(key);
+        long i = find(segs, k);
+        if (i >= 0L) {
+            ByteBuffer seg = segmentOf(segs, i);
+            int off = offsetOf(i) + 1 + keyWidth;
+            V oldValue = valueCodec.decode(seg, off);
+            valueCodec.encode(value, seg, off);
+            return oldValue;
+        }
+        if (size >= maxSize)
+            throw new IllegalStateException("Map is full: " + maxSize);
+        i = -(i + 1);
+        ByteBuffer seg = segmentOf(segs, i);
+        int off = offsetOf(i);
+        valueCodec.encode(value, seg, off + 1 + keyWidth);
+        copyBytes(k, 0, seg, off + 1, keyWidth);
+        seg.put(off, FULL);
+        setSize(size + 1);
+        ++modCount;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed
+     * @return the previous value associated with the key, or {@code null}
+     *         if there was no mapping for the key
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map is closed
+     * @throws UnsupportedOperationException if this map is read-only
+     */
+    public V remove(K key) {
+        checkWritable();
+        ByteBuffer[] segs = segments();
+        long i = find(segs, encode(key));
+        if (i < 0L)
+            return null;
+        V oldValue = valueCodec.decode(segmentOf(segs, i), offsetOf(i) + 1 + keyWidth);
+        shiftSlots(segs, i);
+        setSize(size - 1);
+        ++modCount;
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping at the given slot, shifting back the following
+     * mappings of its probe sequence.
+     */
+    private void shiftSlots(ByteBuffer[] segs, long pos) {
+        final long mask = slots - 1;
+        final int w = keyWidth;
+        for (long last;;) {
+            pos = ((last = pos) + 1) & mask;
+            ByteBuffer seg;
+            int off;
+            for (;;) {
+                seg = segmentOf(segs, pos);
+                off = offsetOf(pos);
+                if (seg.get(off) == FREE) {
+                    segmentOf(segs, last).put(offsetOf(last), FREE);
+                    return;
+                }
+                long slot = hash(seg, off + 1, w) & mask;
+                // the entry at pos may move to last only if its home slot
+                // does not lie cyclically in (last, pos]
+                if (last <= pos ? (last >= slot || slot > pos)
+                                : (last >= slot && slot > pos))
+                    break;
+                pos = (pos + 1) & mask;
+            }
+            copyBytes(seg, off, segmentOf(segs, last), offsetOf(last), slotSize);
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.  Takes time proportional
+     * to the capacity of the map.
+     *
+     * @throws IllegalStateException if this map is closed
+     * @throws UnsupportedOperationException if this map is read-only
+     */
+    public void clear() {
+        checkWritable();
+        ByteBuffer[] segs = segments();
+        for (long i = 0L; i < slots; i++)
+            segmentOf(segs, i).put(offsetOf(i), FREE);
+        setSize(0L);
+        ++modCount;
+    }
+
+    /**
+     * Performs the given action for each mapping of this map, decoding
+     * its key and value, in slot order.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if this map is closed
+     * @throws ConcurrentModificationException if the action modifies the
+     *         map
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        ByteBuffer[] segs = segments();
+        int mc = modCount;
+        for (long i = 0L; i < slots; i++) {
+            ByteBuffer seg = segmentOf(segs, i);
+            int off = offsetOf(i);
+            if (seg.get(off) == FULL) {
+                action.accept(keyCodec.decode(seg, off + 1),
+                              valueCodec.decode(seg, off + 1 + keyWidth));
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /* ---------------- Persistence and lifecycle -------------- */
+
+    /**
+     * Writes this map to a new file, which can later be mapped back in
+     * with {@link #open}.
+     *
+     * @param file the file to write
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this map is closed
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteBuffer[] segs = segments();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.WRITE)) {
+            writeFully(ch, header);
+            for (ByteBuffer seg : segs)
+                writeFully(ch, seg);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        ByteBuffer src = b.duplicate();
+        src.clear();
+        while (src.hasRemaining())
+            ch.write(src);
+    }
+
+    /**
+     * Forces any changes made to a file-backed map to be written to the
+     * storage device.  Does nothing for a map in direct memory.
+     *
+     * @throws IllegalStateException if this map is closed
+     */
+    public void force() {
+        ByteBuffer[] segs = segments();
+        if (!readOnly && header instanceof MappedByteBuffer) {
+            for (ByteBuffer seg : segs)
+                ((MappedByteBuffer)seg).force();
+            ((MappedByteBuffer)header).force();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map has not been closed.
+     *
+     * @return <tt>true</tt> if this map is open
+     */
+    public boolean isOpen() {
+        return segments != null;
+    }
+
+    /**
+     * Releases the direct memory of this map, or unmaps its file, right
+     * away.  Changes to a file-backed map that were not
+     * {@linkplain #force forced} are still written to the file by the
+     * operating system.  Closing a closed map has no effect.
+     */
+    public void close() {
+        ByteBuffer[] segs = segments;
+        if (segs != null) {
+            segments = null;
+            for (ByteBuffer seg : segs)
+                free(seg);
+            free(header);
+        }
+    }
+
+    /**
+     * Returns a string describing this map (not its mappings).
+     *
+     * @return a string describing this map
+     */
+    public String toString() {
+        return getClass().getName() + "[size=" + size + ", maxSize=" + maxSize +
+            ", slots=" + slots + ", slotSize=" + slotSize +
+            (header instanceof MappedByteBuffer ? ", mapped" : ", direct") +
+            (segments == null ? ", closed]" : "]");
+    }
+}
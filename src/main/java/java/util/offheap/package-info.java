@@ -0,0 +1,15 @@
+/**
+ * Collections whose contents are stored outside of the Java heap, in
+ * direct or memory-mapped {@link java.nio.ByteBuffer}s, so that very large
+ * tables are invisible to the garbage collector and can be persisted to a
+ * file and mapped back in at startup instead of being rebuilt.
+ * 堆外集合：数据存放在直接内存或内存映射文件中，对垃圾回收器不可见。
+ *
+ * <p>Keys and values of maps are stored in encoded form, so they are
+ * described by a {@link java.util.offheap.FixedWidthCodec} that converts
+ * between objects and a fixed number of bytes, while
+ * {@link java.util.offheap.MappedBitSet} stores plain words.  The
+ * collections must be closed explicitly to release their memory or unmap
+ * their file.
+ */
+package java.util.offheap;
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.DoubleSummaryStatistics;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -477,8 +478,124 @@ public final class Collectors {
      */
     public static <T> Collector<T, ?, Long>
     counting() {
-        // 数量归约
-        return reducing(0L, e -> 1L, Long::sum);
+        // 累加到long数组中，不再对每个元素装箱
+        return summingLong(e -> 1L);
+    }
+
+    /**
+     * Returns a {@code Collector} counting the input elements classified to
+     * each key by a classification function, producing a {@code Map<K, Long>}.
+     * 返回一个按键计数的收集器，每个键对应一个long计数单元，累加时不装箱。
+     *
+     * <p>This produces the same mappings as
+     * {@code groupingBy(classifier, counting())}: the counts are accumulated
+     * in one mutable {@code long} cell per key, allocated when the key is
+     * first seen, and boxed only once per key when the result is finished.
+     * There are no guarantees on the type, mutability, serializability, or
+     * thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} counting the input elements by key
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #countingByEnum(Class, Function)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>>
+    countingBy(Function<? super T, ? extends K> classifier) {
+        BiConsumer<Map<K, long[]>, T> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            long[] cell = m.get(key);
+            if (cell == null)
+                m.put(key, cell = new long[1]);
+            cell[0]++;
+        };
+        // 合并计数单元，较小的映射合并到较大的映射中
+        BinaryOperator<Map<K, long[]>> merger = (l, r) -> {
+            if (l.size() < r.size()) {
+                Map<K, long[]> t = l; l = r; r = t;
+            }
+            for (Map.Entry<K, long[]> e : r.entrySet()) {
+                long[] cell = l.putIfAbsent(e.getKey(), e.getValue());
+                if (cell != null)
+                    cell[0] += e.getValue()[0];
+            }
+            return l;
+        };
+        Function<Map<K, long[]>, Map<K, Long>> finisher = m -> {
+            Map<K, Long> result = new HashMap<>(Math.max((int) (m.size() / .75f) + 1, 16));
+            m.forEach((k, cell) -> result.put(k, cell[0]));
+            return result;
+        };
+        return new CollectorImpl<>(HashMap::new, accumulator, merger, finisher, CH_NOID);
+    }
+
+    // 直方图收集器
+
+    /**
+     * Returns a {@code Collector} counting the input elements falling into
+     * each of a fixed number of buckets, producing a {@code long[]} of the
+     * counts indexed by bucket.
+     * 返回一个直方图收集器，将每个元素所在桶的计数累加到long数组中。
+     *
+     * <p>The bucket function maps each element to its bucket, an index in
+     * {@code [0, buckets)}. Counting is an array increment and the partial
+     * histograms of a parallel reduction are combined by adding arrays, so
+     * collecting allocates nothing beyond one array per partial result.
+     *
+     * @param <T> the type of the input elements
+     * @param buckets the number of buckets
+     * @param bucketFunction a function mapping input elements to bucket indexes
+     * @return a {@code Collector} producing the histogram of the input elements
+     * @throws IllegalArgumentException if {@code buckets} is negative
+     * @throws ArrayIndexOutOfBoundsException when the collection operation is
+     *         performed, if an element is mapped outside {@code [0, buckets)}
+     *
+     * @see #intHistogram(int, ToIntFunction)
+     */
+    public static <T> Collector<T, ?, long[]>
+    histogram(int buckets, ToIntFunction<? super T> bucketFunction) {
+        if (buckets < 0)
+            throw new IllegalArgumentException("buckets < 0: " + buckets);
+        Objects.requireNonNull(bucketFunction);
+        return new CollectorImpl<>(
+                () -> new long[buckets],
+                (a, t) -> a[bucketFunction.applyAsInt(t)]++,
+                (a, b) -> { for (int i = 0; i < buckets; i++) a[i] += b[i]; return a; },
+                CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} counting the input elements falling into
+     * each of a fixed number of buckets, producing an {@code int[]} of the
+     * counts indexed by bucket.
+     * 返回一个直方图收集器，计数累加到int数组中(占用空间减半)。
+     *
+     * <p>This is {@link #histogram(int, ToIntFunction)} with half the
+     * footprint per bucket, for histograms with many buckets; the count of
+     * a bucket wraps around silently past {@code Integer.MAX_VALUE}.
+     *
+     * @param <T> the type of the input elements
+     * @param buckets the number of buckets
+     * @param bucketFunction a function mapping input elements to bucket indexes
+     * @return a {@code Collector} producing the histogram of the input elements
+     * @throws IllegalArgumentException if {@code buckets} is negative
+     * @throws ArrayIndexOutOfBoundsException when the collection operation is
+     *         performed, if an element is mapped outside {@code [0, buckets)}
+     *
+     * @see #histogram(int, ToIntFunction)
+     */
+    public static <T> Collector<T, ?, int[]>
+    intHistogram(int buckets, ToIntFunction<? super T> bucketFunction) {
+        if (buckets < 0)
+            throw new IllegalArgumentException("buckets < 0: " + buckets);
+        Objects.requireNonNull(bucketFunction);
+        return new CollectorImpl<>(
+                () -> new int[buckets],
+                (a, t) -> a[bucketFunction.applyAsInt(t)]++,
+                (a, b) -> { for (int i = 0; i < buckets; i++) a[i] += b[i]; return a; },
+                CH_ID);
     }
 
     // 最小值、最大值比较收集器
@@ -525,6 +642,149 @@ public final class Collectors {
         return reducing(BinaryOperator.maxBy(comparator));
     }
 
+    /**
+     * Returns a {@code Collector} that produces the element with the least
+     * {@code int} key, described as an {@code Optional<T>}.
+     * 返回按整数键生成最小元素的收集器，每个元素的键只计算一次，比较时不装箱。
+     *
+     * <p>This produces the same result as
+     * {@code minBy(Comparator.comparingInt(keyExtractor))}, the first of
+     * several least elements, but extracts the key of each element once,
+     * keeping the key of the current minimum next to it, and compares keys
+     * as primitives.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the minimal element
+     *
+     * @see #minBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    minByInt(ToIntFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptLong(t, keyExtractor.applyAsInt(t), false), false);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the element with the
+     * greatest {@code int} key, described as an {@code Optional<T>}.
+     * 返回按整数键生成最大元素的收集器。
+     *
+     * <p>This produces the same result as
+     * {@code maxBy(Comparator.comparingInt(keyExtractor))}, the first of
+     * several greatest elements, extracting the key of each element once.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the maximal element
+     *
+     * @see #maxBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    maxByInt(ToIntFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptLong(t, keyExtractor.applyAsInt(t), true), true);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the element with the least
+     * {@code long} key, described as an {@code Optional<T>}.
+     * 返回按长整数键生成最小元素的收集器。
+     *
+     * <p>This produces the same result as
+     * {@code minBy(Comparator.comparingLong(keyExtractor))}, the first of
+     * several least elements, extracting the key of each element once.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the minimal element
+     *
+     * @see #minBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    minByLong(ToLongFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptLong(t, keyExtractor.applyAsLong(t), false), false);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the element with the
+     * greatest {@code long} key, described as an {@code Optional<T>}.
+     * 返回按长整数键生成最大元素的收集器。
+     *
+     * <p>This produces the same result as
+     * {@code maxBy(Comparator.comparingLong(keyExtractor))}, the first of
+     * several greatest elements, extracting the key of each element once.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the maximal element
+     *
+     * @see #maxBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    maxByLong(ToLongFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptLong(t, keyExtractor.applyAsLong(t), true), true);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the element with the least
+     * {@code double} key, described as an {@code Optional<T>}.
+     * 返回按浮点数键生成最小元素的收集器。
+     *
+     * <p>This produces the same result as
+     * {@code minBy(Comparator.comparingDouble(keyExtractor))}, the first of
+     * several least elements, extracting the key of each element once. Keys
+     * are ordered as by {@link Double#compare}.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the minimal element
+     *
+     * @see #minBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    minByDouble(ToDoubleFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptDouble(t, keyExtractor.applyAsDouble(t), false), false);
+    }
+
+    /**
+     * Returns a {@code Collector} that produces the element with the
+     * greatest {@code double} key, described as an {@code Optional<T>}.
+     * 返回按浮点数键生成最大元素的收集器。
+     *
+     * <p>This produces the same result as
+     * {@code maxBy(Comparator.comparingDouble(keyExtractor))}, the first of
+     * several greatest elements, extracting the key of each element once.
+     * Keys are ordered as by {@link Double#compare}.
+     *
+     * @param <T> the type of the input elements
+     * @param keyExtractor a function extracting the key to compare
+     * @return a {@code Collector} that produces the maximal element
+     *
+     * @see #maxBy(Comparator)
+     */
+    public static <T> Collector<T, ?, Optional<T>>
+    maxByDouble(ToDoubleFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+        return keyedExtremum((b, t) -> b.acceptDouble(t, keyExtractor.applyAsDouble(t), true), true);
+    }
+
+    /**
+     * Implementation of the minBy/maxBy collectors on primitive keys.
+     */
+    private static <T> Collector<T, ?, Optional<T>>
+    keyedExtremum(BiConsumer<KeyedElement<T>, T> accumulator, boolean max) {
+        return new CollectorImpl<>(
+                KeyedElement::new,
+                accumulator,
+                (l, r) -> l.combine(r, max),
+                b -> b.present ? Optional.of(b.element) : Optional.empty(),
+                CH_NOID);
+    }
+
     // 值求和收集器
 
     /**
@@ -1330,6 +1590,394 @@ public final class Collectors {
         }
     }
 
+    // 枚举键的分组收集器
+
+    /**
+     * Returns the constants of the given enum type, in ordinal order,
+     * for the collectors that accumulate into arrays indexed by ordinal.
+     *
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     */
+    private static <K extends Enum<K>> K[] enumUniverse(Class<K> enumClass) {
+        K[] universe = enumClass.getEnumConstants(); // implicit null check
+        if (universe == null)
+            throw new ClassCastException(enumClass + " not an enum");
+        return universe;
+    }
+
+    /**
+     * Returns the ordinal of the key an element is classified under.
+     */
+    private static <T, K extends Enum<K>> int enumOrdinal(Function<? super T, ? extends K> classifier,
+                                                          T t) {
+        return Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key")
+                .ordinal();
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to an
+     * enum-valued classification function, and returning the results in an
+     * {@code EnumMap}.
+     * 返回一个按枚举常量分组的收集器，结果是EnumMap。
+     *
+     * <p>This produces the same mappings as {@link #groupingBy(Function)},
+     * but the groups are accumulated in an array indexed by the ordinal of
+     * the key rather than in a {@code HashMap}, and combining the partial
+     * results of a parallel reduction merges two such arrays slot by slot.
+     * The returned map contains only the keys to which some element is
+     * classified.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param enumClass the class object of the key type
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #groupingByEnum(Class, Function, Collector)
+     * @see #partitioningByEnum(Class, Function)
+     */
+    public static <T, K extends Enum<K>>
+    Collector<T, ?, EnumMap<K, List<T>>> groupingByEnum(Class<K> enumClass,
+                                                        Function<? super T, ? extends K> classifier) {
+        return groupingByEnum(enumClass, classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by"
+     * operation on input elements of type {@code T}, grouping elements
+     * according to an enum-valued classification function, and then
+     * performing a reduction operation on the values associated with a given
+     * key using the specified downstream {@code Collector}.
+     * 返回一个按枚举常量分组并对每组执行下游归约操作的收集器，结果是EnumMap。
+     *
+     * <p>This produces the same mappings as
+     * {@link #groupingBy(Function, Supplier, Collector)} with an
+     * {@code EnumMap} factory, but the downstream result containers are held
+     * in an array indexed by the ordinal of the key while collecting, so
+     * classifying an element costs an array access rather than a map
+     * lookup. The returned map contains only the keys to which some element
+     * is classified.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param enumClass the class object of the key type
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #groupingByEnum(Class, Function)
+     * @see #partitioningByEnum(Class, Function, Collector)
+     */
+    public static <T, K extends Enum<K>, A, D>
+    Collector<T, ?, EnumMap<K, D>> groupingByEnum(Class<K> enumClass,
+                                                  Function<? super T, ? extends K> classifier,
+                                                  Collector<? super T, A, D> downstream) {
+        return enumGrouping(enumClass, classifier, downstream, false);
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements across
+     * the constants of an enum type according to a classification function,
+     * and organizes them into an {@code EnumMap<K, List<T>>} holding every
+     * constant of the type.
+     * 返回一个按枚举常量分区的收集器，结果包含该枚举类型的所有常量。
+     *
+     * <p>Like {@link #partitioningBy(Predicate)}, and unlike
+     * {@link #groupingByEnum(Class, Function)}, the returned map has a key
+     * for each constant, mapped to an empty list if no element is classified
+     * to it.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param enumClass the class object of the key type
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the partitioning operation
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #partitioningByEnum(Class, Function, Collector)
+     */
+    public static <T, K extends Enum<K>>
+    Collector<T, ?, EnumMap<K, List<T>>> partitioningByEnum(Class<K> enumClass,
+                                                            Function<? super T, ? extends K> classifier) {
+        return partitioningByEnum(enumClass, classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} which partitions the input elements across
+     * the constants of an enum type according to a classification function,
+     * reduces the values in each partition according to another
+     * {@code Collector}, and organizes them into an {@code EnumMap<K, D>}
+     * holding every constant of the type.
+     * 返回一个按枚举常量分区并对每个分区执行下游归约操作的收集器，结果包含所有常量。
+     *
+     * <p>A constant to which no element is classified is mapped to the
+     * result of the downstream collector for no input elements.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param enumClass the class object of the key type
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded partitioning
+     *         operation
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #partitioningByEnum(Class, Function)
+     * @see #groupingByEnum(Class, Function, Collector)
+     */
+    public static <T, K extends Enum<K>, A, D>
+    Collector<T, ?, EnumMap<K, D>> partitioningByEnum(Class<K> enumClass,
+                                                      Function<? super T, ? extends K> classifier,
+                                                      Collector<? super T, A, D> downstream) {
+        return enumGrouping(enumClass, classifier, downstream, true);
+    }
+
+    /**
+     * Implementation of groupingByEnum and partitioningByEnum. The
+     * downstream containers are created on the first element classified to
+     * their key, and with {@code allKeys} also in the finisher for the keys
+     * that received none.
+     */
+    private static <T, K extends Enum<K>, A, D>
+    Collector<T, ?, EnumMap<K, D>> enumGrouping(Class<K> enumClass,
+                                                Function<? super T, ? extends K> classifier,
+                                                Collector<? super T, A, D> downstream,
+                                                boolean allKeys) {
+        K[] universe = enumUniverse(enumClass);
+        int n = universe.length;
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        BiConsumer<Object[], T> accumulator = (a, t) -> {
+            int i = enumOrdinal(classifier, t);
+            @SuppressWarnings("unchecked")
+            A container = (A) a[i];
+            if (container == null)
+                a[i] = container = downstreamSupplier.get();
+            downstreamAccumulator.accept(container, t);
+        };
+        // 按序号逐个合并下游结果容器
+        BinaryOperator<Object[]> merger = (l, r) -> {
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked")
+                A right = (A) r[i];
+                if (right != null) {
+                    @SuppressWarnings("unchecked")
+                    A left = (A) l[i];
+                    l[i] = (left == null) ? right : downstreamCombiner.apply(left, right);
+                }
+            }
+            return l;
+        };
+        Function<Object[], EnumMap<K, D>> finisher = a -> {
+            EnumMap<K, D> m = new EnumMap<>(enumClass);
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked")
+                A container = (A) a[i];
+                if (container == null && allKeys)
+                    container = downstreamSupplier.get();
+                if (container != null)
+                    m.put(universe[i], downstreamFinisher.apply(container));
+            }
+            return m;
+        };
+        return new CollectorImpl<>(() -> new Object[n], accumulator, merger, finisher, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} counting the input elements classified to
+     * each constant of an enum type, producing an {@code EnumMap<K, Long>}.
+     * 返回一个按枚举常量计数的收集器，计数累加在以序号为下标的long数组中，不装箱。
+     *
+     * <p>This produces the same mappings as
+     * {@code groupingBy(classifier, counting())}, but the counts are
+     * accumulated in a {@code long[]} indexed by the ordinal of the key, so
+     * no {@code Long} is boxed per element and a parallel combine adds two
+     * arrays. The returned map contains only the keys to which some element
+     * is classified.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param enumClass the class object of the key type
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} counting the input elements by key
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #groupingByEnum(Class, Function, Collector)
+     * @see #counting()
+     */
+    public static <T, K extends Enum<K>>
+    Collector<T, ?, EnumMap<K, Long>> countingByEnum(Class<K> enumClass,
+                                                     Function<? super T, ? extends K> classifier) {
+        K[] universe = enumUniverse(enumClass);
+        int n = universe.length;
+        return new CollectorImpl<>(
+                () -> new long[n],
+                (a, t) -> a[enumOrdinal(classifier, t)]++,
+                (a, b) -> { for (int i = 0; i < n; i++) a[i] += b[i]; return a; },
+                a -> {
+                    EnumMap<K, Long> m = new EnumMap<>(enumClass);
+                    for (int i = 0; i < n; i++) {
+                        if (a[i] != 0L)
+                            m.put(universe[i], a[i]);
+                    }
+                    return m;
+                }, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} summing a long-valued function of the input
+     * elements classified to each constant of an enum type, producing an
+     * {@code EnumMap<K, Long>}.
+     * 返回一个按枚举常量对长整数值求和的收集器，和累加在以序号为下标的long数组中，不装箱。
+     *
+     * <p>This produces the same mappings as
+     * {@code groupingBy(classifier, summingLong(mapper))}, but the sums
+     * (and the counts that tell which keys are present) are accumulated in
+     * a single {@code long[]} indexed by the ordinal of the key. The
+     * returned map contains only the keys to which some element is
+     * classified, including those whose sum is 0.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param enumClass the class object of the key type
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} summing a derived property by key
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #countingByEnum(Class, Function)
+     * @see #summingLong(ToLongFunction)
+     */
+    public static <T, K extends Enum<K>>
+    Collector<T, ?, EnumMap<K, Long>> summingLongByEnum(Class<K> enumClass,
+                                                        Function<? super T, ? extends K> classifier,
+                                                        ToLongFunction<? super T> mapper) {
+        K[] universe = enumUniverse(enumClass);
+        int n = universe.length;
+        // a[i]为计数，a[n + i]为和
+        return new CollectorImpl<>(
+                () -> new long[n << 1],
+                (a, t) -> {
+                    int i = enumOrdinal(classifier, t);
+                    a[i]++;
+                    a[n + i] += mapper.applyAsLong(t);
+                },
+                (a, b) -> { for (int i = 0; i < a.length; i++) a[i] += b[i]; return a; },
+                a -> {
+                    EnumMap<K, Long> m = new EnumMap<>(enumClass);
+                    for (int i = 0; i < n; i++) {
+                        if (a[i] != 0L)
+                            m.put(universe[i], a[n + i]);
+                    }
+                    return m;
+                }, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into an
+     * {@code EnumMap} whose keys and values are the result of applying the
+     * provided mapping functions to the input elements.
+     * 返回一个将元素累加到EnumMap中的收集器，键是枚举常量。
+     *
+     * <p>If the mapped keys contains duplicates, an
+     * {@code IllegalStateException} is thrown when the collection operation
+     * is performed. If the mapped keys may have duplicates, use
+     * {@link #toEnumMap(Class, Function, Function, BinaryOperator)} instead.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param <U> the output type of the value mapping function
+     * @param enumClass the class object of the key type
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @return a {@code Collector} which collects elements into an
+     *         {@code EnumMap}
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #toMap(Function, Function)
+     */
+    public static <T, K extends Enum<K>, U>
+    Collector<T, ?, EnumMap<K, U>> toEnumMap(Class<K> enumClass,
+                                             Function<? super T, ? extends K> keyMapper,
+                                             Function<? super T, ? extends U> valueMapper) {
+        return toEnumMap(enumClass, keyMapper, valueMapper, throwingMerger());
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into an
+     * {@code EnumMap} whose keys and values are the result of applying the
+     * provided mapping functions to the input elements, merging the values
+     * of duplicate keys with the provided merging function.
+     * 返回一个将元素累加到EnumMap中的收集器，重复键的值使用合并函数合并。
+     *
+     * <p>This produces the same mappings as
+     * {@link #toMap(Function, Function, BinaryOperator, Supplier)} with an
+     * {@code EnumMap} factory, but the values are held in an array indexed
+     * by the ordinal of the key while collecting. As with {@code toMap},
+     * the values must not be {@code null}.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the enum type of the keys
+     * @param <U> the output type of the value mapping function
+     * @param enumClass the class object of the key type
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @param mergeFunction a merge function, used to resolve collisions between
+     *                      values associated with the same key
+     * @return a {@code Collector} which collects elements into an
+     *         {@code EnumMap}
+     * @throws ClassCastException if {@code enumClass} is not an enum type
+     *
+     * @see #toMap(Function, Function, BinaryOperator)
+     */
+    public static <T, K extends Enum<K>, U>
+    Collector<T, ?, EnumMap<K, U>> toEnumMap(Class<K> enumClass,
+                                             Function<? super T, ? extends K> keyMapper,
+                                             Function<? super T, ? extends U> valueMapper,
+                                             BinaryOperator<U> mergeFunction) {
+        K[] universe = enumUniverse(enumClass);
+        int n = universe.length;
+        BiConsumer<Object[], T> accumulator = (a, t) -> {
+            int i = enumOrdinal(keyMapper, t);
+            U value = Objects.requireNonNull(valueMapper.apply(t));
+            @SuppressWarnings("unchecked")
+            U old = (U) a[i];
+            a[i] = (old == null) ? value : mergeFunction.apply(old, value);
+        };
+        BinaryOperator<Object[]> merger = (l, r) -> {
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked")
+                U right = (U) r[i];
+                if (right != null) {
+                    @SuppressWarnings("unchecked")
+                    U left = (U) l[i];
+                    l[i] = (left == null) ? right : mergeFunction.apply(left, right);
+                }
+            }
+            return l;
+        };
+        Function<Object[], EnumMap<K, U>> finisher = a -> {
+            EnumMap<K, U> m = new EnumMap<>(enumClass);
+            for (int i = 0; i < n; i++) {
+                @SuppressWarnings("unchecked")
+                U value = (U) a[i];
+                if (value != null)
+                    m.put(universe[i], value);
+            }
+            return m;
+        };
+        return new CollectorImpl<>(() -> new Object[n], accumulator, merger, finisher, CH_NOID);
+    }
+
     // 映射操作收集器
 
     /**
@@ -1803,6 +2451,50 @@ public final class Collectors {
                 (l, r) -> { l.combine(r); return l; }, CH_ID);
     }
 
+    /**
+     * Mutable container used by the minBy/maxBy collectors on primitive
+     * keys: the current extremum together with its key, so the key of an
+     * element is extracted only once. Integral keys are held as longs.
+     * 按基本类型键求最值的收集器的可变容器，保存当前最值元素及其键。
+     */
+    private static final class KeyedElement<T> {
+        T element;
+        boolean present;
+        boolean isDouble;
+        long key;
+        double doubleKey;
+
+        void acceptLong(T t, long k, boolean max) {
+            if (!present || (max ? k > key : k < key)) {
+                element = t;
+                key = k;
+                present = true;
+            }
+        }
+
+        void acceptDouble(T t, double k, boolean max) {
+            int c;
+            if (!present || ((c = Double.compare(k, doubleKey)) != 0 && (c > 0) == max)) {
+                element = t;
+                doubleKey = k;
+                isDouble = present = true;
+            }
+        }
+
+        // 相等时保留左侧(先出现的)元素
+        KeyedElement<T> combine(KeyedElement<T> r, boolean max) {
+            if (r.present) {
+                if (!present)
+                    return r;
+                else if (r.isDouble)
+                    acceptDouble(r.element, r.doubleKey, max);
+                else
+                    acceptLong(r.element, r.key, max);
+            }
+            return this;
+        }
+    }
+
     /**
      * Implementation class used by partitioningBy.
      * 分区操作收集器使用的实现类。
@@ -0,0 +1,376 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Supplier;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link BTreeMap} and {@link BTreeSet} against {@link TreeMap} and
+ * {@link TreeSet}: the same random operations are applied to both, on
+ * the maps themselves and through nested sub, head, tail and descending
+ * views, and the results and contents are compared.  The maps hold
+ * enough keys for the trees to have several levels.
+ * 以TreeMap/TreeSet为参照，随机比对B+树映射及其各种视图的行为。
+ */
+public class BTreeMapTest {
+
+    private static final int RANGE = 4000;
+
+    /** Returns the result of s, or the class of the exception it throws. */
+    private static Object call(Supplier<?> s) {
+        try {
+            return s.get();
+        } catch (RuntimeException ex) {
+            return ex.getClass();
+        }
+    }
+
+    private static <T> List<T> list(Iterable<T> c) {
+        List<T> l = new ArrayList<>();
+        for (T t : c)
+            l.add(t);
+        return l;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T serialClone(T o) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(o);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                 new ByteArrayInputStream(bos.toByteArray()))) {
+            return (T) ois.readObject();
+        }
+    }
+
+    private static void fill(NavigableMap<Integer,Integer> e,
+                             NavigableMap<Integer,Integer> a,
+                             Random rnd, int n) {
+        for (int i = 0; i < n; i++) {
+            int k = rnd.nextInt(RANGE), v = rnd.nextInt();
+            assertEquals(a.put(k, v), e.put(k, v));
+        }
+    }
+
+    /** Compares contents, order and navigation of a and the expected e. */
+    private static void checkMap(NavigableMap<Integer,Integer> e,
+                                 NavigableMap<Integer,Integer> a,
+                                 Random rnd) {
+        assertEquals(a.size(), e.size());
+        assertEquals(a.isEmpty(), e.isEmpty());
+        assertTrue(a.equals(e) && e.equals(a));
+        assertEquals(a.hashCode(), e.hashCode());
+        assertEquals(a.toString(), e.toString());
+        assertEquals(list(a.entrySet()), list(e.entrySet()));
+        assertEquals(list(a.keySet()), list(e.keySet()));
+        assertEquals(list(a.values()), list(e.values()));
+        assertEquals(list(a.descendingMap().entrySet()),
+                     list(e.descendingMap().entrySet()));
+        assertEquals(list(a.descendingKeySet()), list(e.descendingKeySet()));
+        assertEquals(call(a::firstKey), call(e::firstKey));
+        assertEquals(call(a::lastKey), call(e::lastKey));
+        assertEquals(a.firstEntry(), e.firstEntry());
+        assertEquals(a.lastEntry(), e.lastEntry());
+        for (int i = 0; i < 64; i++) {
+            Integer k = rnd.nextInt(RANGE + 20) - 10;
+            assertEquals(a.get(k), e.get(k));
+            assertEquals(a.containsKey(k), e.containsKey(k));
+            assertEquals(a.lowerEntry(k), e.lowerEntry(k));
+            assertEquals(a.floorEntry(k), e.floorEntry(k));
+            assertEquals(a.ceilingEntry(k), e.ceilingEntry(k));
+            assertEquals(a.higherEntry(k), e.higherEntry(k));
+            assertEquals(a.lowerKey(k), e.lowerKey(k));
+            assertEquals(a.floorKey(k), e.floorKey(k));
+            assertEquals(a.ceilingKey(k), e.ceilingKey(k));
+            assertEquals(a.higherKey(k), e.higherKey(k));
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        Random rnd = new Random(1);
+        NavigableMap<Integer,Integer> e = new TreeMap<>();
+        NavigableMap<Integer,Integer> a = new BTreeMap<>();
+        for (int round = 0; round < 40; round++) {
+            for (int i = 0; i < 1000; i++) {
+                Integer k = rnd.nextInt(RANGE), v = rnd.nextInt();
+                switch (rnd.nextInt(8)) {
+                    case 0: case 1: case 2:
+                        assertEquals(a.put(k, v), e.put(k, v)); break;
+                    case 3: case 4:
+                        assertEquals(a.remove(k), e.remove(k)); break;
+                    case 5:
+                        assertEquals(a.putIfAbsent(k, v), e.putIfAbsent(k, v)); break;
+                    case 6:
+                        assertEquals(a.pollFirstEntry(), e.pollFirstEntry()); break;
+                    default:
+                        assertEquals(a.pollLastEntry(), e.pollLastEntry()); break;
+                }
+            }
+            checkMap(e, a, rnd);
+        }
+        a.clear();
+        e.clear();
+        checkMap(e, a, rnd);
+    }
+
+    /** Returns the pair of views of e and a for one random view method. */
+    private static List<NavigableMap<Integer,Integer>> view(
+        NavigableMap<Integer,Integer> e, NavigableMap<Integer,Integer> a,
+        Random rnd) {
+        Integer k1 = rnd.nextInt(RANGE), k2 = rnd.nextInt(RANGE);
+        Comparator<? super Integer> c = e.comparator();
+        if ((c == null ? k1.compareTo(k2) : c.compare(k1, k2)) > 0) {
+            Integer t = k1; k1 = k2; k2 = t;
+        }
+        final Integer lo = k1, hi = k2;
+        final boolean i1 = rnd.nextBoolean(), i2 = rnd.nextBoolean();
+        Object ev, av;
+        switch (rnd.nextInt(4)) {
+            case 0:
+                ev = call(() -> e.subMap(lo, i1, hi, i2));
+                av = call(() -> a.subMap(lo, i1, hi, i2));
+                break;
+            case 1:
+                ev = call(() -> e.headMap(hi, i2));
+                av = call(() -> a.headMap(hi, i2));
+                break;
+            case 2:
+                ev = call(() -> e.tailMap(lo, i1));
+                av = call(() -> a.tailMap(lo, i1));
+                break;
+            default:
+                ev = e.descendingMap();
+                av = a.descendingMap();
+                break;
+        }
+        if (ev instanceof Class) {
+            // 区间超出外层视图的范围，两者都应拒绝
+            assertEquals(av, ev);
+            return Arrays.asList(e, a);
+        }
+        @SuppressWarnings("unchecked")
+        List<NavigableMap<Integer,Integer>> r = Arrays.asList(
+            (NavigableMap<Integer,Integer>) ev, (NavigableMap<Integer,Integer>) av);
+        return r;
+    }
+
+    @Test
+    public void nestedViewsMatchTreeMap() {
+        Random rnd = new Random(2);
+        NavigableMap<Integer,Integer> e = new TreeMap<>();
+        NavigableMap<Integer,Integer> a = new BTreeMap<>();
+        fill(e, a, rnd, 3000);
+        for (int round = 0; round < 300; round++) {
+            NavigableMap<Integer,Integer> ev = e, av = a;
+            for (int depth = 1 + rnd.nextInt(3); depth > 0; depth--) {
+                List<NavigableMap<Integer,Integer>> p = view(ev, av, rnd);
+                ev = p.get(0);
+                av = p.get(1);
+            }
+            checkMap(ev, av, rnd);
+            // 通过视图修改，超出范围的键两者都抛出异常
+            for (int i = 0; i < 20; i++) {
+                Integer k = rnd.nextInt(RANGE), v = rnd.nextInt();
+                final NavigableMap<Integer,Integer> fe = ev, fa = av;
+                switch (rnd.nextInt(4)) {
+                    case 0:
+                        assertEquals(call(() -> fa.put(k, v)), call(() -> fe.put(k, v)));
+                        break;
+                    case 1:
+                        assertEquals(av.remove(k), ev.remove(k));
+                        break;
+                    case 2:
+                        assertEquals(av.pollFirstEntry(), ev.pollFirstEntry());
+                        break;
+                    default:
+                        assertEquals(av.pollLastEntry(), ev.pollLastEntry());
+                        break;
+                }
+            }
+            if (rnd.nextInt(20) == 0) {
+                av.clear();
+                ev.clear();
+            }
+            checkMap(ev, av, rnd);
+            checkMap(e, a, rnd);
+            if (e.size() < 1000)
+                fill(e, a, rnd, 2000);
+        }
+    }
+
+    @Test
+    public void iteratorRemoveAndSetValue() {
+        Random rnd = new Random(3);
+        NavigableMap<Integer,Integer> e = new TreeMap<>();
+        NavigableMap<Integer,Integer> a = new BTreeMap<>();
+        fill(e, a, rnd, 5000);
+        List<Iterator<Map.Entry<Integer,Integer>>> its = Arrays.asList(
+            e.entrySet().iterator(), a.entrySet().iterator());
+        while (its.get(0).hasNext()) {
+            assertTrue(its.get(1).hasNext());
+            Map.Entry<Integer,Integer> x = its.get(0).next(), y = its.get(1).next();
+            assertEquals(y, x);
+            if (x.getKey() % 3 == 0) {
+                its.get(0).remove();
+                its.get(1).remove();
+            }
+            else if (x.getKey() % 3 == 1) {
+                assertEquals(y.setValue(-x.getKey()), x.setValue(-x.getKey()));
+                assertEquals(y.getValue(), x.getValue());
+            }
+        }
+        assertFalse(its.get(1).hasNext());
+        checkMap(e, a, rnd);
+
+        // 键集、值集与降序迭代器的删除
+        for (Iterator<Integer> i = e.keySet().iterator(), j = a.keySet().iterator();
+             i.hasNext(); ) {
+            Integer k = i.next();
+            assertEquals(j.next(), k);
+            if (k % 5 == 0) {
+                i.remove();
+                j.remove();
+            }
+        }
+        for (Iterator<Integer> i = e.values().iterator(), j = a.values().iterator();
+             i.hasNext(); ) {
+            Integer v = i.next();
+            assertEquals(j.next(), v);
+            if (v % 7 == 0) {
+                i.remove();
+                j.remove();
+            }
+        }
+        for (Iterator<Integer> i = e.descendingKeySet().iterator(),
+                 j = a.descendingKeySet().iterator(); i.hasNext(); ) {
+            Integer k = i.next();
+            assertEquals(j.next(), k);
+            if (k % 2 == 0) {
+                i.remove();
+                j.remove();
+            }
+        }
+        checkMap(e, a, rnd);
+
+        Iterator<Map.Entry<Integer,Integer>> it = a.entrySet().iterator();
+        try {
+            it.remove();
+            throw new AssertionError("remove before next");
+        } catch (IllegalStateException expected) {
+        }
+        it.next();
+        a.put(-1, -1);
+        try {
+            it.next();
+            throw new AssertionError("no ConcurrentModificationException");
+        } catch (ConcurrentModificationException expected) {
+        }
+    }
+
+    @Test
+    public void cloneAndSerialization() throws Exception {
+        Random rnd = new Random(4);
+        NavigableMap<Integer,Integer> e = new TreeMap<>(Collections.reverseOrder());
+        BTreeMap<Integer,Integer> a = new BTreeMap<>(Collections.reverseOrder());
+        fill(e, a, rnd, 5000);
+        @SuppressWarnings("unchecked")
+        BTreeMap<Integer,Integer> c = (BTreeMap<Integer,Integer>) a.clone();
+        assertNotSame(c, a);
+        checkMap(e, c, rnd);
+        c.clear();
+        checkMap(e, a, rnd);
+
+        BTreeMap<Integer,Integer> s = serialClone(a);
+        checkMap(e, s, rnd);
+        assertEquals(s.comparator(), a.comparator());
+        s.put(RANGE, 0);
+        e.put(RANGE, 0);
+        checkMap(e, s, rnd);
+        assertEquals(serialClone(new BTreeMap<Integer,Integer>()).size(), 0);
+
+        // 从有序映射构造
+        checkMap(e, new BTreeMap<>(e), rnd);
+        checkMap(new TreeMap<>(new HashMap<>(e)), new BTreeMap<>(new HashMap<>(e)), rnd);
+    }
+
+    private static void checkSet(NavigableSet<Integer> e, NavigableSet<Integer> a,
+                                 Random rnd) {
+        assertEquals(a.size(), e.size());
+        assertTrue(a.equals(e) && e.equals(a));
+        assertEquals(a.hashCode(), e.hashCode());
+        assertEquals(list(a), list(e));
+        assertEquals(list(a.descendingSet()), list(e.descendingSet()));
+        assertEquals(call(a::first), call(e::first));
+        assertEquals(call(a::last), call(e::last));
+        for (int i = 0; i < 64; i++) {
+            Integer k = rnd.nextInt(RANGE + 20) - 10;
+            assertEquals(a.contains(k), e.contains(k));
+            assertEquals(a.lower(k), e.lower(k));
+            assertEquals(a.floor(k), e.floor(k));
+            assertEquals(a.ceiling(k), e.ceiling(k));
+            assertEquals(a.higher(k), e.higher(k));
+        }
+    }
+
+    @Test
+    public void btreeSetMatchesTreeSet() throws Exception {
+        Random rnd = new Random(5);
+        NavigableSet<Integer> e = new TreeSet<>();
+        BTreeSet<Integer> a = new BTreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            Integer k = rnd.nextInt(RANGE);
+            switch (rnd.nextInt(4)) {
+                case 0: case 1: assertEquals(a.add(k), e.add(k)); break;
+                case 2: assertEquals(a.remove(k), e.remove(k)); break;
+                default:
+                    if (rnd.nextBoolean())
+                        assertEquals(a.pollFirst(), e.pollFirst());
+                    else
+                        assertEquals(a.pollLast(), e.pollLast());
+            }
+        }
+        checkSet(e, a, rnd);
+        for (int round = 0; round < 100; round++) {
+            Integer lo = rnd.nextInt(RANGE / 2), hi = lo + rnd.nextInt(RANGE / 2);
+            boolean i1 = rnd.nextBoolean(), i2 = rnd.nextBoolean();
+            NavigableSet<Integer> ev = e.subSet(lo, i1, hi, i2).descendingSet();
+            NavigableSet<Integer> av = a.subSet(lo, i1, hi, i2).descendingSet();
+            checkSet(ev, av, rnd);
+            checkSet(e.headSet(hi, i2).tailSet(lo, i1), a.headSet(hi, i2).tailSet(lo, i1), rnd);
+            for (Iterator<Integer> i = ev.iterator(), j = av.iterator(); i.hasNext(); ) {
+                Integer k = i.next();
+                assertEquals(j.next(), k);
+                if (rnd.nextInt(4) == 0) {
+                    i.remove();
+                    j.remove();
+                }
+            }
+            Integer k = rnd.nextInt(RANGE);
+            assertEquals(call(() -> av.add(k)), call(() -> ev.add(k)));
+            checkSet(e, a, rnd);
+            if (e.size() < 1000)
+                for (int i = 0; i < 2000; i++) {
+                    Integer x = rnd.nextInt(RANGE);
+                    assertEquals(a.add(x), e.add(x));
+                }
+        }
+        @SuppressWarnings("unchecked")
+        BTreeSet<Integer> c = (BTreeSet<Integer>) a.clone();
+        checkSet(e, c, rnd);
+        c.clear();
+        checkSet(e, a, rnd);
+        checkSet(e, serialClone(a), rnd);
+        checkSet(e, new BTreeSet<>(e), rnd);
+        checkSet(e, new BTreeSet<>(new ArrayList<>(e)), rnd);
+    }
+}
@@ -0,0 +1,267 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the contracts of the {@code List.of}, {@code Set.of} and {@code
+ * Map.of} families of factories and of their {@code copyOf} methods:
+ * contents, rejection of nulls and duplicates, unmodifiability, the
+ * serialization proxy, and that copying an unmodifiable collection
+ * returns it unchanged.
+ * 验证不可变集合工厂方法的契约：拒绝null与重复元素、序列化代理及copyOf直接返回。
+ */
+public class ImmutableCollectionsTest {
+
+    private static void assertThrows(Class<? extends Throwable> c, Runnable r) {
+        try {
+            r.run();
+        } catch (Throwable ex) {
+            if (c.isInstance(ex))
+                return;
+            throw new AssertionError("expected " + c.getName() + " but got " + ex, ex);
+        }
+        throw new AssertionError("expected " + c.getName());
+    }
+
+    private static Object serialClone(Object o) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(o);
+        }
+        byte[] bytes = bos.toByteArray();
+        // 序列化形式是统一的代理类，而非实现类
+        assertTrue(new String(bytes, "ISO-8859-1").contains("java.util.CollSer"));
+        try (ObjectInputStream ois = new ObjectInputStream(
+                 new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    /** Returns List.of with the first n of the given elements, by arity. */
+    private static List<Integer> listOf(Integer[] a, int n) {
+        switch (n) {
+            case 0: return List.of();
+            case 1: return List.of(a[0]);
+            case 2: return List.of(a[0], a[1]);
+            case 3: return List.of(a[0], a[1], a[2]);
+            case 4: return List.of(a[0], a[1], a[2], a[3]);
+            case 5: return List.of(a[0], a[1], a[2], a[3], a[4]);
+            case 6: return List.of(a[0], a[1], a[2], a[3], a[4], a[5]);
+            case 7: return List.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6]);
+            case 8: return List.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7]);
+            case 9: return List.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8]);
+            case 10: return List.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8], a[9]);
+            default: return List.of(Arrays.copyOf(a, n));
+        }
+    }
+
+    /** Returns Set.of with the first n of the given elements, by arity. */
+    private static Set<Integer> setOf(Integer[] a, int n) {
+        switch (n) {
+            case 0: return Set.of();
+            case 1: return Set.of(a[0]);
+            case 2: return Set.of(a[0], a[1]);
+            case 3: return Set.of(a[0], a[1], a[2]);
+            case 4: return Set.of(a[0], a[1], a[2], a[3]);
+            case 5: return Set.of(a[0], a[1], a[2], a[3], a[4]);
+            case 6: return Set.of(a[0], a[1], a[2], a[3], a[4], a[5]);
+            case 7: return Set.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6]);
+            case 8: return Set.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7]);
+            case 9: return Set.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8]);
+            case 10: return Set.of(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8], a[9]);
+            default: return Set.of(Arrays.copyOf(a, n));
+        }
+    }
+
+    /** Returns Map.of with the first n keys of k, mapped to v, by arity. */
+    private static Map<Integer,Integer> mapOf(Integer[] k, Integer[] v, int n) {
+        switch (n) {
+            case 0: return Map.of();
+            case 1: return Map.of(k[0], v[0]);
+            case 2: return Map.of(k[0], v[0], k[1], v[1]);
+            case 3: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2]);
+            case 4: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3]);
+            case 5: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                  k[4], v[4]);
+            case 6: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                  k[4], v[4], k[5], v[5]);
+            case 7: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                  k[4], v[4], k[5], v[5], k[6], v[6]);
+            case 8: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                  k[4], v[4], k[5], v[5], k[6], v[6], k[7], v[7]);
+            case 9: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                  k[4], v[4], k[5], v[5], k[6], v[6], k[7], v[7],
+                                  k[8], v[8]);
+            case 10: return Map.of(k[0], v[0], k[1], v[1], k[2], v[2], k[3], v[3],
+                                   k[4], v[4], k[5], v[5], k[6], v[6], k[7], v[7],
+                                   k[8], v[8], k[9], v[9]);
+            default: {
+                @SuppressWarnings("unchecked")
+                Map.Entry<Integer,Integer>[] es = new Map.Entry[n];
+                for (int i = 0; i < n; i++)
+                    es[i] = new AbstractMap.SimpleEntry<>(k[i], v[i]);
+                return Map.ofEntries(es);
+            }
+        }
+    }
+
+    private static Integer[] elements(int n) {
+        Integer[] a = new Integer[n];
+        for (int i = 0; i < n; i++)
+            a[i] = i * 31;
+        return a;
+    }
+
+    private static void checkUnmodifiable(Collection<Integer> c) {
+        assertThrows(UnsupportedOperationException.class, () -> c.add(1));
+        assertThrows(UnsupportedOperationException.class, () -> c.addAll(List.of(1)));
+        assertThrows(UnsupportedOperationException.class, () -> c.clear());
+        assertThrows(UnsupportedOperationException.class, () -> c.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> c.removeIf(e -> true));
+        assertThrows(UnsupportedOperationException.class, () -> c.retainAll(List.of()));
+    }
+
+    @Test
+    public void listOfContentsAndNulls() throws Exception {
+        for (int n = 0; n <= 12; n++) {
+            Integer[] a = elements(n);
+            List<Integer> l = listOf(a, n);
+            assertEquals(l, Arrays.asList(a));
+            assertEquals(l.hashCode(), Arrays.asList(a).hashCode());
+            assertEquals(serialClone(l), l);
+            checkUnmodifiable(l);
+            checkUnmodifiable((List<Integer>) serialClone(l));
+            assertThrows(UnsupportedOperationException.class, () -> l.set(0, 1));
+            assertThrows(UnsupportedOperationException.class, () -> l.sort(null));
+            assertThrows(UnsupportedOperationException.class, () -> l.replaceAll(e -> e));
+            for (int i = 0; i < n; i++) {
+                Integer[] b = a.clone();
+                b[i] = null;
+                final int len = n;
+                assertThrows(NullPointerException.class, () -> listOf(b, len));
+            }
+            // 可变参数数组的修改不影响列表
+            Integer[] c = a.clone();
+            List<Integer> m = List.of(c);
+            if (n > 0)
+                c[0] = -1;
+            assertEquals(m, Arrays.asList(a));
+        }
+        assertThrows(NullPointerException.class, () -> List.of((Integer[]) null));
+        assertEquals(List.of(1, 2, 2), Arrays.asList(1, 2, 2));
+    }
+
+    @Test
+    public void setOfContentsNullsAndDuplicates() throws Exception {
+        for (int n = 0; n <= 12; n++) {
+            Integer[] a = elements(n);
+            Set<Integer> s = setOf(a, n);
+            Set<Integer> expected = new HashSet<>(Arrays.asList(a));
+            assertEquals(s, expected);
+            assertEquals(s.size(), n);
+            assertEquals(s.hashCode(), expected.hashCode());
+            for (Integer e : a)
+                assertTrue(s.contains(e));
+            assertFalse(s.contains(-1));
+            assertEquals(serialClone(s), s);
+            checkUnmodifiable(s);
+            final int len = n;
+            for (int i = 0; i < n; i++) {
+                Integer[] b = a.clone();
+                b[i] = null;
+                assertThrows(NullPointerException.class, () -> setOf(b, len));
+                for (int j = 0; j < n; j++) {
+                    if (j != i) {
+                        Integer[] d = a.clone();
+                        d[i] = d[j];
+                        assertThrows(IllegalArgumentException.class, () -> setOf(d, len));
+                    }
+                }
+            }
+        }
+        assertThrows(NullPointerException.class, () -> Set.of((Integer[]) null));
+    }
+
+    @Test
+    public void mapOfContentsNullsAndDuplicates() throws Exception {
+        for (int n = 0; n <= 12; n++) {
+            Integer[] k = elements(n), v = elements(n);
+            for (int i = 0; i < n; i++)
+                v[i] = -k[i];
+            Map<Integer,Integer> m = mapOf(k, v, n);
+            Map<Integer,Integer> expected = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                expected.put(k[i], v[i]);
+            assertEquals(m, expected);
+            assertEquals(m.hashCode(), expected.hashCode());
+            for (int i = 0; i < n; i++)
+                assertEquals(m.get(k[i]), v[i]);
+            assertEquals(m.get(-1), null);
+            assertEquals(serialClone(m), m);
+            assertThrows(UnsupportedOperationException.class, () -> m.put(1, 1));
+            assertThrows(UnsupportedOperationException.class, () -> m.remove(0));
+            assertThrows(UnsupportedOperationException.class, () -> m.clear());
+            assertThrows(UnsupportedOperationException.class,
+                         () -> m.merge(0, 1, Integer::sum));
+            final int len = n;
+            for (int i = 0; i < n; i++) {
+                Integer[] nk = k.clone(), nv = v.clone();
+                nk[i] = null;
+                nv[i] = null;
+                assertThrows(NullPointerException.class, () -> mapOf(nk, v, len));
+                assertThrows(NullPointerException.class, () -> mapOf(k, nv, len));
+                if (i > 0) {
+                    Integer[] dk = k.clone();
+                    dk[i] = dk[0];
+                    assertThrows(IllegalArgumentException.class, () -> mapOf(dk, v, len));
+                }
+            }
+        }
+        assertThrows(NullPointerException.class, () -> Map.entry(null, 1));
+        assertThrows(NullPointerException.class, () -> Map.entry(1, null));
+        assertThrows(UnsupportedOperationException.class, () -> Map.entry(1, 1).setValue(2));
+        assertThrows(NullPointerException.class,
+                     () -> Map.ofEntries((Map.Entry<Integer,Integer>[]) null));
+    }
+
+    @Test
+    public void copyOfReturnsUnmodifiableCollectionsUnchanged() {
+        List<Integer> l = List.of(1, 2, 3);
+        Set<Integer> s = Set.of(1, 2, 3);
+        Map<Integer,Integer> m = Map.of(1, 2, 3, 4);
+        assertSame(List.copyOf(l), l);
+        assertSame(Set.copyOf(s), s);
+        assertSame(Map.copyOf(m), m);
+        assertSame(List.copyOf(List.of()), List.of());
+
+        List<Integer> al = new ArrayList<>(Arrays.asList(1, 2, 2, 3));
+        List<Integer> lc = List.copyOf(al);
+        assertNotSame(lc, al);
+        al.set(0, 9);
+        assertEquals(lc, Arrays.asList(1, 2, 2, 3));
+        checkUnmodifiable(lc);
+        // 重复元素在Set.copyOf中合并而不是抛出异常
+        assertEquals(Set.copyOf(Arrays.asList(1, 2, 2, 3)), new HashSet<>(Arrays.asList(1, 2, 3)));
+        Map<Integer,Integer> hm = new HashMap<>(m);
+        Map<Integer,Integer> mc = Map.copyOf(hm);
+        hm.put(5, 6);
+        assertEquals(mc, m);
+
+        assertThrows(NullPointerException.class, () -> List.copyOf(null));
+        assertThrows(NullPointerException.class, () -> List.copyOf(Arrays.asList(1, null)));
+        assertThrows(NullPointerException.class, () -> Set.copyOf(Arrays.asList(1, null)));
+        Map<Integer,Integer> withNull = new HashMap<>();
+        withNull.put(1, null);
+        assertThrows(NullPointerException.class, () -> Map.copyOf(withNull));
+    }
+}
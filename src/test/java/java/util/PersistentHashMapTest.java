@@ -0,0 +1,227 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link PersistentHashMap} and its {@link PersistentHashMap.Transient}
+ * against {@link HashMap}, with keys whose hash codes collide in part or
+ * in full, and checks that earlier versions are left unchanged.
+ * 以HashMap为参照测试持久化散列映射表，并验证旧版本保持不变。
+ */
+public class PersistentHashMapTest {
+
+    /** A key whose hash code is chosen, to make collision nodes. */
+    static final class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int id, hash;
+        Key(int id, int hash) { this.id = id; this.hash = hash; }
+        public int hashCode() { return hash; }
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+        public String toString() { return "Key" + id; }
+    }
+
+    private static Key randomKey(Random rnd) {
+        int id = rnd.nextInt(2000);
+        // 部分键的散列值只有少数几种，另一些完全相同
+        switch (id % 3) {
+        case 0:  return new Key(id, id * 0x9E3779B9);
+        case 1:  return new Key(id, id & 0x3F0);
+        default: return new Key(id, 42);
+        }
+    }
+
+    private static void checkMap(Map<Key,Integer> expected,
+                                 PersistentHashMap<Key,Integer> m) {
+        assertEquals(m.size(), expected.size());
+        assertEquals(m.isEmpty(), expected.isEmpty());
+        assertEquals(m, expected);
+        assertEquals(expected, m);
+        assertEquals(m.hashCode(), expected.hashCode());
+        assertEquals(new HashMap<>(m), expected);
+        int n = 0;
+        for (Map.Entry<Key,Integer> e : m.entrySet()) {
+            assertTrue(expected.containsKey(e.getKey()));
+            assertEquals(e.getValue(), expected.get(e.getKey()));
+            ++n;
+        }
+        assertEquals(n, expected.size());
+        Map<Key,Integer> seen = new HashMap<>();
+        m.forEach(seen::put);
+        assertEquals(seen, expected);
+        for (Key k : expected.keySet()) {
+            assertTrue(m.containsKey(k));
+            assertEquals(m.get(k), expected.get(k));
+        }
+    }
+
+    /**
+     * Random updates give the same mappings as a HashMap, and every
+     * earlier version keeps the mappings it had.
+     */
+    @Test
+    public void randomUpdatesMatchHashMap() {
+        Random rnd = new Random(3);
+        PersistentHashMap<Key,Integer> m = PersistentHashMap.empty();
+        HashMap<Key,Integer> expected = new HashMap<>();
+        List<PersistentHashMap<Key,Integer>> versions = new ArrayList<>();
+        List<Map<Key,Integer>> snapshots = new ArrayList<>();
+        for (int op = 0; op < 20_000; ++op) {
+            Key k = randomKey(rnd);
+            // 先增长后收缩，使合并与提升路径都被覆盖
+            if (rnd.nextInt(20_000) < (op < 10_000 ? 13_000 : 6_000)) {
+                int v = rnd.nextInt(10);
+                m = m.with(k, v);
+                expected.put(k, v);
+            } else {
+                m = m.without(k);
+                expected.remove(k);
+            }
+            assertEquals(m.get(k), expected.get(k));
+            assertEquals(m.size(), expected.size());
+            if (op % 1000 == 0) {
+                checkMap(expected, m);
+                versions.add(m);
+                snapshots.add(new HashMap<>(expected));
+            }
+        }
+        checkMap(expected, m);
+        for (int i = 0; i < versions.size(); ++i)
+            checkMap(snapshots.get(i), versions.get(i));
+        for (Key k : new ArrayList<>(expected.keySet()))
+            m = m.without(k);
+        assertSame(m, PersistentHashMap.empty());
+    }
+
+    /**
+     * The trie has one shape for a set of keys, so maps built in
+     * different orders iterate in the same order (but for the keys of a
+     * collision node, which are kept in the order they were added).
+     */
+    @Test
+    public void canonicalShape() {
+        Random rnd = new Random(5);
+        List<Key> keys = new ArrayList<>();
+        // 散列值各不相同，但低位常常相同，使前缀树较深
+        for (int i = 0; i < 1000; ++i)
+            keys.add(new Key(i, (i % 2 == 0) ? i * 0x9E3779B9 : i << 20));
+        PersistentHashMap<Key,Integer> a = PersistentHashMap.empty();
+        for (Key k : keys)
+            a = a.with(k, 1);
+        Collections.shuffle(keys, rnd);
+        PersistentHashMap<Key,Integer> b = PersistentHashMap.empty();
+        for (Key k : keys)
+            b = b.with(k, 1);
+        // 先加入多余的键再删除，形状应与直接构建相同
+        for (int i = 0; i < 500; ++i)
+            b = b.with(new Key(5000 + i, i << 25), 2);
+        for (int i = 0; i < 500; ++i)
+            b = b.without(new Key(5000 + i, i << 25));
+        assertEquals(new ArrayList<>(b.keySet()), new ArrayList<>(a.keySet()));
+    }
+
+    @Test
+    public void unchangedUpdatesReturnSameMap() {
+        PersistentHashMap<Key,Integer> m =
+            PersistentHashMap.<Key,Integer>empty().with(new Key(1, 1), 1);
+        assertSame(m.with(new Key(1, 1), 1), m);
+        assertSame(m.without(new Key(2, 1)), m);
+        assertSame(m.withAll(Collections.emptyMap()), m);
+        assertSame(PersistentHashMap.copyOf(m), m);
+    }
+
+    @Test
+    public void nullKeysAndValues() {
+        PersistentHashMap<String,String> m = PersistentHashMap.<String,String>empty()
+            .with(null, "a").with("b", null);
+        assertEquals(m.size(), 2);
+        assertEquals(m.get(null), "a");
+        assertTrue(m.containsKey("b"));
+        assertNull(m.get("b"));
+        assertEquals(m.getOrDefault("b", "x"), null);
+        assertEquals(m.getOrDefault("c", "x"), "x");
+        assertFalse(m.without(null).containsKey(null));
+    }
+
+    @Test
+    public void transientMatchesHashMap() {
+        Random rnd = new Random(9);
+        PersistentHashMap<Key,Integer> base = PersistentHashMap.empty();
+        for (int i = 0; i < 500; ++i)
+            base = base.with(randomKey(rnd), i);
+        Map<Key,Integer> baseSnapshot = new HashMap<>(base);
+        PersistentHashMap.Transient<Key,Integer> t = base.asTransient();
+        HashMap<Key,Integer> expected = new HashMap<>(base);
+        for (int op = 0; op < 10_000; ++op) {
+            Key k = randomKey(rnd);
+            if (rnd.nextBoolean())
+                assertEquals(t.put(k, op), expected.put(k, op));
+            else
+                assertEquals(t.remove(k), expected.remove(k));
+            assertEquals(t.size(), expected.size());
+            assertEquals(t.containsKey(k), expected.containsKey(k));
+            assertEquals(t.get(k), expected.get(k));
+        }
+        PersistentHashMap<Key,Integer> m = t.persistent();
+        checkMap(expected, m);
+        checkMap(baseSnapshot, base);
+        try {
+            t.put(new Key(1, 1), 1);
+            throw new AssertionError("transient usable after persistent()");
+        } catch (IllegalStateException expected2) {
+        }
+        assertEquals(PersistentHashMap.copyOf(expected), expected);
+    }
+
+    @Test
+    public void mutatorsThrow() {
+        PersistentHashMap<Key,Integer> m =
+            PersistentHashMap.<Key,Integer>empty().with(new Key(1, 1), 1);
+        for (Runnable op : Arrays.<Runnable>asList(
+                 () -> m.put(new Key(2, 2), 2),
+                 () -> m.remove(new Key(1, 1)),
+                 () -> m.clear(),
+                 () -> m.keySet().clear(),
+                 () -> m.entrySet().iterator().next().setValue(3),
+                 () -> { Iterator<Key> it = m.keySet().iterator();
+                         it.next(); it.remove(); })) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (UnsupportedOperationException expected) {
+            }
+        }
+        assertEquals(m.size(), 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serialization() throws Exception {
+        Random rnd = new Random(13);
+        PersistentHashMap<Key,Integer> m = PersistentHashMap.empty();
+        for (int i = 0; i < 300; ++i)
+            m = m.with(randomKey(rnd), i);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(m);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                 new ByteArrayInputStream(bos.toByteArray()))) {
+            PersistentHashMap<Key,Integer> copy =
+                (PersistentHashMap<Key,Integer>) ois.readObject();
+            checkMap(new HashMap<>(m), copy);
+        }
+    }
+}
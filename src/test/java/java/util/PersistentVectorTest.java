@@ -0,0 +1,174 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link PersistentVector} and its {@link PersistentVector.Transient}
+ * against {@link ArrayList}, across the sizes at which the trie gains or
+ * loses a level, and checks that earlier versions are left unchanged.
+ * 以ArrayList为参照测试持久化向量，覆盖树增高与降低的边界，并验证旧版本不变。
+ */
+public class PersistentVectorTest {
+
+    private static void checkList(List<Integer> expected, PersistentVector<Integer> v) {
+        assertEquals(v.size(), expected.size());
+        assertEquals(v, expected);
+        assertEquals(expected, v);
+        assertEquals(v.hashCode(), expected.hashCode());
+        List<Integer> seen = new ArrayList<>();
+        v.forEach(seen::add);
+        assertEquals(seen, expected);
+        seen.clear();
+        for (Integer e : v)
+            seen.add(e);
+        assertEquals(seen, expected);
+        for (int i = 0; i < expected.size(); i += 7)
+            assertEquals(v.get(i), expected.get(i));
+        if (!expected.isEmpty())
+            assertEquals(v.get(v.size() - 1), expected.get(expected.size() - 1));
+    }
+
+    /**
+     * Grows the vector past three levels of the trie and shrinks it back,
+     * with random replacements on the way.
+     */
+    @Test
+    public void appendWithAndDropLastMatchArrayList() {
+        Random rnd = new Random(1);
+        PersistentVector<Integer> v = PersistentVector.empty();
+        ArrayList<Integer> expected = new ArrayList<>();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> snapshots = new ArrayList<>();
+        final int max = 32 * 32 * 32 + 100;
+        for (int i = 0; i < max; ++i) {
+            v = v.append(i);
+            expected.add(i);
+            if (rnd.nextInt(8) == 0) {
+                int j = rnd.nextInt(expected.size() + 1);
+                v = v.with(j, -i);
+                if (j == expected.size())
+                    expected.add(-i);
+                else
+                    expected.set(j, -i);
+            }
+            if (Integer.bitCount(v.size()) == 1 || rnd.nextInt(2000) == 0) {
+                checkList(expected, v);
+                versions.add(v);
+                snapshots.add(new ArrayList<>(expected));
+            }
+        }
+        while (!expected.isEmpty()) {
+            v = v.dropLast();
+            expected.remove(expected.size() - 1);
+            int n = expected.size();
+            if (n < 40 || n % 1024 <= 1 || rnd.nextInt(2000) == 0) {
+                checkList(expected, v);
+                versions.add(v);
+                snapshots.add(new ArrayList<>(expected));
+            }
+        }
+        assertSame(v, PersistentVector.empty());
+        for (int i = 0; i < versions.size(); ++i)
+            checkList(snapshots.get(i), versions.get(i));
+    }
+
+    @Test
+    public void transientMatchesArrayList() {
+        Random rnd = new Random(2);
+        PersistentVector<Integer> base = PersistentVector.empty();
+        for (int i = 0; i < 1500; ++i)
+            base = base.append(i);
+        List<Integer> baseSnapshot = new ArrayList<>(base);
+        PersistentVector.Transient<Integer> t = base.asTransient();
+        ArrayList<Integer> expected = new ArrayList<>(base);
+        for (int op = 0; op < 40_000; ++op) {
+            int r = rnd.nextInt(10);
+            // 大小在多个层级边界之间来回变化
+            if (r < 5 || expected.isEmpty()) {
+                t.add(op);
+                expected.add(op);
+            } else if (r < 8) {
+                assertEquals(t.removeLast(), expected.remove(expected.size() - 1));
+            } else {
+                int j = rnd.nextInt(expected.size());
+                assertEquals(t.set(j, -op), expected.set(j, -op));
+            }
+            assertEquals(t.size(), expected.size());
+            if (!expected.isEmpty()) {
+                int j = rnd.nextInt(expected.size());
+                assertEquals(t.get(j), expected.get(j));
+            }
+        }
+        PersistentVector<Integer> v = t.persistent();
+        checkList(expected, v);
+        checkList(baseSnapshot, base);
+        try {
+            t.add(1);
+            throw new AssertionError("transient usable after persistent()");
+        } catch (IllegalStateException expected2) {
+        }
+        assertSame(PersistentVector.copyOf(v), v);
+        assertEquals(PersistentVector.copyOf(expected), expected);
+        assertEquals(base.appendAll(expected).subList(1500, 1500 + expected.size()),
+                     expected);
+    }
+
+    @Test
+    public void outOfBoundsAndMutators() {
+        PersistentVector<Integer> v = PersistentVector.<Integer>empty().append(1);
+        for (Runnable op : Arrays.<Runnable>asList(
+                 () -> v.get(1), () -> v.get(-1),
+                 () -> v.with(2, 0), () -> v.with(-1, 0))) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        try {
+            PersistentVector.empty().dropLast();
+            throw new AssertionError("no exception");
+        } catch (NoSuchElementException expected) {
+        }
+        for (Runnable op : Arrays.<Runnable>asList(
+                 () -> v.add(2), () -> v.set(0, 2), () -> v.remove(0),
+                 () -> v.clear(), () -> v.subList(0, 1).clear(),
+                 () -> { ListIterator<Integer> it = v.listIterator();
+                         it.next(); it.set(3); })) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (UnsupportedOperationException expected) {
+            }
+        }
+        assertEquals(v, Collections.singletonList(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serialization() throws Exception {
+        for (int n : new int[] { 0, 1, 32, 33, 1057 }) {
+            PersistentVector<Integer> v = PersistentVector.empty();
+            for (int i = 0; i < n; ++i)
+                v = v.append(i);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(v);
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(
+                     new ByteArrayInputStream(bos.toByteArray()))) {
+                PersistentVector<Integer> copy =
+                    (PersistentVector<Integer>) ois.readObject();
+                checkList(new ArrayList<>(v), copy);
+                assertEquals(copy.size(), n);
+            }
+        }
+    }
+}
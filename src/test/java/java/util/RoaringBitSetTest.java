@@ -0,0 +1,222 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link RoaringBitSet} against {@link BitSet} under random
+ * operations that make chunks of each container kind, and the round
+ * trip through the portable serialization format.
+ * 以BitSet为参照随机测试Roaring位集合，并验证可移植序列化格式的往返。
+ */
+public class RoaringBitSetTest {
+
+    /** Indices span six chunks of 2^16 bits. */
+    private static final int RANGE = 6 << 16;
+
+    /** Applies the same random operation to both sets. */
+    private static void randomOperation(RoaringBitSet r, BitSet b, Random rnd) {
+        int from = rnd.nextInt(RANGE);
+        // 大多数区间较短，偶尔跨越多个块，以产生稠密块和游程
+        int to = Math.min(RANGE, from + (rnd.nextInt(8) == 0 ?
+                                         rnd.nextInt(80_000) : rnd.nextInt(100)));
+        switch (rnd.nextInt(9)) {
+        case 0: case 1: case 2:
+            r.set(from); b.set(from); break;
+        case 3:
+            r.clear(from); b.clear(from); break;
+        case 4:
+            r.flip(from); b.flip(from); break;
+        case 5:
+            r.set(from, to); b.set(from, to); break;
+        case 6:
+            r.clear(from, to); b.clear(from, to); break;
+        case 7:
+            r.flip(from, to); b.flip(from, to); break;
+        default:
+            r.runOptimize(); break;
+        }
+    }
+
+    private static void check(RoaringBitSet r, BitSet b, Random rnd) {
+        assertEquals(r.toBitSet(), b);
+        assertEquals(RoaringBitSet.valueOf(b), r);
+        assertEquals(RoaringBitSet.valueOf(b).hashCode(), r.hashCode());
+        assertEquals(r.cardinality(), b.cardinality());
+        assertEquals(r.length(), b.length());
+        assertEquals(r.isEmpty(), b.isEmpty());
+        assertEquals(r.toString(), b.toString());
+        assertTrue(Arrays.equals(r.stream().toArray(), b.stream().toArray()));
+        int card = b.cardinality();
+        for (int n = 0; n < 200; ++n) {
+            int i = rnd.nextInt(RANGE + 10);
+            assertEquals(r.get(i), b.get(i), "get " + i);
+            assertEquals(r.nextSetBit(i), b.nextSetBit(i), "nextSetBit " + i);
+            assertEquals(r.nextClearBit(i), b.nextClearBit(i), "nextClearBit " + i);
+            assertEquals(r.previousSetBit(i), b.previousSetBit(i),
+                         "previousSetBit " + i);
+            int rank = b.get(0, i + 1).cardinality();
+            assertEquals(r.rank(i), rank, "rank " + i);
+            if (card > 0) {
+                int j = rnd.nextInt(card);
+                assertEquals(r.rank(r.select(j)), j + 1);
+                assertTrue(b.get(r.select(j)));
+            }
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchBitSet() {
+        Random rnd = new Random(42);
+        RoaringBitSet r = new RoaringBitSet();
+        BitSet b = new BitSet();
+        for (int op = 0; op < 3000; ++op) {
+            randomOperation(r, b, rnd);
+            if (op % 100 == 0)
+                check(r, b, rnd);
+        }
+        check(r, b, rnd);
+        r.clear();
+        b.clear();
+        check(r, b, rnd);
+    }
+
+    @Test
+    public void logicalOperationsMatchBitSet() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 30; ++round) {
+            RoaringBitSet r1 = new RoaringBitSet(), r2 = new RoaringBitSet();
+            BitSet b1 = new BitSet(), b2 = new BitSet();
+            for (int op = 0; op < 40; ++op) {
+                randomOperation(r1, b1, rnd);
+                randomOperation(r2, b2, rnd);
+            }
+            if (rnd.nextBoolean())
+                r2.runOptimize();
+            assertEquals(r1.intersects(r2), b1.intersects(b2));
+
+            RoaringBitSet r = (RoaringBitSet) r1.clone();
+            BitSet b = (BitSet) b1.clone();
+            r.and(r2); b.and(b2);
+            assertEquals(r.toBitSet(), b);
+            r = (RoaringBitSet) r1.clone(); b = (BitSet) b1.clone();
+            r.or(r2); b.or(b2);
+            assertEquals(r.toBitSet(), b);
+            r = (RoaringBitSet) r1.clone(); b = (BitSet) b1.clone();
+            r.xor(r2); b.xor(b2);
+            assertEquals(r.toBitSet(), b);
+            r = (RoaringBitSet) r1.clone(); b = (BitSet) b1.clone();
+            r.andNot(r2); b.andNot(b2);
+            assertEquals(r.toBitSet(), b);
+            // 克隆与原集合相互独立
+            assertEquals(r1.toBitSet(), b1);
+            assertEquals(r2.toBitSet(), b2);
+        }
+    }
+
+    @Test
+    public void outOfBoundsIndices() {
+        RoaringBitSet r = new RoaringBitSet();
+        r.set(5);
+        assertEquals(r.previousSetBit(-1), -1);
+        assertFalse(r.get(Integer.MAX_VALUE));
+        for (Runnable op : Arrays.<Runnable>asList(
+                 () -> r.get(-1), () -> r.set(-1), () -> r.clear(-1),
+                 () -> r.set(3, 2), () -> r.previousSetBit(-2),
+                 () -> r.select(1), () -> r.select(-1))) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    private static byte[] serialize(RoaringBitSet r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            r.serialize(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RoaringBitSet deserialize(byte[] bytes) throws IOException {
+        return RoaringBitSet.deserialize(
+            new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * The portable format of a small bit set, as written by the Roaring
+     * libraries of other languages.
+     */
+    @Test
+    public void portableFormatOfArrayContainers() throws IOException {
+        RoaringBitSet r = new RoaringBitSet();
+        r.set(1);
+        r.set(2);
+        r.set((1 << 16) + 5);
+        byte[] expected = {
+            0x3a, 0x30, 0, 0,           // cookie 12346，无游程容器
+            2, 0, 0, 0,                 // 块数
+            0, 0, 1, 0,                 // 键0，基数-1
+            1, 0, 0, 0,                 // 键1，基数-1
+            24, 0, 0, 0,                // 偏移量
+            28, 0, 0, 0,
+            1, 0, 2, 0,                 // 数组容器
+            5, 0 };
+        assertTrue(Arrays.equals(serialize(r), expected));
+        assertEquals(r.serializedSizeInBytes(), expected.length);
+        assertEquals(deserialize(expected), r);
+    }
+
+    /**
+     * Bit sets with array, bitmap and run containers, below and above
+     * the number of containers from which offsets are written, survive
+     * the portable format and Java serialization.
+     */
+    @Test
+    public void serializationRoundTrip() throws Exception {
+        Random rnd = new Random(11);
+        for (int round = 0; round < 40; ++round) {
+            RoaringBitSet r = new RoaringBitSet();
+            BitSet b = new BitSet();
+            for (int op = 0, ops = rnd.nextInt(60); op < ops; ++op)
+                randomOperation(r, b, rnd);
+            if (round % 2 == 0)
+                r.runOptimize();
+            byte[] bytes = serialize(r);
+            assertEquals(bytes.length, r.serializedSizeInBytes());
+            RoaringBitSet copy = deserialize(bytes);
+            assertEquals(copy, r);
+            assertEquals(copy.toBitSet(), b);
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(r);
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(
+                     new ByteArrayInputStream(bos.toByteArray()))) {
+                assertEquals(((RoaringBitSet) ois.readObject()).toBitSet(), b);
+            }
+        }
+    }
+
+    @Test
+    public void deserializeRejectsOtherInput() {
+        try {
+            deserialize(new byte[] { 1, 2, 3, 4 });
+            throw new AssertionError("no exception");
+        } catch (IOException expected) {
+        }
+    }
+}
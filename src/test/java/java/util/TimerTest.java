@@ -0,0 +1,204 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that a pooled {@link Timer} behaves as the single timer thread
+ * does: for repeated executions at a fixed rate or with a fixed delay,
+ * which never overlap, for cancellation, and for a task that throws,
+ * which cancels the timer and whose exception reaches the uncaught
+ * exception handler of the thread that ran it.
+ * 验证池化Timer的周期执行、取消以及任务异常的处理与单线程模式一致。
+ */
+public class TimerTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    /** A task that records the nanoTime of each of its executions. */
+    static class RecordingTask extends TimerTask {
+        final List<Long> starts = new CopyOnWriteArrayList<>();
+        final CountDownLatch runs;
+        RecordingTask(int runs) {
+            this.runs = new CountDownLatch(runs);
+        }
+        public void run() {
+            starts.add(System.nanoTime());
+            runs.countDown();
+        }
+        void await() throws InterruptedException {
+            assertTrue(runs.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            cancel();
+        }
+    }
+
+    @Test
+    public void pooledFixedRateKeepsToSchedule() throws Exception {
+        Timer timer = new Timer("pooled-timer", true, 2);
+        try {
+            RecordingTask task = new RecordingTask(5);
+            long start = System.nanoTime();
+            timer.scheduleAtFixedRate(task, 20L, 20L);
+            task.await();
+            // 毫秒时钟的取整误差最多1ms
+            for (int i = 0; i < 5; ++i)
+                assertTrue(task.starts.get(i) - start >=
+                           TimeUnit.MILLISECONDS.toNanos(20L * (i + 1) - 1L),
+                           "run " + i + " early");
+        } finally {
+            timer.cancel();
+        }
+    }
+
+    @Test
+    public void pooledFixedDelaySpacesExecutions() throws Exception {
+        Timer timer = new Timer("pooled-timer", true, 2);
+        try {
+            RecordingTask task = new RecordingTask(5);
+            timer.schedule(task, 0L, 15L);
+            task.await();
+            for (int i = 1; i < 5; ++i)
+                assertTrue(task.starts.get(i) - task.starts.get(i - 1) >=
+                           TimeUnit.MILLISECONDS.toNanos(14L),
+                           "run " + i + " too soon");
+        } finally {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * A task that takes longer than its period is not run again before
+     * it completes, however many workers the timer has.
+     */
+    @Test
+    public void pooledTaskNeverOverlapsItself() throws Exception {
+        Timer timer = new Timer("pooled-timer", true, 4);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            CountDownLatch runs = new CountDownLatch(10);
+            TimerTask task = new TimerTask() {
+                public void run() {
+                    if (running.incrementAndGet() != 1)
+                        overlaps.incrementAndGet();
+                    try {
+                        Thread.sleep(5L);
+                    } catch (InterruptedException ie) {
+                    }
+                    running.decrementAndGet();
+                    runs.countDown();
+                }
+            };
+            timer.scheduleAtFixedRate(task, 0L, 1L);
+            assertTrue(runs.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            task.cancel();
+            assertEquals(overlaps.get(), 0);
+        } finally {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Cancelling a task cancels the pending execution on the executor,
+     * so that it does not stay there until due.
+     */
+    @Test
+    public void pooledTaskCancelCancelsPendingExecution() throws Exception {
+        Timer timer = new Timer("pooled-timer", true, 2);
+        try {
+            TimerTask once = new RecordingTask(1);
+            timer.schedule(once, TimeUnit.HOURS.toMillis(1L));
+            Future<?> f = once.future;
+            assertNotNull(f);
+            assertTrue(once.cancel());
+            assertTrue(f.isCancelled());
+            assertNull(once.future);
+
+            RecordingTask repeated = new RecordingTask(1);
+            timer.schedule(repeated, 0L, TimeUnit.HOURS.toMillis(1L));
+            assertTrue(repeated.runs.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            // 等待第一次执行后为下一次执行提交的future
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            for (;;) {
+                synchronized (repeated.lock) {
+                    f = repeated.future;
+                }
+                if (f != null && !f.isDone())
+                    break;
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.yield();
+            }
+            assertTrue(repeated.cancel());
+            assertTrue(f.isCancelled());
+            assertFalse(repeated.cancel());
+        } finally {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * A pooled timer that has been cancelled refuses tasks, which are
+     * left unscheduled.
+     */
+    @Test
+    public void cancelledPooledTimerRejectsTasks() throws Exception {
+        Timer timer = new Timer("pooled-timer", true, 2);
+        timer.cancel();
+        RecordingTask task = new RecordingTask(1);
+        try {
+            timer.schedule(task, 1L);
+            throw new AssertionError("task accepted");
+        } catch (IllegalStateException expected) {
+        }
+        assertNull(task.future);
+        Timer other = new Timer("pooled-timer", true, 2);
+        try {
+            other.schedule(task, 1L);
+            task.await();
+        } finally {
+            other.cancel();
+        }
+    }
+
+    @Test
+    public void pooledTaskExceptionIsReportedAndCancelsTimer() throws Exception {
+        RuntimeException thrown = new RuntimeException("task failed");
+        CompletableFuture<Throwable> reported = new CompletableFuture<>();
+        Thread.UncaughtExceptionHandler saved =
+            Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(
+            (t, ex) -> reported.complete(ex));
+        Timer timer = new Timer("pooled-timer", true, 2);
+        try {
+            timer.schedule(new TimerTask() {
+                public void run() {
+                    throw thrown;
+                }
+            }, 1L);
+            assertSame(reported.get(10L, TimeUnit.SECONDS), thrown);
+            try {
+                timer.schedule(new TimerTask() {
+                    public void run() { }
+                }, 1L);
+                throw new AssertionError("timer not cancelled");
+            } catch (IllegalStateException expected) {
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(saved);
+            timer.cancel();
+        }
+        assertTrue(reported.isDone());
+    }
+}
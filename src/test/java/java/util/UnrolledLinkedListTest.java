@@ -0,0 +1,335 @@
+package java.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link UnrolledLinkedList} against {@link ArrayList} as a list and
+ * against {@link LinkedList} as a deque, with node capacities small enough
+ * that random operations split and merge nodes all the time.
+ * 以ArrayList和LinkedList为参照随机测试展开链表，覆盖结点的分裂与合并。
+ */
+public class UnrolledLinkedListTest {
+
+    private static final int[] NODE_CAPACITIES = { 2, 3, 4, 32 };
+
+    private static void checkList(List<Integer> expected,
+                                  UnrolledLinkedList<Integer> l) {
+        assertEquals(l.size(), expected.size());
+        assertEquals(l, expected);
+        assertEquals(expected, l);
+        assertEquals(l.hashCode(), expected.hashCode());
+        assertTrue(Arrays.equals(l.toArray(), expected.toArray()));
+        assertTrue(Arrays.equals(l.toArray(new Integer[0]),
+                                 expected.toArray(new Integer[0])));
+        List<Integer> seen = new ArrayList<>();
+        l.forEach(seen::add);
+        assertEquals(seen, expected);
+        seen.clear();
+        for (Iterator<Integer> it = l.descendingIterator(); it.hasNext(); )
+            seen.add(it.next());
+        Collections.reverse(seen);
+        assertEquals(seen, expected);
+        for (int i = 0; i < expected.size(); ++i)
+            assertEquals(l.get(i), expected.get(i));
+    }
+
+    /**
+     * Indexed adds, removes and sets, and bulk additions, give the same
+     * list as an ArrayList.
+     */
+    @Test
+    public void randomListOperationsMatchArrayList() {
+        Random rnd = new Random(1);
+        for (int capacity : NODE_CAPACITIES) {
+            UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(capacity);
+            ArrayList<Integer> expected = new ArrayList<>();
+            for (int op = 0; op < 20_000; ++op) {
+                int n = expected.size();
+                // 先增长后收缩，使结点的分裂与合并都被覆盖
+                int r = rnd.nextInt(op < 10_000 ? 10 : 14);
+                Integer e = rnd.nextInt(50);
+                if (r < 4) {
+                    int i = rnd.nextInt(n + 1);
+                    l.add(i, e);
+                    expected.add(i, e);
+                } else if (r < 5) {
+                    assertEquals(l.add(e), expected.add(e));
+                } else if (r < 6) {
+                    int i = rnd.nextInt(n + 1);
+                    List<Integer> c = Collections.nCopies(rnd.nextInt(2 * capacity + 2), e);
+                    assertEquals(l.addAll(i, c), expected.addAll(i, c));
+                } else if (r < 7 && n > 0) {
+                    int i = rnd.nextInt(n);
+                    assertEquals(l.set(i, e), expected.set(i, e));
+                } else if (r < 8) {
+                    assertEquals(l.remove(e), expected.remove(e));
+                } else if (n > 0) {
+                    int i = rnd.nextInt(n);
+                    assertEquals(l.remove(i), expected.remove(i));
+                }
+                assertEquals(l.size(), expected.size());
+                assertEquals(l.indexOf(e), expected.indexOf(e));
+                assertEquals(l.lastIndexOf(e), expected.lastIndexOf(e));
+                assertEquals(l.contains(e), expected.contains(e));
+                if (op % 500 == 0)
+                    checkList(expected, l);
+            }
+            checkList(expected, l);
+            l.clear();
+            expected.clear();
+            checkList(expected, l);
+        }
+    }
+
+    /**
+     * Operations at both ends give the same deque as a LinkedList.
+     */
+    @Test
+    public void randomDequeOperationsMatchLinkedList() {
+        Random rnd = new Random(2);
+        for (int capacity : NODE_CAPACITIES) {
+            UnrolledLinkedList<Integer> d = new UnrolledLinkedList<>(capacity);
+            LinkedList<Integer> expected = new LinkedList<>();
+            for (int op = 0; op < 20_000; ++op) {
+                Integer e = op;
+                switch (rnd.nextInt(op < 10_000 ? 10 : 14)) {
+                case 0: d.addFirst(e); expected.addFirst(e); break;
+                case 1: d.addLast(e); expected.addLast(e); break;
+                case 2: assertEquals(d.offerFirst(e), expected.offerFirst(e)); break;
+                case 3: assertEquals(d.offer(e), expected.offer(e)); break;
+                case 4: d.push(e); expected.push(e); break;
+                case 5: assertEquals(d.peekFirst(), expected.peekFirst()); break;
+                case 6: assertEquals(d.peekLast(), expected.peekLast()); break;
+                case 7: case 10:
+                    assertEquals(d.pollFirst(), expected.pollFirst()); break;
+                case 8: case 11:
+                    assertEquals(d.pollLast(), expected.pollLast()); break;
+                case 9: case 12:
+                    assertEquals(d.poll(), expected.poll()); break;
+                default:
+                    if (!expected.isEmpty())
+                        assertEquals(d.pop(), expected.pop());
+                    break;
+                }
+                assertEquals(d.size(), expected.size());
+                if (op % 500 == 0)
+                    checkList(expected, d);
+            }
+            checkList(expected, d);
+        }
+        UnrolledLinkedList<Integer> d = new UnrolledLinkedList<>();
+        for (Runnable op : Arrays.<Runnable>asList(
+                 d::getFirst, d::getLast, d::removeFirst, d::removeLast,
+                 d::element, d::remove, d::pop)) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (NoSuchElementException expected) {
+            }
+        }
+    }
+
+    /**
+     * A list iterator that moves both ways and adds, sets and removes
+     * as it goes matches one over an ArrayList.
+     */
+    @Test
+    public void listIteratorMatchesArrayList() {
+        Random rnd = new Random(3);
+        for (int capacity : NODE_CAPACITIES) {
+            UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(capacity);
+            ArrayList<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                l.add(i);
+                expected.add(i);
+            }
+            for (int round = 0; round < 50; ++round) {
+                int start = rnd.nextInt(expected.size() + 1);
+                ListIterator<Integer> it = l.listIterator(start);
+                ListIterator<Integer> ex = expected.listIterator(start);
+                // 只有在next或previous之后才可调用set与remove
+                boolean moved = false;
+                for (int op = 0; op < 200; ++op) {
+                    assertEquals(it.nextIndex(), ex.nextIndex());
+                    assertEquals(it.previousIndex(), ex.previousIndex());
+                    assertEquals(it.hasNext(), ex.hasNext());
+                    assertEquals(it.hasPrevious(), ex.hasPrevious());
+                    int r = rnd.nextInt(10);
+                    if (r < 3 && ex.hasNext()) {
+                        assertEquals(it.next(), ex.next());
+                        moved = true;
+                    } else if (r < 6 && ex.hasPrevious()) {
+                        assertEquals(it.previous(), ex.previous());
+                        moved = true;
+                    } else if (r < 7 && moved) {
+                        it.set(-op);
+                        ex.set(-op);
+                    } else if (r < 8 && moved) {
+                        it.remove();
+                        ex.remove();
+                        moved = false;
+                    } else {
+                        it.add(op);
+                        ex.add(op);
+                        moved = false;
+                    }
+                }
+                checkList(expected, l);
+            }
+            ListIterator<Integer> it = l.listIterator();
+            try {
+                it.remove();
+                throw new AssertionError("no exception");
+            } catch (IllegalStateException expected2) {
+            }
+        }
+    }
+
+    @Test
+    public void subListMatchesArrayList() {
+        Random rnd = new Random(4);
+        UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(3);
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            l.add(i);
+            expected.add(i);
+        }
+        for (int round = 0; round < 100; ++round) {
+            int from = rnd.nextInt(expected.size() + 1);
+            int to = from + rnd.nextInt(expected.size() - from + 1);
+            List<Integer> s = l.subList(from, to);
+            List<Integer> es = expected.subList(from, to);
+            assertEquals(s, es);
+            switch (rnd.nextInt(3)) {
+            case 0:
+                int i = rnd.nextInt(s.size() + 1);
+                s.add(i, -round);
+                es.add(i, -round);
+                break;
+            case 1:
+                s.clear();
+                es.clear();
+                break;
+            default:
+                Collections.reverse(s);
+                Collections.reverse(es);
+                break;
+            }
+            checkList(expected, l);
+            if (expected.size() < 50) {
+                for (int i = 0; i < 100; ++i) {
+                    l.add(i);
+                    expected.add(i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void iteratorsAreFailFast() {
+        UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(4);
+        for (int i = 0; i < 20; ++i)
+            l.add(i);
+        Iterator<Integer> it = l.iterator();
+        it.next();
+        l.addFirst(-1);
+        try {
+            it.next();
+            throw new AssertionError("no exception");
+        } catch (ConcurrentModificationException expected) {
+        }
+        // 拆分器在首次使用时才绑定到链表
+        Spliterator<Integer> sp = l.spliterator();
+        l.removeLast();
+        assertEquals(sp.estimateSize(), (long) l.size());
+        l.removeLast();
+        try {
+            sp.forEachRemaining(e -> { });
+            throw new AssertionError("no exception");
+        } catch (ConcurrentModificationException expected) {
+        }
+    }
+
+    /**
+     * Split spliterators cover every element once and in order, and
+     * parallel streams agree with sequential ones.
+     */
+    @Test
+    public void spliteratorSplitsCoverList() {
+        for (int capacity : NODE_CAPACITIES) {
+            UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(capacity);
+            for (int i = 0; i < 5000; ++i)
+                l.add(i);
+            Spliterator<Integer> sp = l.spliterator();
+            assertEquals(sp.estimateSize(), 5000L);
+            assertTrue(sp.hasCharacteristics(Spliterator.ORDERED));
+            List<Integer> seen = new ArrayList<>();
+            Spliterator<Integer> prefix = sp.trySplit();
+            assertTrue(prefix != null);
+            prefix.forEachRemaining(seen::add);
+            while (sp.tryAdvance(seen::add)) { }
+            assertEquals(seen, l);
+            assertEquals(l.parallelStream().mapToLong(Integer::longValue).sum(),
+                         5000L * 4999 / 2);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cloneAndSerialization() throws Exception {
+        UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(5);
+        for (int i = 0; i < 103; ++i)
+            l.add(i % 7 == 0 ? null : i);
+        List<Integer> expected = new ArrayList<>(l);
+        UnrolledLinkedList<Integer> c = (UnrolledLinkedList<Integer>) l.clone();
+        checkList(expected, c);
+        // 克隆与原链表相互独立
+        c.add(0, -1);
+        c.removeLast();
+        checkList(expected, l);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(l);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                 new ByteArrayInputStream(bos.toByteArray()))) {
+            UnrolledLinkedList<Integer> copy =
+                (UnrolledLinkedList<Integer>) ois.readObject();
+            checkList(expected, copy);
+            copy.add(50, 1);
+            expected.add(50, 1);
+            checkList(expected, copy);
+        }
+        assertFalse(l.isEmpty());
+    }
+
+    @Test
+    public void outOfBoundsIndices() {
+        UnrolledLinkedList<Integer> l = new UnrolledLinkedList<>(2);
+        l.add(1);
+        for (Runnable op : Arrays.<Runnable>asList(
+                 () -> l.get(1), () -> l.get(-1), () -> l.set(1, 0),
+                 () -> l.remove(1), () -> l.add(2, 0),
+                 () -> l.listIterator(2), () -> l.addAll(-1, l))) {
+            try {
+                op.run();
+                throw new AssertionError("no exception");
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        try {
+            new UnrolledLinkedList<Integer>(1);
+            throw new AssertionError("no exception");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the bound of {@link BoundedConcurrentCache} under concurrent
+ * writes, of its LRU eviction order and TinyLFU admission, and of
+ * {@code computeIfAbsent}.
+ * 验证有界并发缓存的容量上限、LRU淘汰顺序、TinyLFU准入与computeIfAbsent。
+ */
+public class BoundedConcurrentCacheTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    private static BoundedConcurrentCache<Integer,Integer> cache(
+        long maximumSize, boolean admission) {
+        return BoundedConcurrentCache.<Integer,Integer>newBuilder()
+            .maximumSize(maximumSize)
+            .admission(admission)
+            .build();
+    }
+
+    /** Runs the action in the given number of threads, and waits for them. */
+    private static void concurrently(int threads, Task action)
+        throws Exception {
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; ++t) {
+                final int id = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    action.run(id);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    interface Task {
+        void run(int id) throws Exception;
+    }
+
+    /**
+     * Once the buffered writes have been replayed, the cache is within
+     * its bound, and every entry it dropped was counted as evicted.
+     */
+    @Test
+    public void sizeBoundHoldsUnderConcurrentPuts() throws Exception {
+        for (boolean admission : new boolean[] { false, true }) {
+            BoundedConcurrentCache<Integer,Integer> c = cache(100, admission);
+            final int threads = 4, perThread = 10_000;
+            concurrently(threads, id -> {
+                for (int i = 0; i < perThread; ++i) {
+                    int k = id * perThread + i;
+                    c.put(k, k);
+                    c.get(k - 10);
+                }
+            });
+            c.cleanUp();
+            assertTrue(c.estimatedSize() <= 100, "size " + c.estimatedSize());
+            assertTrue(c.weightedSize() <= 100);
+            assertEquals(c.weightedSize(), c.estimatedSize());
+            assertEquals(c.stats().evictionCount(),
+                         threads * perThread - c.estimatedSize());
+        }
+    }
+
+    /**
+     * Without admission, the least recently used entry is evicted, a
+     * read counting as a use.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        BoundedConcurrentCache<Integer,Integer> c = cache(3, false);
+        c.put(1, 1);
+        c.put(2, 2);
+        c.put(3, 3);
+        c.cleanUp();
+        assertEquals(c.get(1), Integer.valueOf(1));   // 访问顺序变为 2, 3, 1
+        c.cleanUp();
+        c.put(4, 4);
+        c.cleanUp();
+        assertFalse(c.containsKey(2));
+        c.put(2, 2);                                  // 淘汰 3
+        c.cleanUp();
+        assertFalse(c.containsKey(3));
+        assertTrue(c.containsKey(1) && c.containsKey(2) && c.containsKey(4));
+        assertEquals(c.estimatedSize(), 3L);
+        assertEquals(c.stats().evictionCount(), 2L);
+    }
+
+    /**
+     * With admission, keys seen only once do not displace frequently
+     * read ones, while without it they flush all of them out.
+     */
+    @Test
+    public void tinyLfuKeepsFrequentlyUsedEntries() {
+        for (boolean admission : new boolean[] { true, false }) {
+            BoundedConcurrentCache<Integer,Integer> c = cache(100, admission);
+            for (int k = 0; k < 100; ++k)
+                c.put(k, k);
+            for (int round = 0; round < 5; ++round) {
+                for (int k = 0; k < 100; ++k)
+                    c.get(k);
+                c.cleanUp();
+            }
+            for (int k = 1000; k < 1200; ++k) {
+                c.put(k, k);
+                c.cleanUp();
+            }
+            int hot = 0;
+            for (int k = 0; k < 100; ++k) {
+                if (c.containsKey(k))
+                    ++hot;
+            }
+            if (admission)
+                assertEquals(hot, 100);
+            else
+                assertEquals(hot, 0);
+            assertEquals(c.estimatedSize(), 100L);
+        }
+    }
+
+    /**
+     * Threads racing to compute the same keys invoke the function once
+     * per key, and all get the computed value.
+     */
+    @Test
+    public void computeIfAbsentCallsFunctionOncePerKey() throws Exception {
+        BoundedConcurrentCache<Integer,Object> c =
+            BoundedConcurrentCache.<Integer,Object>newBuilder()
+                .maximumSize(10_000)
+                .build();
+        final int keys = 1000, threads = 4;
+        AtomicInteger[] calls = new AtomicInteger[keys];
+        for (int k = 0; k < keys; ++k)
+            calls[k] = new AtomicInteger();
+        Object[][] seen = new Object[threads][keys];
+        concurrently(threads, id -> {
+            for (int k = 0; k < keys; ++k) {
+                seen[id][k] = c.computeIfAbsent(k, key -> {
+                    calls[key].incrementAndGet();
+                    Thread.yield();         // 扩大竞争窗口
+                    return new Object();
+                });
+            }
+        });
+        for (int k = 0; k < keys; ++k) {
+            assertEquals(calls[k].get(), 1, "key " + k);
+            for (int t = 1; t < threads; ++t)
+                assertSame(seen[t][k], seen[0][k]);
+        }
+        BoundedConcurrentCache.Stats s = c.stats();
+        assertEquals(s.loadSuccessCount(), (long) keys);
+        assertEquals(s.hitCount() + s.missCount(), (long) keys * threads);
+    }
+}
@@ -0,0 +1,173 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that {@link ConcurrentBLinkTreeMap} reclaims the leaves emptied
+ * by removals, so that finding the first mapping costs the same however
+ * many mappings were inserted and removed before.  The cost is measured
+ * as the number of leaves linked in, and crossed before the first
+ * mapping, rather than as time.
+ * 验证B-link树合并空叶子，取首个映射的代价只与存活映射数有关。
+ */
+public class ConcurrentBLinkTreeMapTest {
+
+    private static ConcurrentBLinkTreeMap.Tree tree(ConcurrentBLinkTreeMap<?,?> m)
+        throws ReflectiveOperationException {
+        Field f = ConcurrentBLinkTreeMap.class.getDeclaredField("tree");
+        f.setAccessible(true);
+        return (ConcurrentBLinkTreeMap.Tree) f.get(m);
+    }
+
+    /** Returns the number of leaves linked in from the leftmost one. */
+    private static int leafCount(ConcurrentBLinkTreeMap<?,?> m)
+        throws ReflectiveOperationException {
+        int c = 0;
+        for (ConcurrentBLinkTreeMap.Node x = tree(m).head; x != null; x = x.right) {
+            assertTrue(!x.dead, "dead leaf linked in");
+            ++c;
+        }
+        return c;
+    }
+
+    /** Returns the number of empty leaves crossed to find the first mapping. */
+    private static int emptyLeavesBeforeFirst(ConcurrentBLinkTreeMap<?,?> m)
+        throws ReflectiveOperationException {
+        int c = 0;
+        for (ConcurrentBLinkTreeMap.Node x = tree(m).head; x != null && x.n == 0;
+             x = x.right)
+            ++c;
+        return c;
+    }
+
+    @Test
+    public void drainWithPollFirstEntry() throws Exception {
+        for (int n : new int[] { 25_000, 50_000, 100_000, 200_000 }) {
+            ConcurrentBLinkTreeMap<Integer,Integer> m = new ConcurrentBLinkTreeMap<>();
+            for (int i = 0; i < n; i++)
+                m.put(i, i);
+            for (int i = 0; i < n - 1000; i++)
+                assertEquals(m.pollFirstEntry().getKey(), Integer.valueOf(i));
+            assertTrue(emptyLeavesBeforeFirst(m) <= 1, "n=" + n);
+            assertTrue(leafCount(m) <= 1000 / 32 + 2, "n=" + n);
+            for (int i = n - 1000; i < n; i++)
+                assertEquals(m.pollFirstEntry().getKey(), Integer.valueOf(i));
+            assertNull(m.pollFirstEntry());
+            assertTrue(m.isEmpty());
+            assertTrue(leafCount(m) <= 2, "n=" + n);
+        }
+    }
+
+    @Test
+    public void drainWithPollLastEntry() throws Exception {
+        ConcurrentBLinkTreeMap<Integer,Integer> m = new ConcurrentBLinkTreeMap<>();
+        int n = 100_000;
+        for (int i = 0; i < n; i++)
+            m.put(i, i);
+        for (int i = n - 1; i >= 1000; i--)
+            assertEquals(m.pollLastEntry().getKey(), Integer.valueOf(i));
+        assertTrue(leafCount(m) <= 1000 / 32 + 2);
+        assertEquals(m.lastKey(), Integer.valueOf(999));
+    }
+
+    @Test
+    public void slidingWindow() throws Exception {
+        ConcurrentBLinkTreeMap<Integer,Integer> m = new ConcurrentBLinkTreeMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            m.put(i, i);
+            if (i >= 1000) {
+                assertEquals(m.firstKey(), Integer.valueOf(i - 1000));
+                m.remove(i - 1000);
+            }
+        }
+        assertEquals(m.size(), 1000);
+        assertTrue(emptyLeavesBeforeFirst(m) <= 1);
+        assertTrue(leafCount(m) <= 1000 / 32 + 2);
+    }
+
+    @Test
+    public void randomRemovalMatchesTreeMap() throws Exception {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 5; round++) {
+            ConcurrentBLinkTreeMap<Integer,Integer> m = new ConcurrentBLinkTreeMap<>();
+            TreeMap<Integer,Integer> ref = new TreeMap<>();
+            int range = 1 + rnd.nextInt(20_000);
+            for (int i = 0; i < 100_000; i++) {
+                int k = rnd.nextInt(range);
+                switch (rnd.nextInt(5)) {
+                    case 0: case 1:
+                        assertEquals(m.put(k, i), ref.put(k, i));
+                        break;
+                    case 2: case 3:
+                        assertEquals(m.remove(k), ref.remove(k));
+                        break;
+                    default:
+                        assertEquals(m.lowerKey(k), ref.lowerKey(k));
+                        assertEquals(m.ceilingKey(k), ref.ceilingKey(k));
+                }
+            }
+            assertEquals(m, ref);
+            assertEquals(new ArrayList<>(m.descendingKeySet()),
+                         new ArrayList<>(ref.descendingKeySet()));
+            List<Integer> keys = new ArrayList<>(ref.keySet());
+            Collections.shuffle(keys, rnd);
+            for (Integer k : keys)
+                assertEquals(m.remove(k), ref.get(k));
+            assertTrue(m.isEmpty());
+            assertNull(m.firstEntry());
+            assertNull(m.lastEntry());
+            assertTrue(leafCount(m) <= 2);
+        }
+    }
+
+    @Test
+    public void concurrentAppendersAndPollers() throws Exception {
+        final ConcurrentBLinkTreeMap<Integer,Integer> m = new ConcurrentBLinkTreeMap<>();
+        final int producers = 4, consumers = 2, perProducer = 50_000;
+        final AtomicInteger seq = new AtomicInteger();
+        final AtomicInteger produced = new AtomicInteger();
+        final ConcurrentHashMap<Integer,Boolean> seen = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++)
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    int k = seq.getAndIncrement();
+                    m.put(k, k);
+                    produced.incrementAndGet();
+                    if ((i & 255) == 0)
+                        Thread.yield();
+                }
+            }));
+        for (int c = 0; c < consumers; c++)
+            threads.add(new Thread(() -> {
+                for (;;) {
+                    Map.Entry<Integer,Integer> e = m.pollFirstEntry();
+                    if (e != null)
+                        assertNull(seen.put(e.getKey(), Boolean.TRUE));
+                    else if (produced.get() == producers * perProducer && m.isEmpty())
+                        break;
+                    else
+                        Thread.yield();
+                }
+            }));
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join(60_000);
+        assertEquals(seen.size(), producers * perProducer);
+        assertTrue(m.isEmpty());
+        assertTrue(leafCount(m) <= 2);
+    }
+}
@@ -0,0 +1,90 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that the batched loads of {@link ConcurrentHashMap}, {@link
+ * ConcurrentHashMap#putAllBatched} and {@link ConcurrentHashMap#mergeAll},
+ * keep the element count in step with the mappings actually stored,
+ * also when the remapping function throws part-way, in which case
+ * the map no longer changes once the exception is thrown.
+ * 验证批量载入在重映射函数抛出异常时仍正确计数。
+ */
+public class ConcurrentHashMapBatchTest {
+
+    private static int countMappings(ConcurrentHashMap<?,?> m) {
+        int n = 0;
+        for (Object k : m.keySet())
+            ++n;
+        return n;
+    }
+
+    private static Map<Integer,Integer> source(int n) {
+        Map<Integer,Integer> src = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            src.put(i, i);
+        return src;
+    }
+
+    private static final BiFunction<Integer,Integer,Integer> THROWING =
+        (a, b) -> { throw new IllegalStateException(); };
+
+    /** Merges src with the given threshold, expecting the function to throw. */
+    private static void mergeAllThrowing(ConcurrentHashMap<Integer,Integer> m,
+                                         long parallelismThreshold,
+                                         Map<Integer,Integer> src) {
+        try {
+            m.mergeAll(parallelismThreshold, src, THROWING);
+            throw new AssertionError("function did not throw");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void sizeAfterThrowingMergeAll() {
+        ConcurrentHashMap<Integer,Integer> m = new ConcurrentHashMap<>();
+        m.put(500, -1);
+        mergeAllThrowing(m, Long.MAX_VALUE, source(1000));
+        int n = countMappings(m);
+        assertTrue(n > 1, "nothing loaded before the function threw: " + n);
+        assertEquals(m.size(), n);
+        assertEquals(m.mappingCount(), (long) n);
+        assertEquals(m.get(500), Integer.valueOf(-1));
+    }
+
+    @Test
+    public void sizeAfterThrowingParallelMergeAll() {
+        for (int round = 0; round < 20; round++) {
+            ConcurrentHashMap<Integer,Integer> m = new ConcurrentHashMap<>();
+            for (int i = 0; i < 10_000; i += 1000)
+                m.put(i, -1);
+            mergeAllThrowing(m, 1L, source(10_000));
+            // 异常抛出时所有子任务都已结束，映射不再变化
+            Map<Integer,Integer> snapshot = new HashMap<>(m);
+            assertEquals(m.size(), snapshot.size());
+            assertEquals(countMappings(m), snapshot.size());
+            Thread.yield();
+            assertEquals(new HashMap<>(m), snapshot);
+        }
+    }
+
+    @Test
+    public void sizeAfterMergeAllRemovingMappings() {
+        ConcurrentHashMap<Integer,Integer> m = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1000; i += 2)
+            m.put(i, i);
+        // 已存在的键被删除，其余键新增
+        m.mergeAll(source(1000), (a, b) -> null);
+        assertEquals(m.size(), 500);
+        assertEquals(countMappings(m), 500);
+        m.putAllBatched(1L, source(2000));
+        assertEquals(m.size(), 2000);
+        assertEquals(countMappings(m), 2000);
+    }
+}
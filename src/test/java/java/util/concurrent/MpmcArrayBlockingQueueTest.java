@@ -0,0 +1,313 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link MpmcArrayBlockingQueue} that drive its waiters into
+ * particular interleavings, and of the removal of interior elements.
+ * 验证无锁数组阻塞队列在特定交错下不会丢失唤醒，以及中间元素的移除。
+ */
+public class MpmcArrayBlockingQueueTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    private static Field field(String name) throws ReflectiveOperationException {
+        Field f = MpmcArrayBlockingQueue.class.getDeclaredField(name);
+        f.setAccessible(true);
+        return f;
+    }
+
+    /** Waits until t is parked with a node on top of the given stack. */
+    private static MpmcArrayBlockingQueue.WaitNode awaitParked(
+        MpmcArrayBlockingQueue<?> q, Field stack, Thread t) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        for (;;) {
+            MpmcArrayBlockingQueue.WaitNode h =
+                (MpmcArrayBlockingQueue.WaitNode) stack.get(q);
+            if (h != null && h.thread == t && t.getState() == Thread.State.WAITING)
+                return h;
+            assertTrue(System.currentTimeMillis() < deadline, "not parked: " + t);
+            Thread.yield();
+        }
+    }
+
+    /**
+     * A taker whose node is claimed by the signal for one element, but
+     * which gets another one, must pass the signal on: here the element
+     * x is published without a signal (as if its publisher had looked
+     * at the takers before the waiters registered), so that the signal
+     * for y wakes the top taker, which takes x and must wake the other.
+     */
+    @Test
+    public void takerPassesOnSignalForElementItDidNotTake() throws Exception {
+        MpmcArrayBlockingQueue<String> q = new MpmcArrayBlockingQueue<>(4);
+        Field takers = field("takers");
+        BlockingQueue<String> taken = new LinkedBlockingQueue<>();
+        Runnable take = () -> {
+            try {
+                taken.add(q.take());
+            } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+            }
+        };
+        Thread w2 = new Thread(take), w1 = new Thread(take);
+        w2.setDaemon(true);
+        w1.setDaemon(true);
+        w2.start();
+        awaitParked(q, takers, w2);
+        w1.start();
+        awaitParked(q, takers, w1);
+
+        Object h = takers.get(q);
+        takers.set(q, null);
+        assertTrue(q.offer("x"));   // no signal
+        takers.set(q, h);
+        assertTrue(q.offer("y"));   // signals w1, which takes x
+
+        String a = taken.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        String b = taken.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(a);
+        assertNotNull(b, "lost wakeup: " + w2.getState() + ", size " + q.size());
+        assertEquals(a.compareTo(b) < 0 ? a + b : b + a, "xy");
+        assertEquals(q.size(), 0);
+        w1.join(TIMEOUT_MILLIS);
+        w2.join(TIMEOUT_MILLIS);
+    }
+
+    /**
+     * The same interleaving for putters: the slot freed without a
+     * signal goes to the top putter, woken by the signal for the next
+     * slot, which must wake the other putter.
+     */
+    @Test
+    public void putterPassesOnSignalForSlotItDidNotGet() throws Exception {
+        MpmcArrayBlockingQueue<String> q = new MpmcArrayBlockingQueue<>(2);
+        q.add("a");
+        q.add("b");
+        Field putters = field("putters");
+        CountDownLatch put = new CountDownLatch(2);
+        Thread w2 = new Thread(() -> {
+            try {
+                q.put("d");
+                put.countDown();
+            } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+            }
+        });
+        Thread w1 = new Thread(() -> {
+            try {
+                q.put("c");
+                put.countDown();
+            } catch (InterruptedException ex) {
+                throw new AssertionError(ex);
+            }
+        });
+        w2.setDaemon(true);
+        w1.setDaemon(true);
+        w2.start();
+        awaitParked(q, putters, w2);
+        w1.start();
+        awaitParked(q, putters, w1);
+
+        Object h = putters.get(q);
+        putters.set(q, null);
+        assertEquals(q.poll(), "a");    // no signal
+        putters.set(q, h);
+        assertEquals(q.poll(), "b");    // signals w1, which gets a's slot
+
+        assertTrue(put.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS),
+                   "lost wakeup: " + w2.getState() + ", size " + q.size());
+        assertEquals(q.size(), 2);
+        w1.join(TIMEOUT_MILLIS);
+        w2.join(TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void removeInteriorElements() {
+        MpmcArrayBlockingQueue<Integer> q = new MpmcArrayBlockingQueue<>(6);
+        for (int i = 0; i < 6; i++)
+            q.add(i);
+        assertTrue(q.remove(2));
+        assertTrue(q.remove(0));
+        assertFalse(q.remove(0));
+        assertFalse(q.remove(7));
+        assertEquals(q.size(), 4);
+        // 被移除元素的槽位在消费者越过之前仍然占用
+        assertEquals(q.remainingCapacity(), 0);
+        assertFalse(q.offer(6));
+        assertEquals(q.peek(), Integer.valueOf(1));
+        assertTrue(q.contains(3));
+        assertFalse(q.contains(2));
+        assertEquals(Arrays.toString(q.toArray()), "[1, 3, 4, 5]");
+        assertEquals(q.poll(), Integer.valueOf(1));
+        assertEquals(q.remainingCapacity(), 2);
+        assertTrue(q.remove(3));
+        assertTrue(q.remove(4));
+        assertTrue(q.remove(5));
+        assertTrue(q.isEmpty());
+        assertNull(q.peek());
+        assertEquals(q.size(), 0);
+        assertNull(q.poll());
+        assertEquals(q.remainingCapacity(), 6);
+        q.add(6);
+        q.add(7);
+        List<Integer> c = new ArrayList<>();
+        assertTrue(q.remove(6));
+        assertEquals(q.drainTo(c), 1);
+        assertEquals(c, Arrays.asList(7));
+        assertEquals(q.size(), 0);
+    }
+
+    @Test
+    public void iteratorRemoveAndBulkRemoval() {
+        MpmcArrayBlockingQueue<Integer> q = new MpmcArrayBlockingQueue<>(10);
+        for (int i = 0; i < 10; i++)
+            q.add(i);
+        Iterator<Integer> it = q.iterator();
+        try {
+            it.remove();
+            throw new AssertionError("remove before next");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(it.next(), Integer.valueOf(0));
+        it.remove();
+        try {
+            it.remove();
+            throw new AssertionError("remove twice");
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(q.removeIf(e -> e % 3 == 0));
+        assertTrue(q.removeAll(Arrays.asList(1, 2)));
+        assertTrue(q.retainAll(Arrays.asList(4, 5, 7)));
+        assertFalse(q.retainAll(Arrays.asList(4, 5, 7)));
+        assertEquals(Arrays.toString(q.toArray()), "[4, 5, 7]");
+        assertEquals(q.size(), 3);
+        List<Integer> c = new ArrayList<>();
+        while (!q.isEmpty())
+            c.add(q.poll());
+        assertEquals(c, Arrays.asList(4, 5, 7));
+        assertEquals(q.remainingCapacity(), 8);
+        assertNull(q.poll());
+        assertEquals(q.remainingCapacity(), 10);
+    }
+
+    /**
+     * The queue can back a ThreadPoolExecutor, whose remove and purge
+     * take queued tasks out of its work queue.
+     */
+    @Test
+    public void threadPoolExecutorRemoveAndPurge() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor e = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new MpmcArrayBlockingQueue<>(16));
+        try {
+            e.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new AssertionError(ex);
+                }
+            });
+            AtomicLong ran = new AtomicLong();
+            Runnable r1 = ran::incrementAndGet, r2 = ran::incrementAndGet;
+            e.execute(r1);
+            e.execute(r2);
+            List<Future<?>> fs = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                fs.add(e.submit(ran::incrementAndGet));
+            assertEquals(e.getQueue().size(), 6);
+            assertTrue(e.remove(r1));
+            assertFalse(e.remove(r1));
+            fs.get(1).cancel(false);
+            fs.get(3).cancel(false);
+            e.purge();
+            assertEquals(e.getQueue().size(), 3);
+            release.countDown();
+            fs.get(0).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            fs.get(2).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            e.shutdown();
+            assertTrue(e.awaitTermination(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            assertEquals(ran.get(), 3L);
+            assertEquals(e.getCompletedTaskCount(), 4L);
+        } finally {
+            release.countDown();
+            e.shutdownNow();
+        }
+    }
+
+    /**
+     * Producers, consumers and removers running at once: every element
+     * is either taken once or removed once.
+     */
+    @Test
+    public void concurrentRemovalConservesElements() throws Exception {
+        final int producers = 3, perProducer = 50_000;
+        MpmcArrayBlockingQueue<Long> q = new MpmcArrayBlockingQueue<>(64);
+        AtomicLong takenSum = new AtomicLong(), removedSum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        List<Thread> ts = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            final long base = (long) t * perProducer;
+            ts.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++)
+                        q.put(base + i);
+                } catch (InterruptedException ex) {
+                    throw new AssertionError(ex);
+                }
+            }));
+        }
+        final long total = (long) producers * perProducer;
+        for (int t = 0; t < 2; t++) {
+            ts.add(new Thread(() -> {
+                while (count.get() < total) {
+                    Long x = q.poll();
+                    if (x == null)
+                        Thread.yield();
+                    else {
+                        takenSum.addAndGet(x);
+                        count.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        ts.add(new Thread(() -> {
+            while (count.get() < total) {
+                for (Iterator<Long> it = q.iterator(); it.hasNext(); ) {
+                    Long x = it.next();
+                    if ((x & 1L) == 0L && q.remove(x)) {
+                        removedSum.addAndGet(x);
+                        count.incrementAndGet();
+                    }
+                }
+                Thread.yield();
+            }
+        }));
+        for (Thread t : ts) {
+            t.setDaemon(true);
+            t.start();
+        }
+        for (Thread t : ts) {
+            t.join(60_000L);
+            assertFalse(t.isAlive(), "stuck: " + t + ", count " + count.get());
+        }
+        assertEquals(count.get(), total);
+        assertEquals(takenSum.get() + removedSum.get(), total * (total + 1) / 2);
+        assertTrue(q.isEmpty());
+        assertEquals(q.size(), 0);
+        assertNull(q.poll());   // frees the slots of the last removed elements
+        assertEquals(q.remainingCapacity(), 64);
+    }
+}
@@ -0,0 +1,131 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link MpscArrayQueue} at its full and empty boundaries, of
+ * {@code drain} with an action that throws, and of the delivery of the
+ * elements of several producers to the consumer.
+ * 验证多生产者单消费者数组队列的边界、drain异常处理与恰好一次交付。
+ */
+public class MpscArrayQueueTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    @Test
+    public void fullAndEmptyBoundaries() {
+        for (int capacity : new int[] { 1, 2, 3, 5, 6, 7, 100 }) {
+            MpscArrayQueue<Integer> q = new MpscArrayQueue<>(capacity);
+            assertEquals(q.capacity(), capacity);
+            int next = 0, expected = 0;
+            for (int round = 0; round < 3 * capacity + 3; ++round) {
+                assertTrue(q.isEmpty());
+                assertNull(q.peek());
+                assertNull(q.poll());
+                for (int i = 0; i < capacity; ++i)
+                    assertTrue(q.offer(next++));
+                assertFalse(q.offer(-1), "capacity " + capacity);
+                assertEquals(q.size(), capacity);
+                // 取出一部分后重新填满，使位置在缓冲区中绕回
+                int k = round % capacity + 1;
+                for (int i = 0; i < k; ++i)
+                    assertEquals(q.poll(), Integer.valueOf(expected++));
+                for (int i = 0; i < k; ++i)
+                    assertTrue(q.offer(next++));
+                assertFalse(q.offer(-1));
+                assertEquals(q.peek(), Integer.valueOf(expected));
+                for (Integer e; (e = q.poll()) != null; )
+                    assertEquals(e, Integer.valueOf(expected++));
+            }
+            assertEquals(expected, next);
+        }
+    }
+
+    /**
+     * An element whose action throws is removed, and the head is
+     * advanced past it, so the slots are handed back to the producers.
+     */
+    @Test
+    public void drainAdvancesHeadWhenActionThrows() {
+        MpscArrayQueue<Integer> q = new MpscArrayQueue<>(3);
+        for (int i = 0; i < 3; ++i)
+            q.offer(i);
+        List<Integer> taken = new ArrayList<>();
+        try {
+            q.drain(e -> {
+                taken.add(e);
+                if (e == 1)
+                    throw new IllegalStateException();
+            }, Integer.MAX_VALUE);
+            throw new AssertionError("action did not throw");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(taken, Arrays.asList(0, 1));
+        assertEquals(q.size(), 1);
+        assertTrue(q.offer(3));
+        assertTrue(q.offer(4));
+        assertFalse(q.offer(5));
+        assertEquals(q.drain(taken::add, 2), 2);
+        assertEquals(taken, Arrays.asList(0, 1, 2, 3));
+        assertEquals(q.poll(), Integer.valueOf(4));
+        assertNull(q.poll());
+    }
+
+    /**
+     * Under contention each element is delivered exactly once, and the
+     * elements of each producer in the order it offered them.
+     */
+    @Test
+    public void producersToConsumerExactlyOnce() throws Exception {
+        final int producers = 4, perProducer = 50_000;
+        MpscArrayQueue<Long> q = new MpscArrayQueue<>(13);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            final long id = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; ++i) {
+                    Long e = (id << 32) | i;
+                    while (!q.offer(e))
+                        Thread.yield();
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        int[] next = new int[producers];
+        int received = 0;
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        List<Long> batch = new ArrayList<>();
+        while (received < producers * perProducer) {
+            batch.clear();
+            Long e = q.poll();
+            if (e != null)
+                batch.add(e);
+            q.drain(batch::add, 5);
+            if (batch.isEmpty()) {
+                assertTrue(System.currentTimeMillis() < deadline, "stalled");
+                Thread.yield();
+            }
+            for (long x : batch) {
+                int p = (int) (x >>> 32), i = (int) x;
+                // 同一生产者的元素按顺序到达，且不重复、不丢失
+                assertEquals(i, next[p]++, "producer " + p);
+                ++received;
+            }
+        }
+        for (Thread t : threads)
+            t.join(TIMEOUT_MILLIS);
+        for (int p = 0; p < producers; ++p)
+            assertEquals(next[p], perProducer);
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link MpscLinkedQueue} when empty, of {@code drain} with an
+ * action that throws, and of the delivery of the elements of several
+ * producers to a consumer blocked in {@code take}.
+ * 验证多生产者单消费者链表队列的空队列行为、drain异常处理与恰好一次交付。
+ */
+public class MpscLinkedQueueTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    @Test
+    public void emptyQueue() throws InterruptedException {
+        MpscLinkedQueue<Integer> q = new MpscLinkedQueue<>();
+        assertTrue(q.isEmpty());
+        assertEquals(q.size(), 0);
+        assertEquals(q.remainingCapacity(), Integer.MAX_VALUE);
+        assertNull(q.peek());
+        assertNull(q.poll());
+        assertEquals(q.drain(e -> { }, Integer.MAX_VALUE), 0);
+        assertNull(q.poll(10L, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 3; ++i) {
+            q.offer(i);
+            assertEquals(q.size(), 1);
+            assertEquals(q.peek(), Integer.valueOf(i));
+            assertEquals(q.poll(), Integer.valueOf(i));
+            assertTrue(q.isEmpty());
+            assertNull(q.poll());
+        }
+    }
+
+    /**
+     * An element whose action throws is removed, and the following ones
+     * stay in the queue in order.
+     */
+    @Test
+    public void drainAdvancesHeadWhenActionThrows() {
+        MpscLinkedQueue<Integer> q = new MpscLinkedQueue<>(Arrays.asList(0, 1, 2, 3));
+        List<Integer> taken = new ArrayList<>();
+        try {
+            q.drain(e -> {
+                taken.add(e);
+                if (e == 1)
+                    throw new IllegalStateException();
+            }, Integer.MAX_VALUE);
+            throw new AssertionError("action did not throw");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(taken, Arrays.asList(0, 1));
+        assertEquals(q.size(), 2);
+        assertEquals(q.poll(), Integer.valueOf(2));
+        q.offer(4);
+        assertEquals(q.drainTo(taken), 2);
+        assertEquals(taken, Arrays.asList(0, 1, 3, 4));
+        assertNull(q.poll());
+    }
+
+    /**
+     * Under contention each element is delivered exactly once, and the
+     * elements of each producer in the order it offered them, also to a
+     * consumer that parks when the queue is empty.
+     */
+    @Test
+    public void producersToConsumerExactlyOnce() throws Exception {
+        final int producers = 4, perProducer = 50_000;
+        MpscLinkedQueue<Long> q = new MpscLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            final long id = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; ++i) {
+                    q.offer((id << 32) | i);
+                    if ((i & 1023) == 0)
+                        Thread.yield();
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        int[] next = new int[producers];
+        List<Long> batch = new ArrayList<>();
+        for (int received = 0; received < producers * perProducer; ) {
+            batch.clear();
+            Long e = q.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertTrue(e != null, "stalled");
+            batch.add(e);
+            q.drain(batch::add, 100);
+            for (long x : batch) {
+                int p = (int) (x >>> 32), i = (int) x;
+                // 同一生产者的元素按顺序到达，且不重复、不丢失
+                assertEquals(i, next[p]++, "producer " + p);
+                ++received;
+            }
+        }
+        for (Thread t : threads)
+            t.join(TIMEOUT_MILLIS);
+        for (int p = 0; p < producers; ++p)
+            assertEquals(next[p], perProducer);
+        assertNull(q.poll());
+    }
+}
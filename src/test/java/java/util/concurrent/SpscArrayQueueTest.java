@@ -0,0 +1,131 @@
+package java.util.concurrent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link SpscArrayQueue} at its full and empty boundaries, of
+ * {@code drain} with an action that throws, and of the order of the
+ * elements handed from a producer thread to a consumer thread.
+ * 验证单生产者单消费者队列的边界、drain异常时的head推进与FIFO顺序。
+ */
+public class SpscArrayQueueTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    /**
+     * The queue holds exactly its capacity, also when that is not a
+     * power of two, at every position of the buffer.
+     */
+    @Test
+    public void fullAndEmptyBoundaries() {
+        for (int capacity : new int[] { 1, 2, 3, 5, 6, 7, 100 }) {
+            SpscArrayQueue<Integer> q = new SpscArrayQueue<>(capacity);
+            assertEquals(q.capacity(), capacity);
+            int next = 0, expected = 0;
+            for (int round = 0; round < 3 * capacity + 3; ++round) {
+                assertTrue(q.isEmpty());
+                assertNull(q.peek());
+                assertNull(q.poll());
+                for (int i = 0; i < capacity; ++i)
+                    assertTrue(q.offer(next++));
+                assertFalse(q.offer(-1), "capacity " + capacity);
+                assertEquals(q.size(), capacity);
+                // 取出一部分后重新填满，使位置在缓冲区中绕回
+                int k = round % capacity + 1;
+                for (int i = 0; i < k; ++i)
+                    assertEquals(q.poll(), Integer.valueOf(expected++));
+                for (int i = 0; i < k; ++i)
+                    assertTrue(q.offer(next++));
+                assertFalse(q.offer(-1));
+                assertEquals(q.peek(), Integer.valueOf(expected));
+                for (Integer e; (e = q.poll()) != null; )
+                    assertEquals(e, Integer.valueOf(expected++));
+            }
+            assertEquals(expected, next);
+        }
+    }
+
+    @Test
+    public void drainTakesAtMostLimitInOrder() {
+        SpscArrayQueue<Integer> q = new SpscArrayQueue<>(6);
+        for (int i = 0; i < 6; ++i)
+            q.offer(i);
+        List<Integer> taken = new ArrayList<>();
+        assertEquals(q.drain(taken::add, 4), 4);
+        assertEquals(taken, Arrays.asList(0, 1, 2, 3));
+        assertEquals(q.drain(taken::add, 0), 0);
+        assertEquals(q.drain(taken::add, Integer.MAX_VALUE), 2);
+        assertEquals(q.drain(taken::add, Integer.MAX_VALUE), 0);
+        assertEquals(taken, Arrays.asList(0, 1, 2, 3, 4, 5));
+    }
+
+    /**
+     * An element whose action throws is removed, and the head is
+     * advanced past it, so the slots are handed back to the producer.
+     */
+    @Test
+    public void drainAdvancesHeadWhenActionThrows() {
+        SpscArrayQueue<Integer> q = new SpscArrayQueue<>(5);
+        for (int i = 0; i < 5; ++i)
+            q.offer(i);
+        List<Integer> taken = new ArrayList<>();
+        try {
+            q.drain(e -> {
+                taken.add(e);
+                if (e == 2)
+                    throw new IllegalStateException();
+            }, Integer.MAX_VALUE);
+            throw new AssertionError("action did not throw");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(taken, Arrays.asList(0, 1, 2));
+        assertEquals(q.size(), 2);
+        assertEquals(q.peek(), Integer.valueOf(3));
+        for (int i = 5; i < 8; ++i)
+            assertTrue(q.offer(i));
+        assertFalse(q.offer(8));
+        for (int i = 3; i < 8; ++i)
+            assertEquals(q.poll(), Integer.valueOf(i));
+        assertNull(q.poll());
+    }
+
+    /**
+     * The consumer, alternating poll and drain, sees every element of
+     * the producer once and in order.
+     */
+    @Test
+    public void producerToConsumerFifo() throws Exception {
+        final int n = 200_000;
+        SpscArrayQueue<Integer> q = new SpscArrayQueue<>(7);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; ++i) {
+                Integer e = i;
+                while (!q.offer(e))
+                    Thread.yield();
+            }
+        });
+        producer.start();
+        int[] expected = new int[1];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (expected[0] < n) {
+            Integer e = q.poll();
+            if (e != null)
+                assertEquals(e, Integer.valueOf(expected[0]++));
+            int k = q.drain(x -> assertEquals(x, Integer.valueOf(expected[0]++)), 3);
+            if (e == null && k == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "stalled");
+                Thread.yield();
+            }
+        }
+        producer.join(TIMEOUT_MILLIS);
+        assertNull(q.poll());
+    }
+}
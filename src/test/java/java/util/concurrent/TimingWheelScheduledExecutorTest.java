@@ -0,0 +1,270 @@
+package java.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the timing of {@link TimingWheelScheduledExecutor}, of
+ * cancellation, of periodic tasks and of its shutdown policies.
+ * 验证时间轮执行器的定时精度、取消、周期任务与关闭策略。
+ */
+public class TimingWheelScheduledExecutorTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    private static void terminate(ExecutorService e) throws InterruptedException {
+        e.shutdownNow();
+        assertTrue(e.awaitTermination(TIMEOUT_MILLIS, MILLISECONDS));
+    }
+
+    /** Returns the milliseconds elapsed since the given nanoTime. */
+    private static long millisSince(long start) {
+        return NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Tasks never run before their delay has elapsed, whatever the
+     * tick, and in particular not when the delay is not a multiple of
+     * it.
+     */
+    @Test
+    public void tasksNeverRunEarly() throws Exception {
+        for (long tickMicros : new long[] { 1L, 700L, 3000L }) {
+            TimingWheelScheduledExecutor e =
+                new TimingWheelScheduledExecutor(2, tickMicros,
+                                                 TimeUnit.MICROSECONDS);
+            try {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                List<ScheduledFuture<Long>> futures = new ArrayList<>();
+                List<Long> earliest = new ArrayList<>();
+                for (int i = 0; i < 100; ++i) {
+                    long delay = rnd.nextLong(MILLISECONDS.toNanos(100L));
+                    earliest.add(System.nanoTime() + delay);
+                    futures.add(e.schedule(System::nanoTime, delay, NANOSECONDS));
+                }
+                for (int i = 0; i < futures.size(); ++i) {
+                    long ran = futures.get(i).get(TIMEOUT_MILLIS, MILLISECONDS);
+                    assertTrue(ran - earliest.get(i) >= 0L,
+                               "ran " + (earliest.get(i) - ran) + "ns early");
+                }
+            } finally {
+                terminate(e);
+            }
+        }
+    }
+
+    /**
+     * With a tick far finer than the delays, the timer thread skips the
+     * empty ticks rather than stepping through each of them, so tasks
+     * run on time, even with a task pending beyond the range of the
+     * wheel.
+     */
+    @Test
+    public void fineTickDoesNotDelayTasks() throws Exception {
+        TimingWheelScheduledExecutor e =
+            new TimingWheelScheduledExecutor(1, 1L, NANOSECONDS);
+        try {
+            ScheduledFuture<?> far = e.schedule(() -> { }, 1L, TimeUnit.HOURS);
+            long start = System.nanoTime();
+            ScheduledFuture<?> f = e.schedule(() -> { }, 500L, MILLISECONDS);
+            f.get(TIMEOUT_MILLIS, MILLISECONDS);
+            long took = millisSince(start);
+            assertTrue(took >= 500L && took < 900L, "took " + took + "ms");
+            assertFalse(far.isDone());
+        } finally {
+            terminate(e);
+        }
+    }
+
+    /**
+     * A task due before the tick at which the timer thread is parked
+     * until wakes it up.
+     */
+    @Test
+    public void earlierTaskWakesParkedTimer() throws Exception {
+        TimingWheelScheduledExecutor e =
+            new TimingWheelScheduledExecutor(1, 10L, MILLISECONDS);
+        try {
+            e.schedule(() -> { }, 10L, SECONDS);
+            Thread.sleep(50L);          // 让定时线程进入长时间休眠
+            long start = System.nanoTime();
+            e.schedule(() -> { }, 20L, MILLISECONDS)
+                .get(TIMEOUT_MILLIS, MILLISECONDS);
+            long took = millisSince(start);
+            assertTrue(took < 300L, "took " + took + "ms");
+        } finally {
+            terminate(e);
+        }
+    }
+
+    @Test
+    public void cancelRemovesTask() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            ScheduledFuture<?> f =
+                e.schedule(runs::incrementAndGet, 50L, MILLISECONDS);
+            ScheduledFuture<?> g =
+                e.schedule(runs::incrementAndGet, 1L, TimeUnit.HOURS);
+            assertTrue(f.cancel(false));
+            assertTrue(g.cancel(false));
+            assertTrue(f.isCancelled() && f.isDone());
+            Thread.sleep(150L);
+            assertEquals(runs.get(), 0);
+            assertTrue(e.shutdownNow().isEmpty());
+        } finally {
+            terminate(e);
+        }
+    }
+
+    @Test
+    public void fixedRateRunsAtMultiplesOfPeriod() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            long period = MILLISECONDS.toNanos(20L);
+            long start = System.nanoTime();
+            List<Long> times = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(5);
+            ScheduledFuture<?> f = e.scheduleAtFixedRate(() -> {
+                times.add(System.nanoTime());
+                done.countDown();
+            }, 20L, 20L, MILLISECONDS);
+            assertTrue(done.await(TIMEOUT_MILLIS, MILLISECONDS));
+            f.cancel(false);
+            for (int i = 0; i < 5; ++i)
+                assertTrue(times.get(i) - start >= (i + 1) * period,
+                           "run " + i + " early");
+            assertTrue(f.isCancelled());
+        } finally {
+            terminate(e);
+        }
+    }
+
+    @Test
+    public void fixedDelayWaitsAfterEachRun() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            long delay = MILLISECONDS.toNanos(15L);
+            List<long[]> runs = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(4);
+            ScheduledFuture<?> f = e.scheduleWithFixedDelay(() -> {
+                long begin = System.nanoTime();
+                try {
+                    Thread.sleep(10L);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                runs.add(new long[] { begin, System.nanoTime() });
+                done.countDown();
+            }, 0L, 15L, MILLISECONDS);
+            assertTrue(done.await(TIMEOUT_MILLIS, MILLISECONDS));
+            f.cancel(false);
+            for (int i = 1; i < 4; ++i)
+                assertTrue(runs.get(i)[0] - runs.get(i - 1)[1] >= delay,
+                           "run " + i + " started too soon");
+        } finally {
+            terminate(e);
+        }
+    }
+
+    /**
+     * By default delayed tasks still run after shutdown, while periodic
+     * tasks are cancelled.
+     */
+    @Test
+    public void shutdownRunsDelayedTasksByDefault() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            assertTrue(e.getExecuteExistingDelayedTasksAfterShutdownPolicy());
+            ScheduledFuture<String> delayed =
+                e.schedule(() -> "done", 100L, MILLISECONDS);
+            ScheduledFuture<?> periodic =
+                e.scheduleAtFixedRate(() -> { }, 100L, 100L, MILLISECONDS);
+            e.shutdown();
+            assertTrue(e.isShutdown());
+            try {
+                e.schedule(() -> { }, 1L, MILLISECONDS);
+                throw new AssertionError("accepted after shutdown");
+            } catch (RejectedExecutionException expected) {
+            }
+            assertEquals(delayed.get(TIMEOUT_MILLIS, MILLISECONDS), "done");
+            assertTrue(e.awaitTermination(TIMEOUT_MILLIS, MILLISECONDS));
+            assertTrue(periodic.isCancelled());
+        } finally {
+            terminate(e);
+        }
+    }
+
+    @Test
+    public void shutdownCancelsDelayedTasksIfPolicyFalse() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            e.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            AtomicInteger runs = new AtomicInteger();
+            ScheduledFuture<?> delayed =
+                e.schedule(runs::incrementAndGet, 1L, TimeUnit.HOURS);
+            e.shutdown();
+            assertTrue(e.awaitTermination(TIMEOUT_MILLIS, MILLISECONDS));
+            assertTrue(delayed.isCancelled());
+            assertEquals(runs.get(), 0);
+        } finally {
+            terminate(e);
+        }
+    }
+
+    /**
+     * Setting the policy to false after shutdown discards the delayed
+     * tasks still pending.
+     */
+    @Test
+    public void policyFalseAfterShutdownCancelsDelayedTasks() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            ScheduledFuture<?> delayed = e.schedule(() -> { }, 1L, TimeUnit.HOURS);
+            e.shutdown();
+            assertFalse(e.awaitTermination(50L, MILLISECONDS));
+            e.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            assertTrue(e.awaitTermination(TIMEOUT_MILLIS, MILLISECONDS));
+            assertTrue(delayed.isCancelled());
+        } finally {
+            terminate(e);
+        }
+    }
+
+    /**
+     * shutdownNow returns the tasks that had not started, including
+     * those not yet placed in the wheel, but not the cancelled ones.
+     */
+    @Test
+    public void shutdownNowReturnsPendingTasks() throws Exception {
+        TimingWheelScheduledExecutor e = new TimingWheelScheduledExecutor(1);
+        try {
+            HashSet<Object> pending = new HashSet<>();
+            for (int i = 0; i < 3; ++i)
+                pending.add(e.schedule(() -> { }, 1L + i, TimeUnit.HOURS));
+            Thread.sleep(20L);          // 让定时线程把它们放进时间轮
+            for (int i = 0; i < 3; ++i)
+                pending.add(e.schedule(() -> { }, 10L + i, SECONDS));
+            e.schedule(() -> { }, 1L, TimeUnit.HOURS).cancel(false);
+            List<Runnable> unrun = e.shutdownNow();
+            assertEquals(new HashSet<Object>(unrun), pending);
+            assertEquals(unrun.size(), 6);
+            for (Runnable r : unrun)
+                assertFalse(((Future<?>) r).isDone());
+            assertTrue(e.awaitTermination(TIMEOUT_MILLIS, MILLISECONDS));
+            assertTrue(e.isTerminated());
+        } finally {
+            terminate(e);
+        }
+    }
+}